@@ -1,5 +1,6 @@
 package com.github.oeuvres.alix.ingest;
 
+import java.io.IOException;
 import java.util.Objects;
 
 import org.apache.lucene.document.*;
@@ -8,7 +9,11 @@ import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.util.BytesRef;
 import org.xml.sax.SAXException;
 
+import com.github.oeuvres.alix.common.Names;
 import com.github.oeuvres.alix.ingest.AlixDocument.AlixField;
+import com.github.oeuvres.alix.lucene.analysis.PosTaggingFilter;
+import com.github.oeuvres.alix.lucene.analysis.SharedAnalysis;
+import com.github.oeuvres.alix.lucene.analysis.fr.FrenchAnalyzer;
 import com.github.oeuvres.alix.util.Report;
 import com.github.oeuvres.alix.util.Report.ReportNull;
 import static com.github.oeuvres.alix.common.Names.*;
@@ -35,11 +40,21 @@ import static com.github.oeuvres.alix.common.Names.*;
  * TEXT:
  * - base text (source==null): stored under (name + storedTextSuffix) and indexed under name with TokenStream
  * - derived text (source!=null): indexed under name, using source text occurrences (all matches if repeated)
+ * - shared analysis: when the writer analyzer is a {@link FrenchAnalyzer}, a source text used by at least
+ * two fields of the same chain (base and word2vec for example) is analyzed once by a {@link SharedAnalysis},
+ * and each field indexes a replay of the recorded tokens through its own last filters, see
+ * {@link #shareAnalysis(boolean)}.
+ *
+ * SEQUENCE (optional, see {@link #sequence(long)}):
+ * - docvalues: NumericDocValuesField {@link com.github.oeuvres.alix.common.Names#ALIX_SEQ} with the
+ * ingestion rank of the document, for a deterministic index sort when several consumers share a writer.
  *
  * Notes:
  * - SortedDocValuesField does NOT allow multiple values per doc per field name; we enforce “keep first”.
  * - If a TEXT source field name is repeated, derived fields apply to ALL matching base occurrences
  * (multi-valued Lucene field semantics).
+ * - One instance per thread: several consumers may feed the same {@link IndexWriter} concurrently,
+ * but an instance keeps its own counters and sequence.
  */
 public final class AlixLuceneConsumer implements AlixDocumentConsumer
 {
@@ -76,11 +91,76 @@ public final class AlixLuceneConsumer implements AlixDocumentConsumer
     
     private final IndexWriter writer;
     private final Report report;
+    /** One analysis per source text for the fields of the same chain, {@code null} if off. */
+    private SharedAnalysis shared;
+    /** Next ingestion rank written in {@link Names#ALIX_SEQ}, negative if not sequenced. */
+    private long seq = -1;
+    /** Count of documents sent to the writer. */
+    private long docs;
+    /** Time spent in shared analysis and {@link IndexWriter#addDocument(Iterable)} (analysis and indexation), in nanoseconds. */
+    private long nanos;
+    /** Part of {@link #nanos} spent in POS tagging, in nanoseconds. */
+    private long tagNanos;
     
     public AlixLuceneConsumer(IndexWriter writer, Report report)
     {
         this.writer = Objects.requireNonNull(writer, "writer");
         this.report = (report != null) ? report : ReportNull.INSTANCE;
+        shareAnalysis(true);
+    }
+    
+    /**
+     * Set whether a source text feeding several fields of the same analysis chain is analyzed once.
+     * Effective only when the writer analyzer is a {@link FrenchAnalyzer}, on by default. Indexed
+     * tokens are the same either way; only analysis time changes.
+     *
+     * @param on true to share analysis.
+     */
+    public void shareAnalysis(final boolean on)
+    {
+        this.shared = (on && writer.getAnalyzer() instanceof FrenchAnalyzer fa) ? fa.sharedAnalysis() : null;
+    }
+    
+    /**
+     * Set the ingestion rank of the next document, incremented for each accepted document.
+     * The rank is written as a {@link NumericDocValuesField} {@link Names#ALIX_SEQ}, allowing an
+     * index sort to restore a deterministic docId order after concurrent writes.
+     *
+     * @param rank first rank to write, or a negative value to stop writing ranks.
+     */
+    public void sequence(final long rank)
+    {
+        this.seq = rank;
+    }
+    
+    /**
+     * Count of documents sent to the writer by this consumer.
+     *
+     * @return documents added.
+     */
+    public long docCount()
+    {
+        return docs;
+    }
+    
+    /**
+     * Cumulated time spent by this consumer in text analysis and in the writer.
+     *
+     * @return nanoseconds.
+     */
+    public long indexNanos()
+    {
+        return nanos;
+    }
+    
+    /**
+     * Cumulated time spent in POS tagging, part of {@link #indexNanos()}.
+     *
+     * @return nanoseconds.
+     */
+    public long tagNanos()
+    {
+        return tagNanos;
     }
     
     @Override
@@ -88,6 +168,12 @@ public final class AlixLuceneConsumer implements AlixDocumentConsumer
     {
         
         final Document luceneDoc = new Document();
+        // tagging counters of this thread, before the document
+        final PosTaggingFilter.Timing timing = PosTaggingFilter.timing();
+        final long tagStart = timing.nanos();
+        final long tokStart = timing.tokens();
+        final long sentStart = timing.sentences();
+        final long cachedStart = timing.cached();
         
         final String docId = alixDoc.docId();
         if (docId != null && !docId.isBlank()) {
@@ -97,12 +183,18 @@ public final class AlixLuceneConsumer implements AlixDocumentConsumer
         else {
             //? no id?
         }
+        if (seq >= 0) {
+            luceneDoc.add(new NumericDocValuesField(ALIX_SEQ, seq++));
+        }
         
         // CATEGORY uniqueness tracking (keep first per CATEGORY field name)
         // Small-N => linear scan storage.
         String[] seenCatNames = null;
         int seenCatCount = 0;
         
+        // shared analyses of base TEXT occurrences, by field index
+        final SharedAnalysis.Run[] runs = (shared == null) ? null : new SharedAnalysis.Run[alixDoc.fieldCount()];
+        
         for (int i = 0; i < alixDoc.fieldCount(); i++) {
             final AlixField alixField = alixDoc.fieldAt(i);
             // can’t reuse char sequence
@@ -173,9 +265,14 @@ public final class AlixLuceneConsumer implements AlixDocumentConsumer
                             // Base TEXT: store under <name> + suffix, index under <name>
                             luceneDoc.add(new StoredField(name, value, STORED_ONLY));
                             
-                            // feel field with a TokenStream break the Analyzer reuse logic
-                            // no need of a reader here, store need a string
-                            luceneDoc.add(new Field(alixField.name, value, TEXT_INDEXED_TS));
+                            if (runs != null && shared.shares(name) && sharedUses(alixDoc, i) > 1) {
+                                luceneDoc.add(new Field(name, shared.stream(name, run(alixDoc, runs, i)), TEXT_INDEXED_TS));
+                            }
+                            else {
+                                // feel field with a TokenStream break the Analyzer reuse logic
+                                // no need of a reader here, store need a string
+                                luceneDoc.add(new Field(alixField.name, value, TEXT_INDEXED_TS));
+                            }
                             
                             // Word-count/stats design note:
                             // If you need word counts known at analysis time:
@@ -192,8 +289,13 @@ public final class AlixLuceneConsumer implements AlixDocumentConsumer
                                         && alixField.source.equals(src.name))
                                 {
                                     srcCount++;
-                                    Field luceneField = new Field(alixField.name, src.getValueAsString(), TEXT_INDEXED_TS);
-                                    // TokenStream ts = textAnalyzer.tokenStream(alixField.name, src.getValueAsString());
+                                    final Field luceneField;
+                                    if (runs != null && shared.shares(name) && sharedUses(alixDoc, j) > 1) {
+                                        luceneField = new Field(name, shared.stream(name, run(alixDoc, runs, j)), TEXT_INDEXED_TS);
+                                    }
+                                    else {
+                                        luceneField = new Field(alixField.name, src.getValueAsString(), TEXT_INDEXED_TS);
+                                    }
                                     luceneDoc.add(luceneField);
                                 }
                             }
@@ -204,7 +306,7 @@ public final class AlixLuceneConsumer implements AlixDocumentConsumer
                         }
                     }
                 }
-            } catch (RuntimeException e) {
+            } catch (IOException | RuntimeException e) {
                 throw new SAXException("Error building Lucene fields from '" + alixField.name + "' type=" + alixField.type, e);
             }
         }
@@ -215,11 +317,55 @@ public final class AlixLuceneConsumer implements AlixDocumentConsumer
                 System.err.println("Who has closed the Writer?");
                 System.exit(9);
             }
+            final long start = System.nanoTime();
             writer.addDocument(luceneDoc);
+            nanos += System.nanoTime() - start;
+            docs++;
+            final long tagged = timing.nanos() - tagStart;
+            tagNanos += tagged;
+            if (tagged > 0) {
+                report.debug("docId=" + docId + " tagging: " + (timing.tokens() - tokStart) + " tokens, "
+                    + (timing.sentences() - sentStart) + " sentences (" + (timing.cached() - cachedStart) + " cached), "
+                    + (tagged / 1_000_000) + " ms");
+            }
         } catch (Exception e) {
             System.err.println("id=" + luceneDoc.get(ALIX_ID) + " year=" + luceneDoc.get("year"));
             throw new SAXException("IndexWriter failure", e);
+        } finally {
+            if (shared != null) {
+                shared.clear();
+            }
+        }
+    }
+    
+    /**
+     * Shared analysis of a base TEXT occurrence, run on first use for the document.
+     */
+    private SharedAnalysis.Run run(final AlixDocument alixDoc, final SharedAnalysis.Run[] runs, final int index) throws IOException
+    {
+        if (runs[index] == null) {
+            final long start = System.nanoTime();
+            runs[index] = shared.analyze(alixDoc.fieldAt(index).getValueAsString());
+            nanos += System.nanoTime() - start;
+        }
+        return runs[index];
+    }
+    
+    /**
+     * Count of fields analyzed by the shared chain from a base TEXT occurrence: the base field itself
+     * and the derived fields naming it as source. Sharing pays from two.
+     */
+    private int sharedUses(final AlixDocument alixDoc, final int index)
+    {
+        final AlixField base = alixDoc.fieldAt(index);
+        int uses = shared.shares(base.name) ? 1 : 0;
+        for (int k = 0; k < alixDoc.fieldCount(); k++) {
+            final AlixField f = alixDoc.fieldAt(k);
+            if (f.type == AlixDocument.FieldType.TEXT && base.name.equals(f.source) && shared.shares(f.name)) {
+                uses++;
+            }
         }
+        return uses;
     }
     
 }
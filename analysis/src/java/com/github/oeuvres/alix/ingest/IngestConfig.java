@@ -20,6 +20,10 @@ import java.util.*;
  * <li><b>prexslt</b> (optional): path to an XSLT stylesheet, resolved relative to the config file directory.</li>
  * <li><b>name</b> (optional): corpus id; if absent, defaults to the config filename stem.</li>
  * <li><b>label</b> (optional): display label.</li>
+ * <li><b>threads</b> (optional): count of parallel ingestion workers; {@code 1} (default) is sequential,
+ * {@code 0} or {@code auto} uses the available processors.</li>
+ * <li><b>ordered</b> (optional): {@code true} to keep a deterministic docId order (file order, then
+ * document order inside a file) when {@code threads} &gt; 1.</li>
  * <li><b>brevidots</b>, <b>expressions</b>, <b>hunspell</b>, <b>normalizations</b>, <b>stopwords</b>,
  * <b>ucwords</b> (optional): multi-line
  * lists of dictionary file paths, resolved relative to the config file directory. One key per
@@ -85,6 +89,12 @@ public final class IngestConfig
     /** Required. Expanded TEI files after applying excludes. Absolute normalized, order preserved. */
     public final List<Path> teiFiles;
 
+    /** Count of parallel ingestion workers, ≥ 1. */
+    public final int threads;
+
+    /** Keep a deterministic docId order with parallel workers. */
+    public final boolean ordered;
+
     /** Resolve-relative dictionary lists keyed by {@link KeyGlob}; values unmodifiable, possibly empty. */
     private final EnumMap<KeyGlob, List<Path>> fileLists;
     
@@ -97,6 +107,8 @@ public final class IngestConfig
         final List<String> teiGlobs,
         final List<Path> teiFiles,
         final Path prexslt,
+        final int threads,
+        final boolean ordered,
         final EnumMap<KeyGlob, List<Path>> fileLists,
         final Properties props
     ){
@@ -105,6 +117,8 @@ public final class IngestConfig
         this.teiGlobs = Collections.unmodifiableList(teiGlobs);
         this.teiFiles = Collections.unmodifiableList(teiFiles);
         this.prexslt = prexslt;
+        this.threads = threads;
+        this.ordered = ordered;
         this.fileLists = fileLists;
         this.props = props;
     }
@@ -165,6 +179,11 @@ public final class IngestConfig
             prexslt = Dir.resolve(baseDir, prexsltStr);
         props.remove("prexslt");
 
+        int threads = threads(trimOrNull(props.getProperty("threads")), cfg);
+        props.remove("threads");
+        boolean ordered = Boolean.parseBoolean(trimOrNull(props.getProperty("ordered")));
+        props.remove("ordered");
+
         EnumMap<KeyGlob, List<Path>> fileLists = new EnumMap<>(KeyGlob.class);
         for (KeyGlob fl : KeyGlob.values()) {
             report.setAttribute("key", fl.key());
@@ -192,7 +211,7 @@ public final class IngestConfig
             + "\nexclude: " + String.join("\n", excludeGlobs) + "\n" + cfg);
         }
 
-        return new IngestConfig(luceneRoot, name, teiGlobs, teiFiles, prexslt, fileLists, props);
+        return new IngestConfig(luceneRoot, name, teiGlobs, teiFiles, prexslt, threads, ordered, fileLists, props);
     }
 
     @Override
@@ -207,6 +226,8 @@ public final class IngestConfig
         }
         if (prexslt != null)
             sb.append("  prexslt=").append(prexslt).append('\n');
+        if (threads > 1)
+            sb.append("  threads=").append(threads).append(ordered ? " ordered" : "").append('\n');
         for (KeyGlob fl : KeyGlob.values()) {
             appendList(sb, fl.key(), files(fl), 10);
         }
@@ -306,6 +327,24 @@ public final class IngestConfig
         return out;
     }
 
+    /** Parse the worker count: null → 1, {@code 0} or {@code auto} → available processors. */
+    private static int threads(String value, Path cfg)
+    {
+        if (value == null)
+            return 1;
+        if ("auto".equalsIgnoreCase(value))
+            return Runtime.getRuntime().availableProcessors();
+        final int n;
+        try {
+            n = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad value for key threads=\"" + value + "\" in " + cfg);
+        }
+        if (n < 0)
+            throw new IllegalArgumentException("Bad value for key threads=" + n + " in " + cfg);
+        return (n == 0) ? Runtime.getRuntime().availableProcessors() : n;
+    }
+
     /** Trim to null: returns null for null, empty, or whitespace-only strings. */
     private static String trimOrNull(String s)
     {
@@ -7,6 +7,8 @@ import com.github.oeuvres.alix.util.XsltJarResolver;
 import net.sf.saxon.TransformerFactoryImpl;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
 import org.apache.lucene.store.FSDirectory;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
@@ -29,14 +31,26 @@ import javax.xml.transform.stream.StreamSource;
 import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static com.github.oeuvres.alix.common.Names.ALIX_SEQ;
 import static org.apache.lucene.index.IndexWriterConfig.OpenMode.CREATE;
 
 /**
@@ -47,6 +61,9 @@ import static org.apache.lucene.index.IndexWriterConfig.OpenMode.CREATE;
  * → alix.xsl (classpath/JAR, imports resolved by XsltJarResolver)
  * → AlixSaxHandler (accumulator + consumer)
  *
+ * Files are ingested by one or more workers ({@link IngestConfig#threads}) sharing one IndexWriter,
+ * with per-stage throughput reported at the end.
+ *
  * Index write policy:
  * - build into indexroot/name_tmp
  * - on success: move indexroot/name → indexroot/name_old (if exists), then name_tmp → name
@@ -103,6 +120,17 @@ public final class TeiIngester
     
     /**
      * Ingest one corpus described by {@link IngestConfig}.
+     *
+     * <p>
+     * With {@link IngestConfig#threads} &gt; 1, files are dispatched to a fixed pool of workers, each with its
+     * own XML reader, XSLT chain, {@link AlixDocument} and {@link AlixLuceneConsumer}, all writing to the same
+     * {@link IndexWriter} (thread-safe, analysis runs in the calling worker). Workers pull the next file from
+     * a shared cursor, so no more than one file per worker is in flight. With {@link IngestConfig#ordered},
+     * each document gets an ingestion rank (file index, document index in file) appended as last criterion of
+     * the index sort, so that docIds do not depend on thread scheduling. With parallel workers, the
+     * {@link Report} is shared through a {@link Report.ReportSynchronized}, so any report may be given.
+     * </p>
+     *
      * @throws IOException 
      * @throws ParserConfigurationException 
      * @throws SAXException 
@@ -130,27 +158,39 @@ public final class TeiIngester
         // Analyzer choice: keep consistent with your demo; change here if needed.
         iwc.setOpenMode(CREATE);
         
+        final int threads = Math.max(1, Math.min(config.threads, config.teiFiles.size()));
+        final boolean sequenced = (threads > 1 && config.ordered);
+        if (sequenced) {
+            iwc.setIndexSort(sequenceSort(iwc.getIndexSort()));
+        }
+        
+        final long startNanos = System.nanoTime();
+        final Worker[] workers = new Worker[threads];
+        long ingestNanos;
+        long commitNanos;
+        long mergeNanos;
         try (FSDirectory dir = FSDirectory.open(tmp);
                 IndexWriter writer = new IndexWriter(dir, iwc))
         {
-            
-            AlixLuceneConsumer indexer = new AlixLuceneConsumer(writer, rep);
-            
-            for (Path tei : config.teiFiles) {
-                try {
-                    ingestOneFile(tei, preTpl, indexer);
-                }
-                catch(Exception e) {
-                    // An error in one file must not stop ingestion of the remaining corpus.
-                    rep.error(formatError(tei, e));
-                    if (Boolean.getBoolean(DEBUG_PROPERTY)) {
-                        e.printStackTrace(System.err);
-                    }
-                }
+            final AtomicInteger cursor = new AtomicInteger();
+            final Report workerRep = (threads > 1) ? new Report.ReportSynchronized(rep) : rep;
+            for (int w = 0; w < threads; w++) {
+                workers[w] = new Worker(config.teiFiles, cursor, preTpl, new AlixLuceneConsumer(writer, workerRep), workerRep, sequenced);
+            }
+            if (threads == 1) {
+                workers[0].call();
             }
+            else {
+                runParallel(workers);
+            }
+            ingestNanos = System.nanoTime() - startNanos;
             
+            long t = System.nanoTime();
             writer.commit();
+            commitNanos = System.nanoTime() - t;
+            t = System.nanoTime();
             writer.forceMerge(1);
+            mergeNanos = System.nanoTime() - t;
         }
         
         swapIndexDirs(current, tmp, old);
@@ -160,9 +200,96 @@ public final class TeiIngester
             config.props.storeToXML(output, null, StandardCharsets.UTF_8);
         }
         
+        reportThroughput(workers, ingestNanos, commitNanos, mergeNanos);
         rep.info("Indexed and merged: " + config.name + " -> " + current);
     }
     
+    /**
+     * Run workers on a fixed pool and wait for all of them. Per-file errors are reported by the workers,
+     * only failures of a worker itself (errors, writer failure) are propagated here.
+     */
+    private static void runParallel(final Worker[] workers) throws IOException
+    {
+        final AtomicInteger threadNo = new AtomicInteger();
+        final ExecutorService pool = Executors.newFixedThreadPool(workers.length, r -> {
+            Thread t = new Thread(r, "alix-ingest-" + threadNo.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            final List<Future<Void>> futures = new ArrayList<>(workers.length);
+            for (Worker worker : workers) {
+                futures.add(pool.submit(worker));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Ingestion interrupted");
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof Error error)
+                throw error;
+            if (cause instanceof IOException ioe)
+                throw ioe;
+            throw new IOException("Ingestion worker failed", cause);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+    
+    /**
+     * Append the ingestion rank {@link com.github.oeuvres.alix.common.Names#ALIX_SEQ} as the last criterion of an index sort,
+     * to break ties (or give the whole order) deterministically.
+     */
+    private static Sort sequenceSort(final Sort sort)
+    {
+        final SortField seq = new SortField(ALIX_SEQ, SortField.Type.LONG);
+        if (sort == null)
+            return new Sort(seq);
+        final SortField[] fields = sort.getSort();
+        final SortField[] with = Arrays.copyOf(fields, fields.length + 1);
+        with[fields.length] = seq;
+        return new Sort(with);
+    }
+    
+    /**
+     * Report per-stage throughput. XML time (parse, XSLT, accumulation) is the time of a file minus the
+     * time spent by the consumer in the writer (analysis and indexation). Stage times are summed over
+     * workers (thread time), wall time is given for the whole ingestion.
+     */
+    private void reportThroughput(final Worker[] workers, final long ingestNanos, final long commitNanos, final long mergeNanos)
+    {
+        long files = 0, failed = 0, bytes = 0, docs = 0, fileNanos = 0, indexNanos = 0, tagNanos = 0;
+        for (Worker w : workers) {
+            files += w.files;
+            failed += w.failed;
+            bytes += w.bytes;
+            docs += w.indexer.docCount();
+            fileNanos += w.nanos;
+            indexNanos += w.indexer.indexNanos();
+            tagNanos += w.indexer.tagNanos();
+        }
+        final long xmlNanos = Math.max(0, fileNanos - indexNanos);
+        final double mb = bytes / (1024.0 * 1024.0);
+        final double wall = ingestNanos / 1e9;
+        rep.info(String.format(Locale.ROOT,
+            "Ingested %d files (%d failed), %.1f MB, %d docs in %.1f s with %d thread(s): %.1f files/s, %.2f MB/s, %.1f docs/s",
+            files, failed, mb, docs, wall, workers.length, files / wall, mb / wall, docs / wall));
+        rep.info(String.format(Locale.ROOT,
+            "  xml (parse, xslt): %.1f s thread time, %.2f MB/s per thread",
+            xmlNanos / 1e9, (xmlNanos == 0) ? 0 : mb / (xmlNanos / 1e9)));
+        rep.info(String.format(Locale.ROOT,
+            "  index (analysis, postings): %.1f s thread time, %.1f docs/s per thread",
+            indexNanos / 1e9, (indexNanos == 0) ? 0 : docs / (indexNanos / 1e9)));
+        rep.info(String.format(Locale.ROOT,
+            "    of which tagging: %.1f s thread time (%.0f %%)",
+            tagNanos / 1e9, (indexNanos == 0) ? 0 : 100.0 * tagNanos / indexNanos));
+        rep.info(String.format(Locale.ROOT,
+            "  commit: %.1f s, merge: %.1f s", commitNanos / 1e9, mergeNanos / 1e9));
+    }
+    
     /**
      * Formats a concise per-file diagnostic while avoiding repeated wrapper messages.
      *
@@ -245,28 +372,85 @@ public final class TeiIngester
         return stf.newTemplates(src);
     }
     
-    private void ingestOneFile(Path tei, Templates preTpl, AlixLuceneConsumer indexer) throws IOException, SAXException, ParserConfigurationException, TransformerConfigurationException
+    /**
+     * One ingestion worker, owning its XML reader, document accumulator and consumer. Files are pulled from
+     * a shared cursor until the list is exhausted. Not thread-safe, one thread per worker.
+     */
+    private final class Worker implements Callable<Void>
     {
-        rep.info(tei.toString());
-        String filename = tei.getFileName().toString();
-        int dot = filename.lastIndexOf('.');
-        filename = (dot > 0) ? filename.substring(0, dot) : filename;
-        // Fresh per file (not shared)
-        AlixDocument acc = new AlixDocument();
-        AlixSaxHandler sink = new AlixSaxHandler(acc, indexer, filename);
+        private final List<Path> teiFiles;
+        private final AtomicInteger cursor;
+        private final Templates preTpl;
+        private final AlixLuceneConsumer indexer;
+        /** Report shared by the workers. */
+        private final Report report;
+        private final boolean sequenced;
+        private final XMLReader xr;
+        /** Reused across files, replaced after a failure that may leave it inconsistent. */
+        private AlixDocument acc = new AlixDocument();
+        long files;
+        long failed;
+        long bytes;
+        long nanos;
         
-        TransformerHandler first = buildXsltChain(preTpl, sink);
+        Worker(List<Path> teiFiles, AtomicInteger cursor, Templates preTpl, AlixLuceneConsumer indexer, Report report, boolean sequenced)
+                throws SAXException, ParserConfigurationException
+        {
+            this.teiFiles = teiFiles;
+            this.cursor = cursor;
+            this.preTpl = preTpl;
+            this.indexer = indexer;
+            this.report = report;
+            this.sequenced = sequenced;
+            this.xr = spf.newSAXParser().getXMLReader();
+            secureXmlReader(xr);
+        }
         
-        XMLReader xr = spf.newSAXParser().getXMLReader();
-        secureXmlReader(xr);
-        xr.setContentHandler(first);
-
-
+        @Override
+        public Void call()
+        {
+            int i;
+            while ((i = cursor.getAndIncrement()) < teiFiles.size()) {
+                final Path tei = teiFiles.get(i);
+                if (sequenced) {
+                    indexer.sequence((long) i << 32);
+                }
+                final long start = System.nanoTime();
+                try {
+                    ingestOneFile(tei);
+                }
+                catch(Exception e) {
+                    // An error in one file must not stop ingestion of the remaining corpus.
+                    failed++;
+                    acc = new AlixDocument();
+                    report.error(formatError(tei, e));
+                    if (Boolean.getBoolean(DEBUG_PROPERTY)) {
+                        e.printStackTrace(System.err);
+                    }
+                }
+                nanos += System.nanoTime() - start;
+                files++;
+            }
+            return null;
+        }
         
-        try (InputStream in = new BufferedInputStream(Files.newInputStream(tei))) {
-            InputSource is = new InputSource(in);
-            is.setSystemId(tei.toUri().toString());
-            xr.parse(is);
+        private void ingestOneFile(Path tei) throws IOException, SAXException, TransformerConfigurationException
+        {
+            report.info(tei.toString());
+            String filename = tei.getFileName().toString();
+            int dot = filename.lastIndexOf('.');
+            filename = (dot > 0) ? filename.substring(0, dot) : filename;
+            AlixSaxHandler sink = new AlixSaxHandler(acc, indexer, filename);
+            
+            TransformerHandler first = buildXsltChain(preTpl, sink);
+            xr.setContentHandler(first);
+            
+            bytes += Files.size(tei);
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(tei))) {
+                InputSource is = new InputSource(in);
+                is.setSystemId(tei.toUri().toString());
+                xr.parse(is);
+            }
         }
     }
     
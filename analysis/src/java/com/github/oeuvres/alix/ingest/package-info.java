@@ -104,6 +104,9 @@
  *     </entry>
  *     <!-- optional: pre-processing XSLT applied before alix.xsl -->
  *     <entry key="prexslt">my-prealix.xsl</entry>
+ *     <!-- optional: parallel workers (0 or auto = processors), deterministic docId order -->
+ *     <entry key="threads">auto</entry>
+ *     <entry key="ordered">true</entry>
  *     <!-- required: parent directory for Lucene indices -->
  *     <entry key="indexroot">../lucene</entry>
  *     <!-- optional: dictionary and stopword files -->
@@ -90,6 +90,12 @@ import com.github.oeuvres.alix.util.Char;
  * cursor. Trailing-dot resolution buffers whole token states in a {@link TokenStateQueue};
  * detached dots are spliced into that same queue by {@link #insertDetachedDots(int, boolean)},
  * so emission is a plain {@code removeFirst}.</p>
+ *
+ * <p>Hot path: no allocation per token. Chars are classified by one lookup in a static
+ * {@link #KIND} table; runs of skipped chars, tags, and plain word chars are scanned or copied
+ * in bulk from the IO buffer into the term buffer, tags included, without going through
+ * {@link #peek()} for each char. Lookahead states are pooled by the queue and dot candidates
+ * are offsets in int arrays, never strings.</p>
  */
 public class MarkupTokenizer extends Tokenizer
 {
@@ -109,6 +115,47 @@ public class MarkupTokenizer extends Tokenizer
      */
     private static final int LOOKAHEAD_MAX_CAPACITY = 4096;
 
+    /** Char kind: skipped between tokens (space, controls, unknown). */
+    private static final byte SKIP = 0;
+
+    /** Char kind: {@code '<'}, start of a tag. */
+    private static final byte TAG = 1;
+
+    /** Char kind: clause punctuation, see {@link #isClausePunct(char)}. */
+    private static final byte CLAUSE = 2;
+
+    /** Char kind: sentence punctuation, see {@link #isSentencePunct(char)}. */
+    private static final byte SENT = 3;
+
+    /** Char kind: digit, start of a number. */
+    private static final byte DIGIT_CHAR = 4;
+
+    /** Char kind: token char needing a decision in a word (entity, dot, hyphen, quote, digit…). */
+    private static final byte WORD = 5;
+
+    /** Char kind: token char copied as is in a word, a letter in most texts. */
+    private static final byte PLAIN = 6;
+
+    /**
+     * Kind of each BMP char, with the precedence of the {@link #readToken()} dispatcher:
+     * tag, clause punctuation, sentence punctuation, digit, token char, skipped.
+     */
+    private static final byte[] KIND = new byte[65536];
+    static {
+        for (int i = 0; i < KIND.length; i++) {
+            final char c = (char) i;
+            final byte kind;
+            if (c == '<') kind = TAG;
+            else if (isClausePunct(c)) kind = CLAUSE;
+            else if (isSentencePunct(c)) kind = SENT;
+            else if (Char.isDigit(c)) kind = DIGIT_CHAR;
+            else if (!Char.isToken(c)) kind = SKIP;
+            else if (c == '&' || c == '-' || normalizeTokenChar(c) != c) kind = WORD;
+            else kind = PLAIN;
+            KIND[i] = kind;
+        }
+    }
+
     /**
      * Default block-level element local-names, comma-separated. A tag with one of these
      * names ends any sentence pending a dot decision. Callers may extend the default, for
@@ -207,6 +254,24 @@ public class MarkupTokenizer extends Tokenizer
         addAttribute(PositionLengthAttribute.class);
     }
 
+    /**
+     * Append chars of the IO buffer to the term, from the read cursor to {@code end}, and
+     * consume them.
+     *
+     * @param buf IO buffer
+     * @param end index in {@code buf} after the last char to append
+     */
+    private void appendRun(final char[] buf, final int end)
+    {
+        final int n = end - bufferIndex;
+        final int length = termAtt.length();
+        final char[] term = termAtt.resizeBuffer(length + n);
+        System.arraycopy(buf, bufferIndex, term, length, n);
+        termAtt.setLength(length + n);
+        bufferIndex = end;
+        offset += n;
+    }
+
     /**
      * Compile a comma-separated list of element local-names into a case-insensitive set.
      * Whitespace around names is ignored and a namespace prefix up to {@code ':'} is
@@ -670,11 +735,14 @@ public class MarkupTokenizer extends Tokenizer
     private boolean readTag() throws IOException
     {
         final int start = offset;
-        int c;
-        while ((c = peek()) >= 0) {
-            termAtt.append((char) c);
-            skip();
-            if (c == '>') {
+        while (peek() >= 0) {
+            final char[] buf = buffer.getBuffer();
+            int end = bufferIndex;
+            while (end < bufferLength && buf[end] != '>') end++;
+            final boolean closed = end < bufferLength;
+            if (closed) end++;
+            appendRun(buf, end);
+            if (closed) {
                 posAtt.setPos(XML.code);
                 break;
             }
@@ -700,28 +768,28 @@ public class MarkupTokenizer extends Tokenizer
         int c;
         while ((c = peek()) >= 0) {
             final char ch = (char) c;
-            if (ch == '<') {
-                return readTag();
-            }
-            if (isClausePunct(ch)) {
-                final int start = offset;
-                termAtt.append(ch);
-                skip();
-                posAtt.setPos(PUNCTclause.code);
-                offsetAtt.setOffset(correctOffset(start), correctOffset(offset));
-                return true;
-            }
-            if (isSentencePunct(ch)) {
-                return readSentencePunctRun(offset);
-            }
-            if (Char.isDigit(ch)) {
-                return readNumber(offset);
-            }
-            if (Char.isToken(ch)) {
-                if (readWord()) return true;
-                continue; // an entity decoded to a delimiter and the term evaporated
+            switch (KIND[ch]) {
+                case TAG:
+                    return readTag();
+                case CLAUSE: {
+                    final int start = offset;
+                    termAtt.append(ch);
+                    skip();
+                    posAtt.setPos(PUNCTclause.code);
+                    offsetAtt.setOffset(correctOffset(start), correctOffset(offset));
+                    return true;
+                }
+                case SENT:
+                    return readSentencePunctRun(offset);
+                case DIGIT_CHAR:
+                    return readNumber(offset);
+                case WORD:
+                case PLAIN:
+                    if (readWord()) return true;
+                    continue; // an entity decoded to a delimiter and the term evaporated
+                default:
+                    skipRun();
             }
-            skip();
         }
         return false;
     }
@@ -804,6 +872,20 @@ public class MarkupTokenizer extends Tokenizer
                 return readNumber(start);
             }
 
+            // Plain word chars: copy the run from the IO buffer in one step.
+            if (KIND[ch] == PLAIN) {
+                final char[] buf = buffer.getBuffer();
+                final int max = bufferIndex + Math.min(bufferLength - bufferIndex, TOKEN_MAX_SIZE - termAtt.length());
+                int end = bufferIndex + 1;
+                // Latin letters are plain, skipped in bulk before the table
+                if (end < max) end = Char.span(buf, end, max, Char.LATIN);
+                while (end < max && KIND[buf[end]] == PLAIN) end++;
+                lastRaw = buf[end - 1];
+                appendRun(buf, end);
+                if (termAtt.length() >= TOKEN_MAX_SIZE) break; // cut overly long tokens
+                continue;
+            }
+
             // Clause punctuation, sentence punctuation, '<', whitespace: end of word.
             if (!Char.isToken(ch)) break;
 
@@ -937,6 +1019,19 @@ public class MarkupTokenizer extends Tokenizer
         offset++;
     }
 
+    /**
+     * Consume the run of skipped chars at the read cursor, up to the end of the IO buffer.
+     */
+    private void skipRun()
+    {
+        final char[] buf = buffer.getBuffer();
+        // spaces are skipped chars, skipped in bulk before the table
+        int end = Char.span(buf, bufferIndex + 1, bufferLength, Char.SPACE);
+        while (end < bufferLength && KIND[buf[end]] == SKIP) end++;
+        offset += end - bufferIndex;
+        bufferIndex = end;
+    }
+
     /**
      * Test whether a token provides sentence-start evidence for a pending dot.
      *
@@ -36,8 +36,11 @@ package com.github.oeuvres.alix.lucene.analysis;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.apache.lucene.analysis.CharArrayMap;
 import org.apache.lucene.analysis.TokenFilter;
 import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
@@ -62,6 +65,16 @@ import opennlp.tools.postag.POSTaggerME;
  * - no post-correction heuristics
  *
  * Rewriting is delegated to a pluggable TaggerRewriter.
+ *
+ * Tagging engine, shared by the filters of a thread:
+ * - one {@link POSTaggerME} per thread for the last model used, instead of one per filter
+ * - term strings are reused across tokens, not rebuilt for each occurrence
+ * - tags of frequent short sentences (dialogue, headings, speakers) are cached,
+ *   the tagger being deterministic for a given sentence
+ * - time spent in tagging is cumulated by thread, see {@link #timing()}
+ *
+ * Sentences are tagged one by one, as they are read: OpenNLP has no batch API,
+ * so queueing several sentences before tagging would only delay the tokens.
  */
 public class PosTaggingFilter extends TokenFilter
 {
@@ -69,6 +82,18 @@ public class PosTaggingFilter extends TokenFilter
     /** Max buffered tokens per sentence/chunk. */
     public static final int SENTMAX = 300;
 
+    /** Max tagger tokens of a sentence whose tags are cached. */
+    public static final int CACHE_SENTLEN = 8;
+
+    /** Max cached sentences by engine. */
+    private static final int CACHE_SIZE = 4096;
+
+    /** Max reused term strings by engine, cleared when full. */
+    private static final int TERMS_SIZE = 1 << 16;
+
+    /** Engines and counters of the current thread. */
+    private static final ThreadLocal<Timing> TIMING = ThreadLocal.withInitial(Timing::new);
+
     /**
      * Rewriter used to build the tagger String[] from a Lucene term.
      * Contract:
@@ -115,12 +140,21 @@ public class PosTaggingFilter extends TokenFilter
     /** Buffered token states (one sentence/chunk). */
     private TokenStateQueue queue;
 
-    /** non-thread-safe tagger, one per filter instance */
-    private final POSTaggerME tagger;
+    /** Model of the tagger. */
+    private final POSModel posModel;
+
+    /** Tagger and caches of the current thread, set by {@link #reset()}. */
+    private Engine engine;
 
     /** Optional term rewriter for tagger input (language-specific logic belongs outside this class). */
     private final TaggerRewriter rewriter;
 
+    /** True when input is exhausted. */
+    private boolean exhausted;
+
+    /** Tagger tokens of the sentence being built. */
+    private final List<String> sentenceList = new ArrayList<>(SENTMAX + 8);
+
     // ---- Mapping buffers ----
     /** tagger token index -> queue index (many tagger tokens may map to same queue token). */
     private int[] tagToQueue = new int[0];
@@ -145,10 +179,22 @@ public class PosTaggingFilter extends TokenFilter
     public PosTaggingFilter(TokenStream input, POSModel posModel, TaggerRewriter rewriter)
     {
         super(input);
-        this.tagger = new POSTaggerME(posModel);
+        if (posModel == null) throw new NullPointerException("posModel");
+        this.posModel = posModel;
         this.rewriter = (rewriter == null) ? IDENTITY_REWRITER : rewriter;
     }
 
+    /**
+     * Tagging counters of the current thread, cumulated by every filter running on it.
+     * An indexing thread reads them before and after a document to get its tagging time.
+     *
+     * @return counters of the current thread
+     */
+    public static Timing timing()
+    {
+        return TIMING.get();
+    }
+
     @Override
     public final boolean incrementToken() throws IOException
     {
@@ -184,6 +230,9 @@ public class PosTaggingFilter extends TokenFilter
         super.reset();
         ensureQueue();
         queue.clear();
+        exhausted = false;
+        // filters may be created on a thread and used on another
+        engine = TIMING.get().engine(posModel);
     }
 
     private void ensureQueue()
@@ -198,9 +247,10 @@ public class PosTaggingFilter extends TokenFilter
      */
     private void fillQueue() throws IOException
     {
-        while (queue.size() < SENTMAX) {
+        while (!exhausted && queue.size() < SENTMAX) {
             clearAttributes();
             if (!input.incrementToken()) {
+                exhausted = true;
                 break;
             }
 
@@ -214,11 +264,7 @@ public class PosTaggingFilter extends TokenFilter
     }
 
     /**
-     * Build String[] for tagger with many-to-many mapping and write back tags.
-     *
-     * Policy for expanded tokens (1->N):
-     * - POS is NOT overwritten here (language-specific projection should be elsewhere)
-     * - probability is set to max(probabilities of generated tagger tokens)
+     * Tag the queued sentence/chunk, and cumulate the time spent.
      */
     private void tagBufferedQueue()
     {
@@ -231,12 +277,28 @@ public class PosTaggingFilter extends TokenFilter
         Arrays.fill(queueToTagStart, 0, n, -1);
         Arrays.fill(queueToTagCount, 0, n, 0);
 
+        final long start = System.nanoTime();
+        tagSentence(0, n);
+        engine.timing.nanos += System.nanoTime() - start;
+        engine.timing.tokens += n;
+    }
+
+    /**
+     * Build String[] for tagger with many-to-many mapping and write back tags,
+     * for the queued tokens in [from, to).
+     *
+     * Policy for expanded tokens (1->N):
+     * - POS is NOT overwritten here (language-specific projection should be elsewhere)
+     * - probability is set to max(probabilities of generated tagger tokens)
+     */
+    private void tagSentence(final int from, final int to)
+    {
         // Build tagger sentence dynamically
-        final List<String> sentenceList = new ArrayList<>(n + 8);
+        sentenceList.clear();
         int m = 0; // tagger token count
 
         // Build many-to-many mapping
-        for (int i = 0; i < n; i++) {
+        for (int i = from; i < to; i++) {
             final PosAttribute p = queue.get(i).getAttribute(PosAttribute.class);
             if (p == null) continue;
 
@@ -265,7 +327,7 @@ public class PosTaggingFilter extends TokenFilter
                 continue; // 1 -> 0
             }
 
-            final String term = t.toString();
+            final String term = engine.term(t);
 
             final int before = sentenceList.size();
             rewriter.rewrite(term, sentenceList);
@@ -298,13 +360,14 @@ public class PosTaggingFilter extends TokenFilter
         // termLast.setEmpty().append(Arrays.toString(sentence));
 
         // Tag
-        final String[] tags = tagger.tag(sentence);
-        final double[] probs = tagger.probs();
+        final Tagged tagged = engine.tag(sentence);
+        final String[] tags = tagged.tags();
+        final double[] probs = tagged.probs();
 
         final int tlen = Math.min(m, Math.min(tags.length, probs.length));
 
         // Write back, queue token by queue token (using queue -> tagger slice mapping)
-        for (int i = 0; i < n; i++) {
+        for (int i = from; i < to; i++) {
             final int start = queueToTagStart[i];
             final int cnt = queueToTagCount[i];
             if (start < 0 || cnt <= 0) continue;
@@ -351,4 +414,141 @@ public class PosTaggingFilter extends TokenFilter
     {
         return pos == PUNCTsection.code || pos == PUNCTpara.code || pos == PUNCTsent.code;
     }
-}
\ No newline at end of file
+
+    /**
+     * Tagging counters of a thread. Read and written by this thread only.
+     */
+    public static final class Timing
+    {
+        /**
+         * Engine of this thread for the last model used, replaced when a filter uses another
+         * model. A single strong field: the tagger of an engine references its model, so a map
+         * keyed by model, even weak, would keep every model alive.
+         */
+        private Engine engine;
+
+        /** Time spent in tagging, in nanoseconds. */
+        private long nanos;
+
+        /** Tokens submitted to tagging. */
+        private long tokens;
+
+        /** Sentences tagged, cached or not. */
+        private long sentences;
+
+        /** Sentences whose tags came from the cache. */
+        private long cached;
+
+        private Engine engine(final POSModel model)
+        {
+            if (engine == null || engine.model != model) {
+                engine = new Engine(model, this);
+            }
+            return engine;
+        }
+
+        /** @return time spent in tagging, in nanoseconds */
+        public long nanos()
+        {
+            return nanos;
+        }
+
+        /** @return tokens submitted to tagging */
+        public long tokens()
+        {
+            return tokens;
+        }
+
+        /** @return sentences tagged, cached or not */
+        public long sentences()
+        {
+            return sentences;
+        }
+
+        /** @return sentences whose tags came from the cache */
+        public long cached()
+        {
+            return cached;
+        }
+    }
+
+    /**
+     * Tags and probabilities of a sentence.
+     */
+    private record Tagged(String[] tags, double[] probs)
+    {
+    }
+
+    /**
+     * Tagger of a thread for a model, with its caches.
+     */
+    private static final class Engine
+    {
+        /** Model of the tagger, compared by identity. */
+        private final POSModel model;
+
+        /** Non-thread-safe tagger. */
+        private final POSTaggerME tagger;
+
+        /** Counters of the thread. */
+        private final Timing timing;
+
+        /** Reused strings of terms. */
+        private final CharArrayMap<String> terms = new CharArrayMap<>(1024, false);
+
+        /** Tags of short sentences, least recently used evicted. */
+        private final LinkedHashMap<List<String>, Tagged> sentences = new LinkedHashMap<>(CACHE_SIZE * 4 / 3 + 1, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<List<String>, Tagged> eldest)
+            {
+                return size() > CACHE_SIZE;
+            }
+        };
+
+        Engine(final POSModel model, final Timing timing)
+        {
+            this.model = model;
+            this.tagger = new POSTaggerME(model);
+            this.timing = timing;
+        }
+
+        /**
+         * Returns a string of a term, the same instance for the same chars while cached.
+         */
+        String term(final CharTermAttribute t)
+        {
+            String term = terms.get(t.buffer(), 0, t.length());
+            if (term == null) {
+                if (terms.size() >= TERMS_SIZE) {
+                    terms.clear();
+                }
+                term = t.toString();
+                terms.put(term, term);
+            }
+            return term;
+        }
+
+        /**
+         * Tags a sentence, from the cache for a short one already seen.
+         */
+        Tagged tag(final String[] sentence)
+        {
+            timing.sentences++;
+            if (sentence.length > CACHE_SENTLEN) {
+                return new Tagged(tagger.tag(sentence), tagger.probs());
+            }
+            final List<String> key = List.of(sentence);
+            Tagged tagged = sentences.get(key);
+            if (tagged != null) {
+                timing.cached++;
+                return tagged;
+            }
+            tagged = new Tagged(tagger.tag(sentence), tagger.probs());
+            sentences.put(key, tagged);
+            return tagged;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Alix, A Lucene Indexer for XML documents.
+ *
+ * Copyright 2026 Frédéric Glorieux <frederic.glorieux@fictif.org> & Unige
+ *
+ * Alix is a java library to index and search XML text documents
+ * with Lucene https://lucene.apache.org/core/
+ * including linguistic expertness for French,
+ * available under Apache license.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.oeuvres.alix.lucene.analysis;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.util.AttributeSource;
+
+/**
+ * One analysis of a text shared by several fields, whose chains differ only by their last filters.
+ *
+ * <p>
+ * The costly head of a chain (tokenizer, clitic split, POS tagging, lemmatization…) runs once per
+ * text in {@link #analyze(String)}; its token states are recorded in a {@link Run}. Each field
+ * then gets a {@link TokenStream} from {@link #stream(String, Run)}: a replay of the recorded
+ * states followed by the tail filters of the field, for example a stop filter for the indexed
+ * field and none for word2vec. The tokens are those of the full chain run on the text, head
+ * included.
+ * </p>
+ *
+ * <h2>Life cycle</h2>
+ * <p>
+ * Runs are recycled: after {@link #clear()}, the states of the previous runs are overwritten by
+ * the next analyses. A caller building a Lucene document analyzes its texts, adds fields with the
+ * replay streams, gives the document to the writer, which consumes the streams, then clears.
+ * </p>
+ *
+ * <p>
+ * Not thread-safe: one instance per indexing thread, as the head filters are.
+ * </p>
+ */
+public final class SharedAnalysis
+{
+    /** Tokenizer of the head, fed with each text. */
+    private final Tokenizer tokenizer;
+
+    /** Last filter of the head, whose states are recorded. */
+    private final TokenStream head;
+
+    /** Tail filters by field name, {@code null} for a field not shared. */
+    private final Function<String, UnaryOperator<TokenStream>> tails;
+
+    /** Recorded analyses, recycled by {@link #clear()}. */
+    private final List<Run> runs = new ArrayList<>();
+
+    /** Runs in use since the last {@link #clear()}. */
+    private int used;
+
+    /**
+     * Creates a shared analysis.
+     *
+     * @param tokenizer tokenizer at the start of {@code head}
+     * @param head      shared part of the chains
+     * @param tails     tail filters to apply on the replay for a field name, or {@code null} when
+     *                  the field does not use this head
+     */
+    public SharedAnalysis(
+        final Tokenizer tokenizer,
+        final TokenStream head,
+        final Function<String, UnaryOperator<TokenStream>> tails
+    ) {
+        this.tokenizer = Objects.requireNonNull(tokenizer, "tokenizer");
+        this.head = Objects.requireNonNull(head, "head");
+        this.tails = Objects.requireNonNull(tails, "tails");
+    }
+
+    /**
+     * Runs the head on a text and records its token states.
+     *
+     * @param text text to analyze
+     * @return recorded analysis, valid until {@link #clear()}
+     * @throws IOException if the analysis fails
+     */
+    public Run analyze(final String text) throws IOException
+    {
+        final Run run;
+        if (used < runs.size()) {
+            run = runs.get(used);
+            run.states.clear();
+        }
+        else {
+            run = new Run(head);
+            runs.add(run);
+        }
+        used++;
+        tokenizer.setReader(new StringReader(text));
+        try {
+            head.reset();
+            while (head.incrementToken()) {
+                run.states.addLast(head);
+            }
+            head.end();
+            head.copyTo(run.end);
+        }
+        finally {
+            head.close();
+        }
+        return run;
+    }
+
+    /**
+     * Recycles every run; the streams given for them must have been consumed.
+     */
+    public void clear()
+    {
+        used = 0;
+    }
+
+    /**
+     * Whether a field is analyzed by this head.
+     *
+     * @param field field name
+     * @return {@code true} if {@link #stream(String, Run)} accepts the field
+     */
+    public boolean shares(final String field)
+    {
+        return tails.apply(field) != null;
+    }
+
+    /**
+     * Returns the tokens of a field for a recorded analysis, to be indexed as a field value.
+     *
+     * @param field field name
+     * @param run   analysis of the text of the field
+     * @return replay of the analysis through the tail filters of the field
+     * @throws IllegalArgumentException if the field is not {@link #shares(String) shared}
+     */
+    public TokenStream stream(final String field, final Run run)
+    {
+        final UnaryOperator<TokenStream> tail = tails.apply(field);
+        if (tail == null) {
+            throw new IllegalArgumentException("Field '" + field + "' is not analyzed by this head");
+        }
+        return tail.apply(new Replay(head, run));
+    }
+
+    /**
+     * Token states of one text after the head.
+     */
+    public static final class Run
+    {
+        /** States of the tokens, in order. */
+        private final TokenStateQueue states;
+
+        /** State after {@link TokenStream#end()}, final offset and trailing positions. */
+        private final AttributeSource end;
+
+        private Run(final AttributeSource head)
+        {
+            states = new TokenStateQueue(64, Integer.MAX_VALUE, TokenStateQueue.OverflowPolicy.GROW, head);
+            end = head.cloneAttributes();
+        }
+
+        /**
+         * Count of tokens recorded.
+         *
+         * @return token count
+         */
+        public int size()
+        {
+            return states.size();
+        }
+    }
+
+    /**
+     * Replays a run on attributes of its own, so that tail filters may add attributes without
+     * changing the head.
+     */
+    private static final class Replay extends TokenStream
+    {
+        private final Run run;
+        private int next;
+
+        Replay(final AttributeSource head, final Run run)
+        {
+            super(head.cloneAttributes());
+            this.run = run;
+        }
+
+        @Override
+        public boolean incrementToken()
+        {
+            if (next >= run.states.size()) {
+                return false;
+            }
+            clearAttributes();
+            run.states.restoreTo(this, next++);
+            return true;
+        }
+
+        @Override
+        public void end() throws IOException
+        {
+            super.end();
+            run.end.copyTo(this);
+        }
+
+        @Override
+        public void reset() throws IOException
+        {
+            super.reset();
+            next = 0;
+        }
+    }
+}
@@ -53,6 +53,7 @@ import com.github.oeuvres.alix.lucene.analysis.MarkupZoneFilter;
 import com.github.oeuvres.alix.lucene.analysis.MweFilter;
 import com.github.oeuvres.alix.lucene.analysis.PosTaggingFilter;
 import com.github.oeuvres.alix.lucene.analysis.ReplaceFilter;
+import com.github.oeuvres.alix.lucene.analysis.SharedAnalysis;
 import com.github.oeuvres.alix.lucene.analysis.UppercaseFilter;
 import com.github.oeuvres.alix.util.CharsMap;
 import com.github.oeuvres.alix.util.LemmaLexicon;
@@ -70,6 +71,17 @@ import opennlp.tools.postag.POSModel;
  */
 public class FrenchAnalyzer extends DelegatingAnalyzerWrapper
 {
+    /** Analysis chains, selected by field name in {@link #chain(String)}. */
+    private enum Chain
+    {
+        /** {@link CanonicAnalyzer}, the default. */
+        CANONIC,
+        /** {@link ObservationAnalyzer}, fields starting with {@code obs}. */
+        OBSERVATION,
+        /** {@link Word2vecAnalyzer}, fields starting with {@code word2vec}. */
+        WORD2VEC
+    }
+
     /** OpenNLP POS model resource. */
     private static final String POS_PATH =
         "/com/github/oeuvres/alix/fr/opennlp-fr-ud-gsd-pos-1.3-2.5.4.bin";
@@ -112,23 +124,37 @@ public class FrenchAnalyzer extends DelegatingAnalyzerWrapper
     public final CharArraySet ucwords;
 
     /**
-     * Builds a French analyzer with the default lexical resources.
+     * Builds a French analyzer with the default lexical resources, restored
+     * from the {@link FrenchLexicons#SNAPSHOT binary snapshot} when it is
+     * available and current.
      *
      * @throws IOException if an analyzer resource cannot be initialized
      */
     public FrenchAnalyzer() throws IOException
+    {
+        this(FrenchLexicons.loadSnapshot());
+    }
+
+    /**
+     * Builds a French analyzer with the default lexical resources.
+     *
+     * @param snapshot compiled lemma, normalization, and MWE resources, or
+     *                 {@code null} to build them from the CSV sources
+     * @throws IOException if an analyzer resource cannot be initialized
+     */
+    FrenchAnalyzer(final FrenchLexicons.Snapshot snapshot) throws IOException
     {
         super(PER_FIELD_REUSE_STRATEGY);
 
         stopwords = FrenchLexicons.buildStopwords();
-        normalizer = FrenchLexicons.buildNormalizer();
-        lemmaLexicon = FrenchLexicons.buildLemmaLexicon();
+        normalizer = (snapshot != null) ? snapshot.normalizer() : FrenchLexicons.buildNormalizer();
+        lemmaLexicon = (snapshot != null) ? snapshot.lemmaLexicon() : FrenchLexicons.buildLemmaLexicon();
         brevidots = FrenchLexicons.buildBrevidots();
         propn = FrenchLexicons.buildPropn();
         ucwords = FrenchLexicons.buildUcwords();
 
         mweEntryAnalyzer = new MweEntryAnalyzer();
-        expressions = FrenchLexicons.buildMweLexicon(mweEntryAnalyzer);
+        expressions = (snapshot != null) ? snapshot.expressions() : FrenchLexicons.buildMweLexicon(mweEntryAnalyzer);
 
         canonic = new CanonicAnalyzer();
         word2vec = new Word2vecAnalyzer();
@@ -262,21 +288,83 @@ public class FrenchAnalyzer extends DelegatingAnalyzerWrapper
     }
 
     /**
-     * Selects the analyzer used for a field.
+     * Selects the chain of a field by its name prefix, for
+     * {@link #getWrappedAnalyzer(String)} and {@link #sharedAnalysis()}.
      *
      * @param fieldName field name
-     * @return analyzer assigned to the field
+     * @return chain assigned to the field
      */
-    @Override
-    protected Analyzer getWrappedAnalyzer(final String fieldName)
+    private static Chain chain(final String fieldName)
     {
         if (fieldName.startsWith("obs")) {
-            return observation;
+            return Chain.OBSERVATION;
         }
         if (fieldName.startsWith("word2vec")) {
-            return word2vec;
+            return Chain.WORD2VEC;
         }
-        return canonic;
+        return Chain.CANONIC;
+    }
+
+    /**
+     * Selects the analyzer used for a field.
+     *
+     * @param fieldName field name
+     * @return analyzer assigned to the field
+     */
+    @Override
+    protected Analyzer getWrappedAnalyzer(final String fieldName)
+    {
+        return switch (chain(fieldName)) {
+            case CANONIC -> canonic;
+            case OBSERVATION -> observation;
+            case WORD2VEC -> word2vec;
+        };
+    }
+
+    /**
+     * Creates a shared analysis of the canonical chain, for an indexing
+     * thread. The chain runs once per text for the fields of
+     * {@link CanonicAnalyzer} and {@link Word2vecAnalyzer}, which differ only
+     * by their last filters. Observation fields select markup zones before
+     * tagging, so their tokens cannot be replayed from the full text; they are
+     * not shared.
+     *
+     * @return a new shared analysis, producing the tokens of
+     *         {@link #getWrappedAnalyzer(String)} for shared fields
+     */
+    public SharedAnalysis sharedAnalysis()
+    {
+        final Tokenizer tokenizer = new MarkupTokenizer(brevidots);
+        return new SharedAnalysis(tokenizer, canonicChain(tokenizer), fieldName -> switch (chain(fieldName)) {
+            case CANONIC -> this::canonicTail;
+            case OBSERVATION -> null;
+            case WORD2VEC -> this::word2vecTail;
+        });
+    }
+
+    /**
+     * Builds the last filters of {@link CanonicAnalyzer}.
+     *
+     * @param stream output of the canonical chain
+     * @return indexed token stream
+     */
+    private TokenStream canonicTail(final TokenStream stream)
+    {
+        TokenStream ts = stream;
+        ts = new StopFilter(ts, stopwords); // remove surface form before lemma becomes term
+        ts = new CleanupFilter(ts);
+        return ts;
+    }
+
+    /**
+     * Builds the last filters of {@link Word2vecAnalyzer}.
+     *
+     * @param stream output of the canonical chain
+     * @return word2vec token stream
+     */
+    private TokenStream word2vecTail(final TokenStream stream)
+    {
+        return new CleanupFilter(stream);
     }
 
     /**
@@ -317,8 +405,7 @@ public class FrenchAnalyzer extends DelegatingAnalyzerWrapper
         protected TokenStreamComponents createComponents(final String fieldName)
         {
             final Tokenizer tokenizer = new MarkupTokenizer(brevidots);
-            TokenStream ts = canonicChain(tokenizer);
-            ts = new CleanupFilter(ts);
+            final TokenStream ts = word2vecTail(canonicChain(tokenizer));
             return new TokenStreamComponents(tokenizer, ts);
         }
     }
@@ -346,9 +433,7 @@ public class FrenchAnalyzer extends DelegatingAnalyzerWrapper
         protected TokenStreamComponents createComponents(final String fieldName)
         {
             final Tokenizer tokenizer = new MarkupTokenizer(brevidots);
-            TokenStream ts = canonicChain(tokenizer);
-            ts = new StopFilter(ts, stopwords); // remove surface form before lemma becomes term
-            ts = new CleanupFilter(ts);
+            final TokenStream ts = canonicTail(canonicChain(tokenizer));
             return new TokenStreamComponents(tokenizer, ts);
         }
     }
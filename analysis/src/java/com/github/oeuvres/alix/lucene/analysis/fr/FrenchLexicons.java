@@ -33,7 +33,23 @@
  */
 package com.github.oeuvres.alix.lucene.analysis.fr;
 
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.foreign.MemorySegment;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
 
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.CharArraySet;
@@ -41,14 +57,80 @@ import org.apache.lucene.analysis.CharArraySet;
 import com.github.oeuvres.alix.lucene.analysis.LexiconHelper;
 import com.github.oeuvres.alix.lucene.analysis.LexiconHelper.PosResolver;
 import com.github.oeuvres.alix.util.CharsMap;
+import com.github.oeuvres.alix.util.IOUtil;
 import com.github.oeuvres.alix.util.LemmaLexicon;
 import com.github.oeuvres.alix.util.MweLexicon;
+import com.github.oeuvres.alix.util.SegmentReader;
 
 /**
  * Factory for the default French lexical resources.
+ *
+ * <h2>Binary snapshot</h2>
+ * <p>
+ * Parsing the lemma CSV, the normalization CSVs, and analyzing every MWE
+ * declaration takes seconds at each analyzer creation. {@link #compile(Path)}
+ * saves the resulting lemma lexicon, normalizer, and MWE lexicon as their
+ * internal arrays in one file, shipped as the {@value #SNAPSHOT} resource;
+ * {@link #loadSnapshot()} restores them with bulk copies, without parsing or
+ * rehashing. The header records the CRC-32 of each CSV source, the checksum
+ * that a jar already stores for its entries: a snapshot that no longer
+ * matches its sources, or that cannot be read, is ignored with a logged
+ * warning, and the resources are built from the CSVs.
+ * </p>
+ * <p>
+ * The build of this module writes the snapshot in its classes, at the
+ * {@code process-classes} phase (exec-maven-plugin, {@link #main(String[])}),
+ * so that the jar ships it fresh. A classpath without it, like an IDE
+ * that does not run that phase, works from the CSVs, with one INFO log.
+ * Raise the snapshot version after changing the building code (POS
+ * rewriting, MWE entry analysis).
+ * </p>
  */
 public final class FrenchLexicons
 {
+    /** Classpath resource of the compiled lexicons. */
+    public static final String SNAPSHOT = "/com/github/oeuvres/alix/fr/lexicons.bin";
+
+    /** Magic number "FRLX". */
+    private static final int SNAPSHOT_MAGIC = 0x46524C58;
+
+    /** Warnings of a snapshot not used. */
+    private static final Logger LOG = Logger.getLogger(FrenchLexicons.class.getName());
+
+    /** Set when the absence of the snapshot has been logged, once for all analyzers. */
+    private static final AtomicBoolean MISSING_LOGGED = new AtomicBoolean();
+
+    /** Snapshot format and building code version. */
+    private static final int SNAPSHOT_VERSION = 2;
+
+    /** Sources of the snapshot, including those of the MWE entry analyzer. */
+    private static final String[] SNAPSHOT_SOURCES = {
+        "/com/github/oeuvres/alix/fr/word.csv",
+        "/com/github/oeuvres/alix/fr/norm-variants.csv",
+        "/com/github/oeuvres/alix/fr/norm-aeoe.csv",
+        "/com/github/oeuvres/alix/fr/norm-maj-noacc.csv",
+        "/com/github/oeuvres/alix/fr/norm-forenames.csv",
+        "/com/github/oeuvres/alix/fr/norm-names.csv",
+        "/com/github/oeuvres/alix/fr/norm-misc.csv",
+        "/com/github/oeuvres/alix/fr/mwe-words.csv",
+        "/com/github/oeuvres/alix/fr/mwe-propn.csv",
+        "/com/github/oeuvres/alix/fr/brevidots.csv",
+        "/com/github/oeuvres/alix/fr/propn-words.csv",
+    };
+
+    /**
+     * Lexical resources restored from a snapshot. Each call of
+     * {@link #loadSnapshot()} returns new mutable instances.
+     *
+     * @param lemmaLexicon lemma lexicon, as {@link #buildLemmaLexicon()}
+     * @param normalizer normalization map, as {@link #buildNormalizer()}
+     * @param expressions MWE lexicon, as {@link #buildMweLexicon(Analyzer)}
+     *                    with the entry analyzer of {@link FrenchAnalyzer}
+     */
+    public record Snapshot(LemmaLexicon lemmaLexicon, CharsMap normalizer, MweLexicon expressions)
+    {
+    }
+
     /**
      * Utility class; no instance.
      */
@@ -56,6 +138,151 @@ public final class FrenchLexicons
     {
     }
 
+    /**
+     * Writes the snapshot of the default resources, built from the CSV
+     * sources.
+     *
+     * @param target file to write, by the build
+     *               {@code analysis/target/classes} + {@value #SNAPSHOT}
+     * @throws IOException if a resource cannot be built or the file written
+     */
+    public static void compile(final Path target) throws IOException
+    {
+        final FrenchAnalyzer analyzer = new FrenchAnalyzer(null);
+        final long[] checksums = sourceChecksums();
+        final Path parent = target.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        final Path tmp = IOUtil.tmpPath(target);
+        IOUtil.deleteIfExists(tmp);
+        try {
+            try (OutputStream os = Files.newOutputStream(tmp);
+                    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os, 1 << 16)))
+            {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeInt(SNAPSHOT_VERSION);
+                out.writeInt(checksums.length);
+                for (long checksum : checksums) {
+                    out.writeLong(checksum);
+                }
+                analyzer.lemmaLexicon.write(out);
+                analyzer.normalizer.write(out);
+                analyzer.expressions.write(out);
+            }
+            IOUtil.moveTemp(tmp, target);
+        }
+        catch (IOException | RuntimeException e) {
+            IOUtil.deleteIfExists(tmp);
+            throw e;
+        }
+        finally {
+            analyzer.close();
+        }
+    }
+
+    /**
+     * Restores the snapshot of the default resources.
+     *
+     * @return new resources, or {@code null} when the snapshot is absent,
+     *         stale, or unreadable, the caller then builds from the CSVs
+     */
+    public static Snapshot loadSnapshot()
+    {
+        final byte[] bytes;
+        try (InputStream is = FrenchLexicons.class.getResourceAsStream(SNAPSHOT)) {
+            if (is == null) {
+                if (MISSING_LOGGED.compareAndSet(false, true)) {
+                    LOG.info(SNAPSHOT + " not in classpath (not built by mvn process-classes), building from CSV");
+                }
+                return null;
+            }
+            bytes = is.readAllBytes();
+        }
+        catch (IOException e) {
+            LOG.log(Level.WARNING, SNAPSHOT + " unreadable, building from CSV", e);
+            return null;
+        }
+        try {
+            final SegmentReader in = new SegmentReader(MemorySegment.ofArray(bytes));
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                LOG.warning(SNAPSHOT + " of another version, building from CSV");
+                return null;
+            }
+            final long[] checksums = sourceChecksums();
+            final int count = in.readCount("source count");
+            boolean fresh = (count == checksums.length);
+            for (int i = 0; i < count; i++) {
+                final long checksum = in.readLong();
+                fresh &= (i < checksums.length && checksum == checksums[i]);
+            }
+            if (!fresh) {
+                LOG.warning(SNAPSHOT + " older than its CSV sources, building from CSV");
+                return null;
+            }
+            final LemmaLexicon lemmaLexicon = LemmaLexicon.read(in);
+            final CharsMap normalizer = CharsMap.read(in);
+            final MweLexicon expressions = MweLexicon.read(in);
+            if (in.remaining() != 0) {
+                throw new IOException(in.remaining() + " trailing bytes");
+            }
+            return new Snapshot(lemmaLexicon, normalizer, expressions);
+        }
+        catch (IOException | RuntimeException e) {
+            LOG.log(Level.WARNING, SNAPSHOT + " corrupted, building from CSV", e);
+            return null;
+        }
+    }
+
+    /**
+     * Compiles the snapshot, see {@link #compile(Path)}.
+     *
+     * @param args target file
+     * @throws IOException if the snapshot cannot be written
+     */
+    public static void main(final String[] args) throws IOException
+    {
+        if (args.length != 1) {
+            System.err.println("Usage: java " + FrenchLexicons.class.getName() + " analysis/target/classes" + SNAPSHOT);
+            System.exit(1);
+        }
+        final long start = System.nanoTime();
+        final Path target = Path.of(args[0]);
+        compile(target);
+        System.out.println(target + " " + Files.size(target) + " bytes in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    /**
+     * Returns the CRC-32 of each snapshot source. From a jar, it is the
+     * checksum of the entry, read without the content; otherwise the content
+     * is read once.
+     *
+     * @return checksums in the order of {@link #SNAPSHOT_SOURCES}, -1 for a
+     *         missing resource
+     * @throws IOException if a resource cannot be read
+     */
+    private static long[] sourceChecksums() throws IOException
+    {
+        final long[] checksums = new long[SNAPSHOT_SOURCES.length];
+        for (int i = 0; i < checksums.length; i++) {
+            final URL url = FrenchLexicons.class.getResource(SNAPSHOT_SOURCES[i]);
+            if (url == null) {
+                checksums[i] = -1;
+                continue;
+            }
+            final URLConnection conn = url.openConnection();
+            if (conn instanceof JarURLConnection jar && jar.getJarEntry().getCrc() != -1) {
+                checksums[i] = jar.getJarEntry().getCrc();
+                continue;
+            }
+            try (CheckedInputStream is = new CheckedInputStream(conn.getInputStream(), new CRC32())) {
+                is.transferTo(OutputStream.nullOutputStream());
+                checksums[i] = is.getChecksum().getValue();
+            }
+        }
+        return checksums;
+    }
+
     /**
      * Builds the default abbreviation set.
      *
@@ -49,6 +49,8 @@ public final class Names
     public static final String ALIX_ORD = "alix.ord";
     /** Mandatory field, unique id provide by user for all documents */
     public static final String ALIX_ID = "alix.id";
+    /** Optional numeric docvalues, ingestion rank of a document, for a deterministic index sort */
+    public static final String ALIX_SEQ = "alix.seq";
     /** Alix XML namespace */
     public static final String ALIX_NS = "https://github.com/oeuvres/alix/ns";
     /** Mandatory field, define the level of a leaf (book/chapter, article) */
@@ -67,10 +69,18 @@ public final class Names
     public final static String DOCLINE = "docline";
     /** &lt;alix:document&gt; independant document */
     public static final String DOCUMENT = "document";
+    /** Configuration field, byte budget of the rendered document cache in megabytes */
+    public final static String DOCCACHE = "doccache";
+    /** Configuration field, default byte budget of the rendered document cache in megabytes */
+    public final static int DOCCACHE_DEFAULT = 32;
     /** Field type */
     public final static String FACET = "facet";
     /** &lt;alix:field&gt; */
     public static final String FIELD = "field";
+    /** Configuration field, byte budget of the filter cache in megabytes */
+    public final static String FILTERCACHE = "filtercache";
+    /** Configuration field, default byte budget of the filter cache in megabytes */
+    public final static int FILTERCACHE_DEFAULT = 64;
     /** Field type */
     public final static String HTML = "html";
     /** Field type */
@@ -91,12 +101,22 @@ public final class Names
     public final static String STRING = "string";
     /** Field type */
     public final static String STORE = "store";
+    /** Configuration field, byte budget of the chronological partition cache in megabytes */
+    public final static String PARTITIONCACHE = "partitioncache";
+    /** Configuration field, default byte budget of the chronological partition cache in megabytes */
+    public final static int PARTITIONCACHE_DEFAULT = 64;
+    /** Configuration field, megabytes of index files loaded in memory before publication */
+    public final static String PREWARM = "prewarm";
+    /** Configuration field, where field statistics live: heap, mapped or auto */
+    public final static String TERMSTATS = "termstats";
     /** Field type */
     public final static String TEXT = "text";
     /** Field type */
     public final static String TOKEN = "token";
     /** Field type */
     public final static String UNKNOWN = "unknown";
+    /** Configuration field, whether field resources are loaded in the background at publication */
+    public final static String WARMUP = "warmup";
     /** Field type */
     public final static String XML = "xml";
     /** Default field name */
@@ -5,24 +5,38 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
 
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.SegmentInfos;
 import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.FixedBitSet;
 
 import com.github.oeuvres.alix.lucene.fluc.Fluc;
 import com.github.oeuvres.alix.lucene.fluc.FlucCategory;
 import com.github.oeuvres.alix.lucene.fluc.FlucFacet;
 import com.github.oeuvres.alix.lucene.fluc.FlucNum;
 import com.github.oeuvres.alix.lucene.fluc.FlucText;
+import com.github.oeuvres.alix.lucene.snippets.HiliteCache;
+import com.github.oeuvres.alix.lucene.terms.PartitionCache;
+import com.github.oeuvres.alix.lucene.terms.TermStats;
+import com.github.oeuvres.alix.lucene.util.BitsCache;
+import com.github.oeuvres.alix.util.IOUtil;
 
 import static com.github.oeuvres.alix.common.Names.*;
 
@@ -55,7 +69,33 @@ import static com.github.oeuvres.alix.common.Names.*;
  * <li><b>{@code docline}</b> — stored field carrying a compact
  * bibliographic line.</li>
  * <li><b>{@code lang}</b> — a Locale for interface and linguistic resource, default fr.</li>
+ * <li><b>{@code filtercache}</b> — byte budget of the filter cache in
+ * megabytes, default 64; 0 disables it.</li>
+ * <li><b>{@code doccache}</b> — byte budget of the rendered document
+ * cache in megabytes, default 32; 0 disables it.</li>
+ * <li><b>{@code partitioncache}</b> — byte budget of the chronological
+ * partition cache in megabytes, default 64; 0 disables it.</li>
+ * <li><b>{@code termstats}</b> — where field statistics live:
+ * {@code heap}, {@code mapped}, or {@code auto} (default) to map only
+ * files large against the maximum heap.</li>
+ * <li><b>{@code prewarm}</b> — megabytes of index files loaded in
+ * memory by {@link #prewarm(Collection)} before the index is published,
+ * default 0, none.</li>
+ * <li><b>{@code warmup}</b> — {@code true} to load the resources of
+ * the text fields in the background when the index is published, see
+ * {@link #warm(Executor)}; default {@code false}, on first request.</li>
  * </ul>
+ * <h2>Filter cache</h2>
+ * <p>
+ * {@link #filter(Query)} materializes filter queries through a
+ * {@link BitsCache} owned by this handle, so the operations fired by one
+ * user action share one search per filter. A swapped index is a new
+ * handle with an empty cache; the old cache is dropped on {@link #close()}.
+ * Highlighted documents are kept the same way by {@link #docCache()}, so
+ * repeated page views of one document are not rendered again, and
+ * chronological partitions by {@link #partitionCache()}, so a new focus
+ * over a known filter does not scan documents again.
+ * </p>
  * <h2>Field inventory</h2>
  * <p>
  * At open time, field metadata is inferred by
@@ -91,8 +131,37 @@ public final class LuceneIndex implements Closeable
     private final DirectoryReader reader;
     private final IndexSearcher searcher;
     private final Map<String, Fluc> flucs;
+    /** Filter results of this snapshot. */
+    private final BitsCache filterCache;
+    /** Highlighted documents of this snapshot. */
+    private final HiliteCache docCache;
+    /** Chronological partitions of this snapshot. */
+    private final PartitionCache partitionCache;
     /** mtime of the {@code segments_N} file at open time; a frozen index never moves. */
     private final long lastModified;
+    /** Whether field resources should be loaded at publication. */
+    private final boolean warmup;
+    /** Byte budget of {@link #prewarm(Collection)}, 0 for none. */
+    private final long prewarmBytes;
+
+    /**
+     * Outcome of {@link #prewarm(Collection)}.
+     *
+     * @param files    files loaded, entirely or in part
+     * @param bytes    bytes loaded
+     * @param resident bytes found resident after loading
+     * @param queries  filters replayed
+     * @param millis   elapsed time
+     */
+    public record Prewarm(int files, long bytes, long resident, int queries, long millis)
+    {
+        @Override
+        public String toString()
+        {
+            return files + " files, " + (bytes >> 20) + " MB loaded, " + (resident >> 20) + " MB resident, "
+                    + queries + " filters replayed, in " + millis + " ms";
+        }
+    }
 
     private LuceneIndex(
         final String name,
@@ -105,7 +174,12 @@ public final class LuceneIndex implements Closeable
         final DirectoryReader reader,
         final IndexSearcher searcher,
         final Map<String, Fluc> flucs,
-        final long lastModified
+        final BitsCache filterCache,
+        final HiliteCache docCache,
+        final PartitionCache partitionCache,
+        final long lastModified,
+        final boolean warmup,
+        final long prewarmBytes
     ) {
         this.name = name;
         this.label = label;
@@ -117,7 +191,12 @@ public final class LuceneIndex implements Closeable
         this.reader = reader;
         this.searcher = searcher;
         this.flucs = flucs;
+        this.filterCache = filterCache;
+        this.docCache = docCache;
+        this.partitionCache = partitionCache;
         this.lastModified = lastModified;
+        this.warmup = warmup;
+        this.prewarmBytes = prewarmBytes;
     }
 
     /**
@@ -192,12 +271,25 @@ public final class LuceneIndex implements Closeable
             String lang = trimOrNull(props.getProperty(LOCALE, LOCALE_DEFAULT));
             Locale locale = Locale.forLanguageTag(lang);
             final long lastModified = readSegmentsMtime(dir);
+            final BitsCache filterCache = new BitsCache(
+                    resolveMegabytes(props, FILTERCACHE, FILTERCACHE_DEFAULT, dir));
+            final HiliteCache docCache = new HiliteCache(
+                    resolveMegabytes(props, DOCCACHE, DOCCACHE_DEFAULT, dir));
+            final PartitionCache partitionCache = new PartitionCache(
+                    resolveMegabytes(props, PARTITIONCACHE, PARTITIONCACHE_DEFAULT, dir));
+            final TermStats.Backing statsBacking = resolveTermStats(props, dir);
+            final boolean warmup = Boolean.parseBoolean(trimOrNull(props.getProperty(WARMUP)));
+            final long prewarmBytes = resolveMegabytes(props, PREWARM, 0, dir);
+            for (Fluc fluc : fields.values()) {
+                if (fluc instanceof FlucText text)
+                    text.statsBacking(statsBacking);
+            }
 
             // Freeze the map so accessors need no synchronization.
             final Map<String, Fluc> frozen = Collections.unmodifiableMap(fields);
 
             return new LuceneIndex(
-                    name, label, content, docline, year, locale, dir, reader, searcher, frozen, lastModified);
+                    name, label, content, docline, year, locale, dir, reader, searcher, frozen, filterCache, docCache, partitionCache, lastModified, warmup, prewarmBytes);
         } catch (IOException | RuntimeException ex) {
             reader.close();
             throw ex;
@@ -214,6 +306,9 @@ public final class LuceneIndex implements Closeable
                 LOG.log(Level.WARNING, "Error closing field resources: " + e.getKey(), ex);
             }
         }
+        filterCache.clear();
+        docCache.clear();
+        partitionCache.clear();
         reader.close();
     }
 
@@ -227,6 +322,35 @@ public final class LuceneIndex implements Closeable
         return docline;
     }
 
+    /** Rendered document cache of this snapshot. */
+    public HiliteCache docCache() {
+        return docCache;
+    }
+
+    /**
+     * Returns the documents matching a filter query, shared through the
+     * {@link #filterCache()} of this snapshot.
+     *
+     * @param query non-scoring filter query
+     * @return matching global doc ids; shared, must not be modified
+     * @throws IOException if query rewrite or search fails
+     */
+    public FixedBitSet filter(
+        final Query query
+    ) throws IOException {
+        return filterCache.bits(searcher, query);
+    }
+
+    /** Chronological partition cache of this snapshot. */
+    public PartitionCache partitionCache() {
+        return partitionCache;
+    }
+
+    /** Filter cache of this snapshot, for its counters. */
+    public BitsCache filterCache() {
+        return filterCache;
+    }
+
     /**
      * Returns the {@link Fluc} for a named field, or {@code null} if the
      * field does not exist in this index.
@@ -378,7 +502,106 @@ public final class LuceneIndex implements Closeable
     @Override
     public String toString() {
         return "LuceneIndex{name=" + name + ", label=\"" + label + "\"" + ", docs=" + numDocs() + ", content=" + content
-                + ", fields=" + flucs.size() + ", dir=" + indexDir + "}";
+                + ", fields=" + flucs.size() + ", dir=" + indexDir + ", filters=" + filterCache + ", docs=" + docCache + ", partitions=" + partitionCache + "}";
+    }
+
+    /**
+     * Loads index files in memory and replays filters, so that the first
+     * requests on this index do not fault on a cold disk. Meant to run before
+     * the index is published, within the {@code prewarm} budget.
+     *
+     * <p>
+     * Files are loaded by {@link IOUtil#preload(Path, long)}, in order: the
+     * rails and statistics of the content field, those of the other text
+     * fields, the Lucene term dictionaries and point indexes, then postings,
+     * norms and doc values. Stored fields and vector models are not loaded.
+     * The last file may be loaded in part. The replayed filters, for example
+     * the {@link BitsCache#queries(int) recent filters} of the index this one
+     * replaces, are materialized through {@link #filter(Query)} and stay in
+     * the filter cache.
+     * </p>
+     *
+     * @param replay filter queries to search, possibly empty
+     * @return files, bytes and time spent
+     * @throws IOException if listing the directory, loading a file or a
+     *         search fails
+     */
+    public Prewarm prewarm(
+        final Collection<Query> replay
+    ) throws IOException {
+        final long start = System.nanoTime();
+        final List<Path> files = new ArrayList<>();
+        try (Stream<Path> list = Files.list(indexDir)) {
+            list.filter(Files::isRegularFile)
+                .filter(p -> prewarmRank(p) < Integer.MAX_VALUE)
+                .forEach(files::add);
+        }
+        files.sort(Comparator.comparingInt(this::prewarmRank).thenComparing(Path::getFileName));
+        int count = 0;
+        long bytes = 0L;
+        long resident = 0L;
+        for (Path file : files) {
+            if (bytes >= prewarmBytes)
+                break;
+            final long max = prewarmBytes - bytes;
+            resident += IOUtil.preload(file, max);
+            bytes += Math.min(Files.size(file), max);
+            count++;
+        }
+        int queries = 0;
+        for (Query query : replay) {
+            filter(query);
+            queries++;
+        }
+        final long millis = (System.nanoTime() - start) / 1_000_000L;
+        return new Prewarm(count, bytes, resident, queries, millis);
+    }
+
+    /**
+     * Load order of a file by {@link #prewarm(Collection)}, {@link Integer#MAX_VALUE}
+     * for a file not loaded.
+     */
+    private int prewarmRank(
+        final Path file
+    ) {
+        final String name = file.getFileName().toString();
+        final boolean sidecar = name.endsWith(".stats") || name.contains(".rail.");
+        if (sidecar)
+            return (content != null && name.startsWith(content + ".")) ? 0 : 1;
+        final String ext = name.substring(name.lastIndexOf('.') + 1);
+        return switch (ext) {
+            case "tip", "tmd", "tim", "psm", "kdi", "kdm" -> 2;
+            case "doc", "pos", "pay", "nvd", "nvm", "dvd", "dvm", "kdd", "cfs", "cfe" -> 3;
+            default -> Integer.MAX_VALUE;
+        };
+    }
+
+    /** Byte budget of {@link #prewarm(Collection)}, from the {@code prewarm} key. */
+    public long prewarmBytes() {
+        return prewarmBytes;
+    }
+
+    /**
+     * Loads the resources of every text field in the background, see
+     * {@link FlucText#warm(Executor)}, so that the first requests on a
+     * published index do not wait for sidecars to be opened or built.
+     *
+     * @param executor threads running the loads
+     * @return completed when every field is loaded, exceptionally with the
+     *         first failure
+     */
+    public CompletableFuture<Void> warm(
+        final Executor executor
+    ) {
+        return CompletableFuture.allOf(flucs.values().stream()
+                .filter(FlucText.class::isInstance)
+                .map(f -> ((FlucText) f).warm(executor))
+                .toArray(CompletableFuture[]::new));
+    }
+
+    /** Whether the {@code warmup} key asks {@link #warm(Executor)} at publication. */
+    public boolean warmup() {
+        return warmup;
     }
 
     /** Numeric field for sorting or histograms. */
@@ -424,6 +647,46 @@ public final class LuceneIndex implements Closeable
         return null;
     }
 
+    /**
+     * Resolve the byte budget of a cache from a value in megabytes,
+     * falling back to the default on a missing value.
+     */
+    private static long resolveMegabytes(
+        final Properties props,
+        final String key,
+        final int defaultMb,
+        final Path indexDir
+    ) {
+        final String declared = trimOrNull(props.getProperty(key));
+        if (declared == null)
+            return defaultMb * 1024L * 1024L;
+        try {
+            final int mb = Integer.parseInt(declared);
+            if (mb >= 0)
+                return mb * 1024L * 1024L;
+        } catch (NumberFormatException ex) {
+            // fall through
+        }
+        throw new IllegalArgumentException(
+                "Declared " + key + " \"" + declared + "\" is not a positive number of megabytes — " + indexDir);
+    }
+
+    /**
+     * Resolve where field statistics are loaded, {@code auto} by default.
+     */
+    private static TermStats.Backing resolveTermStats(
+        final Properties props,
+        final Path indexDir
+    ) {
+        final String declared = trimOrNull(props.getProperty(TERMSTATS));
+        try {
+            return TermStats.Backing.of(declared);
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException(
+                    "Declared termstats \"" + declared + "\" is not heap, mapped or auto — " + indexDir);
+        }
+    }
+
     private static String resolveYear(
         final Properties props,
         final Map<String, Fluc> fields,
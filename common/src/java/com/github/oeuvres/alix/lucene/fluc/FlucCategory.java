@@ -39,7 +39,8 @@ import org.apache.lucene.util.BytesRef;
  *
  * <h2>Thread safety</h2>
  * <p>
- * All state is immutable after construction. Methods are safe for
+ * The document vector is immutable after construction; the count caches
+ * of {@link FlucString} are guarded internally. Methods are safe for
  * concurrent access without synchronization.
  * </p>
  */
@@ -117,17 +118,27 @@ public final class FlucCategory extends FlucString
     }
 
     @Override
-    public int[] countByLabel(final BitSet docFilter)
-    {
-        final int[] counts = new int[labelCount()];
-        for (int docId = docFilter.nextSetBit(0);
+    protected void countRange(
+        final BitSet docFilter,
+        final int docFrom,
+        final int docTo,
+        final int[] counts
+    ) {
+        if (docFilter == null) {
+            for (int docId = docFrom; docId < docTo; docId++) {
+                final int labelId = docId4labelId[docId];
+                if (labelId < 0) continue;
+                counts[labelId]++;
+            }
+            return;
+        }
+        for (int docId = nextDoc(docFilter, docFrom, docTo);
              docId != DocIdSetIterator.NO_MORE_DOCS;
-             docId = docFilter.nextSetBit(docId + 1)) {
+             docId = nextDoc(docFilter, docId + 1, docTo)) {
             final int labelId = docId4labelId[docId];
             if (labelId < 0) continue;
             counts[labelId]++;
         }
-        return counts;
     }
 
     /**
@@ -50,7 +50,8 @@ import org.apache.lucene.util.BytesRef;
  *
  * <h2>Thread safety</h2>
  * <p>
- * All state is immutable after construction. Methods are safe for
+ * The document vector is immutable after construction; the count caches
+ * of {@link FlucString} are guarded internally. Methods are safe for
  * concurrent access without synchronization.
  * </p>
  */
@@ -163,17 +164,26 @@ public final class FlucFacet extends FlucString
     }
 
     @Override
-    public int[] countByLabel(final BitSet docFilter)
-    {
-        final int[] counts = new int[labelCount()];
-        for (int docId = docFilter.nextSetBit(0);
+    protected void countRange(
+        final BitSet docFilter,
+        final int docFrom,
+        final int docTo,
+        final int[] counts
+    ) {
+        if (docFilter == null) {
+            // CSR slices are contiguous: one pass over the range
+            for (int p = docId4pos[docFrom], end = docId4pos[docTo]; p < end; p++) {
+                counts[labelIds[p]]++;
+            }
+            return;
+        }
+        for (int docId = nextDoc(docFilter, docFrom, docTo);
              docId != DocIdSetIterator.NO_MORE_DOCS;
-             docId = docFilter.nextSetBit(docId + 1)) {
+             docId = nextDoc(docFilter, docId + 1, docTo)) {
             for (int p = docId4pos[docId], end = docId4pos[docId + 1]; p < end; p++) {
                 counts[labelIds[p]]++;
             }
         }
-        return counts;
     }
 
     /**
@@ -8,15 +8,21 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 import org.apache.lucene.index.FieldInfo;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.MultiBits;
 import org.apache.lucene.index.MultiTerms;
 import org.apache.lucene.index.Terms;
 import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.util.BitSet;
+import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.FixedBitSet;
 
 /**
  * Base class for string-valued fields: sorted label dictionary and
@@ -42,18 +48,38 @@ import org.apache.lucene.util.BytesRef;
  *
  * <p>
  * Subclasses ({@link FlucCategory}, {@link FlucFacet}) add per-document
- * value vectors built from doc values.
+ * value vectors built from doc values, and count them over a docId range
+ * with {@link #countRange(BitSet, int, int, int[])}.
+ * </p>
+ *
+ * <h2>Filtered counts</h2>
+ * <p>
+ * {@link #countByLabel()} returns the live totals, counted once over the
+ * live documents of the reader; {@link #countByLabel(BitSet)} returns them
+ * when the filter holds as many documents as the index has live documents.
+ * Larger filters are otherwise counted in docId chunks on the common
+ * fork-join pool, then summed. {@link #countByLabel(Object, BitSet)} adds
+ * an LRU memo of the last {@value #MEMO_SIZE} filters, keyed by the caller,
+ * typically the rewritten filter query: repeated renders of the same
+ * facet over the same filter, as by the {@code facet} operation of the web
+ * application, are a map lookup.
  * </p>
  *
  * <h2>Thread safety</h2>
  * <p>
- * All state is immutable after construction. Methods are safe for
- * concurrent access without synchronization.
+ * The label dictionary and document vectors are immutable after
+ * construction. The live totals and the memo are shared lazy state,
+ * guarded internally. Methods are safe for concurrent access without
+ * synchronization.
  * </p>
  */
 public abstract class FlucString extends Fluc
 {
     private static final int TOP_LABELS = 20;
+    /** Filtered counts kept by {@link #countByLabel(Object, BitSet)}. */
+    private static final int MEMO_SIZE = 64;
+    /** Minimum filtered documents per parallel chunk. */
+    private static final int CHUNK_DOCS = 1 << 14;
     /**
      * Sorted label dictionary: {@code sortedLabels[labelId]} is the string
      * label for that id. Order is {@link String#compareTo(String)};
@@ -66,6 +92,25 @@ public abstract class FlucString extends Fluc
      * {@code sortedLabels[labelId]}.
      */
     protected final int[] labelId4docs;
+    /** Number of live documents of the reader. */
+    protected final int liveDocs;
+    /** Size of the document vectors. */
+    protected final int maxDoc;
+    /** Live documents of the reader, {@code null} without deletions. */
+    private final Bits live;
+    /** Counts by labelId over all live documents, lazily counted. */
+    private volatile int[] totals;
+    /** Filtered counts in access order, eldest first. Guarded by {@code memo}. */
+    private final LinkedHashMap<Object, int[]> memo = new LinkedHashMap<>(16, 0.75f, true)
+    {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<Object, int[]> eldest)
+        {
+            return size() > MEMO_SIZE;
+        }
+    };
     
     /**
      * A label and its corpus-level document count, used during construction.
@@ -97,6 +142,9 @@ public abstract class FlucString extends Fluc
             final IndexReader reader) throws IOException
     {
         super(fi, probeStoredViaPostings(reader, fi.name), reader.getDocCount(fi.name));
+        this.liveDocs = reader.numDocs();
+        this.maxDoc = reader.maxDoc();
+        this.live = MultiBits.getLiveDocs(reader);
         final List<LabelDocs> list = new ArrayList<>();
         final Terms terms = MultiTerms.getTerms(reader, fi.name);
         if (terms != null) {
@@ -194,26 +242,145 @@ public abstract class FlucString extends Fluc
     }
     
     /**
-     * Full-corpus document count by labelId.
-     * Returns a defensive copy of the precomputed array.
+     * Document count by labelId over all live documents, counted once.
+     * Unlike {@link #docs(int)}, taken from the inverted index, deleted
+     * documents are not counted.
      * Element {@code i} holds the count for {@code label(i)}.
      *
-     * @return counts array of length {@link #labelCount()}
+     * @return counts array of length {@link #labelCount()}, owned by the caller
      */
     public int[] countByLabel()
     {
-        return labelId4docs.clone();
+        return totals().clone();
     }
     
     /**
      * Filtered document count by labelId.
-     * Implemented by subclasses, which hold the per-document value vectors.
+     *
+     * <p>
+     * A filter of as many documents as the live documents is taken as all
+     * live documents, and answered from the live totals; filters are
+     * expected to hold live documents only, as search results do. Larger
+     * filters are counted in parallel docId chunks.
+     * </p>
      *
      * @param docFilter set of Lucene internal document ids
      * @return counts array of length {@link #labelCount()}
-     * @throws IOException on Lucene I/O errors
      */
-    public abstract int[] countByLabel(BitSet docFilter) throws IOException;
+    public int[] countByLabel(final BitSet docFilter)
+    {
+        final int cardinality = docFilter.cardinality();
+        if (cardinality >= liveDocs) {
+            return totals().clone();
+        }
+        final int docTo = Math.min(docFilter.length(), maxDoc);
+        final int chunks = Math.min(ForkJoinPool.getCommonPoolParallelism(), cardinality / CHUNK_DOCS);
+        if (chunks < 2) {
+            final int[] counts = new int[labelCount()];
+            countRange(docFilter, 0, docTo, counts);
+            return counts;
+        }
+        return IntStream.range(0, chunks).parallel().mapToObj(chunk -> {
+            final int[] counts = new int[labelCount()];
+            countRange(
+                docFilter,
+                (int) ((long) docTo * chunk / chunks),
+                (int) ((long) docTo * (chunk + 1) / chunks),
+                counts
+            );
+            return counts;
+        }).reduce((a, b) -> {
+            for (int labelId = 0; labelId < a.length; labelId++) {
+                a[labelId] += b[labelId];
+            }
+            return a;
+        }).get();
+    }
+
+    /**
+     * Filtered document count by labelId, memoised by a caller key.
+     *
+     * <p>
+     * The key must identify the documents of the filter for the life of
+     * this reader snapshot, for example the filter query rewritten by the
+     * searcher. A {@code null} key bypasses the memo.
+     * </p>
+     *
+     * @param filterKey key of the filter, or {@code null}
+     * @param docFilter set of Lucene internal document ids
+     * @return counts array of length {@link #labelCount()}, owned by the caller
+     */
+    public int[] countByLabel(final Object filterKey, final BitSet docFilter)
+    {
+        if (filterKey == null) {
+            return countByLabel(docFilter);
+        }
+        int[] counts;
+        synchronized (memo) {
+            counts = memo.get(filterKey);
+        }
+        if (counts == null) {
+            counts = countByLabel(docFilter);
+            synchronized (memo) {
+                memo.putIfAbsent(filterKey, counts);
+            }
+        }
+        return counts.clone();
+    }
+
+    /**
+     * Adds the labels of the documents in {@code [docFrom, docTo)} to
+     * {@code counts}. Implemented by subclasses, which hold the
+     * per-document value vectors.
+     *
+     * @param docFilter set of Lucene internal document ids, or {@code null}
+     *                  for all documents of the vectors
+     * @param docFrom   first docId, inclusive
+     * @param docTo     last docId, exclusive
+     * @param counts    counts by labelId, incremented
+     */
+    protected abstract void countRange(BitSet docFilter, int docFrom, int docTo, int[] counts);
+
+    /**
+     * Next document of a filter in {@code [docId, docTo)}.
+     *
+     * @param docFilter set of Lucene internal document ids
+     * @param docId     first docId to test
+     * @param docTo     last docId, exclusive
+     * @return docId, or {@link DocIdSetIterator#NO_MORE_DOCS}
+     */
+    protected static int nextDoc(final BitSet docFilter, final int docId, final int docTo)
+    {
+        if (docId >= docTo) {
+            return DocIdSetIterator.NO_MORE_DOCS;
+        }
+        return docFilter.nextSetBit(docId, docTo);
+    }
+
+    /**
+     * Counts by labelId over all live documents, counted on first use.
+     * With deletions, the documents are masked by the live documents of
+     * the reader.
+     */
+    private int[] totals()
+    {
+        int[] counts = totals;
+        if (counts == null) {
+            counts = new int[labelCount()];
+            if (live == null) {
+                countRange(null, 0, maxDoc, counts);
+            }
+            else {
+                final FixedBitSet liveSet = new FixedBitSet(maxDoc);
+                for (int docId = 0; docId < maxDoc; docId++) {
+                    if (live.get(docId)) liveSet.set(docId);
+                }
+                countRange(liveSet, 0, maxDoc, counts);
+            }
+            totals = counts;
+        }
+        return counts;
+    }
     
     /**
      * For each labelId, the rank in {@code topDocs} of its first
@@ -9,7 +9,13 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.text.ParseException;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.lucene.analysis.CharArraySet;
 import org.apache.lucene.analysis.hunspell.Dictionary;
@@ -20,13 +26,18 @@ import org.apache.lucene.index.IndexOptions;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.MultiTerms;
 import org.apache.lucene.index.Terms;
+import org.apache.lucene.util.IOSupplier;
 
 import com.github.oeuvres.alix.lucene.snippets.SpanQueryParser;
+import com.github.oeuvres.alix.lucene.terms.PartMatrix;
+import com.github.oeuvres.alix.lucene.terms.SegmentSidecars;
 import com.github.oeuvres.alix.lucene.terms.TermLexicon;
 import com.github.oeuvres.alix.lucene.terms.TermRail;
 import com.github.oeuvres.alix.lucene.terms.TermStats;
+import com.github.oeuvres.alix.lucene.terms.TermSuffixes;
 import com.github.oeuvres.alix.lucene.terms.TermSuggest;
 import com.github.oeuvres.alix.lucene.terms.TopTerms;
+import com.github.oeuvres.alix.lucene.vecs.VecHnsw;
 import com.github.oeuvres.alix.lucene.vecs.VecModel;
 import com.github.oeuvres.alix.util.Report;
 import com.github.oeuvres.alix.util.WordTokenizer;
@@ -44,34 +55,46 @@ import com.github.oeuvres.alix.util.fr.FrenchCliticTokenizer;
  *   <li>{@link TermStats}: field-level term and document statistics;</li>
  *   <li>{@link TermLexicon}: dense term-id mapping and term display strings;</li>
  *   <li>{@link TermRail}: forward positional rail for spans and co-occurrences;</li>
- *   <li>{@link TermSuggest}: folded term-suggestion index;</li>
+ *   <li>{@link TermSuggest}: folded term-suggestion index, on the
+ *   {@link TermSuffixes} sidecar {@code <field>.suggest};</li>
+ *   <li>{@link PartMatrix}: term by part counts over calendar periods,
+ *   in {@code <field>.<num>-<width>.parts}, built offline;</li>
  *   <li>field stopwords stored in {@code <field>.stop};</li>
- *   <li>an optional word2vec model stored in {@code <field>.bin}.</li>
+ *   <li>an optional word2vec model stored in {@code <field>.bin}, or
+ *   quantised in {@code <field>.vq}.</li>
  * </ul>
  *
  * <p>
- * Required lazy resources use {@code null} to mean "not loaded yet". Optional
- * lazy resources use a nullable {@link Optional}: {@code null} means
- * "unresolved", {@link Optional#empty()} means "resolved and unavailable", and
- * a present value means "resolved and loaded". This prevents repeated
- * filesystem probes when an optional sidecar does not exist.
+ * Each resource has its own lazy holder. The first caller builds or opens it
+ * while concurrent callers of the same resource wait for that load; callers of
+ * another resource, already loaded or not, are not blocked. A loaded resource
+ * is read without locking. The absence of an optional sidecar is kept like a
+ * loaded value, so the filesystem is probed once.
  * </p>
  *
  * <p>
- * Failed builds or opens do not poison the object: the corresponding lazy state
- * remains unresolved, so a later call may retry.
+ * A failed build or open is kept for {@value #RETRY_SECONDS} seconds and
+ * thrown again to every caller in the meantime, so that a broken sidecar is not
+ * rebuilt by each request; a later call retries.
  * </p>
  *
  * <p>
- * Public resource accessors are synchronized. Loaded resources are shared by
- * requests and are expected to be immutable or read-only. {@link #topTerms()}
- * returns a fresh mutable {@link TopTerms} object for each call.
+ * Loaded resources are shared by requests and are expected to be immutable or
+ * read-only. {@link #topTerms()} returns a fresh mutable {@link TopTerms}
+ * object for each call. {@link #warm(Executor)} loads the main resources in
+ * the background, before the first request needs them.
  * </p>
  *
  * @see Fluc#inferFields
  */
 public final class FlucText extends Fluc
 {
+    /** JVM property choosing the format of rails built on demand, {@code raw} (default) or {@code packed}. */
+    private static final String RAIL_PROPERTY = "alix.rail";
+
+    /** Seconds a failed load is thrown again before a new attempt. */
+    private static final int RETRY_SECONDS = 30;
+
     /** Whether norms are available for this field. */
     private final boolean hasNorms;
 
@@ -87,47 +110,44 @@ public final class FlucText extends Fluc
     /** Directory where sidecar resources are stored. */
     private final Path sideDir;
 
-    /**
-     * Optional Hunspell dictionary.
-     *
-     * <p>
-     * {@code null} = unresolved, empty = unavailable, present = loaded.
-     * </p>
-     */
-    private Optional<Hunspell> hunspell;
+    /** Optional Hunspell dictionary, {@code null} when not configured. */
+    private final Lazy<Hunspell> hunspell = new Lazy<>(this::loadHunspell);
 
     /** Span query parser built from the field tokenizer and cached resources. */
-    private SpanQueryParser spanQueryParser;
+    private final Lazy<SpanQueryParser> spanQueryParser = new Lazy<>(this::loadSpanQueryParser);
 
-    /**
-     * Optional field stopwords.
-     *
-     * <p>
-     * {@code null} = unresolved, empty = unavailable, present = loaded.
-     * </p>
-     */
-    private Optional<CharArraySet> stopwords;
+    /** Optional field stopwords, {@code null} when no sidecar exists. */
+    private final Lazy<CharArraySet> stopwords = new Lazy<>(this::loadStopwords);
 
-    /** Dense term lexicon, loaded lazily. */
-    private TermLexicon termLexicon;
+    /** Dense term lexicon. */
+    private final Lazy<TermLexicon> termLexicon = new Lazy<>(this::loadTermLexicon);
 
-    /** Forward positional rail, loaded lazily. */
-    private TermRail termRail;
+    /** Forward positional rail. */
+    private final Lazy<TermRail> termRail = new Lazy<>(this::loadTermRail);
 
-    /** Field statistics, loaded lazily. */
-    private TermStats termStats;
+    /** Field statistics. */
+    private final Lazy<TermStats> termStats = new Lazy<>(this::loadTermStats);
 
-    /** Term suggester, built lazily from the lexicon and field statistics. */
-    private TermSuggest termSuggest;
+    /** Where {@link #termStats} is loaded, set by the owning index. */
+    private volatile TermStats.Backing statsBacking = TermStats.Backing.HEAP;
 
-    /**
-     * Optional in-memory word2vec model.
-     *
-     * <p>
-     * {@code null} = unresolved, empty = unavailable, present = loaded.
-     * </p>
-     */
-    private Optional<VecModel> vecModel;
+    /** Check of the sidecars assembled from segments against the reader, done once. */
+    private final Lazy<Void> segments = new Lazy<>(this::loadSegments);
+
+    /** Suffix tables of {@link #termSuggest}, mapped from their sidecar. */
+    private final Lazy<TermSuffixes> termSuffixes = new Lazy<>(this::loadTermSuffixes);
+
+    /** Term suggester, built from the lexicon, field statistics and suffix tables. */
+    private final Lazy<TermSuggest> termSuggest = new Lazy<>(this::loadTermSuggest);
+
+    /** Term by part matrices, by numeric field name and width. */
+    private final Map<String, Lazy<PartMatrix>> partMatrices = new ConcurrentHashMap<>();
+
+    /** Optional word2vec model, {@code null} when no sidecar exists. */
+    private final Lazy<VecModel> vecModel = new Lazy<>(this::loadVecModel);
+
+    /** Nearest-neighbour graph over {@link #vecModel}, {@code null} without model. */
+    private final Lazy<VecHnsw> vecHnsw = new Lazy<>(this::loadVecHnsw);
 
     /**
      * Creates a text-field handle.
@@ -177,9 +197,12 @@ public final class FlucText extends Fluc
      * Releases loaded resources and clears cached handles.
      *
      * <p>
-     * {@link TermRail} and {@link TermLexicon} may hold closeable resources.
+     * {@link TermRail}, {@link TermLexicon}, a mapped {@link TermStats}, the
+     * {@link TermSuffixes} of the suggester, the {@link PartMatrix} tables and
+     * the {@link VecHnsw} graph may hold closeable resources.
      * Other cached objects are cleared so all lazy resources return to their
-     * unresolved state.
+     * unresolved state. A resource still loading is closed when its load
+     * completes.
      * </p>
      *
      * @throws IOException if closing a loaded resource fails
@@ -189,20 +212,21 @@ public final class FlucText extends Fluc
     {
         IOException failure = null;
 
-        try {
-            failure = closeResource(termRail, failure);
-            failure = closeResource(termLexicon, failure);
-        }
-        finally {
-            hunspell = null;
-            spanQueryParser = null;
-            stopwords = null;
-            termSuggest = null;
-            termRail = null;
-            termLexicon = null;
-            termStats = null;
-            vecModel = null;
+        failure = closeResource(termRail.reset(), failure);
+        failure = closeResource(termLexicon.reset(), failure);
+        failure = closeResource(termStats.reset(), failure);
+        failure = closeResource(termSuffixes.reset(), failure);
+        for (Lazy<PartMatrix> matrix : partMatrices.values()) {
+            failure = closeResource(matrix.reset(), failure);
         }
+        partMatrices.clear();
+        failure = closeResource(vecHnsw.reset(), failure);
+        failure = closeResource(vecModel.reset(), failure);
+        hunspell.reset();
+        spanQueryParser.reset();
+        stopwords.reset();
+        termSuggest.reset();
+        segments.reset();
 
         if (failure != null) {
             throw failure;
@@ -259,8 +283,7 @@ public final class FlucText extends Fluc
      * <p>
      * The dictionary is resolved lazily from {@code <field>.dic} and
      * {@code <field>.aff}. Absence of both files is cached. When only one file
-     * exists, the configuration is considered invalid. A failed load is not
-     * cached and may be retried by a later call.
+     * exists, the configuration is considered invalid.
      * </p>
      *
      * @return cached Hunspell lemmatizer, or {@code null} when no dictionary is
@@ -269,19 +292,22 @@ public final class FlucText extends Fluc
      *         the Hunspell files are malformed
      * @throws UncheckedIOException if the dictionary files cannot be read
      */
-    public synchronized Hunspell hunspell() throws IOException
+    public Hunspell hunspell() throws IOException
     {
-        if (hunspell != null) {
-            return hunspell.orElse(null);
-        }
+        return hunspell.get();
+    }
 
+    /**
+     * Loads the Hunspell dictionary of {@link #hunspell()}.
+     */
+    private Hunspell loadHunspell()
+    {
         final Path dicPath = sideDir.resolve(name() + ".dic");
         final Path affPath = sideDir.resolve(name() + ".aff");
         final boolean dicExists = Files.isRegularFile(dicPath);
         final boolean affExists = Files.isRegularFile(affPath);
 
         if (!dicExists && !affExists) {
-            hunspell = Optional.empty();
             return null;
         }
 
@@ -303,9 +329,7 @@ public final class FlucText extends Fluc
                 false,
                 SortingStrategy.inMemory()
             );
-            final Hunspell loaded = new Hunspell(dictionary);
-            hunspell = Optional.of(loaded);
-            return loaded;
+            return new Hunspell(dictionary);
         }
         catch (ParseException e) {
             throw new IllegalStateException(
@@ -343,21 +367,24 @@ public final class FlucText extends Fluc
      * @return cached span-query parser
      * @throws IOException if a field sidecar cannot be read
      */
-    public synchronized SpanQueryParser spanQueryParser() throws IOException
+    public SpanQueryParser spanQueryParser() throws IOException
     {
-        if (spanQueryParser != null) {
-            return spanQueryParser;
-        }
+        return spanQueryParser.get();
+    }
 
+    /**
+     * Builds the parser of {@link #spanQueryParser()}.
+     */
+    private SpanQueryParser loadSpanQueryParser() throws IOException
+    {
         final WordTokenizer tokenizer = new FrenchCliticTokenizer();
-        spanQueryParser = new SpanQueryParser(
+        return new SpanQueryParser(
             name,
             reader,
             tokenizer,
             hunspell(),
             stopwords()
         );
-        return spanQueryParser;
     }
 
     /**
@@ -373,15 +400,18 @@ public final class FlucText extends Fluc
      * @return cached stopword set, or {@code null} when no sidecar exists
      * @throws IOException if the sidecar exists but cannot be read
      */
-    public synchronized CharArraySet stopwords() throws IOException
+    public CharArraySet stopwords() throws IOException
     {
-        if (stopwords != null) {
-            return stopwords.orElse(null);
-        }
+        return stopwords.get();
+    }
 
+    /**
+     * Reads the sidecar of {@link #stopwords()}.
+     */
+    private CharArraySet loadStopwords() throws IOException
+    {
         final Path path = sideDir.resolve(name() + ".stop");
         if (!Files.isRegularFile(path)) {
-            stopwords = Optional.empty();
             return null;
         }
 
@@ -401,8 +431,6 @@ public final class FlucText extends Fluc
             }
             loaded.add(line);
         }
-
-        stopwords = Optional.of(loaded);
         return loaded;
     }
 
@@ -420,12 +448,24 @@ public final class FlucText extends Fluc
      * @return dense term lexicon
      * @throws UncheckedIOException if building or opening the lexicon fails
      */
-    public synchronized TermLexicon termLexicon()
+    public TermLexicon termLexicon()
     {
-        if (termLexicon != null) {
-            return termLexicon;
+        try {
+            return termLexicon.get();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(
+                "Cannot load term lexicon for field '" + name() + "'",
+                e
+            );
         }
+    }
 
+    /**
+     * Builds the lexicon of {@link #termLexicon()}.
+     */
+    private TermLexicon loadTermLexicon() throws IOException
+    {
         final Path dicPath = sideDir.resolve(name() + ".dic");
         final Path affPath = sideDir.resolve(name() + ".aff");
         final Path stopPath = sideDir.resolve(name() + ".stop");
@@ -435,15 +475,123 @@ public final class FlucText extends Fluc
             InputStream aff = Files.exists(affPath) ? Files.newInputStream(affPath) : null;
             InputStream stop = Files.exists(stopPath) ? Files.newInputStream(stopPath) : null
         ) {
-            termLexicon = new TermLexicon(reader, name(), dic, aff, stop);
-            return termLexicon;
+            return new TermLexicon(reader, name(), dic, aff, stop);
+        }
+    }
+
+    /**
+     * Returns the term by part counts of this field over the calendar periods
+     * of a numeric field, for chronological keyness without postings.
+     *
+     * <p>
+     * The matrix is memory-mapped from {@code <field>.<num>-<width>.parts}.
+     * It is built offline, by {@link #buildPartMatrix(FlucNum, int)} or
+     * {@link PartMatrix#main(String[])} at publication, never on a request: a
+     * missing matrix, or one built for another snapshot, is absent and the
+     * caller falls back to a {@link com.github.oeuvres.alix.lucene.terms.Partition}.
+     * </p>
+     *
+     * @param num   numeric field cut in periods
+     * @param width period width in values, for example 10 for decades
+     * @return cached matrix, or {@code null} when no current matrix exists
+     * @throws UncheckedIOException if an existing matrix cannot be opened
+     */
+    public PartMatrix partMatrix(final FlucNum num, final int width)
+    {
+        final Lazy<PartMatrix> holder = partMatrices.computeIfAbsent(
+            partMatrixKey(num, width),
+            key -> new Lazy<>(() -> openPartMatrix(num, width))
+        );
+        try {
+            return holder.get();
         }
         catch (IOException e) {
-            throw new UncheckedIOException(
-                "Cannot load term lexicon for field '" + name() + "'",
-                e
-            );
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Builds the matrix of {@link #partMatrix(FlucNum, int)} when missing,
+     * unreadable or built for another snapshot; this walks all the postings of
+     * the field once.
+     *
+     * @param num   numeric field cut in periods
+     * @param width period width in values
+     * @throws IOException              if postings traversal or writing fails
+     * @throws IllegalArgumentException if the periods exceed the parts of a partition
+     */
+    public void buildPartMatrix(final FlucNum num, final int width) throws IOException
+    {
+        try (PartMatrix current = openPartMatrix(num, width)) {
+            if (current != null) {
+                return;
+            }
+        }
+        catch (IOException e) {
+            // unreadable, rebuilt below
+        }
+        Files.deleteIfExists(PartMatrix.path(sideDir, name(), num.name(), width));
+        PartMatrix.build(reader, num, this, width);
+        // a request may have cached the absence
+        final Lazy<PartMatrix> holder = partMatrices.remove(partMatrixKey(num, width));
+        if (holder != null) {
+            final IOException failure = closeResource(holder.reset(), null);
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Key of a matrix in {@link #partMatrices}, a separator between the names
+     * so that {@code date1} by 5 and {@code date} by 15 differ.
+     */
+    private static String partMatrixKey(final FlucNum num, final int width)
+    {
+        return num.name() + "-" + width;
+    }
+
+    /**
+     * Opens a matrix of {@link #partMatrix(FlucNum, int)}, or {@code null}
+     * when it is missing or stale.
+     */
+    private PartMatrix openPartMatrix(final FlucNum num, final int width) throws IOException
+    {
+        final int vocabSize = termStats().vocabSize();
+        refreshSegments();
+        if (!PartMatrix.exists(sideDir, name(), num.name(), width)) {
+            return null;
+        }
+        final PartMatrix matrix = PartMatrix.open(sideDir, name(), num.name(), width);
+        if (matrix.maxDoc() != reader.maxDoc() || matrix.vocabSize() != vocabSize) {
+            matrix.close();
+            return null;
+        }
+        return matrix;
+    }
+
+    /**
+     * Reassembles the statistics and rail of this field from per-segment
+     * sidecars when the incremental mode of {@link SegmentSidecars} is enabled
+     * and the assembled files do not match the segments of the reader. Checked
+     * once per handle.
+     *
+     * @throws IOException if building or assembling sidecars fails
+     */
+    private void refreshSegments() throws IOException
+    {
+        segments.get();
+    }
+
+    /**
+     * Runs the check of {@link #refreshSegments()}.
+     */
+    private Void loadSegments() throws IOException
+    {
+        if (SegmentSidecars.enabled(sideDir) && !SegmentSidecars.isCurrent(reader, sideDir, name())) {
+            SegmentSidecars.update(reader, sideDir, name(), termLexicon(), railFormat(), Report.ReportNull.INSTANCE);
         }
+        return null;
     }
 
     /**
@@ -451,38 +599,66 @@ public final class FlucText extends Fluc
      *
      * <p>
      * The term lexicon is loaded first because rail construction requires dense
-     * term ids.
+     * term ids. An existing rail is opened in its own format; a missing one is
+     * built in the format of the JVM property {@value #RAIL_PROPERTY}
+     * ({@code raw} by default, or {@code packed}).
      * </p>
      *
      * @return forward positional rail
      * @throws UncheckedIOException if building or opening the rail fails
      */
-    public synchronized TermRail termRail()
+    public TermRail termRail()
     {
-        if (termRail != null) {
-            return termRail;
-        }
-
-        final TermLexicon lexicon = termLexicon();
-
         try {
-            if (!TermRail.exists(sideDir, name())) {
-                TermRail.build(
-                    reader,
-                    sideDir,
-                    name(),
-                    lexicon,
-                    Report.ReportNull.INSTANCE
-                );
-            }
-            termRail = TermRail.open(sideDir, name());
-            return termRail;
+            return termRail.get();
         }
         catch (IOException e) {
             throw new UncheckedIOException(e);
         }
     }
 
+    /**
+     * Builds or opens the rail of {@link #termRail()}.
+     */
+    private TermRail loadTermRail() throws IOException
+    {
+        final TermLexicon lexicon = termLexicon();
+        refreshSegments();
+        if (!TermRail.exists(sideDir, name())) {
+            TermRail.build(
+                reader,
+                sideDir,
+                name(),
+                lexicon,
+                railFormat(),
+                Report.ReportNull.INSTANCE
+            );
+        }
+        return TermRail.open(sideDir, name());
+    }
+
+    /**
+     * Format of a rail built or assembled on demand, from the JVM property
+     * {@value #RAIL_PROPERTY}.
+     */
+    private static TermRail.Format railFormat()
+    {
+        return "packed".equalsIgnoreCase(System.getProperty(RAIL_PROPERTY))
+            ? TermRail.Format.PACKED
+            : TermRail.Format.RAW;
+    }
+
+    /**
+     * Sets where field statistics are loaded, on heap or mapped. Applies to
+     * the next load: statistics already loaded are kept until {@link #close()}.
+     *
+     * @param backing statistics backing, {@code null} for heap
+     */
+    public void statsBacking(final TermStats.Backing backing)
+    {
+        statsBacking = (backing == null) ? TermStats.Backing.HEAP : backing;
+    }
+
     /**
      * Returns field-level term occurrence counts and corpus totals.
      *
@@ -494,50 +670,86 @@ public final class FlucText extends Fluc
      * @return field statistics
      * @throws UncheckedIOException if building or opening statistics fails
      */
-    public synchronized TermStats termStats()
+    public TermStats termStats()
     {
-        if (termStats != null) {
-            return termStats;
-        }
-
         try {
-            if (!TermStats.exists(sideDir, name())) {
-                TermStats.build(
-                    reader,
-                    sideDir,
-                    name(),
-                    Report.ReportNull.INSTANCE
-                );
-            }
-            termStats = TermStats.open(reader, sideDir, name(), null);
-            return termStats;
+            return termStats.get();
         }
         catch (IOException e) {
             throw new UncheckedIOException(e);
         }
     }
 
+    /**
+     * Builds or opens the statistics of {@link #termStats()}.
+     */
+    private TermStats loadTermStats() throws IOException
+    {
+        refreshSegments();
+        if (!TermStats.exists(sideDir, name())) {
+            TermStats.build(
+                reader,
+                sideDir,
+                name(),
+                Report.ReportNull.INSTANCE
+            );
+        }
+        return TermStats.open(reader, sideDir, name(), statsBacking, null);
+    }
+
     /**
      * Returns the term suggester for this field.
      *
      * <p>
-     * The suggester is an in-memory folded term index built from
-     * {@link #termLexicon()} and {@link #termStats()}. It is cached because it
-     * scans all vocabulary terms during construction. The returned object should
-     * be treated as read-only and shared.
+     * The suggester ranks with {@link #termStats()} the terms of
+     * {@link #termLexicon()} found by a {@link TermSuffixes} index, mapped from
+     * the {@code <field>.suggest} sidecar. A missing sidecar, or one built for
+     * another lexicon (by size and checksum), is built first, by the
+     * publication warm-up when it runs. The returned object should be treated
+     * as read-only and shared.
      * </p>
      *
      * @return term suggester
-     * @throws UncheckedIOException if loading the lexicon or statistics fails
+     * @throws UncheckedIOException if loading the lexicon or statistics, or
+     *         building or opening the suggest sidecar, fails
      */
-    public synchronized TermSuggest termSuggest()
+    public TermSuggest termSuggest()
     {
-        if (termSuggest != null) {
-            return termSuggest;
+        try {
+            return termSuggest.get();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
+    }
+
+    /**
+     * Builds the suggester of {@link #termSuggest()}.
+     */
+    private TermSuggest loadTermSuggest() throws IOException
+    {
+        return new TermSuggest(termLexicon(), termStats(), termSuffixes.get());
+    }
 
-        termSuggest = new TermSuggest(termLexicon(), termStats());
-        return termSuggest;
+    /**
+     * Builds or opens the suffix tables of {@link #termSuggest()}, rebuilt
+     * when made for another lexicon.
+     */
+    private TermSuffixes loadTermSuffixes() throws IOException
+    {
+        final TermLexicon lexicon = termLexicon();
+        refreshSegments();
+        if (!TermSuffixes.exists(sideDir, name())) {
+            TermSuffixes.build(lexicon, sideDir, name());
+        }
+        TermSuffixes suffixes = TermSuffixes.open(sideDir, name());
+        if (!suffixes.isCurrent(lexicon)) {
+            suffixes.close();
+            TermSuffixes.delete(sideDir, name());
+            TermSuffixes.build(lexicon, sideDir, name());
+            suffixes = TermSuffixes.open(sideDir, name());
+        }
+        return suffixes;
     }
 
     /**
@@ -557,33 +769,126 @@ public final class FlucText extends Fluc
         return new TopTerms(termStats(), termLexicon());
     }
 
+    /**
+     * Returns the nearest-neighbour graph of the word2vec model of this field.
+     *
+     * <p>
+     * The graph is memory-mapped from {@code <field>.hnsw}, next to the model,
+     * and released by {@link #close()}. It is built offline, by
+     * {@link VecHnsw#main} at publication, never on a request: a missing graph,
+     * or one older than its model, is absent.
+     * </p>
+     *
+     * @return cached graph, or {@code null} when no model sidecar or no current
+     *         graph exists
+     * @throws IOException if the model or the graph cannot be opened
+     */
+    public VecHnsw vecHnsw() throws IOException
+    {
+        return vecHnsw.get();
+    }
+
+    /**
+     * Opens the graph of {@link #vecHnsw()}.
+     */
+    private VecHnsw loadVecHnsw() throws IOException
+    {
+        final VecModel model = vecModel();
+        if (model == null) {
+            return null;
+        }
+
+        final Path path = vecModelPath();
+        if (!VecHnsw.isCurrent(path)) {
+            return null;
+        }
+        return VecHnsw.open(path, model);
+    }
+
     /**
      * Returns the optional in-memory word2vec model for this field.
      *
      * <p>
-     * The model is resolved lazily from {@code <field>.bin}. Absence is cached,
+     * The model is resolved lazily, memory-mapped from {@code <field>.vq} when
+     * this quantised file is not older than {@code <field>.bin}, loaded in heap
+     * from {@code <field>.bin} otherwise. Absence is cached,
      * so the filesystem is probed at most once until {@link #close()} resets
-     * the lazy state. A failed load is not cached and may be retried later.
+     * the lazy state.
      * </p>
      *
      * @return cached vector model, or {@code null} when no model sidecar exists
      * @throws IOException if an existing model cannot be loaded
      */
-    public synchronized VecModel vecModel() throws IOException
+    public VecModel vecModel() throws IOException
     {
-        if (vecModel != null) {
-            return vecModel.orElse(null);
-        }
+        return vecModel.get();
+    }
 
-        final Path path = sideDir.resolve(name() + ".bin");
-        if (!Files.isRegularFile(path)) {
-            vecModel = Optional.empty();
+    /**
+     * Maps or loads the model of {@link #vecModel()}.
+     */
+    private VecModel loadVecModel() throws IOException
+    {
+        final Path path = vecModelPath();
+        if (path == null) {
             return null;
         }
 
-        final VecModel loaded = VecModel.load(path);
-        vecModel = Optional.of(loaded);
-        return loaded;
+        return path.getFileName().toString().endsWith(VecModel.EXT)
+            ? VecModel.open(path)
+            : VecModel.load(path);
+    }
+
+    /**
+     * Path of the vector model of this field, the quantised file when it is
+     * current.
+     *
+     * @return {@code <field>.vq}, {@code <field>.bin}, or {@code null} if none exists
+     * @throws IOException if file times cannot be read
+     */
+    private Path vecModelPath() throws IOException
+    {
+        final Path bin = sideDir.resolve(name() + ".bin");
+        final Path vq = VecModel.quantPath(bin);
+        if (Files.isRegularFile(vq)
+                && (!Files.isRegularFile(bin)
+                    || Files.getLastModifiedTime(vq).compareTo(Files.getLastModifiedTime(bin)) >= 0)) {
+            return vq;
+        }
+        return Files.isRegularFile(bin) ? bin : null;
+    }
+
+    /**
+     * Loads the main resources of this field in the background: statistics,
+     * lexicon, rail, suggester, span-query parser and vector graph.
+     *
+     * <p>
+     * Each resource is loaded by its own task, so independent ones are built
+     * concurrently; a request arriving meanwhile waits for the load already
+     * running instead of starting another. A failure is kept as for a request
+     * and does not stop the other tasks.
+     * </p>
+     *
+     * @param executor threads running the loads
+     * @return completed when every load is done, exceptionally with the first
+     *         failure
+     */
+    public CompletableFuture<Void> warm(final Executor executor)
+    {
+        return CompletableFuture.allOf(
+            CompletableFuture.runAsync(this::termStats, executor),
+            CompletableFuture.runAsync(this::termRail, executor),
+            CompletableFuture.runAsync(this::termSuggest, executor),
+            CompletableFuture.runAsync(() -> {
+                try {
+                    spanQueryParser();
+                    vecHnsw();
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, executor)
+        );
     }
 
     /**
@@ -613,4 +918,106 @@ public final class FlucText extends Fluc
             return failure;
         }
     }
+
+    /**
+     * Lazily loaded resource, shared by concurrent callers.
+     *
+     * <p>
+     * The first caller runs the loader in its own thread; callers arriving
+     * during the load wait for its outcome. The value, {@code null} for an
+     * absent optional sidecar, is then read without locking. A failure is
+     * thrown to every caller during {@value FlucText#RETRY_SECONDS} seconds,
+     * after which the next caller loads again. A loader must not ask for its
+     * own holder, directly or through another one.
+     * </p>
+     *
+     * @param <T> resource type
+     */
+    private static final class Lazy<T>
+    {
+        /** Failure delay before a new attempt, in nanoseconds. */
+        private static final long RETRY_NANOS = TimeUnit.SECONDS.toNanos(RETRY_SECONDS);
+
+        /** Builds or opens the resource. */
+        private final IOSupplier<T> loader;
+
+        /** Current load, {@code null} when unresolved. */
+        private final AtomicReference<CompletableFuture<T>> slot = new AtomicReference<>();
+
+        /** {@link System#nanoTime()} of the last failure. */
+        private volatile long failedAt;
+
+        Lazy(final IOSupplier<T> loader)
+        {
+            this.loader = loader;
+        }
+
+        /**
+         * Returns the resource, loading it or waiting for the current load.
+         *
+         * @return loaded resource, possibly {@code null}
+         * @throws IOException a copy of the load failure, the original as cause
+         */
+        T get() throws IOException
+        {
+            while (true) {
+                final CompletableFuture<T> current = slot.get();
+                if (current != null && !(current.isCompletedExceptionally()
+                        && System.nanoTime() - failedAt >= RETRY_NANOS)) {
+                    return join(current);
+                }
+                final CompletableFuture<T> load = new CompletableFuture<>();
+                if (!slot.compareAndSet(current, load)) {
+                    continue;
+                }
+                try {
+                    load.complete(loader.get());
+                }
+                catch (IOException | RuntimeException | Error e) {
+                    failedAt = System.nanoTime();
+                    load.completeExceptionally(e);
+                }
+                return join(load);
+            }
+        }
+
+        /**
+         * Returns the holder to its unresolved state. A load still running
+         * closes its resource when it completes.
+         *
+         * @return the loaded resource to release, or {@code null}
+         */
+        Object reset()
+        {
+            final CompletableFuture<T> current = slot.getAndSet(null);
+            if (current == null) {
+                return null;
+            }
+            if (!current.isDone()) {
+                current.thenAccept(value -> closeResource(value, null));
+                return null;
+            }
+            return current.isCompletedExceptionally() ? null : current.getNow(null);
+        }
+
+        /**
+         * Waits for a load and rethrows its failure.
+         */
+        private static <T> T join(final CompletableFuture<T> load) throws IOException
+        {
+            try {
+                return load.join();
+            }
+            catch (CompletionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof IOException io)
+                    throw new IOException(io.getMessage(), io);
+                if (cause instanceof RuntimeException re)
+                    throw re;
+                if (cause instanceof Error err)
+                    throw err;
+                throw e;
+            }
+        }
+    }
 }
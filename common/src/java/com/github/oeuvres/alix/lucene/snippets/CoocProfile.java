@@ -378,6 +378,43 @@ public final class CoocProfile
         return tokensByTick[tick];
     }
 
+    /**
+     * Allocates an empty profile with the same statistics, lexicon and ticks, to be filled by one
+     * slice of a parallel walk and added back with {@link #merge(CoocProfile)}.
+     *
+     * @return empty wide profile
+     */
+    CoocProfile fork()
+    {
+        return new CoocProfile(stats, lexicon, ticks);
+    }
+
+    /**
+     * Adds the band counts of a profile filled by a fork into this one. Both must still hold bands,
+     * before {@link #cumulate()}.
+     *
+     * @param other profile returned by {@link #fork()}
+     * @throws IllegalStateException if either profile was cumulated or selected
+     */
+    void merge(final CoocProfile other)
+    {
+        if (cumulated || selected || other.cumulated || other.selected) {
+            throw new IllegalStateException("profiles must be merged before cumulate() and select()");
+        }
+        for (int i = 0; i < ticks.length; i++) {
+            final long[] freq = freqWide[i];
+            final long[] otherFreq = other.freqWide[i];
+            final int[] docs = docsWide[i];
+            final int[] otherDocs = other.docsWide[i];
+            for (int termId = 0; termId < freq.length; termId++) {
+                freq[termId] += otherFreq[termId];
+                docs[termId] += otherDocs[termId];
+            }
+            tokensByTick[i] += other.tokensByTick[i];
+            docsTotalByTick[i] += other.docsTotalByTick[i];
+        }
+    }
+
     /**
      * Credits one document to a tick's cumulative document total. Called once per document by the
      * consumer, at the document's nearest contributing band.
@@ -5,6 +5,7 @@ import java.util.BitSet;
 import java.util.Objects;
 import java.util.function.IntConsumer;
 
+import com.github.oeuvres.alix.lucene.snippets.SpanWalker.MergeableConsumer;
 import com.github.oeuvres.alix.lucene.snippets.SpanWalker.SnippetsConsumer;
 import com.github.oeuvres.alix.lucene.terms.TermRail;
 import com.github.oeuvres.alix.lucene.terms.TermStats;
@@ -27,13 +28,14 @@ import com.github.oeuvres.alix.lucene.terms.TermStats;
  * credited to its <em>minimal</em> band so that {@link CoocProfile#cumulate()} yields correct
  * cumulative document counts. The window keeps the matched span, so a pivot's own tokens count at
  * distance 0 and a single tick reproduces the keep-model of {@link TopCoocSnippets}. This class is not
- * thread-safe, and the profile it fills is single-use.
+ * thread-safe, and the profile it fills is single-use. For a parallel walk, a {@link #fork()} fills its
+ * own wide profile, added to this one by {@link #merge(CoocProfileSnippets)}.
  * </p>
  *
  * @see CoocProfile
  * @see TopCoocSnippets
  */
-public final class CoocProfileSnippets implements SnippetsConsumer
+public final class CoocProfileSnippets implements MergeableConsumer<CoocProfileSnippets>
 {
     /** Document column of the band currently being scanned. */
     private int[] curDocsCol;
@@ -74,6 +76,9 @@ public final class CoocProfileSnippets implements SnippetsConsumer
     /** Sink handed to {@link TermRail#scanPositions}; bound once to avoid per-shell allocation. */
     private final IntConsumer sink = this::count;
 
+    /** Field statistics, kept for forks. */
+    private final TermStats stats;
+
     /**
      * Constructs a consumer that fills {@code profile}. The radii are parallel {@code left} and
      * {@code right} arrays so asymmetric windows are expressible; both must be non-decreasing so the
@@ -96,7 +101,7 @@ public final class CoocProfileSnippets implements SnippetsConsumer
         final int[] right
     ) {
         this.profile = Objects.requireNonNull(profile, "profile");
-        Objects.requireNonNull(stats, "stats");
+        this.stats = Objects.requireNonNull(stats, "stats");
         this.rail = Objects.requireNonNull(rail, "rail");
         Objects.requireNonNull(left, "left");
         Objects.requireNonNull(right, "right");
@@ -174,6 +179,29 @@ public final class CoocProfileSnippets implements SnippetsConsumer
         }
     }
 
+    /**
+     * Returns a consumer with the same radii filling a fresh profile of its own, for one slice of a
+     * parallel walk.
+     *
+     * @return fork, to pass to {@link #merge(CoocProfileSnippets)}
+     */
+    @Override
+    public CoocProfileSnippets fork()
+    {
+        return new CoocProfileSnippets(profile.fork(), stats, rail, left, right);
+    }
+
+    /**
+     * Adds the band counts of a fork's profile to the profile of this consumer.
+     *
+     * @param fork consumer returned by {@link #fork()}
+     */
+    @Override
+    public void merge(final CoocProfileSnippets fork)
+    {
+        profile.merge(fork.profile);
+    }
+
     /**
      * Records one resolved term id found in the band currently being scanned: increments the band's
      * occurrence column and token counter, credits the band's document column on the term's first
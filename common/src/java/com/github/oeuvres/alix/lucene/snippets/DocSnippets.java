@@ -565,6 +565,17 @@ public final class DocSnippets implements SpanCollector
         return unpackHigh(snippets[snipOrd]);
     }
 
+    /**
+     * Creates an empty collector with the same usage, merge gap and diagnostic flag, for one slice
+     * of a parallel walk.
+     *
+     * @return new collector with the configuration of this one
+     */
+    DocSnippets sibling()
+    {
+        return new DocSnippets(usage, mergeGap, diagnose);
+    }
+
     /**
      * Returns the collection usage.
      *
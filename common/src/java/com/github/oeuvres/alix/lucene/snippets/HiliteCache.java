@@ -0,0 +1,166 @@
+package com.github.oeuvres.alix.lucene.snippets;
+
+import java.io.IOException;
+
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.util.IOSupplier;
+
+import com.github.oeuvres.alix.lucene.util.FutureCache;
+
+/**
+ * Byte-bounded LRU cache of rendered documents, as produced by {@link HiliteSnippets}, for one
+ * frozen index snapshot.
+ *
+ * <p>
+ * A reader paging through a long document requests the same document again and again with the
+ * same query. Rendering decodes the stored content, walks the spans and merges highlight events;
+ * the cache keeps its result, the highlighted HTML, keyed by document, field, canonical query
+ * and merge gap. The intermediate state (stored content, {@link DocSnippets}, events) is not
+ * kept: once the HTML is rendered, it is not needed anymore. The canonical query is the one
+ * rewritten by the searcher, so equal queries written differently share one entry as long as
+ * their rewritten forms are {@link Query#equals equal}; a {@code null} query caches the plain
+ * stored content.
+ * </p>
+ *
+ * <p>
+ * Concurrent requests for the same entry wait for the first one instead of rendering again.
+ * Entries are evicted least-recently-used first when the sum of their sizes, 2 bytes per char,
+ * exceeds the byte budget; a budget of 0 disables caching. There is no invalidation: the cache
+ * belongs to one reader snapshot and is dropped with it. The mechanics are those of
+ * {@link FutureCache}.
+ * </p>
+ *
+ * <p>
+ * Thread-safe.
+ * </p>
+ */
+public final class HiliteCache
+{
+    /** Rendered documents by key. */
+    private final FutureCache<Key, String> cache;
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param maxBytes byte budget for cached documents; 0 disables caching
+     * @throws IllegalArgumentException if {@code maxBytes} is negative
+     */
+    public HiliteCache(final long maxBytes)
+    {
+        this.cache = new FutureCache<>(maxBytes, html -> 2L * html.length());
+    }
+
+    /**
+     * Current bytes held by completed entries.
+     *
+     * @return sum of the estimated sizes of cached documents
+     */
+    public long bytes()
+    {
+        return cache.bytes();
+    }
+
+    /**
+     * Drops every entry. Counters are kept.
+     */
+    public void clear()
+    {
+        cache.clear();
+    }
+
+    /**
+     * Number of entries evicted to respect the byte budget.
+     *
+     * @return eviction count since creation
+     */
+    public long evictions()
+    {
+        return cache.evictions();
+    }
+
+    /**
+     * Returns a rendered document, from cache when possible.
+     *
+     * @param searcher searcher of the snapshot this cache belongs to, used to canonicalize the query
+     * @param docId    global Lucene document id
+     * @param field    content field
+     * @param query    highlighted query, {@code null} for plain content
+     * @param mergeGap merge gap of the {@link HiliteSnippets} rendering the document
+     * @param render   renders the document on a miss; {@code null} results are not cached
+     * @return rendered document; {@code null} if {@code render} returned {@code null}
+     * @throws IOException if query rewrite or rendering fails
+     */
+    public String html(
+            final IndexSearcher searcher,
+            final int docId,
+            final String field,
+            final Query query,
+            final int mergeGap,
+            final IOSupplier<String> render) throws IOException
+    {
+        if (cache.maxBytes() == 0) {
+            return cache.get(null, render);
+        }
+        final Key key = new Key(docId, field, (query == null) ? null : searcher.rewrite(query), mergeGap);
+        return cache.get(key, render);
+    }
+
+    /**
+     * Number of requests served by an existing entry.
+     *
+     * @return hit count since creation
+     */
+    public long hits()
+    {
+        return cache.hits();
+    }
+
+    /**
+     * Byte budget of this cache.
+     *
+     * @return maximum bytes, 0 when caching is disabled
+     */
+    public long maxBytes()
+    {
+        return cache.maxBytes();
+    }
+
+    /**
+     * Number of requests that rendered the document.
+     *
+     * @return miss count since creation
+     */
+    public long misses()
+    {
+        return cache.misses();
+    }
+
+    /**
+     * Number of entries, completed or in flight.
+     *
+     * @return entry count
+     */
+    public int size()
+    {
+        return cache.size();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "HiliteCache" + cache;
+    }
+
+    /**
+     * Cache key.
+     *
+     * @param docId    global Lucene document id
+     * @param field    content field
+     * @param query    rewritten query, {@code null} for plain content
+     * @param mergeGap snippet merge gap
+     */
+    private record Key(int docId, String field, Query query, int mergeGap)
+    {
+    }
+}
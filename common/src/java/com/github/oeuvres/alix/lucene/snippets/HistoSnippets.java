@@ -5,12 +5,18 @@ import java.util.Objects;
 
 import com.github.oeuvres.alix.lucene.output.HistoNum;
 import com.github.oeuvres.alix.lucene.output.HistoNum.Col;
-import com.github.oeuvres.alix.lucene.snippets.SpanWalker.SnippetsConsumer;
+import com.github.oeuvres.alix.lucene.snippets.SpanWalker.MergeableConsumer;
 
-public class HistoSnippets implements SnippetsConsumer
+public class HistoSnippets implements MergeableConsumer<HistoSnippets>
 {
     private final HistoNum histo;
     
+    /** Snippet counts by histogram index, the histogram column or a fork buffer. */
+    private final int[] valueSnippets;
+    
+    /** Document counts by histogram index, the histogram column or a fork buffer. */
+    private final int[] valueDocs;
+    
     /**
      * Accumulates snippets counts into {@link NumHisto#SNIPPETS} of the given histogram.
      */
@@ -21,6 +27,18 @@ public class HistoSnippets implements SnippetsConsumer
         histo.valueDocs = new int[histo.length()];
         histo.cols().add(Col.SNIPPETS);
         histo.cols().add(Col.DOCS);
+        this.valueSnippets = histo.valueSnippets;
+        this.valueDocs = histo.valueDocs;
+    }
+    
+    /**
+     * Fork for a parallel walk, reading doc values from the histogram, counting in own buffers.
+     */
+    private HistoSnippets(final HistoSnippets parent)
+    {
+        this.histo = parent.histo;
+        this.valueSnippets = new int[parent.valueSnippets.length];
+        this.valueDocs = new int[parent.valueDocs.length];
     }
     
 	@Override
@@ -29,8 +47,23 @@ public class HistoSnippets implements SnippetsConsumer
         if (histoIndex < 0) return;
         final int snippetsCount = snippets.count();
         if (snippetsCount <= 0) return;
-        histo.valueSnippets[histoIndex] += snippetsCount;
-        histo.valueDocs[histoIndex]++;
+        valueSnippets[histoIndex] += snippetsCount;
+        valueDocs[histoIndex]++;
 	}
+
+    @Override
+    public HistoSnippets fork()
+    {
+        return new HistoSnippets(this);
+    }
+
+    @Override
+    public void merge(final HistoSnippets fork)
+    {
+        for (int i = 0; i < valueSnippets.length; i++) {
+            valueSnippets[i] += fork.valueSnippets[i];
+            valueDocs[i] += fork.valueDocs[i];
+        }
+    }
    
-}
\ No newline at end of file
+}
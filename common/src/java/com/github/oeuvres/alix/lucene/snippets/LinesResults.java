@@ -0,0 +1,276 @@
+package com.github.oeuvres.alix.lucene.snippets;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.StoredFields;
+
+import com.github.oeuvres.alix.lucene.snippets.SpanWalker.SnippetsConsumer;
+import com.github.oeuvres.alix.util.Detagger;
+
+import static com.github.oeuvres.alix.common.Names.*;
+
+/**
+ * A {@link ResultsRenderer} writing one concordance line per snippet, as JSON Lines or CSV, for
+ * exports. Each {@link SnippetView} is written as soon as it is built: passed to
+ * {@link SpanWalker#walk(SnippetsConsumer)}, the renderer streams a whole concordance in docId
+ * order with constant memory, the stored fields of one document and the reused
+ * {@link DocSnippets} buffer.
+ *
+ * <p>A line carries {@code docid}, {@code docname}, {@code docline}, the 1-based snippet number
+ * {@code n}, and the {@code left}, {@code pivot}, {@code right} columns of a keyword-in-context
+ * table; the pivot spans from the first to the last match of the snippet. Columns are plain text,
+ * markup stripped and entities decoded ({@link SnippetView.Seg#text()}). CSV starts with a
+ * header row.</p>
+ *
+ * <p>The writer is flushed every {@link #flushLines(int)} lines, so a servlet response without
+ * content length goes out in chunks. A {@link PrintWriter}, as returned by a servlet response,
+ * swallows write errors; it is checked at each flush and a failed client connection raises
+ * {@link Disconnected}, which stops the walk.</p>
+ *
+ * <p>Stateful and not thread-safe. {@link #close()} flushes; the writer is owned by the
+ * caller.</p>
+ */
+public final class LinesResults implements ResultsRenderer, SnippetsConsumer {
+    /** Line format. */
+    public enum Format { CSV, JSONL }
+
+    /**
+     * Raised when the client of a streamed export has gone away; not a server failure.
+     */
+    public static final class Disconnected extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        Disconnected() {
+            super("Client disconnected");
+        }
+    }
+
+    /** CSV columns, also the JSON keys. */
+    private static final String[] COLUMNS = {"docid", "docname", "docline", "n", "left", "pivot", "right"};
+
+    private final Writer out;
+    private final Format format;
+    private final StoredFields storedFields;
+    private final Detagger detagger;
+    private final int ctx;
+    private String contentField = "content";
+    private String fieldDocline = "docline";
+    private int flushLines = 256;
+    private boolean started;
+    private long lines;
+    private int cachedDocId = -1;
+    private String content;
+    private String docname;
+    private String docline;
+
+    /**
+     * Creates a line renderer.
+     *
+     * @param out          response writer, owned by the caller
+     * @param format       line format
+     * @param storedFields stored-field access, valid for the renderer's life
+     * @param detagger     context normaliser; strip all markup for plain text exports
+     * @param ctx          context width in words
+     */
+    public LinesResults(
+        final Writer out,
+        final Format format,
+        final StoredFields storedFields,
+        final Detagger detagger,
+        final int ctx
+    ) {
+        this.out = out;
+        this.format = format;
+        this.storedFields = storedFields;
+        this.detagger = detagger;
+        this.ctx = ctx;
+    }
+
+    /**
+     * Writes the CSV header if no line was written, then flushes. The writer is not closed here.
+     *
+     * @throws IOException on write failure or {@link Disconnected}
+     */
+    @Override
+    public void close() throws IOException {
+        start();
+        flush();
+    }
+
+    /**
+     * Sets the content field name.
+     *
+     * @param contentField stored-field name
+     * @return this
+     */
+    public LinesResults contentField(final String contentField) {
+        this.contentField = contentField;
+        return this;
+    }
+
+    @Override
+    public void docClose(final int docId) {
+        // no per-document trailer in lines
+    }
+
+    @Override
+    public void docOpen(final int docId, final String kind) throws IOException {
+        ensureDoc(docId);
+    }
+
+    @Override
+    public void docSnippets(final int docId, final DocSnippets snippets) throws IOException {
+        snippets(docId, snippets);
+    }
+
+    /**
+     * Sets the docline field name; {@code null} leaves the column empty.
+     *
+     * @param fieldDocline stored-field name or {@code null}
+     * @return this
+     */
+    public LinesResults fieldDocline(final String fieldDocline) {
+        this.fieldDocline = fieldDocline;
+        return this;
+    }
+
+    /**
+     * Sets how many lines are written between two flushes.
+     *
+     * @param flushLines lines per chunk, at least 1
+     * @return this
+     */
+    public LinesResults flushLines(final int flushLines) {
+        if (flushLines < 1) {
+            throw new IllegalArgumentException("flushLines=" + flushLines + " < 1");
+        }
+        this.flushLines = flushLines;
+        return this;
+    }
+
+    /** @return lines written so far, header excluded */
+    public long lines() {
+        return lines;
+    }
+
+    @Override
+    public void snippet(final int docId, final SnippetView view) throws IOException {
+        ensureDoc(docId);
+        start();
+        final List<SnippetView.Seg> segs = view.segs();
+        final StringBuilder pivot = new StringBuilder();
+        for (int i = 1; i < segs.size() - 1; i++) {
+            pivot.append(segs.get(i).text());
+        }
+        final String[] values = {
+            Integer.toString(docId),
+            docname,
+            docline,
+            Integer.toString(view.anchor()),
+            segs.get(0).text(),
+            pivot.toString(),
+            segs.get(segs.size() - 1).text()
+        };
+        if (format == Format.JSONL) {
+            out.write('{');
+            for (int i = 0; i < COLUMNS.length; i++) {
+                if (i > 0) out.write(',');
+                jsonString(out, COLUMNS[i]);
+                out.write(':');
+                if (i == 0 || i == 3) out.write(values[i]);
+                else jsonString(out, values[i]);
+            }
+            out.write("}\n");
+        } else {
+            csvRow(out, values);
+        }
+        if (++lines % flushLines == 0) {
+            flush();
+        }
+    }
+
+    @Override
+    public void snippets(final int docId, final DocSnippets snippets) throws IOException {
+        ensureDoc(docId);
+        if (content == null) return;
+        final int count = snippets.count();
+        for (int snipOrd = 0; snipOrd < count; snipOrd++) {
+            snippet(docId, SnippetView.of(content, snippets, snipOrd, ctx, detagger));
+        }
+    }
+
+    private static void csvRow(final Writer w, final String[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) w.write(',');
+            final String s = (values[i] == null) ? "" : values[i];
+            if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0 && s.indexOf('\r') < 0) {
+                w.write(s);
+                continue;
+            }
+            w.write('"');
+            w.write(s.replace("\"", "\"\""));
+            w.write('"');
+        }
+        w.write("\r\n");
+    }
+
+    private void ensureDoc(final int docId) throws IOException {
+        if (cachedDocId == docId) return;
+        final Set<String> want = (fieldDocline != null)
+            ? Set.of(ALIX_ID, contentField, fieldDocline)
+            : Set.of(ALIX_ID, contentField);
+        final Document doc = storedFields.document(docId, want);
+        this.docname = doc.get(ALIX_ID);
+        this.content = doc.get(contentField);
+        this.docline = (fieldDocline == null) ? null : doc.get(fieldDocline);
+        this.cachedDocId = docId;
+    }
+
+    private void flush() throws IOException {
+        if (out instanceof PrintWriter pw) {
+            // checkError() flushes, then reports any swallowed failure
+            if (pw.checkError()) throw new Disconnected();
+        } else {
+            out.flush();
+        }
+    }
+
+    private static void jsonString(final Writer w, final String s) throws IOException {
+        if (s == null) {
+            w.write("null");
+            return;
+        }
+        w.write('"');
+        for (int i = 0, n = s.length(); i < n; i++) {
+            final char c = s.charAt(i);
+            switch (c) {
+                case '"' -> w.write("\\\"");
+                case '\\' -> w.write("\\\\");
+                case '\n' -> w.write("\\n");
+                case '\r' -> w.write("\\r");
+                case '\t' -> w.write("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        w.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        w.write(c);
+                    }
+                }
+            }
+        }
+        w.write('"');
+    }
+
+    private void start() throws IOException {
+        if (started) return;
+        started = true;
+        if (format == Format.CSV) {
+            csvRow(out, COLUMNS);
+        }
+    }
+}
@@ -6,7 +6,8 @@ import java.io.IOException;
 /**
  * Output-format-neutral sink for search results. The four sort modes of
  * {@code OpResults} drive this contract identically; only the concrete
- * implementation ({@code HtmlResults} or {@code DocxResults}) differs.
+ * implementation ({@code HtmlResults}, {@code DocxResults} or
+ * {@code LinesResults} for streamed exports) differs.
  *
  * <p>Document-centric modes (by date, by document score) call
  * {@link #docSnippets(int, DocSnippets)} once per document. The snippet-centric
@@ -32,7 +32,12 @@ public final class SnippetView {
      * @param kind role
      * @param html inline HTML fragment (context) or match text (pivot)
      */
-    public record Seg(Kind kind, String html) {}
+    public record Seg(Kind kind, String html) {
+        /** @return the segment as plain text, markup stripped and entities decoded, for text exports */
+        public String text() {
+            return Markup.text(html);
+        }
+    }
 
     private final List<Seg> segs;
     private final int anchor;
@@ -1,9 +1,15 @@
 package com.github.oeuvres.alix.lucene.snippets;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.ReaderUtil;
@@ -45,7 +51,11 @@ import com.github.oeuvres.alix.lucene.util.BitsCollectorManager;
  * cannot move backwards. The walk methods open their own fresh cursors and do not interact with
  * the visit cache.</p>
  *
- * <p>This class is not thread-safe.</p>
+ * <p>{@link #walk(MergeableConsumer, ExecutorService, int)} splits an exhaustive walk into docId
+ * slices run on an executor, each with its own buffer and consumer fork, for aggregations over
+ * frequent pivots.</p>
+ *
+ * <p>This class is not thread-safe; the parallel walk manages its own slices.</p>
  */
 public final class SpanWalker
 {
@@ -96,6 +106,34 @@ public final class SpanWalker
         public void docSnippets(int docId, DocSnippets snippets) throws IOException;
     }
 
+    /**
+     * A {@link SnippetsConsumer} whose accumulation can be split across the slices of
+     * {@link SpanWalker#walk(MergeableConsumer, ExecutorService, int)} and added back together.
+     *
+     * <p>Each slice walks a disjoint docId range into its own fork; the forks are then merged
+     * into the original consumer, in slice order. Accumulations must therefore be sums over
+     * documents. A fork holds its own count buffers, so memory grows with the slice count.</p>
+     *
+     * @param <C> concrete consumer type
+     */
+    public interface MergeableConsumer<C extends MergeableConsumer<C>> extends SnippetsConsumer
+    {
+        /**
+         * Creates an empty consumer with the parameters of this one, accumulating into its own
+         * buffers. Read-only resources (statistics, rails) may be shared.
+         *
+         * @return new empty consumer
+         */
+        public C fork();
+
+        /**
+         * Adds the accumulation of a fork into this consumer.
+         *
+         * @param fork consumer returned by {@link #fork()} on this consumer, after its walk
+         */
+        public void merge(C fork);
+    }
+
     /**
      * Creates a walker with no filter. The walker drains spans into {@code snippets} on every
      * matched document.
@@ -141,6 +179,34 @@ public final class SpanWalker
             final SpanQuery spanQuery,
             final DocSnippets snippets,
             final Query filterQuery) throws IOException
+    {
+        this(searcher, spanQuery, snippets, filterQuery, null);
+    }
+
+    /**
+     * Creates a walker with an optional filter query, already materialized by the caller, typically
+     * from a {@link com.github.oeuvres.alix.lucene.util.BitsCache} shared with other requests.
+     *
+     * @param searcher     index searcher used for query rewrite, weight creation, and leaf access
+     * @param spanQuery    span query to enumerate
+     * @param snippets     reusable per-document snippet collector; its
+     *                     {@link DocSnippets#usage() usage} fixes the postings level requested from
+     *                     leaves
+     * @param filterQuery  optional non-scoring Lucene filter query, or {@code null}
+     * @param acceptedDocs global doc ids matching {@code filterQuery}, read only; {@code null} to
+     *                     materialize the filter here
+     * @throws IOException              if query rewrite, weight creation, or filter materialization
+     *                                  fails
+     * @throws NullPointerException     if {@code searcher}, {@code spanQuery}, or
+     *                                  {@code snippets} is {@code null}
+     * @throws IllegalArgumentException if the rewritten span query is not a {@link SpanQuery}
+     */
+    public SpanWalker(
+            final IndexSearcher searcher,
+            final SpanQuery spanQuery,
+            final DocSnippets snippets,
+            final Query filterQuery,
+            final FixedBitSet acceptedDocs) throws IOException
     {
         this.searcher = Objects.requireNonNull(searcher, "searcher");
         Objects.requireNonNull(spanQuery, "spanQuery");
@@ -166,7 +232,9 @@ public final class SpanWalker
         }
         else {
             this.filterQuery = searcher.rewrite(filterQuery);
-            this.acceptedDocs = searcher.search(this.filterQuery, new BitsCollectorManager(searcher));
+            this.acceptedDocs = (acceptedDocs != null)
+                    ? acceptedDocs
+                    : searcher.search(this.filterQuery, new BitsCollectorManager(searcher));
         }
     }
 
@@ -190,6 +258,26 @@ public final class SpanWalker
         return searcher.count(both);
     }
 
+    /**
+     * Returns an upper estimate of the documents visited by the span query, the sum over leaves of
+     * the {@link Spans#cost()} of a fresh cursor, without the filter. Reads the term dictionary only,
+     * no postings; cheap enough to size a {@link #walk(MergeableConsumer, ExecutorService, int)}.
+     *
+     * @return estimated count of documents with a span candidate
+     * @throws IOException if a leaf cursor cannot be opened
+     */
+    public long cost() throws IOException
+    {
+        long cost = 0;
+        for (LeafReaderContext leaf : leaves) {
+            final Spans spans = spanWeight.getSpans(leaf, postings);
+            if (spans != null) {
+                cost += spans.cost();
+            }
+        }
+        return cost;
+    }
+
     /**
      * Clears cached random-access cursors used by {@link #visit(int)}.
      *
@@ -258,7 +346,7 @@ public final class SpanWalker
             return false;
         }
 
-        drainDoc(cursor.spans, docId);
+        drainDoc(cursor.spans, docId, snippets);
         return true;
     }
 
@@ -329,7 +417,7 @@ public final class SpanWalker
                 if (!acceptedByBitSet(docId)) {
                     continue;
                 }
-                drainDoc(cursor.spans, docId);
+                drainDoc(cursor.spans, docId, snippets);
                 consumer.docSnippets(docId, snippets);
                 consumed++;
                 if (consumed >= maxDocs) {
@@ -341,6 +429,121 @@ public final class SpanWalker
         return DocIdSetIterator.NO_MORE_DOCS;
     }
 
+    /**
+     * Walks all accepted documents in parallel, splitting the docId space into contiguous slices.
+     *
+     * <p>Slice 0 is walked into {@code consumer} and the snippets buffer of this walker; every
+     * other slice gets its own {@link DocSnippets} buffer and a {@link MergeableConsumer#fork()}
+     * of the consumer, merged back into {@code consumer} once all slices are done. Slices cut
+     * through leaves, so a force-merged single-segment index is split as well. Each slice opens
+     * its own span cursors over the shared weight; documents are visited in increasing order
+     * within a slice, in no global order. Without executor or with fewer than two slices, this is
+     * {@link #walk(SnippetsConsumer)} on the calling thread.</p>
+     *
+     * @param <C>      consumer type
+     * @param consumer per-document receiver, receives the merged accumulation
+     * @param executor executor running the slices, or {@code null}
+     * @param slices   number of docId slices
+     * @throws IOException          if Lucene iteration or a consumer fails
+     * @throws NullPointerException if {@code consumer} is {@code null}
+     */
+    public <C extends MergeableConsumer<C>> void walk(
+            final C consumer,
+            final ExecutorService executor,
+            final int slices) throws IOException
+    {
+        Objects.requireNonNull(consumer, "consumer");
+        final int n = Math.min(slices, maxDoc);
+        if (executor == null || n < 2) {
+            walk(consumer);
+            return;
+        }
+        final List<C> forks = new ArrayList<>(n - 1);
+        final List<Callable<Void>> tasks = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            final int docFrom = (int) ((long) maxDoc * i / n);
+            final int docTo = (int) ((long) maxDoc * (i + 1) / n);
+            final C sliceConsumer;
+            final DocSnippets sliceSnippets;
+            if (i == 0) {
+                sliceConsumer = consumer;
+                sliceSnippets = snippets;
+            }
+            else {
+                sliceConsumer = consumer.fork();
+                sliceSnippets = snippets.sibling();
+                forks.add(sliceConsumer);
+            }
+            tasks.add(() -> {
+                walkRange(docFrom, docTo, sliceSnippets, sliceConsumer);
+                return null;
+            });
+        }
+        final List<Future<Void>> futures;
+        try {
+            futures = executor.invokeAll(tasks);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("parallel walk interrupted");
+        }
+        for (Future<Void> future : futures) {
+            try {
+                future.get();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("parallel walk interrupted");
+            }
+            catch (ExecutionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof IOException io) throw io;
+                if (cause instanceof RuntimeException re) throw re;
+                if (cause instanceof Error err) throw err;
+                throw new IOException(cause);
+            }
+        }
+        for (C fork : forks) {
+            consumer.merge(fork);
+        }
+    }
+
+    /**
+     * Walks accepted documents of one docId slice {@code [docFrom, docTo)} with fresh cursors,
+     * for one task of a parallel walk.
+     */
+    private void walkRange(
+            final int docFrom,
+            final int docTo,
+            final DocSnippets buffer,
+            final SnippetsConsumer consumer) throws IOException
+    {
+        for (int leafOrd = ReaderUtil.subIndex(docFrom, leaves); leafOrd < leaves.size(); leafOrd++) {
+            final LeafReaderContext leaf = leaves.get(leafOrd);
+            if (leaf.docBase >= docTo) {
+                break;
+            }
+            final LeafCursor cursor = openLeafCursor(leaf);
+            if (cursor == null) {
+                continue;
+            }
+            final int leafStart = Math.max(0, docFrom - leaf.docBase);
+            for (int leafDoc = cursor.spanDocs.advance(leafStart);
+                    leafDoc != DocIdSetIterator.NO_MORE_DOCS;
+                    leafDoc = cursor.spanDocs.nextDoc()) {
+                final int docId = leaf.docBase + leafDoc;
+                if (docId >= docTo) {
+                    break;
+                }
+                if (!acceptedByBitSet(docId)) {
+                    continue;
+                }
+                drainDoc(cursor.spans, docId, buffer);
+                consumer.docSnippets(docId, buffer);
+            }
+        }
+    }
+
     /**
      * Returns whether a global document id is accepted by the materialized filter, or {@code true}
      * when no filter was configured.
@@ -351,10 +554,11 @@ public final class SpanWalker
     }
 
     /**
-     * Drains one positioned document's spans into the snippets buffer. Shared by {@code visit}
-     * and the walk loop.
+     * Drains one positioned document's spans into a snippets buffer. Shared by {@code visit}
+     * and the walk loops.
      */
-    private void drainDoc(final Spans spans, final int docId) throws IOException
+    private static void drainDoc(final Spans spans, final int docId, final DocSnippets snippets)
+            throws IOException
     {
         snippets.openDoc(docId);
         for (int start = spans.nextStartPosition();
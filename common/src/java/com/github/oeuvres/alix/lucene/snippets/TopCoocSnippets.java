@@ -4,7 +4,7 @@ import java.io.IOException;
 import java.util.BitSet;
 import java.util.Objects;
 
-import com.github.oeuvres.alix.lucene.snippets.SpanWalker.SnippetsConsumer;
+import com.github.oeuvres.alix.lucene.snippets.SpanWalker.MergeableConsumer;
 import com.github.oeuvres.alix.lucene.terms.TermRail;
 import com.github.oeuvres.alix.lucene.terms.TermStats;
 import com.github.oeuvres.alix.lucene.terms.TopTerms.Population;
@@ -52,10 +52,16 @@ import com.github.oeuvres.alix.lucene.terms.TopTerms.Population;
  * </p>
  *
  * <p>
+ * For a parallel walk, {@link #fork()} returns a consumer counting into its own
+ * vocabulary-sized vectors, and {@link #merge(TopCoocSnippets)} adds them to the
+ * bound ones. Document counts stay exact because slices hold disjoint documents.
+ * </p>
+ *
+ * <p>
  * This class is mutable and not thread-safe.
  * </p>
  */
-public final class TopCoocSnippets implements SnippetsConsumer
+public final class TopCoocSnippets implements MergeableConsumer<TopCoocSnippets>
 {
     /** Whether totals have been published to the bound population. */
     private boolean completed;
@@ -230,6 +236,41 @@ public final class TopCoocSnippets implements SnippetsConsumer
         }
     }
 
+    /**
+     * Returns an empty consumer with the same field, rail and window, bound to
+     * private count vectors, for one slice of a parallel walk.
+     *
+     * @return unbound fork, to pass to {@link #merge(TopCoocSnippets)}
+     */
+    @Override
+    public TopCoocSnippets fork()
+    {
+        final TopCoocSnippets fork = new TopCoocSnippets(fieldStats, rail, left, right);
+        final int vocabSize = fieldStats.vocabSize();
+        fork.bindVectors(new long[vocabSize], new int[vocabSize], new int[vocabSize]);
+        return fork;
+    }
+
+    /**
+     * Adds the counts and totals of a fork to this consumer and its bound vectors.
+     *
+     * @param fork consumer returned by {@link #fork()}
+     * @throws IllegalStateException if this consumer is not collecting
+     */
+    @Override
+    public void merge(final TopCoocSnippets fork)
+    {
+        requireCollecting();
+        for (int termId = 0; termId < termFreq.length; termId++) {
+            termFreq[termId] += fork.termFreq[termId];
+            termDocs[termId] += fork.termDocs[termId];
+            termContexts[termId] += fork.termContexts[termId];
+        }
+        tokenCount += fork.tokenCount;
+        documentCount += fork.documentCount;
+        contextCount += fork.contextCount;
+    }
+
     /**
      * Returns the number of Lucene documents containing at least one merged snippet.
      *
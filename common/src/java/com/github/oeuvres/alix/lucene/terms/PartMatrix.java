@@ -0,0 +1,535 @@
+package com.github.oeuvres.alix.lucene.terms;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.MultiTerms;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSetIterator;
+
+import com.github.oeuvres.alix.lucene.LuceneIndex;
+import com.github.oeuvres.alix.lucene.fluc.FlucNum;
+import com.github.oeuvres.alix.lucene.fluc.FlucText;
+import com.github.oeuvres.alix.util.IOUtil;
+
+/**
+ * Persisted {@code term × part} occurrence and document counts of a text field over a named
+ * partition in calendar periods, so that {@link PartitionScorer} ranks chronological keyness
+ * without postings I/O.
+ *
+ * <p>
+ * The partition is {@link Partition#periods(Partition.Tally, int)} of a numeric field, without
+ * filter: part {@code p} holds the documents whose value is in
+ * {@code [origin + p * width, origin + (p + 1) * width - 1]}. Its name is the numeric field and the
+ * width, for example {@code year-10} for decades; the separator keeps {@code date1} by 5 apart from
+ * {@code date} by 15. A focus is one part, see {@link #part(int)}.
+ * </p>
+ *
+ * <h2>File</h2>
+ * <p>
+ * Persisted as {@code <field>.<name>.parts} next to {@code <field>.stats}, big-endian,
+ * memory-mapped at {@link #open(Path, String, String, int)}:
+ * </p>
+ * <pre>
+ * int MAGIC, int VERSION, int maxDoc, int vocabSize, int partCount, int origin, int width
+ * long[partCount]                 indexed tokens by part
+ * int[partCount]                  documents by part
+ * int[vocabSize][2 * partCount]   by term id: occurrences by part, then documents by part
+ * </pre>
+ * <p>
+ * The file belongs to one reader snapshot; {@link SegmentSidecars} deletes it with the other field
+ * sidecars when the index changes, and a {@code maxDoc} or vocabulary mismatch is detected at open.
+ * Building walks all the postings of the field: it is done offline, by {@link #main(String[])},
+ * never on a request.
+ * </p>
+ *
+ * <p>
+ * Immutable and thread-safe. An opened instance must be {@link #close() closed}.
+ * </p>
+ */
+public final class PartMatrix implements Closeable
+{
+    /** File extension. */
+    public static final String EXT = ".parts";
+
+    /** Magic number "PART". */
+    private static final int MAGIC = 0x50415254;
+
+    /** File format version. */
+    private static final int VERSION = 1;
+
+    /** Header bytes. */
+    private static final long HEADER = 7L * Integer.BYTES;
+
+    /** Multi-byte layouts of the file. */
+    private static final ValueLayout.OfInt BE_INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final ValueLayout.OfLong BE_LONG = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+
+    /** Reader {@code maxDoc} at build. */
+    private final int maxDoc;
+
+    /** Number of terms. */
+    private final int vocabSize;
+
+    /** Number of parts. */
+    private final int partCount;
+
+    /** First value of part 0. */
+    private final int origin;
+
+    /** Values by part. */
+    private final int width;
+
+    /** Indexed tokens by part. */
+    private final long[] partTokens;
+
+    /** Documents by part. */
+    private final int[] partDocs;
+
+    /** Arena of the mapped file. */
+    private final Arena arena;
+
+    /** Mapped file. */
+    private final MemorySegment data;
+
+    /** Byte offset of the term rows. */
+    private final long rowsOffset;
+
+    private PartMatrix(
+        final int maxDoc,
+        final int vocabSize,
+        final int partCount,
+        final int origin,
+        final int width,
+        final long[] partTokens,
+        final int[] partDocs,
+        final Arena arena,
+        final MemorySegment data)
+    {
+        this.maxDoc = maxDoc;
+        this.vocabSize = vocabSize;
+        this.partCount = partCount;
+        this.origin = origin;
+        this.width = width;
+        this.partTokens = partTokens;
+        this.partDocs = partDocs;
+        this.arena = arena;
+        this.data = data;
+        this.rowsOffset = HEADER + (long) partCount * (Long.BYTES + Integer.BYTES);
+    }
+
+    /**
+     * Builds and writes the matrix of a text field over the periods of a numeric field.
+     *
+     * @param reader reader snapshot of the fields
+     * @param num    numeric field cut in periods
+     * @param text   tokenized field counted
+     * @param width  period width in values
+     * @throws IOException              if the file exists, postings traversal or writing fails
+     * @throws IllegalArgumentException if the periods exceed the parts of a {@link Partition}
+     * @throws IllegalStateException    if the field has no terms or lacks frequencies
+     */
+    public static void build(
+        final IndexReader reader,
+        final FlucNum num,
+        final FlucText text,
+        final int width) throws IOException
+    {
+        Objects.requireNonNull(reader, "reader");
+        final Partition.Tally tally = Partition.tally(num, text, null);
+        final Partition partition = Partition.periods(tally, width);
+        final int origin = Partition.periodsOrigin(tally, width);
+        final String field = text.name();
+        final Terms terms = MultiTerms.getTerms(reader, field);
+        if (terms == null) {
+            throw new IllegalStateException("Field '" + field + "' has no terms");
+        }
+        if (!terms.hasFreqs()) {
+            throw new IllegalStateException(
+                    "Field '" + field + "' was not indexed with term frequencies");
+        }
+        final int vocabSize = text.termStats().vocabSize();
+        final int partCount = partition.partCount();
+        final byte[] docPart = partition.docPartRef();
+
+        final Path path = path(text.sideDir(), field, num.name(), width);
+        IOUtil.ensureAbsent(path);
+        final Path tmp = IOUtil.tmpPath(path);
+        IOUtil.ensureAbsent(tmp);
+        try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(tmp, StandardOpenOption.CREATE_NEW));
+                DataOutputStream out = new DataOutputStream(os))
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(partition.maxDoc());
+            out.writeInt(vocabSize);
+            out.writeInt(partCount);
+            out.writeInt(origin);
+            out.writeInt(width);
+            for (int part = 0; part < partCount; part++)
+                out.writeLong(partition.partTokens(part));
+            for (int part = 0; part < partCount; part++)
+                out.writeInt(partition.partDocs(part));
+
+            final long[] freqs = new long[partCount];
+            final int[] docs = new int[partCount];
+            // term id 0 is reserved, its row stays empty
+            writeRow(out, freqs, docs);
+            final TermsEnum tenum = terms.iterator();
+            PostingsEnum postings = null;
+            int termId = 1;
+            while (tenum.next() != null) {
+                if (termId >= vocabSize) {
+                    throw new IllegalStateException(
+                            "Field '" + field + "' has more terms than vocabSize=" + vocabSize);
+                }
+                Arrays.fill(freqs, 0L);
+                Arrays.fill(docs, 0);
+                postings = tenum.postings(postings, PostingsEnum.FREQS);
+                for (int docId = postings.nextDoc(); docId != DocIdSetIterator.NO_MORE_DOCS; docId = postings.nextDoc()) {
+                    final byte part = docPart[docId];
+                    if (part == Partition.NO_PART)
+                        continue;
+                    freqs[part] += postings.freq();
+                    docs[part]++;
+                }
+                writeRow(out, freqs, docs);
+                termId++;
+            }
+            if (termId != vocabSize) {
+                throw new IllegalStateException(
+                        "Field '" + field + "' has " + termId + " term ids != vocabSize=" + vocabSize);
+            }
+        }
+        catch (IOException | RuntimeException e) {
+            IOUtil.deleteIfExists(tmp);
+            throw e;
+        }
+        try {
+            IOUtil.moveTemp(tmp, path);
+        }
+        catch (IOException | RuntimeException e) {
+            IOUtil.deleteIfExists(tmp);
+            throw e;
+        }
+    }
+
+    /**
+     * Releases the mapping.
+     */
+    @Override
+    public void close()
+    {
+        arena.close();
+    }
+
+    /**
+     * Deletes the matrices of one field, whatever their partition.
+     *
+     * @param sideDir directory containing the files
+     * @param field   indexed field name
+     * @throws IOException if a file cannot be listed or deleted
+     */
+    public static void delete(final Path sideDir, final String field) throws IOException
+    {
+        if (!Files.isDirectory(sideDir))
+            return;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(sideDir, field + ".*" + EXT)) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Documents of one term in one part.
+     *
+     * @param termId dense term id
+     * @param part   part id
+     * @return document count
+     */
+    public int docs(final int termId, final int part)
+    {
+        return data.get(BE_INT, cell(termId, part) + (long) partCount * Integer.BYTES);
+    }
+
+    /**
+     * Tests whether the matrix of one field over one partition exists.
+     *
+     * @param sideDir directory containing the file
+     * @param field   indexed text field name
+     * @param num     numeric field name
+     * @param width   period width in values
+     * @return {@code true} if the file is a regular file
+     */
+    public static boolean exists(final Path sideDir, final String field, final String num, final int width)
+    {
+        return Files.isRegularFile(path(sideDir, field, num, width));
+    }
+
+    /**
+     * Occurrences of one term in one part.
+     *
+     * @param termId dense term id
+     * @param part   part id
+     * @return occurrence count
+     */
+    public int freq(final int termId, final int part)
+    {
+        return data.get(BE_INT, cell(termId, part));
+    }
+
+    /**
+     * Builds the matrices of a text field over periods of a numeric field, when missing or stale.
+     *
+     * @param args index directory, text field, numeric field, one or more period widths
+     * @throws IOException if the index cannot be read or a matrix written
+     */
+    public static void main(final String[] args) throws IOException
+    {
+        if (args.length < 4) {
+            System.err.println("usage: PartMatrix <indexDir> <textField> <numField> <width>...");
+            System.exit(2);
+            return;
+        }
+        try (LuceneIndex index = LuceneIndex.open(Path.of(args[0]))) {
+            final FlucText text = index.flucText(args[1]);
+            final FlucNum num = index.flucNum(args[2]);
+            if (text == null || num == null) {
+                System.err.println("text field '" + args[1] + "' or numeric field '" + args[2] + "' not found");
+                System.exit(2);
+                return;
+            }
+            for (int i = 3; i < args.length; i++) {
+                final int width = Integer.parseInt(args[i]);
+                final long started = System.currentTimeMillis();
+                text.buildPartMatrix(num, width);
+                System.out.printf("%s: in %,d ms%n",
+                        path(text.sideDir(), text.name(), num.name(), width), System.currentTimeMillis() - started);
+            }
+        }
+    }
+
+    /**
+     * Reader {@code maxDoc} at build, to check the snapshot.
+     *
+     * @return maxDoc
+     */
+    public int maxDoc()
+    {
+        return maxDoc;
+    }
+
+    /**
+     * Opens the matrix of one field over one partition, memory-mapped.
+     *
+     * @param sideDir directory containing the file
+     * @param field   indexed text field name
+     * @param num     numeric field name
+     * @param width   period width in values
+     * @return mapped instance; close it when done
+     * @throws IOException if the file is missing or inconsistent
+     */
+    public static PartMatrix open(
+        final Path sideDir,
+        final String field,
+        final String num,
+        final int width) throws IOException
+    {
+        final Path path = path(sideDir, field, num, width);
+        IOUtil.ensureRegularFile(path);
+        final Arena arena = Arena.ofShared();
+        try {
+            final MemorySegment data = IOUtil.mapReadOnly(path, arena);
+            if (data.byteSize() < HEADER) {
+                throw new IOException("Truncated parts file: " + path);
+            }
+            if (data.get(BE_INT, 0L) != MAGIC) {
+                throw new IOException("Invalid parts file magic: " + path);
+            }
+            final int version = data.get(BE_INT, 4L);
+            if (version != VERSION) {
+                throw new IOException("Unsupported parts file version " + version + ": " + path);
+            }
+            final int maxDoc = data.get(BE_INT, 8L);
+            final int vocabSize = data.get(BE_INT, 12L);
+            final int partCount = data.get(BE_INT, 16L);
+            final int origin = data.get(BE_INT, 20L);
+            final int fileWidth = data.get(BE_INT, 24L);
+            if (maxDoc < 0 || vocabSize < 1 || partCount < 1 || fileWidth != width) {
+                throw new IOException("Invalid parts header: maxDoc=" + maxDoc + ", vocabSize=" + vocabSize
+                        + ", partCount=" + partCount + ", width=" + fileWidth + ": " + path);
+            }
+            final long expected = HEADER
+                    + (long) partCount * (Long.BYTES + Integer.BYTES)
+                    + (long) vocabSize * 2L * partCount * Integer.BYTES;
+            if (data.byteSize() != expected) {
+                throw new IOException("Parts file size " + data.byteSize() + " != expected " + expected + ": " + path);
+            }
+            final long[] partTokens = new long[partCount];
+            final int[] partDocs = new int[partCount];
+            long offset = HEADER;
+            for (int part = 0; part < partCount; part++, offset += Long.BYTES)
+                partTokens[part] = data.get(BE_LONG, offset);
+            for (int part = 0; part < partCount; part++, offset += Integer.BYTES)
+                partDocs[part] = data.get(BE_INT, offset);
+            return new PartMatrix(maxDoc, vocabSize, partCount, origin, width, partTokens, partDocs, arena, data);
+        }
+        catch (IOException | RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Part of a value, to choose the focus.
+     *
+     * @param value value of the numeric field
+     * @return part id, or {@link Partition#NO_FOCUS} outside the periods
+     */
+    public int part(final int value)
+    {
+        final long part = Math.floorDiv((long) value - origin, width);
+        return (part < 0 || part >= partCount) ? Partition.NO_FOCUS : (int) part;
+    }
+
+    /**
+     * Number of parts.
+     *
+     * @return part count
+     */
+    public int partCount()
+    {
+        return partCount;
+    }
+
+    /**
+     * Documents of one part.
+     *
+     * @param part part id
+     * @return document count
+     */
+    public int partDocs(final int part)
+    {
+        return partDocs[part];
+    }
+
+    /**
+     * First value of one part.
+     *
+     * @param part part id
+     * @return {@code origin + part * width}
+     */
+    public int partFirst(final int part)
+    {
+        Objects.checkIndex(part, partCount);
+        return origin + part * width;
+    }
+
+    /**
+     * Indexed tokens of one part.
+     *
+     * @param part part id
+     * @return token count
+     */
+    public long partTokens(final int part)
+    {
+        return partTokens[part];
+    }
+
+    /**
+     * Path of the matrix of one field over one partition.
+     *
+     * @param sideDir directory of the field sidecars
+     * @param field   indexed text field name
+     * @param num     numeric field name
+     * @param width   period width in values
+     * @return {@code <field>.<num>-<width>.parts}
+     */
+    public static Path path(final Path sideDir, final String field, final String num, final int width)
+    {
+        return sideDir.resolve(field + "." + num + "-" + width + EXT);
+    }
+
+    /**
+     * Reads the row of one term into caller arrays.
+     *
+     * @param termId dense term id
+     * @param freqs  receives the occurrences by part, length {@link #partCount()}
+     * @param docs   receives the documents by part, length {@link #partCount()}, or {@code null}
+     */
+    public void row(final int termId, final long[] freqs, final int[] docs)
+    {
+        long offset = cell(termId, 0);
+        for (int part = 0; part < partCount; part++, offset += Integer.BYTES)
+            freqs[part] = data.get(BE_INT, offset);
+        if (docs == null)
+            return;
+        for (int part = 0; part < partCount; part++, offset += Integer.BYTES)
+            docs[part] = data.get(BE_INT, offset);
+    }
+
+    /**
+     * Number of terms, term id 0 included.
+     *
+     * @return vocabulary size
+     */
+    public int vocabSize()
+    {
+        return vocabSize;
+    }
+
+    /**
+     * Values by part.
+     *
+     * @return period width
+     */
+    public int width()
+    {
+        return width;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "PartMatrix{maxDoc=" + maxDoc + ", vocabSize=" + vocabSize + ", partCount=" + partCount
+                + ", origin=" + origin + ", width=" + width + ", tokens=" + Arrays.toString(partTokens) + "}";
+    }
+
+    /**
+     * Byte offset of the occurrence cell of one term and part.
+     */
+    private long cell(final int termId, final int part)
+    {
+        Objects.checkIndex(termId, vocabSize);
+        Objects.checkIndex(part, partCount);
+        return rowsOffset + ((long) termId * 2L * partCount + part) * Integer.BYTES;
+    }
+
+    /**
+     * Writes one term row; counts over {@code int} are rejected.
+     */
+    private static void writeRow(final DataOutputStream out, final long[] freqs, final int[] docs) throws IOException
+    {
+        for (long freq : freqs)
+            out.writeInt(Math.toIntExact(freq));
+        for (int doc : docs)
+            out.writeInt(doc);
+    }
+}
@@ -39,6 +39,15 @@ import com.github.oeuvres.alix.lucene.fluc.FlucText;
  * </p>
  *
  * <p>
+ * A build scans documents once, into a focus-independent {@link Tally} of
+ * the numeric axis under the filter; the periods are then cut from the
+ * per-value counts. {@link #build(Tally, int, int, int)} reuses a tally for
+ * another focus without scanning documents, and {@link PartitionCache} shares
+ * tallies between requests of one reader snapshot. A partition does not keep
+ * its tally, so that a cached partition does not hold an evicted tally.
+ * </p>
+ *
+ * <p>
  * The class does not store an {@code IndexReader}. It only stores
  * {@code maxDoc}, because Lucene internal document ids are meaningful only for
  * the reader snapshot used to build this partition.
@@ -183,6 +192,23 @@ public final class Partition
         Arrays.fill(docPart, NO_PART);
     }
 
+    /**
+     * Creates a filled partition from a tally build.
+     */
+    private Partition(
+        final byte[] docPart,
+        final int focusPart,
+        final int[] partDocs,
+        final long[] partTokens
+    ) {
+        this.maxDoc = docPart.length;
+        this.partCount = partDocs.length;
+        this.focusPart = focusPart;
+        this.docPart = docPart;
+        this.partDocs = partDocs;
+        this.partTokens = partTokens;
+    }
+
     /**
      * Reports whether one document is accepted by the partition.
      *
@@ -295,33 +321,59 @@ public final class Partition
                 "targetNonFocusParts out of range [1, " + (MAX_PARTS - 1)
                 + "]: " + targetNonFocusParts);
         }
+        return build(tally(num, text, acceptedDocs), start, end, targetNonFocusParts);
+    }
 
-        num.cacheHisto();
-        final TermStats stats = text.termStats();
-        final int maxDoc = stats.maxDoc();
-        if (acceptedDocs != null && acceptedDocs.length() < maxDoc) {
+    /**
+     * Builds a partition from a cached {@link Tally}, without scanning
+     * documents again.
+     *
+     * <p>
+     * The periods are cut and repaired as in
+     * {@link #build(FlucNum, FlucText, int, int, FixedBitSet, int)}, from the
+     * per-value counts of the tally. Part totals are the period totals; the
+     * only per-document work is one lookup per document to fill the
+     * document-to-part map.
+     * </p>
+     *
+     * @param tally focus-independent tally of the axis
+     * @param start inclusive focus start value
+     * @param end inclusive focus end value
+     * @param targetNonFocusParts target number of non-focus parts. Must be in
+     *                            {@code [1, MAX_PARTS - 1]}.
+     * @return document partition aligned by global Lucene doc id
+     * @throws IllegalArgumentException if arguments are invalid or if the focus
+     *                                  interval has no accepted text tokens
+     */
+    public static Partition build(
+        final Tally tally,
+        final int start,
+        final int end,
+        final int targetNonFocusParts
+    ) {
+        Objects.requireNonNull(tally, "tally");
+        if (start > end) {
             throw new IllegalArgumentException(
-                "acceptedDocs.length()=" + acceptedDocs.length()
-                + " < maxDoc=" + maxDoc);
+                "Invalid focus interval: [" + start + ',' + end + ']');
         }
-
-        final int intMin = exactInt(num.min(), "min");
-        final int intMax = exactInt(num.max(), "max");
+        if (targetNonFocusParts < 1 || targetNonFocusParts > MAX_PARTS - 1) {
+            throw new IllegalArgumentException(
+                "targetNonFocusParts out of range [1, " + (MAX_PARTS - 1)
+                + "]: " + targetNonFocusParts);
+        }
+        final int intMin = tally.intMin;
+        final int intMax = tally.intMax;
         if (end < intMin || start > intMax) {
             throw new IllegalArgumentException(
                 "Focus interval [" + start + ',' + end
                 + "] does not overlap field range ["
                 + intMin + ',' + intMax + ']');
         }
+        final int range = tally.valueDocs.length;
+        final int[] valueDocs = tally.valueDocs;
+        final long[] valueTokens = tally.valueTokens;
 
-        // Phase 1: tally per-value document and token counts.
-        final int range = denseRange(intMin, intMax);
-        final int[] docTokens = stats.docTokens();
-        final int[] valueDocs = new int[range];
-        final long[] valueTokens = new long[range];
-        tallyValues(num, docTokens, acceptedDocs, intMin, valueDocs, valueTokens);
-
-        // Phase 2: build the focus period and verify it carries data.
+        // Phase 1: build the focus period and verify it carries data.
         final int focusFirst = Math.max(start, intMin) - intMin;
         final int focusLast = Math.min(end, intMax) - intMin;
         final Period focus = new Period(focusFirst, focusLast, valueDocs, valueTokens);
@@ -331,7 +383,7 @@ public final class Partition
                 + "] contains no accepted text tokens.");
         }
 
-        // Phase 3: pick the cut width and slice non-focus periods. The width
+        // Phase 2: pick the cut width and slice non-focus periods. The width
         //          depends only on available non-focus range and target part
         //          count, so partCount stays stable across queries.
         //          Repair runs in two stages on each side independently so
@@ -348,7 +400,7 @@ public final class Partition
                 + start + ',' + end + "].");
         }
 
-        // Phase 4: assemble the chronological list of periods.
+        // Phase 3: assemble the chronological list of periods.
         final List<Period> periods = new ArrayList<>(left.size() + 1 + right.size());
         periods.addAll(left);
         periods.add(focus);
@@ -359,11 +411,138 @@ public final class Partition
         }
         final int focusPart = left.size();
 
-        // Phase 5: map every dense value offset to its part, then assign documents.
+        // Phase 4: map every dense value offset to its part, then every
+        //          tallied document through its value offset.
         final byte[] valuePart = mapValuesToParts(periods, range);
-        final Partition partition = new Partition(maxDoc, periods.size(), focusPart);
-        assignDocs(num, docTokens, acceptedDocs, intMin, valuePart, partition);
-        return partition;
+        final int[] docOffset = tally.docOffset;
+        final byte[] docPart = new byte[tally.maxDoc];
+        for (int docId = 0; docId < docPart.length; docId++) {
+            final int offset = docOffset[docId];
+            docPart[docId] = (offset < 0) ? NO_PART : valuePart[offset];
+        }
+        final int[] partDocs = new int[periods.size()];
+        final long[] partTokens = new long[periods.size()];
+        for (int part = 0; part < periods.size(); part++) {
+            partDocs[part] = periods.get(part).docs;
+            partTokens[part] = periods.get(part).tokens;
+        }
+        return new Partition(docPart, focusPart, partDocs, partTokens);
+    }
+
+    /**
+     * Tallies one numeric axis under an optional filter, independently of any
+     * focus interval: the only pass over documents of a partition build.
+     *
+     * <p>
+     * Documents are accepted only when they satisfy all constraints: optional
+     * accepted-documents filter, numeric value present on {@code num}, and a
+     * positive indexed-token count on {@code text}.
+     * </p>
+     *
+     * @param num numeric field used as the chronological or value axis
+     * @param text tokenized field used to obtain per-document token counts
+     * @param acceptedDocs optional accepted-documents bitset; {@code null} means
+     *                     all documents with a numeric value are eligible
+     * @return tally to build partitions from, for any focus
+     * @throws IOException if numeric-cache construction fails
+     * @throws IllegalArgumentException if arguments are invalid
+     */
+    public static Tally tally(
+        final FlucNum num,
+        final FlucText text,
+        final FixedBitSet acceptedDocs
+    ) throws IOException {
+        Objects.requireNonNull(num, "num");
+        Objects.requireNonNull(text, "text");
+        num.cacheHisto();
+        final TermStats stats = text.termStats();
+        final int maxDoc = stats.maxDoc();
+        if (acceptedDocs != null && acceptedDocs.length() < maxDoc) {
+            throw new IllegalArgumentException(
+                "acceptedDocs.length()=" + acceptedDocs.length()
+                + " < maxDoc=" + maxDoc);
+        }
+        final int intMin = exactInt(num.min(), "min");
+        final int intMax = exactInt(num.max(), "max");
+        final int range = denseRange(intMin, intMax);
+        final int[] docOffset = new int[maxDoc];
+        final int[] valueDocs = new int[range];
+        final long[] valueTokens = new long[range];
+        Arrays.fill(docOffset, -1);
+        for (int docId = 0; docId < maxDoc; docId++) {
+            if (acceptedDocs != null && !acceptedDocs.get(docId)) continue;
+            final int tokens = stats.docTokens(docId);
+            if (tokens <= 0 || !num.hasValue(docId)) continue;
+            final int offset = num.docValue(docId) - intMin;
+            docOffset[docId] = offset;
+            valueDocs[offset]++;
+            valueTokens[offset] += tokens;
+        }
+        return new Tally(maxDoc, intMin, intMax, docOffset, valueDocs, valueTokens);
+    }
+
+    /**
+     * Builds a focus-independent partition in calendar periods of a fixed
+     * width, for example decades with {@code width = 10}.
+     *
+     * <p>
+     * Periods are aligned on multiples of {@code width}: part {@code p} covers
+     * the values {@code [origin + p * width, origin + (p + 1) * width - 1]},
+     * with {@code origin} the greatest multiple of {@code width} not above
+     * the minimum value, see {@link #periodsOrigin(Tally, int)}. Weak periods
+     * are not merged, the parts stay one per period; the focus is left to
+     * the caller, as one of the parts. This is the partition persisted by
+     * {@link PartMatrix}.
+     * </p>
+     *
+     * @param tally focus-independent tally of the axis
+     * @param width period width in values, at least 1
+     * @return partition with {@link #NO_FOCUS}
+     * @throws IllegalArgumentException if {@code width < 1} or the periods
+     *                                  exceed {@link #MAX_PARTS} parts
+     */
+    public static Partition periods(final Tally tally, final int width)
+    {
+        Objects.requireNonNull(tally, "tally");
+        if (width < 1) {
+            throw new IllegalArgumentException("width < 1: " + width);
+        }
+        final int origin = periodsOrigin(tally, width);
+        final long parts = ((long) tally.intMax - origin) / width + 1;
+        if (parts > MAX_PARTS) {
+            throw new IllegalArgumentException(
+                "Too many parts for byte partition: " + parts + " periods of " + width);
+        }
+        final int partCount = (int) parts;
+        final int range = tally.valueDocs.length;
+        final byte[] valuePart = new byte[range];
+        final int[] partDocs = new int[partCount];
+        final long[] partTokens = new long[partCount];
+        for (int offset = 0; offset < range; offset++) {
+            final int part = (int) (((long) tally.intMin + offset - origin) / width);
+            valuePart[offset] = (byte) part;
+            partDocs[part] += tally.valueDocs[offset];
+            partTokens[part] += tally.valueTokens[offset];
+        }
+        final int[] docOffset = tally.docOffset;
+        final byte[] docPart = new byte[tally.maxDoc];
+        for (int docId = 0; docId < docPart.length; docId++) {
+            final int offset = docOffset[docId];
+            docPart[docId] = (offset < 0) ? NO_PART : valuePart[offset];
+        }
+        return new Partition(docPart, NO_FOCUS, partDocs, partTokens);
+    }
+
+    /**
+     * First value of the first period of {@link #periods(Tally, int)}.
+     *
+     * @param tally focus-independent tally of the axis
+     * @param width period width in values, at least 1
+     * @return greatest multiple of {@code width} not above the minimum value
+     */
+    public static int periodsOrigin(final Tally tally, final int width)
+    {
+        return Math.floorDiv(tally.intMin, width) * width;
     }
 
     /**
@@ -434,6 +613,16 @@ public final class Partition
         return partCount;
     }
 
+    /**
+     * Approximate heap footprint of the partition arrays.
+     *
+     * @return bytes used
+     */
+    public long ramBytesUsed()
+    {
+        return (long) docPart.length + (long) partDocs.length * (Integer.BYTES + Long.BYTES);
+    }
+
     /**
      * Returns the number of accepted documents in one part.
      *
@@ -507,36 +696,6 @@ public final class Partition
             + '}';
     }
 
-    /**
-     * Filters documents and assigns each accepted one to its part.
-     *
-     * @param num numeric value provider
-     * @param docTokens per-document token counts
-     * @param acceptedDocs optional accepted-documents filter, may be {@code null}
-     * @param intMin minimum integer value (dense offset origin)
-     * @param valuePart value-offset to part-id lookup
-     * @param target partition being filled
-     * @throws IOException if numeric value access fails
-     */
-    private static void assignDocs(
-        final FlucNum num,
-        final int[] docTokens,
-        final FixedBitSet acceptedDocs,
-        final int intMin,
-        final byte[] valuePart,
-        final Partition target
-    ) throws IOException {
-        final int maxDoc = target.maxDoc;
-        for (int docId = 0; docId < maxDoc; docId++) {
-            if (acceptedDocs != null && !acceptedDocs.get(docId)) continue;
-            final int tokens = docTokens[docId];
-            if (tokens <= 0 || !num.hasValue(docId)) continue;
-            final byte part = valuePart[num.docValue(docId) - intMin];
-            if (part == NO_PART) continue;
-            target.set(docId, part, tokens);
-        }
-    }
-
     /**
      * Computes the cut width for non-focus periods.
      *
@@ -908,36 +1067,6 @@ public final class Partition
         partTokens[newPart] += tokens;
     }
 
-    /**
-     * Tallies per-value document and token counts over the index.
-     *
-     * @param num numeric value provider
-     * @param docTokens per-document token counts
-     * @param acceptedDocs optional accepted-documents filter, may be {@code null}
-     * @param intMin minimum integer value (dense offset origin)
-     * @param valueDocs out parameter; per-value-offset document counts
-     * @param valueTokens out parameter; per-value-offset token counts
-     * @throws IOException if numeric value access fails
-     */
-    private static void tallyValues(
-        final FlucNum num,
-        final int[] docTokens,
-        final FixedBitSet acceptedDocs,
-        final int intMin,
-        final int[] valueDocs,
-        final long[] valueTokens
-    ) throws IOException {
-        final int maxDoc = docTokens.length;
-        for (int docId = 0; docId < maxDoc; docId++) {
-            if (acceptedDocs != null && !acceptedDocs.get(docId)) continue;
-            final int tokens = docTokens[docId];
-            if (tokens <= 0 || !num.hasValue(docId)) continue;
-            final int offset = num.docValue(docId) - intMin;
-            valueDocs[offset]++;
-            valueTokens[offset] += tokens;
-        }
-    }
-
     /**
      * Reports whether an extremity period should be expanded inward.
      *
@@ -964,6 +1093,75 @@ public final class Partition
             || period.tokens < MIN_INTERNAL_TOKENS;
     }
 
+    /**
+     * Focus-independent counts of one numeric axis under one filter.
+     *
+     * <p>
+     * Holds the dense value offset of every accepted document, and the
+     * document and token counts of every value. Any focus interval can be
+     * partitioned from it by {@link Partition#build(Tally, int, int, int)},
+     * which is why {@link PartitionCache} keeps tallies rather than
+     * partitions. Immutable.
+     * </p>
+     */
+    public static final class Tally
+    {
+        /** Reader {@code maxDoc}. */
+        final int maxDoc;
+
+        /** Minimum value of the axis, origin of the dense offsets. */
+        final int intMin;
+
+        /** Maximum value of the axis. */
+        final int intMax;
+
+        /** Dense value offset by docId, {@code -1} for rejected documents. */
+        final int[] docOffset;
+
+        /** Accepted documents by value offset. */
+        final int[] valueDocs;
+
+        /** Indexed tokens of accepted documents by value offset. */
+        final long[] valueTokens;
+
+        private Tally(
+            final int maxDoc,
+            final int intMin,
+            final int intMax,
+            final int[] docOffset,
+            final int[] valueDocs,
+            final long[] valueTokens
+        ) {
+            this.maxDoc = maxDoc;
+            this.intMin = intMin;
+            this.intMax = intMax;
+            this.docOffset = docOffset;
+            this.valueDocs = valueDocs;
+            this.valueTokens = valueTokens;
+        }
+
+        /**
+         * Returns the number of documents in the reader snapshot address space.
+         *
+         * @return reader {@code maxDoc}
+         */
+        public int maxDoc()
+        {
+            return maxDoc;
+        }
+
+        /**
+         * Approximate heap footprint of the tally arrays.
+         *
+         * @return bytes used
+         */
+        public long ramBytesUsed()
+        {
+            return (long) docOffset.length * Integer.BYTES
+                + (long) valueDocs.length * (Integer.BYTES + Long.BYTES);
+        }
+    }
+
     /** Chronological period over dense numeric offsets. */
     private static final class Period
     {
@@ -0,0 +1,193 @@
+package com.github.oeuvres.alix.lucene.terms;
+
+import java.io.IOException;
+
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.util.FixedBitSet;
+
+import com.github.oeuvres.alix.lucene.fluc.FlucNum;
+import com.github.oeuvres.alix.lucene.fluc.FlucText;
+import com.github.oeuvres.alix.lucene.util.FutureCache;
+
+/**
+ * Byte-bounded LRU cache of {@link Partition}s for one frozen index snapshot, for chronological
+ * keyness.
+ *
+ * <p>
+ * Two levels are kept. {@link Partition.Tally tallies}, the only part of a build that scans
+ * documents, are keyed by numeric field, text field and filter; a new focus interval over a known
+ * filter is then cut from per-value counts in microseconds, plus one pass to fill the
+ * document-to-part map. Built partitions are also kept, keyed by tally, focus interval and target
+ * part count, so a repeated request is a map lookup.
+ * </p>
+ *
+ * <p>
+ * Filter keys are queries rewritten by the searcher, as in
+ * {@link com.github.oeuvres.alix.lucene.util.BitsCache}; {@code null} stands for no filter.
+ * Both levels are {@link FutureCache}s, so concurrent requests for the same entry wait for the
+ * first one. They share the byte budget of the cache: three quarters for tallies, about
+ * {@code 4 * maxDoc} bytes each, one quarter for partitions, about {@code maxDoc} bytes each, so
+ * that both levels keep about as many entries. A partition does not hold its tally, an evicted
+ * tally is released. There is no invalidation: the cache belongs to one reader snapshot and is
+ * dropped with it.
+ * </p>
+ *
+ * <p>
+ * Returned partitions are shared between requests and must not be modified.
+ * </p>
+ *
+ * <p>
+ * Thread-safe.
+ * </p>
+ */
+public final class PartitionCache
+{
+    /** Tally key: axis, token counts and filter. */
+    private record TallyKey(String num, String text, Query filter)
+    {
+    }
+
+    /** Partition key: tally, focus and bucket scheme. */
+    private record PartKey(TallyKey tally, int start, int end, int targetNonFocusParts)
+    {
+    }
+
+    /** Tallies by axis, text field and filter. */
+    private final FutureCache<TallyKey, Partition.Tally> tallies;
+
+    /** Partitions by tally, focus and bucket scheme. */
+    private final FutureCache<PartKey, Partition> partitions;
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param maxBytes byte budget for tallies and partitions; 0 disables caching
+     * @throws IllegalArgumentException if {@code maxBytes} is negative
+     */
+    public PartitionCache(final long maxBytes)
+    {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("maxBytes=" + maxBytes + " < 0");
+        }
+        final long partitionBytes = maxBytes / 4;
+        this.tallies = new FutureCache<>(maxBytes - partitionBytes, Partition.Tally::ramBytesUsed);
+        this.partitions = new FutureCache<>(partitionBytes, Partition::ramBytesUsed);
+    }
+
+    /**
+     * Returns the default partition of a focus interval, with
+     * {@link Partition#DEFAULT_TARGET_NON_FOCUS_PARTS}.
+     *
+     * @param searcher     searcher of the snapshot this cache belongs to
+     * @param num          numeric field used as the chronological axis
+     * @param text         tokenized field used to obtain per-document token counts
+     * @param filter       filter query, or {@code null} for all documents
+     * @param acceptedDocs documents of {@code filter}, or {@code null} without filter
+     * @param start        inclusive focus start value
+     * @param end          inclusive focus end value
+     * @return shared partition, must not be modified
+     * @throws IOException              if query rewrite or numeric-cache construction fails
+     * @throws IllegalArgumentException as {@link Partition#build(Partition.Tally, int, int, int)}
+     */
+    public Partition partition(
+        final IndexSearcher searcher,
+        final FlucNum num,
+        final FlucText text,
+        final Query filter,
+        final FixedBitSet acceptedDocs,
+        final int start,
+        final int end
+    ) throws IOException {
+        return partition(
+            searcher, num, text, filter, acceptedDocs, start, end, Partition.DEFAULT_TARGET_NON_FOCUS_PARTS);
+    }
+
+    /**
+     * Returns the partition of a focus interval, from cache when possible.
+     *
+     * @param searcher            searcher of the snapshot this cache belongs to
+     * @param num                 numeric field used as the chronological axis
+     * @param text                tokenized field used to obtain per-document token counts
+     * @param filter              filter query, or {@code null} for all documents
+     * @param acceptedDocs        documents of {@code filter}, or {@code null} without filter
+     * @param start               inclusive focus start value
+     * @param end                 inclusive focus end value
+     * @param targetNonFocusParts target number of non-focus parts
+     * @return shared partition, must not be modified
+     * @throws IOException              if query rewrite or numeric-cache construction fails
+     * @throws IllegalArgumentException as {@link Partition#build(Partition.Tally, int, int, int)}
+     */
+    public Partition partition(
+        final IndexSearcher searcher,
+        final FlucNum num,
+        final FlucText text,
+        final Query filter,
+        final FixedBitSet acceptedDocs,
+        final int start,
+        final int end,
+        final int targetNonFocusParts
+    ) throws IOException {
+        final TallyKey tallyKey = new TallyKey(
+            num.name(), text.name(), (filter == null) ? null : searcher.rewrite(filter));
+        final PartKey partKey = new PartKey(tallyKey, start, end, targetNonFocusParts);
+        return partitions.get(partKey, () -> Partition.build(
+            tallies.get(tallyKey, () -> Partition.tally(num, text, acceptedDocs)), start, end, targetNonFocusParts));
+    }
+
+    /**
+     * Current bytes held by cached tallies and partitions.
+     *
+     * @return sum of the footprints of cached entries
+     */
+    public long bytes()
+    {
+        return tallies.bytes() + partitions.bytes();
+    }
+
+    /**
+     * Drops every entry. Counters are kept.
+     */
+    public void clear()
+    {
+        tallies.clear();
+        partitions.clear();
+    }
+
+    /**
+     * Number of requests answered by a cached partition.
+     *
+     * @return hit count since creation
+     */
+    public long hits()
+    {
+        return partitions.hits();
+    }
+
+    /**
+     * Number of requests that tallied documents.
+     *
+     * @return miss count since creation
+     */
+    public long misses()
+    {
+        return tallies.misses();
+    }
+
+    /**
+     * Number of requests answered by a cached tally with a new focus.
+     *
+     * @return refocus count since creation
+     */
+    public long refocus()
+    {
+        return tallies.hits();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "PartitionCache{tallies=" + tallies + ", partitions=" + partitions
+                + ", hits=" + hits() + ", refocus=" + refocus() + ", misses=" + misses() + "}";
+    }
+}
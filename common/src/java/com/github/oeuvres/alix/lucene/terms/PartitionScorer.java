@@ -26,14 +26,26 @@ import com.github.oeuvres.alix.util.TopArray;
  * </p>
  *
  * <p>
+ * Built on a {@link PartMatrix} instead, with one of its parts as focus, the
+ * per-part vectors are read from the persisted matrix and no postings are
+ * walked.
+ * </p>
+ *
+ * <p>
  * This class holds no per-call state and may be reused.
  * </p>
  */
 public final class PartitionScorer
 {
-    /** Document partition. */
+    /** Document partition, or {@code null} on a matrix. */
     private final Partition partition;
 
+    /** Persisted counts, or {@code null} on a partition. */
+    private final PartMatrix matrix;
+
+    /** Focus part of the matrix. */
+    private final int matrixFocus;
+
     /** Per-term scoring function. */
     private final PartScorer scorer;
 
@@ -49,12 +61,35 @@ public final class PartitionScorer
     {
         this.partition = Objects.requireNonNull(partition, "partition");
         this.scorer = Objects.requireNonNull(scorer, "scorer");
+        this.matrix = null;
+        this.matrixFocus = Partition.NO_FOCUS;
 
         if (!partition.hasFocus()) {
             throw new IllegalArgumentException("partition has no focus part");
         }
     }
 
+    /**
+     * Creates a partition scorer over persisted counts, with one part as focus.
+     *
+     * @param matrix    term by part counts
+     * @param focusPart focus part id, see {@link PartMatrix#part(int)}
+     * @param scorer    per-term scoring function
+     * @throws IllegalArgumentException if the focus part is out of range
+     * @throws NullPointerException     if an argument is {@code null}
+     */
+    public PartitionScorer(final PartMatrix matrix, final int focusPart, final PartScorer scorer)
+    {
+        this.matrix = Objects.requireNonNull(matrix, "matrix");
+        this.scorer = Objects.requireNonNull(scorer, "scorer");
+        this.partition = null;
+        if (focusPart < 0 || focusPart >= matrix.partCount()) {
+            throw new IllegalArgumentException(
+                    "focusPart out of range: " + focusPart + " (partCount=" + matrix.partCount() + ')');
+        }
+        this.matrixFocus = focusPart;
+    }
+
     /**
      * Scores terms over the partition and writes the ranking into the target.
      *
@@ -68,8 +103,9 @@ public final class PartitionScorer
      * @param topK   maximum number of ranked terms to retain
      * @return {@code target}
      * @throws IOException              if postings traversal fails
-     * @throws IllegalArgumentException if {@code topK < 1} or
-     *                                  {@code partition.maxDoc() != reader.maxDoc()}
+     * @throws IllegalArgumentException if {@code topK < 1} or the
+     *                                  {@code maxDoc()} of the partition or
+     *                                  matrix is not the reader's
      * @throws IllegalStateException    if the field has no terms or lacks frequencies
      * @throws NullPointerException     if an argument is {@code null}
      */
@@ -84,6 +120,9 @@ public final class PartitionScorer
         if (topK < 1) {
             throw new IllegalArgumentException("topK must be >= 1");
         }
+        if (matrix != null) {
+            return scoreMatrix(r, tt, topK);
+        }
         if (partition.maxDoc() != r.maxDoc()) {
             throw new IllegalArgumentException(
                     "partition.maxDoc()=" + partition.maxDoc()
@@ -106,7 +145,6 @@ public final class PartitionScorer
         final int focusPart = partition.focusPart();
         final int focusDocCount = partition.partDocs(focusPart);
         final byte[] docPart = partition.docPartRef();
-        final int[] docTokens = termStats.docTokens();
 
         final long[] partTokens = new long[partCount];
         for (int docId = 0; docId < docPart.length; docId++) {
@@ -114,7 +152,7 @@ public final class PartitionScorer
             if (part == Partition.NO_PART) {
                 continue;
             }
-            partTokens[part] += docTokens[docId];
+            partTokens[part] += termStats.docTokens(docId);
         }
 
         final TopTerms.Population population = tt.beginPopulation();
@@ -172,7 +210,78 @@ public final class PartitionScorer
             focusDocCount,
             focusDocCount
         );
+        return setRanking(tt, top, scoreVec);
+    }
+
+    /**
+     * Scores terms from the persisted matrix, without postings.
+     */
+    private TopTerms scoreMatrix(
+        final IndexReader reader,
+        final TopTerms tt,
+        final int topK)
+    {
+        if (matrix.maxDoc() != reader.maxDoc()) {
+            throw new IllegalArgumentException(
+                    "matrix.maxDoc()=" + matrix.maxDoc()
+                            + " != reader.maxDoc()=" + reader.maxDoc());
+        }
+        final TermStats termStats = tt.termStats();
+        final int vocabSize = termStats.vocabSize();
+        if (matrix.vocabSize() != vocabSize) {
+            throw new IllegalArgumentException(
+                    "matrix.vocabSize()=" + matrix.vocabSize()
+                            + " != vocabSize=" + vocabSize);
+        }
+        final int partCount = matrix.partCount();
+        final int focusPart = matrixFocus;
+        final int focusDocCount = matrix.partDocs(focusPart);
+        final long[] partTokens = new long[partCount];
+        for (int part = 0; part < partCount; part++) {
+            partTokens[part] = matrix.partTokens(part);
+        }
+
+        final TopTerms.Population population = tt.beginPopulation();
+        final long[] termFreq = population.termFreq();
+        final int[] termDocs = population.termDocs();
+        final int[] termContexts = population.termContexts();
+
+        final double[] scoreVec = new double[vocabSize];
+        final long[] partTermFreq = new long[partCount];
+        final TopArray top = new TopArray(topK);
+
+        for (int termId = 1; termId < vocabSize; termId++) {
+            final long focusFreq = matrix.freq(termId, focusPart);
+            if (focusFreq <= 0L) {
+                continue;
+            }
+            final int focusDocsForTerm = matrix.docs(termId, focusPart);
+            matrix.row(termId, partTermFreq, null);
+            termFreq[termId] = focusFreq;
+            termDocs[termId] = focusDocsForTerm;
+            termContexts[termId] = focusDocsForTerm;
+
+            final double score = scorer.score(
+                    partTermFreq, partTokens, focusPart, focusDocsForTerm, focusDocCount);
+            if (!Double.isNaN(score)) {
+                scoreVec[termId] = score;
+                top.push(termId, score);
+            }
+        }
+
+        population.complete(
+            partTokens[focusPart],
+            focusDocCount,
+            focusDocCount
+        );
+        return setRanking(tt, top, scoreVec);
+    }
 
+    /**
+     * Writes the ranking of the top terms into the target.
+     */
+    private static TopTerms setRanking(final TopTerms tt, final TopArray top, final double[] scoreVec)
+    {
         final int size = top.size();
         final int[] rank2termId = new int[size];
         for (int rank = 0; rank < size; rank++) {
@@ -0,0 +1,355 @@
+package com.github.oeuvres.alix.lucene.terms;
+
+import org.apache.lucene.index.FilterLeafReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SegmentCommitInfo;
+import org.apache.lucene.index.SegmentReader;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.StringHelper;
+
+import com.github.oeuvres.alix.util.IOUtil;
+import com.github.oeuvres.alix.util.Report;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Incremental maintenance of the {@link TermStats} and {@link TermRail} sidecars of an index
+ * growing by appended segments.
+ * <p>
+ * A full {@link TermStats#build} walks the positions of every posting, a full {@link TermRail#build}
+ * reads the term vectors of every document. Lucene segments are immutable, so sidecars built on one
+ * segment stay valid for its whole life. This class keeps such per-segment sidecars, builds them
+ * only for segments not seen before, and assembles the global {@code <field>.stats} and raw
+ * {@code <field>.rail.*} files from them. The assembly reads no postings and no term vectors: one
+ * pass over the merged term dictionary, one over each segment dictionary, and a sequential copy of
+ * the per-segment rails. The global rail keeps its format, raw or packed; per-segment rails are raw.
+ * Readers of the global files ({@link TermStats#open}, {@link TermRail#open}) are unchanged.
+ * </p>
+ *
+ * <h2>Term ids</h2>
+ * <p>
+ * Dense ids remain those of {@link TermLexicon}: the lexicographic order of the merged field terms,
+ * the invariant its binary search relies on. A new term may therefore shift the ids of existing
+ * ones. Per-segment sidecars store segment-local ids instead (lexicographic order within the
+ * segment), which new segments never invalidate; at assembly, each segment gets a local id →
+ * merged id table.
+ * </p>
+ *
+ * <h2>Layout</h2>
+ * <ul>
+ * <li>{@code alix.segs/<segment>-<id>/}: {@code <field>.stats} and raw {@code <field>.rail.*} of one
+ * segment, keyed by segment name and unique segment id;</li>
+ * <li>{@code alix.segs/<field>.segs}: manifest of the segments behind the global files, one line
+ * {@code <segment>-<id> <delGen>} per leaf, in leaf order.</li>
+ * </ul>
+ * <p>
+ * Global files are current when the manifest equals the state of the reader; a deletion in an old
+ * segment bumps its generation and triggers a new assembly, without rebuilding the segment.
+ * Directories of segments merged away are deleted at update. The incremental mode is enabled by
+ * the JVM property {@value #PROPERTY}{@code =true}, for an index maintained by appended segments;
+ * once enabled, the {@value #DIR} directory created by the first {@link #update} keeps it on.
+ * </p>
+ */
+public final class SegmentSidecars
+{
+    /** Name of the directory of per-segment sidecars, under the side directory. */
+    public static final String DIR = "alix.segs";
+    /** JVM property enabling the incremental mode, {@code true} or {@code false} (default). */
+    public static final String PROPERTY = "alix.segments";
+
+    /** Static utility class. */
+    private SegmentSidecars()
+    {
+    }
+
+    /**
+     * Tests whether the incremental mode is enabled for a side directory.
+     *
+     * @param sideDir side directory of the index
+     * @return {@code true} if the property {@value #PROPERTY} is {@code true}, or if the
+     *         {@value #DIR} directory exists
+     */
+    public static boolean enabled(final Path sideDir)
+    {
+        return Boolean.getBoolean(PROPERTY) || Files.isDirectory(sideDir.resolve(DIR));
+    }
+
+    /**
+     * Tests whether the global sidecars of one field were assembled from the current segments of
+     * the reader.
+     *
+     * @param reader  snapshot reader
+     * @param sideDir side directory of the index
+     * @param field   indexed field name
+     * @return {@code true} if the manifest, the stats file and a rail are present and current
+     * @throws IOException if the manifest cannot be read
+     */
+    public static boolean isCurrent(final IndexReader reader, final Path sideDir, final String field)
+        throws IOException
+    {
+        final Path manifestPath = manifestPath(sideDir, field);
+        if (!Files.isRegularFile(manifestPath)
+                || !TermStats.exists(sideDir, field)
+                || !TermRail.exists(sideDir, field))
+        {
+            return false;
+        }
+        return Files.readAllLines(manifestPath, StandardCharsets.UTF_8).equals(manifest(reader));
+    }
+
+    /**
+     * Builds the sidecars of new segments and reassembles the global {@code <field>.stats} and
+     * {@code <field>.rail.*} files of one field.
+     * <p>
+     * Existing global files of the field are replaced; an existing rail is reassembled in its own
+     * format, {@code format} applies only when there is none. Sidecars of the segments no longer in
+     * the reader are deleted.
+     * </p>
+     *
+     * @param reader  snapshot reader, its leaves must be segments
+     * @param sideDir side directory of the index
+     * @param field   indexed field name
+     * @param lexicon lexicon of the field built on {@code reader}
+     * @param format  format of the global rail when none exists, {@code null} for raw
+     * @param report  progress reporter; may be {@code null}
+     * @throws IOException              if building, reading or writing a sidecar fails
+     * @throws IllegalArgumentException if a leaf is not a segment, or if the lexicon does not match
+     *                                  the reader
+     */
+    public static void update(
+        final IndexReader reader,
+        final Path sideDir,
+        final String field,
+        final TermLexicon lexicon,
+        final TermRail.Format format,
+        Report report) throws IOException
+    {
+        Objects.requireNonNull(reader, "reader");
+        Objects.requireNonNull(sideDir, "sideDir");
+        Objects.requireNonNull(field, "field");
+        Objects.requireNonNull(lexicon, "lexicon");
+        if (report == null)
+            report = Report.ReportNull.INSTANCE;
+
+        final Path segRoot = sideDir.resolve(DIR);
+        Files.createDirectories(segRoot);
+        final List<LeafReaderContext> leaves = reader.leaves();
+        final int leafCount = leaves.size();
+        final Set<String> keys = new HashSet<>();
+        final TermStats[] stats = new TermStats[leafCount];
+        final TermRail[] rails = new TermRail[leafCount];
+        final int[][] idMaps = new int[leafCount][];
+        int built = 0;
+        try {
+            for (int i = 0; i < leafCount; i++) {
+                final LeafReader leaf = leaves.get(i).reader();
+                final String key = key(segment(leaf));
+                keys.add(key);
+                if (leaf.terms(field) == null)
+                    continue;
+                final Path segDir = segRoot.resolve(key);
+                if (!TermStats.exists(segDir, field) || TermRail.format(segDir, field) != TermRail.Format.RAW) {
+                    build(leaf, segDir, field, report);
+                    built++;
+                }
+                stats[i] = TermStats.open(leaf, segDir, field, report);
+                rails[i] = TermRail.open(segDir, field);
+                idMaps[i] = idMap(leaf, field, lexicon);
+            }
+
+            final int maxDoc = reader.maxDoc();
+            final BitSet liveDocs = TermStats.liveDocs(reader);
+            final int[] docWidths = new int[maxDoc];
+            final int[] docTokens = new int[maxDoc];
+            for (int i = 0; i < leafCount; i++) {
+                if (stats[i] == null)
+                    continue;
+                final int docBase = leaves.get(i).docBase;
+                for (int localId = 0; localId < stats[i].maxDoc(); localId++) {
+                    if (!liveDocs.get(docBase + localId))
+                        continue;
+                    docWidths[docBase + localId] = stats[i].docWidth(localId);
+                    docTokens[docBase + localId] = stats[i].docTokens(localId);
+                }
+            }
+            final TermStats.VocabCounts counts = TermStats.vocabCounts(reader, field, report);
+            if (counts.vocabSize() != lexicon.vocabSize()) {
+                throw new IllegalArgumentException(
+                        "lexicon vocabSize=" + lexicon.vocabSize() + " != reader vocabSize=" + counts.vocabSize());
+            }
+
+            final TermRail.Format existing = TermRail.format(sideDir, field);
+            final TermRail.Format railFormat = (existing != null) ? existing
+                : (format != null) ? format : TermRail.Format.RAW;
+            final Path manifestPath = manifestPath(sideDir, field);
+            IOUtil.deleteIfExists(manifestPath);
+            TermStats.delete(sideDir, field);
+            TermRail.delete(sideDir, field);
+            TermSuffixes.delete(sideDir, field);
+            PartMatrix.delete(sideDir, field);
+            TermStats.write(sideDir, field, maxDoc, new TermStats.DocStats(docWidths, docTokens), counts);
+            TermRail.merge(reader, sideDir, field, rails, idMaps, railFormat, counts, report);
+            final Path tmp = IOUtil.tmpPath(manifestPath);
+            IOUtil.deleteIfExists(tmp);
+            Files.write(tmp, manifest(reader), StandardCharsets.UTF_8);
+            IOUtil.moveTemp(tmp, manifestPath);
+        } finally {
+            for (TermRail rail : rails) {
+                if (rail != null)
+                    rail.close();
+            }
+        }
+        final int pruned = prune(segRoot, keys);
+        report.info("field=\"" + field + "\""
+                + ", segments=" + leafCount
+                + ", built=" + built
+                + ", pruned=" + pruned);
+    }
+
+    /**
+     * Builds the sidecars of one segment with segment-local term ids, replacing incomplete ones.
+     *
+     * @param leaf   segment reader
+     * @param segDir directory of the segment sidecars
+     * @param field  indexed field name
+     * @param report progress reporter
+     * @throws IOException if building fails
+     */
+    private static void build(final LeafReader leaf, final Path segDir, final String field, final Report report)
+        throws IOException
+    {
+        Files.createDirectories(segDir);
+        TermStats.delete(segDir, field);
+        TermRail.delete(segDir, field);
+        TermStats.build(leaf, segDir, field, report);
+        TermRail.build(leaf, segDir, field, new TermLexicon(leaf, field), report);
+    }
+
+    /**
+     * Maps the segment-local term ids of one leaf to the dense ids of the merged lexicon.
+     *
+     * @param leaf    segment reader
+     * @param field   indexed field name
+     * @param lexicon merged lexicon
+     * @return local id → merged id, {@link TermRail#NO_TERM} at index 0
+     * @throws IOException              if the term dictionary cannot be read
+     * @throws IllegalArgumentException if a segment term is absent from the lexicon
+     */
+    private static int[] idMap(final LeafReader leaf, final String field, final TermLexicon lexicon)
+        throws IOException
+    {
+        final Terms terms = leaf.terms(field);
+        final long size = terms.size();
+        int[] idMap = new int[(size >= 0L) ? (int) size + 1 : 1024];
+        int localId = 1;
+        final TermsEnum tenum = terms.iterator();
+        for (BytesRef term = tenum.next(); term != null; term = tenum.next(), localId++) {
+            final int termId = lexicon.id(term);
+            if (termId < 0) {
+                throw new IllegalArgumentException(
+                        "segment term absent from lexicon: field=\"" + field + "\", term=" + term.utf8ToString());
+            }
+            if (localId == idMap.length)
+                idMap = Arrays.copyOf(idMap, idMap.length * 2);
+            idMap[localId] = termId;
+        }
+        return idMap;
+    }
+
+    /**
+     * Key of a segment, stable for its whole life and never reused by another segment.
+     *
+     * @param info segment commit info
+     * @return {@code <segment>-<id>}
+     */
+    private static String key(final SegmentCommitInfo info)
+    {
+        return info.info.name + "-" + StringHelper.idToString(info.info.getId());
+    }
+
+    /**
+     * Lines of the manifest for the current state of a reader.
+     *
+     * @param reader snapshot reader
+     * @return one {@code <segment>-<id> <delGen>} line per leaf
+     */
+    private static List<String> manifest(final IndexReader reader)
+    {
+        final List<String> lines = new ArrayList<>();
+        for (LeafReaderContext ctx : reader.leaves()) {
+            final SegmentCommitInfo info = segment(ctx.reader());
+            lines.add(key(info) + " " + info.getDelGen());
+        }
+        return lines;
+    }
+
+    /**
+     * Path of the manifest for one field.
+     *
+     * @param sideDir side directory of the index
+     * @param field   indexed field name
+     * @return {@code alix.segs/<field>.segs}
+     */
+    private static Path manifestPath(final Path sideDir, final String field)
+    {
+        return sideDir.resolve(DIR).resolve(field + ".segs");
+    }
+
+    /**
+     * Deletes the directories of segments no longer in the reader.
+     *
+     * @param segRoot directory of per-segment sidecars
+     * @param keys    keys of the current segments
+     * @return number of deleted segment directories
+     * @throws IOException if listing or deleting fails
+     */
+    private static int prune(final Path segRoot, final Set<String> keys) throws IOException
+    {
+        int pruned = 0;
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(segRoot, Files::isDirectory)) {
+            for (Path dir : dirs) {
+                if (keys.contains(dir.getFileName().toString()))
+                    continue;
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+                    for (Path file : files) {
+                        IOUtil.deleteIfExists(file);
+                    }
+                }
+                IOUtil.deleteIfExists(dir);
+                pruned++;
+            }
+        }
+        return pruned;
+    }
+
+    /**
+     * Resolves the segment behind a leaf.
+     *
+     * @param leaf leaf reader, possibly wrapped
+     * @return segment commit info
+     * @throws IllegalArgumentException if the leaf is not a segment
+     */
+    private static SegmentCommitInfo segment(final LeafReader leaf)
+    {
+        final LeafReader unwrapped = FilterLeafReader.unwrap(leaf);
+        if (!(unwrapped instanceof SegmentReader segmentReader)) {
+            throw new IllegalArgumentException("leaf is not a segment: " + leaf);
+        }
+        return segmentReader.getSegmentInfo();
+    }
+}
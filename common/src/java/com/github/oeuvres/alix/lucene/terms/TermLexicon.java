@@ -21,6 +21,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
 import java.util.ArrayList;
@@ -32,6 +33,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.zip.CRC32C;
 
 /**
  * Immutable in-memory lookup table for one indexed field of one frozen Lucene directory.
@@ -326,6 +328,29 @@ public final class TermLexicon {
         return (bs == null) ? new BitSet(0) : (BitSet) bs.clone();
     }
 
+    /**
+     * Returns a checksum of the vocabulary: the term bytes and their boundaries, in term-id order.
+     * Two lexicons with the same checksum assign, in practice, the same ids to the same terms; a
+     * persisted structure addressed by term id records it to detect a stale file. Computed on each
+     * call, in time linear to the vocabulary bytes.
+     *
+     * @return CRC-32C of the terms and their offsets
+     */
+    public long checksum() {
+        final CRC32C crc = new CRC32C();
+        crc.update(dat, 0, off[vocabSize]);
+        final ByteBuffer buffer = ByteBuffer.allocate(1024 * Integer.BYTES);
+        for (int i = 0; i <= vocabSize; i++) {
+            if (!buffer.hasRemaining()) {
+                crc.update(buffer.flip());
+                buffer.clear();
+            }
+            buffer.putInt(off[i]);
+        }
+        crc.update(buffer.flip());
+        return crc.getValue();
+    }
+
     /**
      * Returns the indexed field name covered by this lexicon.
      *
@@ -1,14 +1,18 @@
 package com.github.oeuvres.alix.lucene.terms;
 
+import java.io.BufferedOutputStream;
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.foreign.Arena;
 import java.lang.foreign.MemorySegment;
 import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.BitSet;
+import java.util.List;
 import java.util.Objects;
 import java.util.function.IntConsumer;
 
@@ -16,7 +20,9 @@ import org.apache.lucene.index.FieldInfo;
 import org.apache.lucene.index.FieldInfos;
 import org.apache.lucene.index.Fields;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.ReaderUtil;
 import org.apache.lucene.index.TermVectors;
 import org.apache.lucene.index.Terms;
 import org.apache.lucene.index.TermsEnum;
@@ -52,6 +58,27 @@ import com.github.oeuvres.alix.util.Report;
  * int termId = dat.get(JAVA_INT, base + p * 4L);
  * }</pre>
  *
+ * <h2>Packed layout</h2>
+ * <p>
+ * {@link #buildPacked} writes a second, compressed format, detected by {@link #open} when its files
+ * are present:
+ * </p>
+ * <ul>
+ * <li><b>{@code <field>.rail.pak}</b> — blocks of {@link #BLOCK_SIZE} positions; each document starts
+ * a new block. Term ids are replaced by frequency ranks (rank 0 is {@link #NO_TERM}, rank 1 the most
+ * frequent term). A block is one byte of bit width {@code b}, then {@code n × b} bits of ranks, then
+ * the exceptions at the full vocabulary width. Ranks not fitting in {@code b} bits are stored as the
+ * escape value {@code 2^b - 1} and read from the exceptions in order (patched frame of reference).
+ * {@code b} is chosen per block to minimise its size. Bits are little-endian; 8 padding bytes end the
+ * file so that a decode is always one unaligned long read.</li>
+ * <li><b>{@code <field>.rail.pix}</b> — little-endian header, then the rank → term id table, the
+ * position start of each document, the first block of each document, and the byte offset of each
+ * block (the skip table).</li>
+ * </ul>
+ * <p>
+ * A random window is decoded from its first block, in O(window + {@link #BLOCK_SIZE}). On a Zipfian
+ * vocabulary, most blocks fit in 10–16 bits, for a file 2–3 times smaller than the raw format.
+ * </p>
  * <h2>Index requirements</h2>
  * <p>
  * The source field must have term vectors with positions stored.
@@ -92,6 +119,27 @@ public final class TermRail implements Closeable
 {
     /** Sentinel value stored at position gaps and unfilled slots. */
     public static final int NO_TERM = 0;
+    /** Count of positions in one block of the packed format. */
+    public static final int BLOCK_SIZE = 128;
+    /** Packed index magic, "ARPX" read little-endian. */
+    private static final int PACKED_MAGIC = 0x58505241;
+    /** Packed format version. */
+    private static final int PACKED_VERSION = 1;
+    /** Byte size of the packed index header. */
+    private static final int PACKED_HEADER = 48;
+    /** Little-endian int layout of the packed files, independent from the platform. */
+    private static final ValueLayout.OfInt LE_INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    /** Little-endian long layout of the packed files, independent from the platform. */
+    private static final ValueLayout.OfLong LE_LONG = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    /** On-disk formats of a rail. */
+    public enum Format
+    {
+        /** One native-endian int per position, {@code <field>.rail.dat} and {@code <field>.rail.off}. */
+        RAW,
+        /** Frequency ranks bit-packed by blocks, {@code <field>.rail.pak} and {@code <field>.rail.pix}. */
+        PACKED
+    }
 
     private final Arena arena;
     private final MemorySegment dat;
@@ -100,6 +148,14 @@ public final class TermRail implements Closeable
     private final MemorySegment off;
     private final Path sideDir;
     private final long totalPositions;
+    /** Packed format: rank → term id, {@code null} for the raw format. */
+    private final int[] rank2termId;
+    /** Packed format: bit width of exceptions. */
+    private final int idBits;
+    /** Packed format: first block of each document, {@code long[docCount + 1]}. */
+    private final MemorySegment firstBlocks;
+    /** Packed format: byte offset of each block in the data segment, {@code long[blockCount + 1]}. */
+    private final MemorySegment blockOffsets;
 
     /**
      * Creates an opened rail backed by arena-owned mapped segments.
@@ -120,6 +176,37 @@ public final class TermRail implements Closeable
         final Arena arena,
         final MemorySegment dat,
         final MemorySegment off
+    ) {
+        this(sideDir, field, docCount, totalPositions, arena, dat, off, null, 0, null, null);
+    }
+
+    /**
+     * Creates an opened rail of any format.
+     *
+     * @param sideDir directory containing the rail files
+     * @param field indexed field name covered by this rail
+     * @param docCount number of documents represented
+     * @param totalPositions total number of position slots across all documents
+     * @param arena shared arena owning the mappings
+     * @param dat mapped data segment ({@code .rail.dat} or {@code .rail.pak})
+     * @param off document starts, in bytes (raw) or in positions (packed)
+     * @param rank2termId packed rank → term id table, {@code null} for the raw format
+     * @param idBits packed exception width
+     * @param firstBlocks packed first block of each document
+     * @param blockOffsets packed byte offset of each block
+     */
+    private TermRail(
+        final Path sideDir,
+        final String field,
+        final int docCount,
+        final long totalPositions,
+        final Arena arena,
+        final MemorySegment dat,
+        final MemorySegment off,
+        final int[] rank2termId,
+        final int idBits,
+        final MemorySegment firstBlocks,
+        final MemorySegment blockOffsets
     ) {
         this.sideDir = sideDir;
         this.field = field;
@@ -128,6 +215,10 @@ public final class TermRail implements Closeable
         this.arena = arena;
         this.dat = dat;
         this.off = off;
+        this.rank2termId = rank2termId;
+        this.idBits = idBits;
+        this.firstBlocks = firstBlocks;
+        this.blockOffsets = blockOffsets;
     }
 
     /**
@@ -210,40 +301,8 @@ public final class TermRail implements Closeable
                 final int docWidth = docWidths[docId];
                 if (docWidth == 0)
                     continue;
-                final Fields fields = termVectors.get(docId);
-                if (fields == null)
+                if (!readDocument(termVectors, docId, docWidth, field, lexicon, rail))
                     continue;
-                final Terms terms = fields.terms(field);
-                if (terms == null)
-                    continue;
-                if (!terms.hasPositions()) {
-                    throw new IllegalArgumentException(
-                            "field \"" + field + "\" term vectors for docId=" + docId + " have no positions");
-                }
-                Arrays.fill(rail, 0, docWidth, NO_TERM);
-                final TermsEnum termsEnum = terms.iterator();
-                BytesRef term;
-                while ((term = termsEnum.next()) != null) {
-                    final int termId = lexicon.id(term);
-                    final PostingsEnum postings = termsEnum.postings(null, PostingsEnum.POSITIONS);
-                    postings.nextDoc();
-                    final int freq = postings.freq();
-                    for (int i = 0; i < freq; i++) {
-                        final int pos = postings.nextPosition();
-                        if (pos < 0 || pos >= docWidth) {
-                            throw new IllegalStateException(
-                                    "term-vector position out of range: docId=" + docId + ", pos=" + pos + ", docWidth="
-                                            + docWidth + ", term=" + term.utf8ToString());
-                        }
-                        if (rail[pos] != NO_TERM) {
-                            throw new IllegalStateException(
-                                    "stacked token at docId=" + docId + ", pos=" + pos + ": existing termId="
-                                            + rail[pos] + ", new termId=" + termId + ", new term="
-                                            + term.utf8ToString());
-                        }
-                        rail[pos] = termId;
-                    }
-                }
                 railWriter.put(offsets[docId], rail, 0, docWidth);
             }
         }
@@ -260,6 +319,324 @@ public final class TermRail implements Closeable
         }
     }
 
+    /**
+     * Builds the term-id rail for the given field in the requested format.
+     *
+     * @param reader index reader; field must have term vectors with positions
+     * @param sideDir directory for the output files
+     * @param field indexed field name
+     * @param lexicon term lexicon mapping terms to dense ids; id {@link #NO_TERM} is reserved
+     * @param format on-disk format
+     * @param report progress reporter; {@code null} accepted, mapped to a no-op reporter
+     * @throws IOException on I/O failure
+     * @see #build(IndexReader, Path, String, TermLexicon, Report)
+     * @see #buildPacked(IndexReader, Path, String, TermLexicon, Report)
+     */
+    public static void build(
+        final IndexReader reader,
+        final Path sideDir,
+        final String field,
+        final TermLexicon lexicon,
+        final Format format,
+        final Report report
+    ) throws IOException {
+        if (format == Format.PACKED) {
+            buildPacked(reader, sideDir, field, lexicon, report);
+        }
+        else {
+            build(reader, sideDir, field, lexicon, report);
+        }
+    }
+
+    /**
+     * Builds the packed term-id rail for the given field and writes it to disk.
+     * <p>
+     * Produces {@code <field>.rail.pak} and {@code <field>.rail.pix} under {@code sideDir} (see the
+     * class documentation for the layout), written to temporary paths first and renamed on success.
+     * Same sources and checks as {@link #build(IndexReader, Path, String, TermLexicon, Report)}, plus
+     * one pass over the field terms for the frequency ranks.
+     * </p>
+     *
+     * @param reader index reader; field must have term vectors with positions
+     * @param sideDir directory for the output files
+     * @param field indexed field name
+     * @param lexicon term lexicon mapping terms to dense ids; id {@link #NO_TERM} is reserved
+     * @param report progress reporter; {@code null} accepted, mapped to a no-op reporter
+     * @throws IOException on I/O failure
+     * @throws IllegalArgumentException if the field has no term vectors, or term vectors for some
+     * document have no positions
+     * @throws IllegalStateException if a document has stacked tokens or term-vector positions outside
+     * its postings-derived width
+     * @throws NullPointerException if {@code reader}, {@code sideDir}, {@code field}, or
+     * {@code lexicon} is {@code null}
+     */
+    public static void buildPacked(
+        final IndexReader reader,
+        final Path sideDir,
+        final String field,
+        final TermLexicon lexicon,
+        Report report
+    )
+        throws IOException {
+        Objects.requireNonNull(reader, "reader");
+        Objects.requireNonNull(sideDir, "sideDir");
+        Objects.requireNonNull(field, "field");
+        Objects.requireNonNull(lexicon, "lexicon");
+        if (report == null)
+            report = Report.ReportNull.INSTANCE;
+
+        final FieldInfo fi = FieldInfos.getMergedFieldInfos(reader).fieldInfo(field);
+        if (fi == null || !fi.hasTermVectors()) {
+            throw new IllegalArgumentException("field \"" + field + "\" has no term vectors");
+        }
+
+        final int maxDoc = reader.maxDoc();
+        final BitSet liveDocs = TermStats.liveDocs(reader);
+        final int[] docWidths = TermStats.docWidths(reader, field, report);
+        for (int docId = 0; docId < maxDoc; docId++) {
+            if (docWidths[docId] <= 0 || !liveDocs.get(docId)) {
+                docWidths[docId] = 0;
+            }
+        }
+        final int vocabSize = lexicon.vocabSize();
+        final TermStats.VocabCounts counts = TermStats.vocabCounts(reader, field, report);
+        if (counts.vocabSize() != vocabSize) {
+            throw new IllegalStateException(
+                "vocabulary size mismatch: lexicon=" + vocabSize + ", postings=" + counts.vocabSize());
+        }
+        final TermVectors termVectors = reader.termVectors();
+        writePacked(sideDir, field, docWidths, counts,
+            (docId, docWidth, rail) -> readDocument(termVectors, docId, docWidth, field, lexicon, rail), report);
+    }
+
+    /**
+     * Fills the term ids of one document, for {@link #writePacked}.
+     */
+    @FunctionalInterface
+    private interface DocumentSource
+    {
+        /**
+         * @param docId Lucene doc id
+         * @param docWidth slot count of the document
+         * @param rail destination, with capacity at least {@code docWidth}
+         * @return {@code false} if the document has no rail, destination untouched
+         * @throws IOException on read failure
+         */
+        boolean read(int docId, int docWidth, int[] rail) throws IOException;
+    }
+
+    /**
+     * Writes the packed files of one field, shared by {@link #buildPacked} and {@link #merge}.
+     *
+     * @param sideDir directory for the output files
+     * @param field indexed field name
+     * @param docWidths slot count by doc id, {@code 0} for an empty or deleted document
+     * @param counts field occurrences by term id, for the frequency ranks
+     * @param source term ids of a document
+     * @param report progress reporter
+     * @throws IOException on I/O failure
+     */
+    private static void writePacked(
+        final Path sideDir,
+        final String field,
+        final int[] docWidths,
+        final TermStats.VocabCounts counts,
+        final DocumentSource source,
+        final Report report
+    ) throws IOException {
+        final Path pakFinal = pakPath(sideDir, field);
+        final Path pixFinal = pixPath(sideDir, field);
+        IOUtil.ensureAbsent(pakFinal);
+        IOUtil.ensureAbsent(pixFinal);
+        final Path pakTmp = IOUtil.tmpPath(pakFinal);
+        final Path pixTmp = IOUtil.tmpPath(pixFinal);
+        IOUtil.deleteIfExists(pakTmp);
+        IOUtil.deleteIfExists(pixTmp);
+
+        final int maxDoc = docWidths.length;
+        final int vocabSize = counts.vocabSize();
+        final int[] rank2termId = frequencyRanks(counts.termCounts(), vocabSize);
+        final int[] termId2rank = new int[vocabSize];
+        for (int rank = 0; rank < vocabSize; rank++) {
+            termId2rank[rank2termId[rank]] = rank;
+        }
+        final int idBits = Math.max(1, Integer.SIZE - Integer.numberOfLeadingZeros(vocabSize - 1));
+
+        int widthMax = 0;
+        long totalPositions = 0L;
+        long blockCount = 0L;
+        final long[] posStarts = new long[maxDoc + 1];
+        final long[] firstBlocks = new long[maxDoc + 1];
+        for (int docId = 0; docId < maxDoc; docId++) {
+            posStarts[docId] = totalPositions;
+            firstBlocks[docId] = blockCount;
+            if (docWidths[docId] > widthMax)
+                widthMax = docWidths[docId];
+            totalPositions += docWidths[docId];
+            blockCount += (docWidths[docId] + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        }
+        posStarts[maxDoc] = totalPositions;
+        firstBlocks[maxDoc] = blockCount;
+        if (blockCount >= Integer.MAX_VALUE) {
+            throw new IllegalStateException("too many rail blocks: " + blockCount);
+        }
+        final long[] blockOffsets = new long[(int) blockCount + 1];
+
+        long dataBytes = 0L;
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(pakTmp), 1 << 16)) {
+                final int[] rail = new int[widthMax];
+                final BlockPacker packer = new BlockPacker(idBits);
+                int block = 0;
+                for (int docId = 0; docId < maxDoc; docId++) {
+                    final int docWidth = docWidths[docId];
+                    if (docWidth == 0)
+                        continue;
+                    if (!source.read(docId, docWidth, rail)) {
+                        Arrays.fill(rail, 0, docWidth, NO_TERM);
+                    }
+                    for (int pos = 0; pos < docWidth; pos++) {
+                        rail[pos] = termId2rank[rail[pos]];
+                    }
+                    for (int from = 0; from < docWidth; from += BLOCK_SIZE) {
+                        blockOffsets[block++] = dataBytes;
+                        final int len = packer.pack(rail, from, Math.min(BLOCK_SIZE, docWidth - from));
+                        out.write(packer.bytes(), 0, len);
+                        dataBytes += len;
+                    }
+                }
+                blockOffsets[block] = dataBytes;
+                out.write(new byte[Long.BYTES]);
+            }
+
+            final long sectionStart = align8(PACKED_HEADER + (long) vocabSize * Integer.BYTES);
+            final long pixBytes = sectionStart + (2L * (maxDoc + 1) + blockOffsets.length) * Long.BYTES;
+            try (NumWriter pix = NumWriter.open(pixTmp, pixBytes, ByteOrder.LITTLE_ENDIAN)) {
+                pix.put(0L, PACKED_MAGIC);
+                pix.put(4L, PACKED_VERSION);
+                pix.put(8L, maxDoc);
+                pix.put(12L, vocabSize);
+                pix.put(16L, idBits);
+                pix.put(20L, BLOCK_SIZE);
+                pix.put(24L, totalPositions);
+                pix.put(32L, blockCount);
+                pix.put(40L, dataBytes);
+                pix.put(PACKED_HEADER, rank2termId, 0, vocabSize);
+                long pos = sectionStart;
+                pix.put(pos, posStarts, 0, posStarts.length);
+                pos += (long) posStarts.length * Long.BYTES;
+                pix.put(pos, firstBlocks, 0, firstBlocks.length);
+                pos += (long) firstBlocks.length * Long.BYTES;
+                pix.put(pos, blockOffsets, 0, blockOffsets.length);
+            }
+            IOUtil.moveTemp(pakTmp, pakFinal);
+            IOUtil.moveTemp(pixTmp, pixFinal);
+        } catch (IOException | RuntimeException e) {
+            IOUtil.deleteIfExists(pakTmp);
+            IOUtil.deleteIfExists(pixTmp);
+            IOUtil.deleteIfExists(pakFinal);
+            IOUtil.deleteIfExists(pixFinal);
+            throw e;
+        }
+        report.info(field + " packed rail: " + totalPositions + " positions, " + dataBytes + " bytes ("
+            + ((totalPositions == 0) ? 0 : (dataBytes * 8 / totalPositions)) + " bits/position)");
+    }
+
+    /**
+     * Fills the positional rail of one document from its term vector.
+     *
+     * @param termVectors term vectors of the reader
+     * @param docId Lucene doc id
+     * @param docWidth postings-derived width of the document
+     * @param field indexed field name
+     * @param lexicon term lexicon mapping terms to dense ids
+     * @param rail destination, with capacity at least {@code docWidth}
+     * @return {@code false} if the document has no term vector for the field, rail untouched
+     * @throws IOException on term-vector read failure
+     * @throws IllegalArgumentException if term vectors have no positions
+     * @throws IllegalStateException on stacked tokens or positions outside the width
+     */
+    private static boolean readDocument(
+        final TermVectors termVectors,
+        final int docId,
+        final int docWidth,
+        final String field,
+        final TermLexicon lexicon,
+        final int[] rail
+    ) throws IOException {
+        final Fields fields = termVectors.get(docId);
+        if (fields == null)
+            return false;
+        final Terms terms = fields.terms(field);
+        if (terms == null)
+            return false;
+        if (!terms.hasPositions()) {
+            throw new IllegalArgumentException(
+                    "field \"" + field + "\" term vectors for docId=" + docId + " have no positions");
+        }
+        Arrays.fill(rail, 0, docWidth, NO_TERM);
+        final TermsEnum termsEnum = terms.iterator();
+        BytesRef term;
+        while ((term = termsEnum.next()) != null) {
+            final int termId = lexicon.id(term);
+            final PostingsEnum postings = termsEnum.postings(null, PostingsEnum.POSITIONS);
+            postings.nextDoc();
+            final int freq = postings.freq();
+            for (int i = 0; i < freq; i++) {
+                final int pos = postings.nextPosition();
+                if (pos < 0 || pos >= docWidth) {
+                    throw new IllegalStateException(
+                            "term-vector position out of range: docId=" + docId + ", pos=" + pos + ", docWidth="
+                                    + docWidth + ", term=" + term.utf8ToString());
+                }
+                if (rail[pos] != NO_TERM) {
+                    throw new IllegalStateException(
+                            "stacked token at docId=" + docId + ", pos=" + pos + ": existing termId="
+                                    + rail[pos] + ", new termId=" + termId + ", new term="
+                                    + term.utf8ToString());
+                }
+                rail[pos] = termId;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Orders term ids by decreasing field frequency, ties by term id; rank 0 stays {@link #NO_TERM}.
+     *
+     * @param termCounts field occurrences by term id
+     * @param vocabSize vocabulary size
+     * @return rank → term id
+     */
+    private static int[] frequencyRanks(final long[] termCounts, final int vocabSize)
+    {
+        final Integer[] ids = new Integer[Math.max(0, vocabSize - 1)];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i + 1;
+        }
+        Arrays.sort(ids, (a, b) -> {
+            final int cmp = Long.compare(termCounts[b], termCounts[a]);
+            return (cmp != 0) ? cmp : Integer.compare(a, b);
+        });
+        final int[] rank2termId = new int[vocabSize];
+        rank2termId[0] = NO_TERM;
+        for (int i = 0; i < ids.length; i++) {
+            rank2termId[i + 1] = ids[i];
+        }
+        return rank2termId;
+    }
+
+    /**
+     * Rounds a byte size up to a multiple of 8.
+     *
+     * @param bytes byte size
+     * @return aligned size
+     */
+    private static long align8(final long bytes)
+    {
+        return (bytes + 7L) & ~7L;
+    }
+
     /**
      * Releases both memory-mapped rail files by closing their shared arena.
      * <p>
@@ -294,12 +671,19 @@ public final class TermRail implements Closeable
     ) {
         Objects.requireNonNull(destination, "destination");
         checkDocId(docId);
-        final long base = offset(docId);
-        final int docLen = (int) ((offset(docId + 1) - base) / Integer.BYTES);
+        final int docLen = docLen(docId);
         if (destination.length < docLen) {
             throw new IllegalArgumentException(
                 "destination too small: length=" + destination.length + ", docLen=" + docLen);
         }
+        if (rank2termId != null) {
+            final long first = firstBlock(docId);
+            for (int from = 0, k = 0; from < docLen; from += BLOCK_SIZE, k++) {
+                decodeBlock(first + k, Math.min(BLOCK_SIZE, docLen - from), destination, from);
+            }
+            return docLen;
+        }
+        final long base = offset(docId);
         for (int position = 0; position < docLen; position++) {
             destination[position] = dat.get(
                 ValueLayout.JAVA_INT_UNALIGNED,
@@ -328,25 +712,65 @@ public final class TermRail implements Closeable
         final int docId
     ) {
         checkDocId(docId);
-        return (int) ((offset(docId + 1) - offset(docId)) / Integer.BYTES);
+        return docLen(docId);
     }
 
     /**
-     * Tests whether both rail files for the given field exist as regular files. Presence check only;
-     * does not validate sizes, offsets, or modification times.
+     * Deletes the rail files of both formats for the given field, if present. A rail already opened on
+     * these files keeps its mappings valid until closed.
      *
      * @param sideDir directory containing the rail files
      * @param field indexed field name
-     * @return {@code true} if both files exist as regular files
+     * @throws IOException if a file cannot be deleted
+     */
+    static void delete(
+        final Path sideDir,
+        final String field
+    ) throws IOException {
+        Files.deleteIfExists(datPath(sideDir, field));
+        Files.deleteIfExists(offPath(sideDir, field));
+        Files.deleteIfExists(pakPath(sideDir, field));
+        Files.deleteIfExists(pixPath(sideDir, field));
+    }
+
+    /**
+     * Tests whether both rail files of one format for the given field exist as regular files. Presence
+     * check only; does not validate sizes, offsets, or modification times.
+     *
+     * @param sideDir directory containing the rail files
+     * @param field indexed field name
+     * @return {@code true} if both files of the raw or of the packed format exist as regular files
      * @throws NullPointerException if {@code sideDir} or {@code field} is {@code null}
      */
     public static boolean exists(
         final Path sideDir,
         final String field
+    ) {
+        return format(sideDir, field) != null;
+    }
+
+    /**
+     * Detects the format of the rail files present for the given field. The packed format wins when
+     * both are present.
+     *
+     * @param sideDir directory containing the rail files
+     * @param field indexed field name
+     * @return format found, or {@code null} if no complete pair of files exists
+     * @throws NullPointerException if {@code sideDir} or {@code field} is {@code null}
+     */
+    public static Format format(
+        final Path sideDir,
+        final String field
     ) {
         Objects.requireNonNull(sideDir, "sideDir");
         Objects.requireNonNull(field, "field");
-        return Files.isRegularFile(datPath(sideDir, field)) && Files.isRegularFile(offPath(sideDir, field));
+        if (Files.isRegularFile(pakPath(sideDir, field)) && Files.isRegularFile(pixPath(sideDir, field))) {
+            return Format.PACKED;
+        }
+        if (Files.isRegularFile(datPath(sideDir, field)) && Files.isRegularFile(offPath(sideDir, field))) {
+            return Format.RAW;
+        }
+        return null;
     }
 
     /**
@@ -358,9 +782,154 @@ public final class TermRail implements Closeable
         return field;
     }
 
+    /**
+     * Returns the on-disk format of this rail.
+     *
+     * @return format
+     */
+    public Format format() {
+        return (rank2termId != null) ? Format.PACKED : Format.RAW;
+    }
+
+    /**
+     * Assembles the rail of a multi-segment reader from per-segment rails, without reading term
+     * vectors.
+     * <p>
+     * Each segment rail was built on its own leaf with segment-local term ids; {@code idMaps[i]} maps
+     * the local ids of leaf {@code i} to the dense ids of the merged lexicon. Documents deleted in
+     * {@code reader} get an empty slot, as in {@link #build(IndexReader, Path, String, TermLexicon,
+     * Report)}. A leaf without the field is given as a {@code null} rail. The assembled rail is written
+     * in the requested format, whatever the format of the segment rails; the packed format gets the
+     * frequency ranks of a full {@link #buildPacked}, so both give the same files. Files are written to
+     * temporary paths first and renamed on success.
+     * </p>
+     *
+     * @param reader multi-segment reader, whose leaves are in the order of {@code segments}
+     * @param sideDir directory for the output files
+     * @param field indexed field name
+     * @param segments per-leaf rails, {@code null} for a leaf without the field
+     * @param idMaps per-leaf local id → merged id tables, {@code null} for a leaf without the field
+     * @param format format of the assembled rail
+     * @param counts field occurrences by merged term id, for the packed ranks
+     * @param report progress reporter; {@code null} accepted, mapped to a no-op reporter
+     * @throws IOException on I/O failure, or if a segment rail does not match its leaf
+     */
+    static void merge(
+        final IndexReader reader,
+        final Path sideDir,
+        final String field,
+        final TermRail[] segments,
+        final int[][] idMaps,
+        final Format format,
+        final TermStats.VocabCounts counts,
+        Report report
+    ) throws IOException {
+        final List<LeafReaderContext> leaves = reader.leaves();
+        if (segments.length != leaves.size() || idMaps.length != leaves.size()) {
+            throw new IllegalArgumentException(
+                "segments=" + segments.length + ", idMaps=" + idMaps.length + ", leaves=" + leaves.size());
+        }
+        if (report == null)
+            report = Report.ReportNull.INSTANCE;
+        final int maxDoc = reader.maxDoc();
+        final BitSet liveDocs = TermStats.liveDocs(reader);
+        final int[] docWidths = new int[maxDoc];
+        int widthMax = 0;
+        for (int i = 0; i < segments.length; i++) {
+            final LeafReaderContext ctx = leaves.get(i);
+            final TermRail segment = segments[i];
+            final int leafDocs = ctx.reader().maxDoc();
+            if (segment != null && segment.docCount() != leafDocs) {
+                throw new IOException(
+                    "segment rail docCount=" + segment.docCount() + " != leaf maxDoc=" + leafDocs
+                        + " at docBase=" + ctx.docBase);
+            }
+            if (segment == null)
+                continue;
+            for (int localId = 0; localId < leafDocs; localId++) {
+                final int docId = ctx.docBase + localId;
+                if (!liveDocs.get(docId))
+                    continue;
+                final int docLen = segment.docLength(localId);
+                if (docLen > widthMax)
+                    widthMax = docLen;
+                docWidths[docId] = docLen;
+            }
+        }
+
+        if (format == Format.PACKED) {
+            writePacked(sideDir, field, docWidths, counts, (docId, docWidth, rail) -> {
+                final int i = ReaderUtil.subIndex(docId, leaves);
+                segments[i].copyDocument(docId - leaves.get(i).docBase, rail);
+                final int[] idMap = idMaps[i];
+                for (int position = 0; position < docWidth; position++) {
+                    rail[position] = idMap[rail[position]];
+                }
+                return true;
+            }, report);
+            return;
+        }
+
+        final long[] offsets = new long[maxDoc + 1];
+        long totalBytes = 0L;
+        for (int docId = 0; docId < maxDoc; docId++) {
+            offsets[docId] = totalBytes;
+            totalBytes += (long) docWidths[docId] * Integer.BYTES;
+        }
+        offsets[maxDoc] = totalBytes;
+
+        final Path offFinal = offPath(sideDir, field);
+        final Path datFinal = datPath(sideDir, field);
+        IOUtil.ensureAbsent(offFinal);
+        IOUtil.ensureAbsent(datFinal);
+        final Path offTmp = IOUtil.tmpPath(offFinal);
+        final Path datTmp = IOUtil.tmpPath(datFinal);
+        IOUtil.deleteIfExists(offTmp);
+        IOUtil.deleteIfExists(datTmp);
+
+        try {
+            try (NumWriter offsetsWriter = NumWriter.open(offTmp, (long) offsets.length * Long.BYTES)) {
+                offsetsWriter.put(0L, offsets, 0, offsets.length);
+            }
+            try (NumWriter railWriter = NumWriter.open(datTmp, totalBytes)) {
+                final int[] rail = new int[widthMax];
+                for (int i = 0; i < segments.length; i++) {
+                    final TermRail segment = segments[i];
+                    if (segment == null)
+                        continue;
+                    final int[] idMap = idMaps[i];
+                    final int docBase = leaves.get(i).docBase;
+                    for (int localId = 0; localId < segment.docCount(); localId++) {
+                        final int docId = docBase + localId;
+                        final int docLen = docWidths[docId];
+                        if (docLen == 0)
+                            continue;
+                        segment.copyDocument(localId, rail);
+                        for (int position = 0; position < docLen; position++) {
+                            rail[position] = idMap[rail[position]];
+                        }
+                        railWriter.put(offsets[docId], rail, 0, docLen);
+                    }
+                }
+            }
+            IOUtil.moveTemp(datTmp, datFinal);
+            IOUtil.moveTemp(offTmp, offFinal);
+        } catch (IOException | RuntimeException e) {
+            IOUtil.deleteIfExists(datTmp);
+            IOUtil.deleteIfExists(offTmp);
+            IOUtil.deleteIfExists(datFinal);
+            IOUtil.deleteIfExists(offFinal);
+            throw e;
+        }
+    }
+
     /**
      * Opens an existing rail from disk and validates structural consistency.
      * <p>
+     * The format is auto-detected with {@link #format(Path, String)}; the checks below are those of
+     * the raw format, see {@link #openPacked(Path, String)} for the packed one.
+     * </p>
+     * <p>
      * Both rail files are mapped read-only into one shared arena. Closing the returned rail closes
      * that arena and unmaps both files. No data is loaded eagerly.
      * </p>
@@ -388,6 +957,9 @@ public final class TermRail implements Closeable
     ) throws IOException {
         Objects.requireNonNull(sideDir, "sideDir");
         Objects.requireNonNull(field, "field");
+        if (format(sideDir, field) == Format.PACKED) {
+            return openPacked(sideDir, field);
+        }
 
         final Path datPath = datPath(sideDir, field);
         final Path offPath = offPath(sideDir, field);
@@ -438,6 +1010,95 @@ public final class TermRail implements Closeable
         }
     }
 
+    /**
+     * Opens an existing packed rail from disk and validates structural consistency.
+     * <p>
+     * Both files are mapped read-only into one shared arena; the rank → term id table is copied on
+     * heap. Checks performed: magic and version, block size, file sizes against the header,
+     * {@code posStart[0] == 0}, {@code posStart[last] == totalPositions},
+     * {@code firstBlock[last] == blockCount}, last block offset equal to the data bytes, sampled
+     * monotonicity of the three tables.
+     * </p>
+     *
+     * @param sideDir directory containing the rail files
+     * @param field indexed field name
+     * @return opened rail; caller must {@link #close()} it when done
+     * @throws IOException if files are missing or structurally inconsistent
+     */
+    private static TermRail openPacked(
+        final Path sideDir,
+        final String field
+    ) throws IOException {
+        final Path pakPath = pakPath(sideDir, field);
+        final Path pixPath = pixPath(sideDir, field);
+        IOUtil.ensureRegularFile(pakPath);
+        IOUtil.ensureRegularFile(pixPath);
+
+        final Arena arena = Arena.ofShared();
+        try {
+            final MemorySegment pix = IOUtil.mapReadOnly(pixPath, arena);
+            final MemorySegment pak = IOUtil.mapReadOnly(pakPath, arena);
+            if (pix.byteSize() < PACKED_HEADER
+                    || pix.get(LE_INT, 0L) != PACKED_MAGIC
+                    || pix.get(LE_INT, 4L) != PACKED_VERSION) {
+                throw new IOException("not a packed rail index, or unknown version: " + pixPath);
+            }
+            final int docCount = pix.get(LE_INT, 8L);
+            final int vocabSize = pix.get(LE_INT, 12L);
+            final int idBits = pix.get(LE_INT, 16L);
+            final int blockSize = pix.get(LE_INT, 20L);
+            final long totalPositions = pix.get(LE_LONG, 24L);
+            final long blockCount = pix.get(LE_LONG, 32L);
+            final long dataBytes = pix.get(LE_LONG, 40L);
+            if (docCount < 0 || vocabSize < 1 || idBits < 1 || idBits > Integer.SIZE - 1
+                    || blockCount < 0 || blockCount >= Integer.MAX_VALUE) {
+                throw new IOException("bad packed rail header in " + pixPath);
+            }
+            if (blockSize != BLOCK_SIZE) {
+                throw new IOException("packed rail block size " + blockSize + " != " + BLOCK_SIZE + " in " + pixPath);
+            }
+            final long sectionStart = align8(PACKED_HEADER + (long) vocabSize * Integer.BYTES);
+            final long docBytes = (docCount + 1L) * Long.BYTES;
+            final long blockBytes = (blockCount + 1L) * Long.BYTES;
+            if (pix.byteSize() != sectionStart + 2 * docBytes + blockBytes) {
+                throw new IOException("packed rail index size mismatch: " + pixPath);
+            }
+            if (pak.byteSize() != dataBytes + Long.BYTES) {
+                throw new IOException(
+                    "packed rail data size mismatch: " + pak.byteSize() + " != " + (dataBytes + Long.BYTES)
+                        + " in " + pakPath);
+            }
+
+            final int[] rank2termId = new int[vocabSize];
+            MemorySegment.copy(pix, LE_INT, PACKED_HEADER, rank2termId, 0, vocabSize);
+            final MemorySegment posStarts = pix.asSlice(sectionStart, docBytes);
+            final MemorySegment firstBlocks = pix.asSlice(sectionStart + docBytes, docBytes);
+            final MemorySegment blockOffsets = pix.asSlice(sectionStart + 2 * docBytes, blockBytes);
+
+            if (posStarts.get(LE_LONG, 0L) != 0L
+                    || posStarts.get(LE_LONG, (long) docCount * Long.BYTES) != totalPositions) {
+                throw new IOException("packed rail position table inconsistent in " + pixPath);
+            }
+            if (firstBlocks.get(LE_LONG, (long) docCount * Long.BYTES) != blockCount) {
+                throw new IOException("packed rail first-block table inconsistent in " + pixPath);
+            }
+            if (blockOffsets.get(LE_LONG, blockCount * Long.BYTES) != dataBytes) {
+                throw new IOException("packed rail block table inconsistent in " + pixPath);
+            }
+            validateMonotonic(posStarts, docCount + 1, pixPath);
+            validateMonotonic(firstBlocks, docCount + 1, pixPath);
+            validateMonotonic(blockOffsets, (int) blockCount + 1, pixPath);
+
+            return new TermRail(
+                sideDir, field, docCount, totalPositions, arena,
+                pak, posStarts, rank2termId, idBits, firstBlocks, blockOffsets);
+        }
+        catch (IOException | RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+    }
+
     /**
      * Iterates the set bits of {@code positions} in ascending order within the document and feeds each
      * non-{@link #NO_TERM} term id to {@code sink}.
@@ -463,10 +1124,21 @@ public final class TermRail implements Closeable
         Objects.requireNonNull(positions, "positions");
         Objects.requireNonNull(sink, "sink");
         checkDocId(docId);
-        final long base = offset(docId);
-        final int docLen = (int) ((offset(docId + 1) - base) / Integer.BYTES);
+        final int docLen = docLen(docId);
         if (docLen == 0)
             return;
+        if (rank2termId != null) {
+            final long first = firstBlock(docId);
+            int p = positions.nextSetBit(0);
+            while (p >= 0 && p < docLen) {
+                final int blockStart = p - p % BLOCK_SIZE;
+                final int n = Math.min(BLOCK_SIZE, docLen - blockStart);
+                scanBlock(first + blockStart / BLOCK_SIZE, n, blockStart, positions, sink);
+                p = positions.nextSetBit(blockStart + n);
+            }
+            return;
+        }
+        final long base = offset(docId);
         for (int p = positions.nextSetBit(0); p >= 0 && p < docLen; p = positions.nextSetBit(p + 1)) {
             final int id = dat.get(ValueLayout.JAVA_INT_UNALIGNED, base + (long) p * Integer.BYTES);
             if (id != NO_TERM)
@@ -500,10 +1172,22 @@ public final class TermRail implements Closeable
     ) {
         Objects.requireNonNull(sink, "sink");
         checkDocId(docId);
-        final long base = offset(docId);
-        final int docLen = (int) ((offset(docId + 1) - base) / Integer.BYTES);
+        final int docLen = docLen(docId);
         final int lo = Math.max(0, startPosition);
         final int hi = Math.min(docLen, endPosition);
+        if (rank2termId != null) {
+            if (lo >= hi)
+                return;
+            final long first = firstBlock(docId);
+            for (int k = lo / BLOCK_SIZE, kEnd = (hi - 1) / BLOCK_SIZE; k <= kEnd; k++) {
+                final int blockStart = k * BLOCK_SIZE;
+                scanBlock(
+                    first + k, Math.min(BLOCK_SIZE, docLen - blockStart),
+                    Math.max(lo, blockStart) - blockStart, Math.min(hi, blockStart + BLOCK_SIZE) - blockStart, sink);
+            }
+            return;
+        }
+        final long base = offset(docId);
         for (int p = lo; p < hi; p++) {
             final int id = dat.get(ValueLayout.JAVA_INT_UNALIGNED, base + (long) p * Integer.BYTES);
             if (id != NO_TERM)
@@ -533,18 +1217,22 @@ public final class TermRail implements Closeable
         final int position
     ) {
         checkDocId(docId);
-        final long base = offset(docId);
-        final int docLen = (int) ((offset(docId + 1) - base) / Integer.BYTES);
+        final int docLen = docLen(docId);
         if (position < 0 || position >= docLen) {
             throw new IllegalArgumentException(
                     "position " + position + " out of range (docLen=" + docLen + ", docId=" + docId + ")");
         }
+        if (rank2termId != null) {
+            final int k = position / BLOCK_SIZE;
+            return decodeOne(firstBlock(docId) + k, Math.min(BLOCK_SIZE, docLen - k * BLOCK_SIZE), position - k * BLOCK_SIZE);
+        }
+        final long base = offset(docId);
         return dat.get(ValueLayout.JAVA_INT_UNALIGNED, base + (long) position * Integer.BYTES);
     }
 
     /**
-     * Returns the total number of int position slots across all documents, including {@link #NO_TERM}
-     * gap slots. Equal to {@code dat byte size / Integer.BYTES}.
+     * Returns the total number of position slots across all documents, including {@link #NO_TERM}
+     * gap slots. Equal to {@code dat byte size / Integer.BYTES} for the raw format.
      *
      * @return total position slot count
      */
@@ -567,6 +1255,203 @@ public final class TermRail implements Closeable
         }
     }
 
+    /**
+     * Decodes one block of the packed format into term ids.
+     *
+     * @param block global block index
+     * @param n count of positions in the block
+     * @param dst destination array
+     * @param dstOff first index written in {@code dst}
+     */
+    private void decodeBlock(
+        final long block,
+        final int n,
+        final int[] dst,
+        final int dstOff
+    ) {
+        final long start = blockOffsets.get(LE_LONG, block * Long.BYTES);
+        final int b = Byte.toUnsignedInt(dat.get(ValueLayout.JAVA_BYTE, start));
+        if (b == 0) {
+            Arrays.fill(dst, dstOff, dstOff + n, NO_TERM);
+            return;
+        }
+        final int escape = (b < idBits) ? (1 << b) - 1 : -1;
+        final long mask = (1L << b) - 1;
+        final long idMask = (1L << idBits) - 1;
+        long bitPos = (start + 1) << 3;
+        long excPos = bitPos + (long) n * b;
+        for (int i = 0; i < n; i++) {
+            int rank = (int) ((dat.get(LE_LONG, bitPos >>> 3) >>> (bitPos & 7)) & mask);
+            bitPos += b;
+            if (rank == escape) {
+                rank = (int) ((dat.get(LE_LONG, excPos >>> 3) >>> (excPos & 7)) & idMask);
+                excPos += idBits;
+            }
+            dst[dstOff + i] = rank2termId[rank];
+        }
+    }
+
+    /**
+     * Decodes one position of a block of the packed format, without decoding the block. The rank is
+     * read at its bit offset; only an escaped rank needs a count of the escapes before it, to find its
+     * exception.
+     *
+     * @param block global block index
+     * @param n count of positions in the block
+     * @param i position in the block, in {@code [0, n)}
+     * @return term id
+     */
+    private int decodeOne(
+        final long block,
+        final int n,
+        final int i
+    ) {
+        final long start = blockOffsets.get(LE_LONG, block * Long.BYTES);
+        final int b = Byte.toUnsignedInt(dat.get(ValueLayout.JAVA_BYTE, start));
+        if (b == 0)
+            return NO_TERM;
+        final int escape = (b < idBits) ? (1 << b) - 1 : -1;
+        final long mask = (1L << b) - 1;
+        final long bitStart = (start + 1) << 3;
+        int rank = bits(bitStart + (long) i * b, mask);
+        if (rank == escape) {
+            int skipped = 0;
+            for (int j = 0; j < i; j++) {
+                if (bits(bitStart + (long) j * b, mask) == escape)
+                    skipped++;
+            }
+            rank = bits(bitStart + (long) n * b + (long) skipped * idBits, (1L << idBits) - 1);
+        }
+        return rank2termId[rank];
+    }
+
+    /**
+     * Streams the term ids of a position range of one block of the packed format, without a buffer.
+     *
+     * @param block global block index
+     * @param n count of positions in the block
+     * @param from first position in the block (inclusive)
+     * @param to last position in the block (exclusive), at most {@code n}
+     * @param sink receives each non-{@link #NO_TERM} term id
+     */
+    private void scanBlock(
+        final long block,
+        final int n,
+        final int from,
+        final int to,
+        final IntConsumer sink
+    ) {
+        final long start = blockOffsets.get(LE_LONG, block * Long.BYTES);
+        final int b = Byte.toUnsignedInt(dat.get(ValueLayout.JAVA_BYTE, start));
+        if (b == 0)
+            return;
+        final int escape = (b < idBits) ? (1 << b) - 1 : -1;
+        final long mask = (1L << b) - 1;
+        final long idMask = (1L << idBits) - 1;
+        final long bitStart = (start + 1) << 3;
+        long excPos = bitStart + (long) n * b;
+        if (escape >= 0) {
+            for (int i = 0; i < from; i++) {
+                if (bits(bitStart + (long) i * b, mask) == escape)
+                    excPos += idBits;
+            }
+        }
+        for (int i = from; i < to; i++) {
+            int rank = bits(bitStart + (long) i * b, mask);
+            if (rank == escape) {
+                rank = bits(excPos, idMask);
+                excPos += idBits;
+            }
+            final int id = rank2termId[rank];
+            if (id != NO_TERM)
+                sink.accept(id);
+        }
+    }
+
+    /**
+     * Streams the term ids of the positions of one block of the packed format set in a bitset, without
+     * a buffer. Escapes are counted once, in one forward pass over the block.
+     *
+     * @param block global block index
+     * @param n count of positions in the block
+     * @param blockStart document position of the first slot of the block
+     * @param positions document positions to read
+     * @param sink receives each non-{@link #NO_TERM} term id, in ascending position order
+     */
+    private void scanBlock(
+        final long block,
+        final int n,
+        final int blockStart,
+        final BitSet positions,
+        final IntConsumer sink
+    ) {
+        final long start = blockOffsets.get(LE_LONG, block * Long.BYTES);
+        final int b = Byte.toUnsignedInt(dat.get(ValueLayout.JAVA_BYTE, start));
+        if (b == 0)
+            return;
+        final int escape = (b < idBits) ? (1 << b) - 1 : -1;
+        final long mask = (1L << b) - 1;
+        final long idMask = (1L << idBits) - 1;
+        final long bitStart = (start + 1) << 3;
+        long excPos = bitStart + (long) n * b;
+        // positions [0, counted) of the block have their escapes skipped in excPos
+        int counted = 0;
+        for (int p = positions.nextSetBit(blockStart); p >= 0 && p < blockStart + n; p = positions.nextSetBit(p + 1)) {
+            final int i = p - blockStart;
+            int rank = bits(bitStart + (long) i * b, mask);
+            if (rank == escape) {
+                for (; counted < i; counted++) {
+                    if (bits(bitStart + (long) counted * b, mask) == escape)
+                        excPos += idBits;
+                }
+                rank = bits(excPos, idMask);
+            }
+            final int id = rank2termId[rank];
+            if (id != NO_TERM)
+                sink.accept(id);
+        }
+    }
+
+    /**
+     * Reads a little-endian bit field of the packed data, as one unaligned long read (the file ends
+     * with 8 padding bytes).
+     *
+     * @param bitPos absolute bit position in the data segment
+     * @param mask {@code 2^width - 1}, width at most 31
+     * @return unsigned value
+     */
+    private int bits(
+        final long bitPos,
+        final long mask
+    ) {
+        return (int) ((dat.get(LE_LONG, bitPos >>> 3) >>> (bitPos & 7)) & mask);
+    }
+
+    /**
+     * Returns the slot count of one document, for any format.
+     *
+     * @param docId valid doc id
+     * @return slot count
+     */
+    private int docLen(
+        final int docId
+    ) {
+        final long len = offset(docId + 1) - offset(docId);
+        return (int) ((rank2termId != null) ? len : len / Integer.BYTES);
+    }
+
+    /**
+     * Returns the first block of one document in the packed format.
+     *
+     * @param docId valid doc id
+     * @return global block index
+     */
+    private long firstBlock(
+        final int docId
+    ) {
+        return firstBlocks.get(LE_LONG, (long) docId * Long.BYTES);
+    }
+
     /**
      * Resolves the path of the data file for one field.
      *
@@ -590,6 +1475,9 @@ public final class TermRail implements Closeable
     private long offset(
         final int index
     ) {
+        if (rank2termId != null) {
+            return off.get(LE_LONG, (long) index * Long.BYTES);
+        }
         return offset(off, index);
     }
 
@@ -621,6 +1509,34 @@ public final class TermRail implements Closeable
         return dir.resolve(field + ".rail.off");
     }
 
+    /**
+     * Resolves the path of the packed data file for one field.
+     *
+     * @param dir side directory
+     * @param field indexed field name
+     * @return path of {@code <field>.rail.pak} under {@code dir}
+     */
+    private static Path pakPath(
+        final Path dir,
+        final String field
+    ) {
+        return dir.resolve(field + ".rail.pak");
+    }
+
+    /**
+     * Resolves the path of the packed index file for one field.
+     *
+     * @param dir side directory
+     * @param field indexed field name
+     * @return path of {@code <field>.rail.pix} under {@code dir}
+     */
+    private static Path pixPath(
+        final Path dir,
+        final String field
+    ) {
+        return dir.resolve(field + ".rail.pix");
+    }
+
     /**
      * Verifies that sampled offsets are monotonically non-decreasing.
      * <p>
@@ -661,4 +1577,109 @@ public final class TermRail implements Closeable
             }
         }
     }
+
+    /**
+     * Encoder of one block of frequency ranks for the packed format, reused across blocks.
+     * The bit width minimising {@code n × b + exceptions × idBits} is found from a histogram of
+     * the rank widths.
+     */
+    private static final class BlockPacker
+    {
+        /** Exception width, bits needed by the highest rank. */
+        private final int idBits;
+        /** Output bytes of the last packed block. */
+        private final byte[] buf = new byte[1 + BLOCK_SIZE * Integer.BYTES + Long.BYTES];
+        /** Count of ranks by bit width. */
+        private final int[] widths = new int[Integer.SIZE + 1];
+        /** Count of ranks equal to {@code 2^width - 1}, by bit width. */
+        private final int[] ones = new int[Integer.SIZE + 1];
+        private int len;
+        private long acc;
+        private int accBits;
+
+        BlockPacker(final int idBits)
+        {
+            this.idBits = idBits;
+        }
+
+        /** Bytes of the last packed block, valid up to the length returned by {@link #pack}. */
+        byte[] bytes()
+        {
+            return buf;
+        }
+
+        /**
+         * Packs {@code n} ranks from {@code ranks[from]}.
+         *
+         * @return byte length of the block in {@link #bytes()}
+         */
+        int pack(final int[] ranks, final int from, final int n)
+        {
+            final int b = bestWidth(ranks, from, n);
+            len = 0;
+            acc = 0L;
+            accBits = 0;
+            buf[len++] = (byte) b;
+            if (b > 0) {
+                final int escape = (b < idBits) ? (1 << b) - 1 : -1;
+                for (int i = from, end = from + n; i < end; i++) {
+                    final int rank = ranks[i];
+                    write((escape >= 0 && rank >= escape) ? escape : rank, b);
+                }
+                if (escape >= 0) {
+                    for (int i = from, end = from + n; i < end; i++) {
+                        final int rank = ranks[i];
+                        if (rank >= escape)
+                            write(rank, idBits);
+                    }
+                }
+                while (accBits > 0) {
+                    buf[len++] = (byte) acc;
+                    acc >>>= 8;
+                    accBits -= 8;
+                }
+            }
+            return len;
+        }
+
+        /** Width 0 when all ranks are 0, otherwise the cheapest width in [1, idBits]. */
+        private int bestWidth(final int[] ranks, final int from, final int n)
+        {
+            Arrays.fill(widths, 0);
+            Arrays.fill(ones, 0);
+            for (int i = from, end = from + n; i < end; i++) {
+                final int rank = ranks[i];
+                final int w = Integer.SIZE - Integer.numberOfLeadingZeros(rank);
+                widths[w]++;
+                if (w > 0 && rank == (1 << w) - 1)
+                    ones[w]++;
+            }
+            if (widths[0] == n)
+                return 0;
+            int best = idBits;
+            long bestCost = (long) n * idBits;
+            long above = n - widths[0];
+            for (int b = 1; b < idBits; b++) {
+                above -= widths[b];
+                final long cost = (long) n * b + (above + ones[b]) * idBits;
+                if (cost < bestCost) {
+                    best = b;
+                    bestCost = cost;
+                }
+            }
+            return best;
+        }
+
+        /** Appends the {@code width} low bits of {@code value}, little-endian. */
+        private void write(final int value, final int width)
+        {
+            acc |= ((long) value) << accBits;
+            accBits += width;
+            while (accBits >= 8) {
+                buf[len++] = (byte) acc;
+                acc >>>= 8;
+                accBits -= 8;
+            }
+        }
+    }
 }
@@ -16,11 +16,17 @@ import com.github.oeuvres.alix.util.IOUtil;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.Closeable;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
@@ -100,9 +106,17 @@ import java.util.Objects;
  *
  * <h2>Performance model</h2>
  * <p>
- * {@link #open} loads all arrays into primitive heap arrays. Repeated per-document and
+ * By default {@link #open} loads all arrays into primitive heap arrays. Repeated per-document and
  * per-term lookups are faster on primitives than on memory-mapped buffers.
  * </p>
+ * <p>
+ * With {@link Backing#MAPPED}, the file is mapped read-only and the accessors read it in place,
+ * so many loaded indexes do not fill the old generation. The array methods ({@link #docTokens()},
+ * {@link #docWidths()}, {@link #termDocsRef()}, {@link #termFreqRef()}) then return a fresh heap
+ * copy at each call, which this instance does not retain; long-lived code, like {@link TopTerms},
+ * reads through the per-id accessors, which keep the arrays off heap. {@link Backing#AUTO} maps files bigger than
+ * 1/{@value #AUTO_HEAP_SHARE} of the maximum heap. A mapped instance must be {@link #close() closed}.
+ * </p>
  *
  * <h2>Preconditions</h2>
  * <ul>
@@ -110,8 +124,45 @@ import java.util.Objects;
  * <li>The field must store term frequencies (needed for {@code docTokens} and per-term stats).</li>
  * </ul>
  */
-public final class TermStats
+public final class TermStats implements Closeable
 {
+    /**
+     * Where the arrays of an opened statistics file live.
+     */
+    public enum Backing
+    {
+        /** Arrays copied into the Java heap. */
+        HEAP,
+        /** File mapped read-only, read in place. */
+        MAPPED,
+        /** {@link #MAPPED} for files bigger than a share of the maximum heap, else {@link #HEAP}. */
+        AUTO;
+        
+        /**
+         * Parses a configuration value, case-insensitive.
+         *
+         * @param value {@code heap}, {@code mapped} or {@code auto}; {@code null} for {@link #AUTO}
+         * @return backing
+         * @throws IllegalArgumentException if the value is unknown
+         */
+        public static Backing of(final String value)
+        {
+            if (value == null || value.isBlank()) {
+                return AUTO;
+            }
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+    
+    /** {@link Backing#AUTO} maps a file bigger than maxMemory / this share. */
+    public static final int AUTO_HEAP_SHARE = 64;
+    
+    /** Multi-byte layout of the file, big-endian as written by {@link DataOutputStream}. */
+    private static final ValueLayout.OfInt BE_INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    
+    /** See {@link #BE_INT}. */
+    private static final ValueLayout.OfLong BE_LONG = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    
     /** File magic: ASCII "FSTS". */
     private static final int MAGIC = 0x46535453;
     
@@ -127,24 +178,42 @@ public final class TermStats
     /** Lucene document-address space size for this frozen reader snapshot. */
     private final int maxDoc;
     
-    /** Per-document field width (max position + 1), indexed by global doc id; 0 for docs without the field. */
+    /** Arena of the mapped file; {@code null} on heap. */
+    private final Arena arena;
+    
+    /** Mapped file; {@code null} on heap, where the arrays are set. */
+    private final MemorySegment data;
+    
+    /** Byte offset of {@code docWidths} in {@link #data}. */
+    private final long docWidthsOffset;
+    
+    /** Byte offset of {@code docTokens} in {@link #data}. */
+    private final long docTokensOffset;
+    
+    /** Byte offset of {@code termDocs} in {@link #data}. */
+    private final long termDocsOffset;
+    
+    /** Byte offset of {@code termCounts} in {@link #data}. */
+    private final long termFreqOffset;
+    
+    /** Per-document field width (max position + 1), indexed by global doc id; 0 for docs without the field. {@code null} when mapped. */
     private final int[] docWidths;
     
     /** Width of the biggest document, useful to prepare a reusable vector by doc. */
     private final int maxWidth;
     
-    /** Per-document token count, indexed by global doc id; 0 for docs without the field. */
+    /** Per-document token count, indexed by global doc id; 0 for docs without the field. {@code null} when mapped. */
     private final int[] docTokens;
     
     /** Number of distinct terms in the field (id 0 is the absent-term sentinel). */
     final int vocabSize;
     
-    /** Per-term document frequencies, indexed by dense term id. */
+    /** Per-term document frequencies, indexed by dense term id. {@code null} when mapped. */
     private final int[] termDocs;
     
-    /** Per-term total occurrences in the field, indexed by dense term id. */
+    /** Per-term total occurrences in the field, indexed by dense term id. {@code null} when mapped. */
     protected final long[] termFreq;
-    
+
     /** Number of documents that contain at least one indexed token of the field. Derived. */
     private final int fieldDocs;
     
@@ -178,6 +247,10 @@ public final class TermStats
      * @param docs       derived: count of documents with at least one token
      * @param width      derived: sum of docWidths
      * @param tokens     derived: sum of docTokens
+     * @param arena      arena of the mapped file, {@code null} on heap
+     * @param data       mapped file, {@code null} on heap
+     * @param offsets    byte offsets in {@code data} of docWidths, docTokens, termDocs, termCounts;
+     *                   {@code null} on heap
      */
     private TermStats(
             final Path sideDir,
@@ -191,8 +264,17 @@ public final class TermStats
             final long[] termCounts,
             final int docs,
             final long width,
-            final long tokens)
+            final long tokens,
+            final Arena arena,
+            final MemorySegment data,
+            final long[] offsets)
     {
+        this.arena = arena;
+        this.data = data;
+        this.docWidthsOffset = (offsets == null) ? -1L : offsets[0];
+        this.docTokensOffset = (offsets == null) ? -1L : offsets[1];
+        this.termDocsOffset = (offsets == null) ? -1L : offsets[2];
+        this.termFreqOffset = (offsets == null) ? -1L : offsets[3];
         this.sideDir = sideDir;
         this.field = field;
         this.maxDoc = maxDoc;
@@ -211,16 +293,29 @@ public final class TermStats
      * Approximate heap footprint of the numeric arrays only.
      * Excludes object headers, references, field string and JVM-specific overheads.
      *
-     * @return approximate bytes used by per-doc and per-term arrays
+     * @return approximate bytes used by per-doc and per-term arrays, {@code 0} when mapped
      */
     public long arraysBytes()
     {
+        if (data != null)
+            return 0L;
         return (long) docWidths.length * Integer.BYTES
                 + (long) docTokens.length * Integer.BYTES
                 + (long) termDocs.length * Integer.BYTES
                 + (long) termFreq.length * Long.BYTES;
     }
     
+    /**
+     * Releases the mapping of a {@link Backing#MAPPED} instance; no-op on heap. Accessors must not
+     * be called afterwards.
+     */
+    @Override
+    public void close()
+    {
+        if (arena != null)
+            arena.close();
+    }
+    
     /**
      * Builds and persists the statistics file for one field from an already opened snapshot reader.
      * <p>
@@ -248,7 +343,36 @@ public final class TermStats
         final int maxDoc = reader.maxDoc();
         final DocStats d = docStats(reader, field, report);
         final VocabCounts t = vocabCounts(reader, field, report);
-        
+        write(sideDir, field, maxDoc, d, t);
+    }
+    
+    /**
+     * Deletes the statistics file of one field, if present.
+     *
+     * @param sideDir directory containing the stats file
+     * @param field   indexed field name
+     * @throws IOException if the file cannot be deleted
+     */
+    static void delete(final Path sideDir, final String field) throws IOException
+    {
+        Files.deleteIfExists(statsPath(sideDir, field));
+    }
+    
+    /**
+     * Persists already computed statistics as a {@code <field>.stats} file, atomically via a
+     * temporary path. Shared by {@link #build} and the per-segment assembly of
+     * {@link SegmentSidecars}, which computes the same arrays without a postings pass.
+     *
+     * @param sideDir directory that will receive the {@code <field>.stats} file
+     * @param field   indexed field name
+     * @param maxDoc  Lucene document-address space size
+     * @param d       per-document arrays, of length {@code maxDoc}
+     * @param t       per-term arrays, indexed by dense term id
+     * @throws IOException if the target file already exists, or if writing fails
+     */
+    static void write(final Path sideDir, final String field, final int maxDoc, final DocStats d, final VocabCounts t)
+        throws IOException
+    {
         final Path statsPath = statsPath(sideDir, field);
         IOUtil.ensureAbsent(statsPath);
         final Path tmp = IOUtil.tmpPath(statsPath);
@@ -340,14 +464,14 @@ public final class TermStats
                         "Vocabulary size changed during buildTermWeights for field '" + field
                                 + "': seen more than " + vocabSize + " terms");
             }
-            scorer.termStart(termFreq[termId], termDocs[termId]);
+            scorer.termStart(termFreqAt(termId), termDocsAt(termId));
             
             postings = tenum.postings(postings, PostingsEnum.FREQS);
             for (int docId = postings.nextDoc(); docId != DocIdSetIterator.NO_MORE_DOCS; docId = postings.nextDoc()) {
                 final int freq = postings.freq();
                 if (freq <= 0)
                     continue;
-                scorer.termDocAdd(freq, docTokens[docId]);
+                scorer.termDocAdd(freq, docTokensAt(docId));
             }
             
             weights[termId] = scorer.termScore();
@@ -495,19 +619,21 @@ public final class TermStats
     public int docTokens(final int docId)
     {
         checkDocId(docId);
-        return docTokens[docId];
+        return docTokensAt(docId);
     }
     
     /**
      * Returns a direct reference to the internal {@code docTokens} array.
      * Intended for hot loops (e.g. BM25 scoring) that cannot afford bounds checks.
-     * Callers must not modify the returned array.
+     * Callers must not modify the returned array. When mapped, returns a fresh heap copy.
      *
-     * @return reference to {@code docTokens}, indexed by global doc id
+     * @return reference to {@code docTokens}, or a heap copy when mapped, indexed by global doc id
      */
     public int[] docTokens()
     {
-        return docTokens;
+        if (data == null)
+            return docTokens;
+        return data.asSlice(docTokensOffset, (long) maxDoc * Integer.BYTES).toArray(BE_INT);
     }
     
     /**
@@ -521,19 +647,21 @@ public final class TermStats
     public int docWidth(final int docId)
     {
         checkDocId(docId);
-        return docWidths[docId];
+        return docWidthAt(docId);
     }
     
     /**
      * Give direct access to a vector, by internal Lucene docId, of “width”
      * (position indexed, even empty positions, for example, if stopwords have 
-     * been removed).
+     * been removed). When mapped, returns a fresh heap copy.
      * 
      * @return
      */
     public int[] docWidths()
     {
-        return docWidths;
+        if (data == null)
+            return docWidths;
+        return data.asSlice(docWidthsOffset, (long) maxDoc * Integer.BYTES).toArray(BE_INT);
     }
     
     /**
@@ -637,6 +765,16 @@ public final class TermStats
         return live;
     }
     
+    /**
+     * Tells whether the statistics are read in place from a mapped file.
+     *
+     * @return {@code true} for {@link Backing#MAPPED}
+     */
+    public boolean mapped()
+    {
+        return data != null;
+    }
+    
     /**
      * Returns the Lucene document-address space size for this frozen reader snapshot.
      * Valid global document ids are in {@code [0, maxDoc())}.
@@ -670,13 +808,35 @@ public final class TermStats
      * @param sideDir directory containing the stats file
      * @param field   indexed field name
      * @param report  progress reporter; may be {@code null}
-     * @return opened immutable field statistics
+     * @return opened immutable field statistics, on heap
+     * @throws IOException if the file is missing, inconsistent, or unreadable
+     */
+    public static TermStats open(
+        final IndexReader reader,
+        final Path sideDir,
+        final String field,
+        Report report) throws IOException
+    {
+        return open(reader, sideDir, field, Backing.HEAP, report);
+    }
+    
+    /**
+     * Opens the persisted statistics for one field, on heap or mapped. Same checks and derived
+     * scalars whatever the backing.
+     *
+     * @param reader  snapshot reader used to cross-check maxDoc
+     * @param sideDir directory containing the stats file
+     * @param field   indexed field name
+     * @param backing where the arrays live; {@code null} for {@link Backing#HEAP}
+     * @param report  progress reporter; may be {@code null}
+     * @return opened immutable field statistics; close it when mapped
      * @throws IOException if the file is missing, inconsistent, or unreadable
      */
     public static TermStats open(
         final IndexReader reader,
         final Path sideDir,
         final String field,
+        Backing backing,
         Report report) throws IOException
     {
         Objects.requireNonNull(sideDir, "sideDir");
@@ -686,6 +846,14 @@ public final class TermStats
         
         final Path path = statsPath(sideDir, field);
         IOUtil.ensureRegularFile(path);
+        if (backing == Backing.AUTO) {
+            backing = (Files.size(path) > Runtime.getRuntime().maxMemory() / AUTO_HEAP_SHARE)
+                    ? Backing.MAPPED
+                    : Backing.HEAP;
+        }
+        if (backing == Backing.MAPPED) {
+            return openMapped(reader, sideDir, field, path, report);
+        }
         
         try (DataInputStream in = new DataInputStream(
                 new BufferedInputStream(Files.newInputStream(path, StandardOpenOption.READ))))
@@ -770,12 +938,135 @@ public final class TermStats
                     termCounts,
                     docs,
                     width,
-                    tokens);
+                    tokens,
+                    null,
+                    null,
+                    null);
         } catch (EOFException e) {
             throw new IOException("Truncated stats file: " + path, e);
         }
     }
     
+    /**
+     * Maps a statistics file and derives its scalars in one sequential pass over the per-document
+     * arrays.
+     *
+     * @param reader  snapshot reader used to cross-check maxDoc
+     * @param sideDir directory containing the stats file
+     * @param field   indexed field name
+     * @param path    stats file
+     * @param report  progress reporter
+     * @return mapped statistics
+     * @throws IOException if the file is inconsistent or cannot be mapped
+     */
+    private static TermStats openMapped(
+        final IndexReader reader,
+        final Path sideDir,
+        final String field,
+        final Path path,
+        final Report report) throws IOException
+    {
+        final Arena arena = Arena.ofShared();
+        try {
+            final MemorySegment data = IOUtil.mapReadOnly(path, arena);
+            final long size = data.byteSize();
+            if (size < 3L * Integer.BYTES) {
+                throw new IOException("Truncated stats file: " + path);
+            }
+            if (data.get(BE_INT, 0L) != MAGIC) {
+                throw new IOException("Invalid stats file magic: " + path);
+            }
+            final int version = data.get(BE_INT, 4L);
+            if (version != VERSION) {
+                throw new IOException("Unsupported stats file version " + version + ": " + path);
+            }
+            final int nameLength = data.get(BE_INT, 8L);
+            if (nameLength < 0 || 12L + nameLength + Integer.BYTES > size) {
+                throw new IOException("Invalid field name length " + nameLength + " in stats file: " + path);
+            }
+            final String fieldFound = new String(
+                    data.asSlice(12L, nameLength).toArray(ValueLayout.JAVA_BYTE), StandardCharsets.UTF_8);
+            if (!field.equals(fieldFound)) {
+                throw new IOException(
+                        "Field mismatch in stats file: requested '" + field + "', found '" + fieldFound + "'");
+            }
+            long pos = 12L + nameLength;
+            final int maxDoc = data.get(BE_INT, pos);
+            pos += Integer.BYTES;
+            if (maxDoc != reader.maxDoc()) {
+                throw new IOException(
+                        "Read maxDoc=" + maxDoc + " inconsistent with IndexReader.maxDoc()=" + reader.maxDoc());
+            }
+            final long[] offsets = new long[4];
+            offsets[0] = pos;
+            pos += (long) maxDoc * Integer.BYTES;
+            offsets[1] = pos;
+            pos += (long) maxDoc * Integer.BYTES;
+            if (pos + Integer.BYTES > size) {
+                throw new IOException("Truncated stats file: " + path);
+            }
+            final int vocabSize = data.get(BE_INT, pos);
+            pos += Integer.BYTES;
+            if (vocabSize < 0) {
+                throw new IOException("Invalid vocabSize in stats file: " + vocabSize);
+            }
+            offsets[2] = pos;
+            pos += (long) vocabSize * Integer.BYTES;
+            offsets[3] = pos;
+            pos += (long) vocabSize * Long.BYTES;
+            if (pos > size) {
+                throw new IOException("Truncated stats file: " + path);
+            }
+            if (pos < size) {
+                throw new IOException("Trailing bytes in stats file: " + path);
+            }
+            
+            long width = 0L;
+            long tokens = 0L;
+            int maxWidth = 0;
+            int docs = 0;
+            int invariantViolations = 0;
+            for (int docId = 0; docId < maxDoc; docId++) {
+                final int w = data.get(BE_INT, offsets[0] + (long) docId * Integer.BYTES);
+                if (w < 0)
+                    throw new IOException("Invalid docWidth=" + w + " for docId=" + docId);
+                final int t = data.get(BE_INT, offsets[1] + (long) docId * Integer.BYTES);
+                if (t < 0)
+                    throw new IOException("Invalid docTokens=" + t + " for docId=" + docId);
+                width += w;
+                maxWidth = Math.max(maxWidth, w);
+                tokens += t;
+                if (t > 0)
+                    docs++;
+                if (t > w)
+                    invariantViolations++;
+            }
+            if (invariantViolations > 0) {
+                report.warn("field=\"" + field + "\": "
+                        + invariantViolations + " documents with docTokens > docWidths");
+            }
+            return new TermStats(
+                    sideDir,
+                    field,
+                    maxDoc,
+                    null,
+                    maxWidth,
+                    null,
+                    vocabSize,
+                    null,
+                    null,
+                    docs,
+                    width,
+                    tokens,
+                    arena,
+                    data,
+                    offsets);
+        } catch (IOException | RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+    }
+    
     /**
      * Opens the field statistics, building the sidecar file first if it does not exist.
      *
@@ -833,18 +1124,21 @@ public final class TermStats
     public int termDocs(final int termId)
     {
         checkTermId(termId);
-        return termDocs[termId];
+        return termDocsAt(termId);
     }
     
     /**
      * Returns a direct reference to the internal {@code  #termDocs} array.
-     * Callers must not modify the returned array.
+     * Callers must not modify the returned array. When mapped, returns a fresh heap copy at each
+     * call, prefer the per-id accessor.
      *
-     * @return reference to {@link #termDocs}, indexed by dense term id
+     * @return reference to {@link #termDocs}, or a heap copy when mapped, indexed by dense term id
      */
     public int[] termDocsRef()
     {
-        return termDocs;
+        if (data == null)
+            return termDocs;
+        return data.asSlice(termDocsOffset, (long) vocabSize * Integer.BYTES).toArray(BE_INT);
     }
     
     /**
@@ -857,18 +1151,21 @@ public final class TermStats
     public long termFreq(final int termId)
     {
         checkTermId(termId);
-        return termFreq[termId];
+        return termFreqAt(termId);
     }
     
     /**
      * Returns a direct reference to the internal {@code termCounts} array.
-     * Callers must not modify the returned array.
+     * Callers must not modify the returned array. When mapped, returns a fresh heap copy at each
+     * call, prefer the per-id accessor.
      *
-     * @return reference to {@code termCounts}, indexed by dense term id
+     * @return reference to {@code termCounts}, or a heap copy when mapped, indexed by dense term id
      */
     public long[] termFreqRef()
     {
-        return termFreq;
+        if (data == null)
+            return termFreq;
+        return data.asSlice(termFreqOffset, (long) vocabSize * Long.BYTES).toArray(BE_LONG);
     }
     
     /**
@@ -1033,6 +1330,58 @@ public final class TermStats
     {
     }
     
+    /**
+     * Reads one document width, from heap or mapped file, without bounds check.
+     *
+     * @param docId global doc id
+     * @return document width
+     */
+    private int docWidthAt(final int docId)
+    {
+        if (data == null)
+            return docWidths[docId];
+        return data.get(BE_INT, docWidthsOffset + (long) docId * Integer.BYTES);
+    }
+    
+    /**
+     * Reads one document token count, from heap or mapped file, without bounds check.
+     *
+     * @param docId global doc id
+     * @return document token count
+     */
+    private int docTokensAt(final int docId)
+    {
+        if (data == null)
+            return docTokens[docId];
+        return data.get(BE_INT, docTokensOffset + (long) docId * Integer.BYTES);
+    }
+    
+    /**
+     * Reads one term document frequency, from heap or mapped file, without bounds check.
+     *
+     * @param termId dense term id
+     * @return document frequency
+     */
+    private int termDocsAt(final int termId)
+    {
+        if (data == null)
+            return termDocs[termId];
+        return data.get(BE_INT, termDocsOffset + (long) termId * Integer.BYTES);
+    }
+    
+    /**
+     * Reads one term total occurrence count, from heap or mapped file, without bounds check.
+     *
+     * @param termId dense term id
+     * @return total occurrences
+     */
+    private long termFreqAt(final int termId)
+    {
+        if (data == null)
+            return termFreq[termId];
+        return data.get(BE_LONG, termFreqOffset + (long) termId * Long.BYTES);
+    }
+    
     /**
      * Validates a global Lucene document id against {@code maxDoc}.
      *
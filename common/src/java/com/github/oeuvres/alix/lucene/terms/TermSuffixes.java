@@ -0,0 +1,666 @@
+package com.github.oeuvres.alix.lucene.terms;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.function.IntConsumer;
+
+import com.github.oeuvres.alix.util.Char;
+import com.github.oeuvres.alix.util.IOUtil;
+
+/**
+ * Suffix array over the ASCII-folded forms of a {@link TermLexicon}, for the prefix and infix
+ * lookups of {@link TermSuggest}.
+ *
+ * <p>
+ * Folded forms are concatenated in term-id order, each preceded by a {@code '\0'} separator, with
+ * a final separator. Two sorted tables index this buffer:
+ * </p>
+ * <ul>
+ * <li><b>prefix table</b>: the term ids, sorted by folded form; the terms starting with a query
+ * are one contiguous range, found by two binary searches;</li>
+ * <li><b>suffix table</b>: every character position of the buffer that is not a separator, sorted
+ * by the suffix starting there, compared up to the next separator; the terms containing a query
+ * are one contiguous range of positions.</li>
+ * </ul>
+ * <p>
+ * A lookup costs {@code O(|q| log n)} comparisons plus one step per hit, instead of a scan of the
+ * whole buffer. Position-to-term resolution is a binary search in the term offsets.
+ * </p>
+ *
+ * <h2>File</h2>
+ * <p>
+ * Persisted as {@code <field>.suggest} next to {@code <field>.stats}, big-endian, memory-mapped
+ * at {@link #open(Path, String)}:
+ * </p>
+ * <pre>
+ * int MAGIC, int VERSION, int vocabSize, int charCount, int suffixCount
+ * long checksum        {@link TermLexicon#checksum()} of the lexicon
+ * int[vocabSize + 1]   char offset of each folded form, sentinel last
+ * char[charCount]      folded buffer
+ * int[vocabSize]       prefix table
+ * int[suffixCount]     suffix table
+ * </pre>
+ * <p>
+ * The file belongs to one lexicon snapshot; {@link SegmentSidecars} deletes it with the other
+ * field sidecars when the index changes, and {@link #isCurrent(TermLexicon)} compares the recorded
+ * checksum with the lexicon of the reader.
+ * </p>
+ *
+ * <p>
+ * Immutable and thread-safe. An opened instance must be {@link #close() closed}.
+ * </p>
+ */
+public final class TermSuffixes implements Closeable
+{
+    /** Separator before each folded form. */
+    static final char SEP = '\0';
+
+    /** Magic number "FSUG". */
+    private static final int MAGIC = 0x46535547;
+
+    /** File format version. */
+    private static final int VERSION = 2;
+
+    /** Header bytes. */
+    private static final long HEADER = 5L * Integer.BYTES + Long.BYTES;
+
+    /** Multi-byte layout of the checksum. */
+    private static final ValueLayout.OfLong BE_LONG = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+
+    /** Below this range size, suffixes are sorted by insertion. */
+    private static final int INSERTION_SORT = 16;
+
+    /** Multi-byte layouts of the file. */
+    private static final ValueLayout.OfInt BE_INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final ValueLayout.OfChar BE_CHAR = ValueLayout.JAVA_CHAR_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+
+    /** Number of terms. */
+    private final int vocabSize;
+
+    /** Number of chars of the folded buffer. */
+    private final int charCount;
+
+    /** Number of suffixes. */
+    private final int suffixCount;
+
+    /** Checksum of the lexicon the tables were built from. */
+    private final long checksum;
+
+    /** Heap tables; {@code null} when mapped. */
+    private final int[] offsets;
+    private final char[] chars;
+    private final int[] prefixes;
+    private final int[] suffixes;
+
+    /** Arena of the mapped file; {@code null} on heap. */
+    private final Arena arena;
+
+    /** Mapped file; {@code null} on heap. */
+    private final MemorySegment data;
+
+    /** Byte offsets of the mapped sections. */
+    private final long offsetsOffset, charsOffset, prefixesOffset, suffixesOffset;
+
+    /**
+     * Heap instance.
+     */
+    private TermSuffixes(
+        final long checksum,
+        final int[] offsets,
+        final char[] chars,
+        final int[] prefixes,
+        final int[] suffixes)
+    {
+        this.vocabSize = prefixes.length;
+        this.charCount = chars.length;
+        this.suffixCount = suffixes.length;
+        this.checksum = checksum;
+        this.offsets = offsets;
+        this.chars = chars;
+        this.prefixes = prefixes;
+        this.suffixes = suffixes;
+        this.arena = null;
+        this.data = null;
+        this.offsetsOffset = this.charsOffset = this.prefixesOffset = this.suffixesOffset = -1L;
+    }
+
+    /**
+     * Mapped instance, header validated.
+     */
+    private TermSuffixes(
+        final int vocabSize,
+        final int charCount,
+        final int suffixCount,
+        final long checksum,
+        final Arena arena,
+        final MemorySegment data)
+    {
+        this.vocabSize = vocabSize;
+        this.charCount = charCount;
+        this.suffixCount = suffixCount;
+        this.checksum = checksum;
+        this.offsets = null;
+        this.chars = null;
+        this.prefixes = null;
+        this.suffixes = null;
+        this.arena = arena;
+        this.data = data;
+        this.offsetsOffset = HEADER;
+        this.charsOffset = offsetsOffset + (vocabSize + 1L) * Integer.BYTES;
+        this.prefixesOffset = charsOffset + (long) charCount * Character.BYTES;
+        this.suffixesOffset = prefixesOffset + (long) vocabSize * Integer.BYTES;
+    }
+
+    /**
+     * Builds the tables of a lexicon in memory.
+     *
+     * @param lexicon opened term lexicon
+     * @return heap instance
+     * @throws IllegalStateException if the folded buffer exceeds {@code int} addressing
+     */
+    public static TermSuffixes build(final TermLexicon lexicon)
+    {
+        Objects.requireNonNull(lexicon, "lexicon");
+        final int vocabSize = lexicon.vocabSize();
+        final int[] offsets = new int[vocabSize + 1];
+        final StringBuilder sb = new StringBuilder();
+        for (int termId = 0; termId < vocabSize; termId++) {
+            sb.append(SEP);
+            offsets[termId] = sb.length();
+            sb.append(Char.toAscii(lexicon.form(termId)));
+        }
+        sb.append(SEP);
+        offsets[vocabSize] = sb.length();
+        final char[] chars = new char[sb.length()];
+        sb.getChars(0, chars.length, chars, 0);
+
+        final int[] prefixes = new int[vocabSize];
+        System.arraycopy(offsets, 0, prefixes, 0, vocabSize);
+        final SplittableRandom random = new SplittableRandom(vocabSize);
+        sort(chars, prefixes, 0, vocabSize, 0, random);
+        // sorted positions back to term ids
+        for (int i = 0; i < vocabSize; i++) {
+            prefixes[i] = termAt(offsets, vocabSize, prefixes[i]);
+        }
+
+        int suffixCount = 0;
+        for (char c : chars) {
+            if (c != SEP)
+                suffixCount++;
+        }
+        final int[] suffixes = new int[suffixCount];
+        for (int pos = 0, i = 0; pos < chars.length; pos++) {
+            if (chars[pos] != SEP)
+                suffixes[i++] = pos;
+        }
+        sort(chars, suffixes, 0, suffixCount, 0, random);
+        return new TermSuffixes(lexicon.checksum(), offsets, chars, prefixes, suffixes);
+    }
+
+    /**
+     * Builds and writes the tables of a lexicon as {@code <field>.suggest}.
+     *
+     * @param lexicon opened term lexicon of the field
+     * @param sideDir directory of the field sidecars
+     * @param field   indexed field name
+     * @throws IOException if the file exists or writing fails
+     */
+    public static void build(final TermLexicon lexicon, final Path sideDir, final String field) throws IOException
+    {
+        build(lexicon).write(suggestPath(sideDir, field));
+    }
+
+    /**
+     * Checksum of the lexicon the tables were built from.
+     *
+     * @return {@link TermLexicon#checksum()} recorded at build
+     */
+    public long checksum()
+    {
+        return checksum;
+    }
+
+    /**
+     * Releases the mapping of an opened instance; no-op on heap.
+     */
+    @Override
+    public void close()
+    {
+        if (arena != null)
+            arena.close();
+    }
+
+    /**
+     * Deletes the suffix file of one field, if present.
+     *
+     * @param sideDir directory containing the file
+     * @param field   indexed field name
+     * @throws IOException if the file cannot be deleted
+     */
+    public static void delete(final Path sideDir, final String field) throws IOException
+    {
+        Files.deleteIfExists(suggestPath(sideDir, field));
+    }
+
+    /**
+     * Tests whether the suffix file of one field exists.
+     *
+     * @param sideDir directory containing the file
+     * @param field   indexed field name
+     * @return {@code true} if {@code <field>.suggest} is a regular file
+     */
+    public static boolean exists(final Path sideDir, final String field)
+    {
+        return Files.isRegularFile(suggestPath(sideDir, field));
+    }
+
+    /**
+     * Returns the folded form of a term.
+     *
+     * @param termId dense term id
+     * @return ASCII-folded form
+     */
+    public String folded(final int termId)
+    {
+        Objects.checkIndex(termId, vocabSize);
+        final int start = offset(termId);
+        final int end = offset(termId + 1) - 1;
+        if (chars != null)
+            return new String(chars, start, end - start);
+        final char[] buf = new char[end - start];
+        MemorySegment.copy(data, BE_CHAR, charsOffset + (long) start * Character.BYTES, buf, 0, buf.length);
+        return new String(buf);
+    }
+
+    /**
+     * Sends each term whose folded form contains a folded query, once per term, in no particular
+     * order.
+     *
+     * <p>
+     * A term containing the query twice has two suffixes in the range. Duplicates are removed by
+     * sorting the term ids of the hits, or with a bitmap of the vocabulary when the hits would take
+     * more memory, so a lookup allocates in proportion to its hits, at most {@code vocabSize / 8}
+     * bytes.
+     * </p>
+     *
+     * @param folded  folded query, not empty
+     * @param termIds receives the matching term ids
+     */
+    public void infix(final String folded, final IntConsumer termIds)
+    {
+        final int from = lowerBound(folded, false);
+        final int to = upperBound(folded, false, from);
+        final int hits = to - from;
+        if (hits <= 0)
+            return;
+        if (hits == 1) {
+            termIds.accept(termAt(suffix(from)));
+            return;
+        }
+        if (hits <= (vocabSize >>> 5)) {
+            final int[] ids = new int[hits];
+            for (int i = 0; i < hits; i++)
+                ids[i] = termAt(suffix(from + i));
+            Arrays.sort(ids);
+            for (int i = 0; i < hits; i++) {
+                if (i == 0 || ids[i] != ids[i - 1])
+                    termIds.accept(ids[i]);
+            }
+            return;
+        }
+        final long[] seen = new long[(vocabSize + 63) >>> 6];
+        for (int i = from; i < to; i++) {
+            final int termId = termAt(suffix(i));
+            final long mask = 1L << termId;
+            if ((seen[termId >>> 6] & mask) != 0)
+                continue;
+            seen[termId >>> 6] |= mask;
+            termIds.accept(termId);
+        }
+    }
+
+    /**
+     * Tells whether these tables were built from a lexicon: same vocabulary size and same
+     * {@link TermLexicon#checksum()}, so that an edit keeping the size is not missed.
+     *
+     * @param lexicon lexicon of the current reader
+     * @return {@code true} if the tables address the terms of {@code lexicon}
+     */
+    public boolean isCurrent(final TermLexicon lexicon)
+    {
+        return lexicon.vocabSize() == vocabSize && lexicon.checksum() == checksum;
+    }
+
+    /**
+     * Opens the suffix file of one field, memory-mapped.
+     *
+     * @param sideDir directory containing the file
+     * @param field   indexed field name
+     * @return mapped instance; close it when done
+     * @throws IOException if the file is missing or inconsistent
+     */
+    public static TermSuffixes open(final Path sideDir, final String field) throws IOException
+    {
+        final Path path = suggestPath(sideDir, field);
+        IOUtil.ensureRegularFile(path);
+        final Arena arena = Arena.ofShared();
+        try {
+            final MemorySegment data = IOUtil.mapReadOnly(path, arena);
+            if (data.byteSize() < HEADER) {
+                throw new IOException("Truncated suggest file: " + path);
+            }
+            if (data.get(BE_INT, 0L) != MAGIC) {
+                throw new IOException("Invalid suggest file magic: " + path);
+            }
+            final int version = data.get(BE_INT, 4L);
+            if (version != VERSION) {
+                throw new IOException("Unsupported suggest file version " + version + ": " + path);
+            }
+            final int vocabSize = data.get(BE_INT, 8L);
+            final int charCount = data.get(BE_INT, 12L);
+            final int suffixCount = data.get(BE_INT, 16L);
+            if (vocabSize < 0 || charCount < 1 || suffixCount < 0 || suffixCount >= charCount) {
+                throw new IOException("Invalid suggest header: vocabSize=" + vocabSize
+                        + ", charCount=" + charCount + ", suffixCount=" + suffixCount + ": " + path);
+            }
+            final long expected = HEADER
+                    + (vocabSize + 1L) * Integer.BYTES
+                    + (long) charCount * Character.BYTES
+                    + (long) vocabSize * Integer.BYTES
+                    + (long) suffixCount * Integer.BYTES;
+            if (data.byteSize() != expected) {
+                throw new IOException("Suggest file size " + data.byteSize() + " != expected " + expected + ": " + path);
+            }
+            final long checksum = data.get(BE_LONG, 20L);
+            final TermSuffixes opened = new TermSuffixes(vocabSize, charCount, suffixCount, checksum, arena, data);
+            if (opened.offset(vocabSize) != charCount) {
+                throw new IOException("Suggest offsets sentinel != charCount: " + path);
+            }
+            return opened;
+        }
+        catch (IOException | RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Sends each term whose folded form starts with a folded query, in folded order.
+     *
+     * @param folded  folded query, not empty
+     * @param termIds receives the matching term ids
+     */
+    public void prefix(final String folded, final IntConsumer termIds)
+    {
+        final int from = lowerBound(folded, true);
+        final int to = upperBound(folded, true, from);
+        for (int i = from; i < to; i++) {
+            termIds.accept(prefix(i));
+        }
+    }
+
+    /**
+     * Number of terms indexed.
+     *
+     * @return vocabulary size of the lexicon the tables were built from
+     */
+    public int vocabSize()
+    {
+        return vocabSize;
+    }
+
+    /**
+     * Writes the tables, atomically via a temporary file.
+     *
+     * @param path target file, must not exist
+     * @throws IOException if the file exists or writing fails
+     */
+    private void write(final Path path) throws IOException
+    {
+        IOUtil.ensureAbsent(path);
+        final Path tmp = IOUtil.tmpPath(path);
+        IOUtil.ensureAbsent(tmp);
+        try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(tmp, StandardOpenOption.CREATE_NEW));
+                DataOutputStream out = new DataOutputStream(os))
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(vocabSize);
+            out.writeInt(charCount);
+            out.writeInt(suffixCount);
+            out.writeLong(checksum);
+            for (int i = 0; i <= vocabSize; i++)
+                out.writeInt(offset(i));
+            for (int pos = 0; pos < charCount; pos++)
+                out.writeChar(charAt(pos));
+            for (int i = 0; i < vocabSize; i++)
+                out.writeInt(prefix(i));
+            for (int i = 0; i < suffixCount; i++)
+                out.writeInt(suffix(i));
+        }
+        catch (IOException | RuntimeException e) {
+            IOUtil.deleteIfExists(tmp);
+            throw e;
+        }
+        try {
+            IOUtil.moveTemp(tmp, path);
+        }
+        catch (IOException | RuntimeException e) {
+            IOUtil.deleteIfExists(tmp);
+            throw e;
+        }
+    }
+
+    /**
+     * Char of the folded buffer.
+     */
+    private char charAt(final int pos)
+    {
+        if (chars != null)
+            return chars[pos];
+        return data.get(BE_CHAR, charsOffset + (long) pos * Character.BYTES);
+    }
+
+    /**
+     * Compares the text at a buffer position, up to the next separator, with a query.
+     *
+     * @return negative, zero if the query is a prefix of the text, positive
+     */
+    private int compare(int pos, final String query)
+    {
+        for (int i = 0, n = query.length(); i < n; i++, pos++) {
+            final char c = charAt(pos);
+            final char q = query.charAt(i);
+            if (c != q)
+                return (c == SEP) ? -1 : c - q;
+        }
+        return 0;
+    }
+
+    /**
+     * First entry of a table not lower than the query.
+     */
+    private int lowerBound(final String query, final boolean prefixTable)
+    {
+        int lo = 0;
+        int hi = prefixTable ? vocabSize : suffixCount;
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            final int pos = prefixTable ? offset(prefix(mid)) : suffix(mid);
+            if (compare(pos, query) < 0)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * Term offset in the folded buffer, sentinel at {@code vocabSize}.
+     */
+    private int offset(final int termId)
+    {
+        if (offsets != null)
+            return offsets[termId];
+        return data.get(BE_INT, offsetsOffset + (long) termId * Integer.BYTES);
+    }
+
+    /**
+     * Entry of the prefix table.
+     */
+    private int prefix(final int i)
+    {
+        if (prefixes != null)
+            return prefixes[i];
+        return data.get(BE_INT, prefixesOffset + (long) i * Integer.BYTES);
+    }
+
+    /**
+     * Multikey quicksort (Bentley-Sedgewick) of buffer positions by the text up to the next
+     * separator; equal texts keep an unspecified order.
+     */
+    private static void sort(
+        final char[] chars,
+        final int[] pos,
+        int from,
+        int to,
+        int depth,
+        final SplittableRandom random)
+    {
+        while (to - from > INSERTION_SORT) {
+            final char pivot = chars[pos[from + random.nextInt(to - from)] + depth];
+            int lt = from;
+            int gt = to;
+            int i = from;
+            while (i < gt) {
+                final char c = chars[pos[i] + depth];
+                if (c < pivot)
+                    swap(pos, lt++, i++);
+                else if (c > pivot)
+                    swap(pos, i, --gt);
+                else
+                    i++;
+            }
+            // recurse on the smaller outer parts, loop on the equal part
+            sort(chars, pos, from, lt, depth, random);
+            sort(chars, pos, gt, to, depth, random);
+            if (pivot == SEP)
+                return;
+            from = lt;
+            to = gt;
+            depth++;
+        }
+        for (int i = from + 1; i < to; i++) {
+            for (int j = i; j > from && less(chars, pos[j], pos[j - 1], depth); j--) {
+                swap(pos, j, j - 1);
+            }
+        }
+    }
+
+    /**
+     * Compares two texts from a depth, up to their separators.
+     */
+    private static boolean less(final char[] chars, int a, int b, final int depth)
+    {
+        a += depth;
+        b += depth;
+        while (true) {
+            final char ca = chars[a++];
+            final char cb = chars[b++];
+            if (ca != cb)
+                return ca < cb;
+            if (ca == SEP)
+                return false;
+        }
+    }
+
+    /**
+     * Path of the suffix file.
+     */
+    private static Path suggestPath(final Path sideDir, final String field)
+    {
+        return sideDir.resolve(field + ".suggest");
+    }
+
+    /**
+     * Entry of the suffix table.
+     */
+    private int suffix(final int i)
+    {
+        if (suffixes != null)
+            return suffixes[i];
+        return data.get(BE_INT, suffixesOffset + (long) i * Integer.BYTES);
+    }
+
+    private static void swap(final int[] a, final int i, final int j)
+    {
+        final int t = a[i];
+        a[i] = a[j];
+        a[j] = t;
+    }
+
+    /**
+     * Term containing a buffer position.
+     */
+    private int termAt(final int pos)
+    {
+        int lo = 0;
+        int hi = vocabSize;
+        while (lo < hi) {
+            final int mid = (lo + hi + 1) >>> 1;
+            if (offset(mid) <= pos)
+                lo = mid;
+            else
+                hi = mid - 1;
+        }
+        return lo;
+    }
+
+    /**
+     * Term containing a buffer position, on heap offsets.
+     */
+    private static int termAt(final int[] offsets, final int vocabSize, final int pos)
+    {
+        int lo = 0;
+        int hi = vocabSize;
+        while (lo < hi) {
+            final int mid = (lo + hi + 1) >>> 1;
+            if (offsets[mid] <= pos)
+                lo = mid;
+            else
+                hi = mid - 1;
+        }
+        return lo;
+    }
+
+    /**
+     * First entry after {@code from} whose text does not start with the query.
+     */
+    private int upperBound(final String query, final boolean prefixTable, final int from)
+    {
+        int lo = from;
+        int hi = prefixTable ? vocabSize : suffixCount;
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            final int pos = prefixTable ? offset(prefix(mid)) : suffix(mid);
+            if (compare(pos, query) <= 0)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+}
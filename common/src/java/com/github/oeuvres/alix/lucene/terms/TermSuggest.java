@@ -1,7 +1,7 @@
 package com.github.oeuvres.alix.lucene.terms;
 
-import java.util.Arrays;
 import java.util.Objects;
+import java.util.function.IntConsumer;
 
 import com.github.oeuvres.alix.util.Char;
 import com.github.oeuvres.alix.util.TopArray;
@@ -10,9 +10,11 @@ import com.github.oeuvres.alix.util.TopArray;
  * Diacritic-insensitive term suggestion for one indexed field.
  *
  * <p>
- * At construction, all terms from a {@link TermLexicon} are ASCII-folded and
- * concatenated into a single {@link String} with {@code '\0'} separators.
- * Queries are matched against this string using {@link String#indexOf(String)}.
+ * Terms from a {@link TermLexicon} are ASCII-folded and indexed by a
+ * {@link TermSuffixes}, prepared by the caller, usually opened from its
+ * sidecar so that no table is built on the request path. A query
+ * finds its matching terms by binary searches in sorted tables, in
+ * {@code O(|q| log n + hits)}, without scanning the folded vocabulary.
  * </p>
  *
  * <p>
@@ -33,12 +35,9 @@ public final class TermSuggest
 
     private static final String DEFAULT_MARK_AFTER = "</mark>";
     private static final String DEFAULT_MARK_BEFORE = "<mark>";
-    private static final char SEP = '\0';
+    private static final char SEP = TermSuffixes.SEP;
     private static final String SEP_STRING = String.valueOf(SEP);
 
-    /** Concatenated ASCII-folded terms separated by {@link #SEP}. */
-    private final String ascii;
-
     /** Term lexicon addressed by dense term id. */
     private final TermLexicon lexicon;
 
@@ -48,33 +47,34 @@ public final class TermSuggest
     /** Markup inserted before a highlighted span. */
     private final String markBefore;
 
-    /**
-     * {@code offsets[id]} is the character position in {@link #ascii} where
-     * term id {@code id} begins. {@code offsets[vocabSize]} is the sentinel.
-     */
-    private final int[] offsets;
+    /** Folded forms and their sorted tables. */
+    private final TermSuffixes suffixes;
 
     /** Number of terms in the lexicon. */
     private final int vocabSize;
 
     /**
-     * Builds the suggest index with default HTML markup.
+     * Builds the suggester on prepared tables, typically opened from the
+     * {@code <field>.suggest} sidecar, with default HTML markup.
      *
      * @param lexicon opened term lexicon
      * @param stats field statistics for the same field and reader snapshot
+     * @param suffixes tables built from the same lexicon, owned by the caller
      * @throws IllegalArgumentException if vocabulary sizes differ
      * @throws NullPointerException if an argument is {@code null}
      */
-    public TermSuggest(final TermLexicon lexicon, final TermStats stats)
+    public TermSuggest(final TermLexicon lexicon, final TermStats stats, final TermSuffixes suffixes)
     {
-        this(lexicon, stats, DEFAULT_MARK_BEFORE, DEFAULT_MARK_AFTER);
+        this(lexicon, stats, suffixes, DEFAULT_MARK_BEFORE, DEFAULT_MARK_AFTER);
     }
 
     /**
-     * Builds the suggest index with configurable highlight markup.
+     * Builds the suggester on prepared tables with configurable highlight
+     * markup.
      *
      * @param lexicon opened term lexicon
      * @param stats field statistics for the same field and reader snapshot
+     * @param suffixes tables built from the same lexicon, owned by the caller
      * @param markBefore string inserted before each matched span
      * @param markAfter string inserted after each matched span
      * @throws IllegalArgumentException if vocabulary sizes differ
@@ -83,6 +83,7 @@ public final class TermSuggest
     public TermSuggest(
         final TermLexicon lexicon,
         final TermStats stats,
+        final TermSuffixes suffixes,
         final String markBefore,
         final String markAfter
     ) {
@@ -98,19 +99,13 @@ public final class TermSuggest
                     + ", stats=" + stats.vocabSize()
             );
         }
-
-        this.offsets = new int[vocabSize + 1];
-
-        final StringBuilder sb = new StringBuilder();
-        for (int termId = 0; termId < vocabSize; termId++) {
-            sb.append(SEP);
-            offsets[termId] = sb.length();
-            sb.append(Char.toAscii(lexicon.form(termId)));
+        this.suffixes = Objects.requireNonNull(suffixes, "suffixes");
+        if (suffixes.vocabSize() != vocabSize) {
+            throw new IllegalArgumentException(
+                "Vocabulary size mismatch: lexicon=" + vocabSize
+                    + ", suffixes=" + suffixes.vocabSize()
+            );
         }
-        sb.append(SEP);
-        offsets[vocabSize] = sb.length();
-
-        this.ascii = sb.toString();
     }
 
     /**
@@ -146,10 +141,10 @@ public final class TermSuggest
         Objects.requireNonNull(source, "source");
         Objects.requireNonNull(infix, "infix");
 
-        final long[] counts = source.termFreqRef();
-        if (counts.length != vocabSize) {
+        final int sourceSize = source.termStats().vocabSize();
+        if (sourceSize != vocabSize) {
             throw new IllegalArgumentException(
-                "Source frequency vector length mismatch: termFreq=" + counts.length
+                "Source frequency vector length mismatch: termFreq=" + sourceSize
                     + ", expected " + vocabSize
             );
         }
@@ -163,35 +158,22 @@ public final class TermSuggest
             return source.rank(limit);
         }
 
-        final boolean prefixOnly = foldedQuery.length() < INFIX_THRESHOLD;
-        final String needle = prefixOnly ? (SEP + foldedQuery) : foldedQuery;
         final TopArray top = new TopArray(limit);
-
-        int fromIndex = 0;
-        while (fromIndex < ascii.length()) {
-            final int index = ascii.indexOf(needle, fromIndex);
-            if (index < 0) {
-                break;
-            }
-
-            final int termStart = prefixOnly ? index + 1 : index;
-            int termId = Arrays.binarySearch(offsets, 0, vocabSize + 1, termStart);
-
-            if (termId < 0) {
-                termId = -termId - 2;
-            }
-
-            if (termId < 1 || termId >= vocabSize) {
-                fromIndex = index + 1;
-                continue;
+        final IntConsumer push = termId -> {
+            // term 0 is the reserved empty term
+            if (termId < 1) {
+                return;
             }
-
-            final long count = counts[termId];
+            final long count = source.termFreq(termId);
             if (count > 0L) {
                 top.push(termId, (double) count);
             }
-
-            fromIndex = offsets[termId + 1] - 1;
+        };
+        if (foldedQuery.length() < INFIX_THRESHOLD) {
+            suffixes.prefix(foldedQuery, push);
+        }
+        else {
+            suffixes.infix(foldedQuery, push);
         }
 
         final int size = top.size();
@@ -206,10 +188,7 @@ public final class TermSuggest
         for (TopArray.TopEntry entry : top) {
             final int termId = entry.id();
             final String term = lexicon.form(termId);
-            final String termFolded = ascii.substring(
-                offsets[termId],
-                offsets[termId + 1] - 1
-            );
+            final String termFolded = suffixes.folded(termId);
 
             rank2termId[rank] = termId;
             hilites[rank] = mark(term, termFolded, foldedQuery);
@@ -33,7 +33,12 @@ import com.github.oeuvres.alix.util.TopArray;
  * document-count, and context-count arrays alias {@link TermStats}. In that
  * default population one document is one context. Calling
  * {@link #select(IndexReader, FixedBitSet)} or {@link #beginPopulation()}
- * switches the instance to local mutable buffers.
+ * switches the instance to local mutable buffers. For small subsets,
+ * {@link #select(IndexReader, FixedBitSet, TermRail)} counts from the forward
+ * rail of the selected documents instead of the postings of the whole field.
+ * Several subsets are populated in one postings pass by the static
+ * {@link #select(IndexReader, TopTerms[], FixedBitSet[])} and
+ * {@link #select(IndexReader, TopTerms[], byte[])}.
  * </p>
  *
  * <p>
@@ -56,6 +61,14 @@ import com.github.oeuvres.alix.util.TopArray;
  */
 public final class TopTerms implements Iterable<TopTerms.TermEntry>
 {
+    /**
+     * Relative cost of one rail position against one posting, for
+     * {@link #select(IndexReader, FixedBitSet, TermRail)}. A rail position is a
+     * random increment into vocabulary-sized arrays, a posting is a sequential
+     * decode and a bit test.
+     */
+    static final int RAIL_COST = 4;
+
     /** Indexed field of those term stats. */
     private final String field;
     
@@ -95,13 +108,28 @@ public final class TopTerms implements Iterable<TopTerms.TermEntry>
     /** Score vector indexed by dense term id; {@code null} means score == frequency. */
     private double[] scores;
 
-    /** Current population context counts, indexed by dense term id. */
+    /** Count of (term, document) postings in the field, lazily summed; negative if unknown. */
+    private long fieldPostings = -1L;
+
+    /** Reusable per-term document stamps for the rail population path. */
+    private int[] railStamp;
+
+    /**
+     * Current population context counts, indexed by dense term id;
+     * {@code null} when the whole field is read from mapped {@link TermStats}.
+     */
     private int[] termContexts;
 
-    /** Current population document counts, indexed by dense term id. */
+    /**
+     * Current population document counts, indexed by dense term id;
+     * {@code null} when the whole field is read from mapped {@link TermStats}.
+     */
     private int[] termDocs;
 
-    /** Current population occurrence counts, indexed by dense term id. */
+    /**
+     * Current population occurrence counts, indexed by dense term id;
+     * {@code null} when the whole field is read from mapped {@link TermStats}.
+     */
     private long[] termFreq;
 
     /** Number of token occurrences in the current population. */
@@ -182,7 +210,7 @@ public final class TopTerms implements Iterable<TopTerms.TermEntry>
      */
     public int contexts(final int termId)
     {
-        return termContexts[termId];
+        return termContexts != null ? termContexts[termId] : termStats.termDocs(termId);
     }
 
     /**
@@ -203,7 +231,7 @@ public final class TopTerms implements Iterable<TopTerms.TermEntry>
      */
     public int docs(final int termId)
     {
-        return termDocs[termId];
+        return termDocs != null ? termDocs[termId] : termStats.termDocs(termId);
     }
     
     /**
@@ -505,7 +533,7 @@ public final class TopTerms implements Iterable<TopTerms.TermEntry>
                 if (rankingExclude.get(termId) || rankingInclude.get(termId)) {
                     continue;
                 }
-                if (termFreq[termId] == 0L) {
+                if (termFreq(termId) == 0L) {
                     continue;
                 }
 
@@ -615,14 +643,25 @@ public final class TopTerms implements Iterable<TopTerms.TermEntry>
      * statistics switch back to local mutable buffers before writing. Stored
      * ranking inclusions and exclusions are retained.
      * </p>
+     * <p>
+     * When {@link TermStats#mapped()}, no array is held: counts are read per id
+     * from the mapped file, so that a long-lived instance does not keep a heap
+     * copy of the vocabulary.
+     * </p>
      *
      * @return this instance
      */
     public TopTerms reset()
     {
-        termFreq = termStats.termFreqRef();
-        termDocs = termStats.termDocsRef();
-        termContexts = termDocs;
+        if (termStats.mapped()) {
+            termFreq = null;
+            termDocs = null;
+            termContexts = null;
+        } else {
+            termFreq = termStats.termFreqRef();
+            termDocs = termStats.termDocsRef();
+            termContexts = termDocs;
+        }
         tokens = termStats.fieldTokens();
         docs = termStats.fieldDocs();
         contexts = docs;
@@ -687,6 +726,335 @@ public final class TopTerms implements Iterable<TopTerms.TermEntry>
         return this;
     }
 
+    /**
+     * Selects a document subset as the current population, choosing between
+     * the inverted index and the forward rail from a cost estimate.
+     *
+     * <p>
+     * {@link #select(IndexReader, FixedBitSet)} walks the postings of the whole
+     * field, so its cost does not depend on the size of the subset. The forward
+     * path iterates only the set bits of {@code docs} and reads the term ids of
+     * each document from {@code rail}, at a cost proportional to the positions
+     * of the subset. The forward path is taken when the summed
+     * {@link TermStats#docWidth(int)} of the subset, weighted by
+     * {@link #RAIL_COST}, stays under the count of field postings. Both paths
+     * produce the same counts.
+     * </p>
+     *
+     * @param reader reader snapshot matching this instance
+     * @param docs   global document-id bitset defining the local population
+     * @param rail   forward rail of this field for the same snapshot, or
+     *               {@code null} to always walk postings
+     * @return this instance
+     * @throws IOException              if postings traversal fails
+     * @throws IllegalArgumentException if {@code docs} is shorter than
+     *                                  {@code reader.maxDoc()}
+     * @throws IllegalStateException    if the field has no terms or lacks frequencies
+     * @throws NullPointerException     if {@code reader} or {@code docs} is {@code null}
+     */
+    public TopTerms select(final IndexReader reader, final FixedBitSet docs, final TermRail rail) throws IOException
+    {
+        final IndexReader r = Objects.requireNonNull(reader, "reader");
+        final FixedBitSet bits = Objects.requireNonNull(docs, "docs");
+        checkDocIdSetLength(r, bits, "docs");
+        if (rail == null
+                || !field.equals(rail.field())
+                || rail.docCount() != r.maxDoc()
+                || rail.docCount() != termStats.maxDoc()
+                || !preferRail(bits)) {
+            return select(r, bits);
+        }
+        return selectRail(rail, bits);
+    }
+
+    /**
+     * Selects one document subset per target in a single postings pass.
+     *
+     * <p>
+     * Equivalent to {@code targets[i].select(reader, docs[i])} for every
+     * {@code i}, but the postings of the field are decoded once for all the
+     * subsets: each posting is tested against every subset. Subsets may
+     * overlap. Suited to comparison views, with a handful of subsets; for
+     * disjoint subsets, {@link #select(IndexReader, TopTerms[], byte[])}
+     * costs one lookup per posting whatever their number.
+     * </p>
+     *
+     * @param reader  reader snapshot matching the targets
+     * @param targets containers of the same field, one per subset
+     * @param docs    global document-id bitsets, one per target
+     * @return {@code targets}
+     * @throws IOException              if postings traversal fails
+     * @throws IllegalArgumentException if arrays differ in length, targets
+     *                                  belong to other statistics, or a bitset
+     *                                  is shorter than {@code reader.maxDoc()}
+     * @throws IllegalStateException    if the field has no terms or lacks frequencies
+     * @throws NullPointerException     if an argument or element is {@code null}
+     */
+    public static TopTerms[] select(
+        final IndexReader reader,
+        final TopTerms[] targets,
+        final FixedBitSet[] docs) throws IOException
+    {
+        final IndexReader r = Objects.requireNonNull(reader, "reader");
+        checkTargets(targets);
+        final int n = targets.length;
+        if (docs.length != n) {
+            throw new IllegalArgumentException(
+                    "docs.length=" + docs.length + " != targets.length=" + n);
+        }
+        for (int group = 0; group < n; group++) {
+            checkDocIdSetLength(r, Objects.requireNonNull(docs[group], "docs"), "docs[" + group + "]");
+        }
+        if (n == 0) {
+            return targets;
+        }
+        final Terms terms = targets[0].requireTerms(r);
+        final long[][] termFreqs = new long[n][];
+        final int[][] termDocs = new int[n][];
+        for (int group = 0; group < n; group++) {
+            targets[group].useLocal();
+            termFreqs[group] = targets[group].termFreq;
+            termDocs[group] = targets[group].termDocs;
+        }
+        final long[] tokenCounts = new long[n];
+
+        final TermsEnum tenum = terms.iterator();
+        PostingsEnum postings = null;
+        int termId = 1;
+        while (tenum.next() != null) {
+            postings = tenum.postings(postings, PostingsEnum.FREQS);
+            for (int docId = postings.nextDoc(); docId != DocIdSetIterator.NO_MORE_DOCS; docId = postings.nextDoc()) {
+                int freq = -1;
+                for (int group = 0; group < n; group++) {
+                    if (!docs[group].get(docId)) {
+                        continue;
+                    }
+                    if (freq < 0) {
+                        freq = postings.freq();
+                    }
+                    termFreqs[group][termId] += freq;
+                    termDocs[group][termId]++;
+                    tokenCounts[group] += freq;
+                }
+            }
+            termId++;
+        }
+
+        for (int group = 0; group < n; group++) {
+            final TopTerms target = targets[group];
+            System.arraycopy(target.termDocs, 0, target.termContexts, 0, target.termDocs.length);
+            target.tokens = tokenCounts[group];
+            target.docs = docs[group].cardinality();
+            target.contexts = target.docs;
+        }
+        return targets;
+    }
+
+    /**
+     * Selects disjoint document subsets, given as a document-to-group map,
+     * one per target, in a single postings pass.
+     *
+     * <p>
+     * {@code docGroup[docId]} is the index of the target receiving the
+     * document, or a negative value such as {@link Partition#NO_PART} for
+     * none; a {@link Partition#docPartRef()} is such a map. Each posting costs
+     * one array lookup, whatever the number of groups.
+     * </p>
+     *
+     * @param reader   reader snapshot matching the targets
+     * @param targets  containers of the same field, one per group
+     * @param docGroup group by global document id, at least {@code reader.maxDoc()} long
+     * @return {@code targets}
+     * @throws IOException              if postings traversal fails
+     * @throws IllegalArgumentException if targets belong to other statistics, the
+     *                                  map is too short, or a group has no target
+     * @throws IllegalStateException    if the field has no terms or lacks frequencies
+     * @throws NullPointerException     if an argument or element is {@code null}
+     */
+    public static TopTerms[] select(
+        final IndexReader reader,
+        final TopTerms[] targets,
+        final byte[] docGroup) throws IOException
+    {
+        final IndexReader r = Objects.requireNonNull(reader, "reader");
+        checkTargets(targets);
+        final int maxDoc = r.maxDoc();
+        if (docGroup.length < maxDoc) {
+            throw new IllegalArgumentException(
+                    "docGroup.length=" + docGroup.length + " < reader.maxDoc()=" + maxDoc);
+        }
+        final int n = targets.length;
+        final int[] docCounts = new int[n];
+        for (int docId = 0; docId < maxDoc; docId++) {
+            final int group = docGroup[docId];
+            if (group < 0) {
+                continue;
+            }
+            if (group >= n) {
+                throw new IllegalArgumentException(
+                        "docGroup[" + docId + "]=" + group + " >= targets.length=" + n);
+            }
+            docCounts[group]++;
+        }
+        if (n == 0) {
+            return targets;
+        }
+        final Terms terms = targets[0].requireTerms(r);
+        final long[][] termFreqs = new long[n][];
+        final int[][] termDocs = new int[n][];
+        for (int group = 0; group < n; group++) {
+            targets[group].useLocal();
+            termFreqs[group] = targets[group].termFreq;
+            termDocs[group] = targets[group].termDocs;
+        }
+        final long[] tokenCounts = new long[n];
+
+        final TermsEnum tenum = terms.iterator();
+        PostingsEnum postings = null;
+        int termId = 1;
+        while (tenum.next() != null) {
+            postings = tenum.postings(postings, PostingsEnum.FREQS);
+            for (int docId = postings.nextDoc(); docId != DocIdSetIterator.NO_MORE_DOCS; docId = postings.nextDoc()) {
+                final int group = docGroup[docId];
+                if (group < 0) {
+                    continue;
+                }
+                final int freq = postings.freq();
+                termFreqs[group][termId] += freq;
+                termDocs[group][termId]++;
+                tokenCounts[group] += freq;
+            }
+            termId++;
+        }
+
+        for (int group = 0; group < n; group++) {
+            final TopTerms target = targets[group];
+            System.arraycopy(target.termDocs, 0, target.termContexts, 0, target.termDocs.length);
+            target.tokens = tokenCounts[group];
+            target.docs = docCounts[group];
+            target.contexts = target.docs;
+        }
+        return targets;
+    }
+
+    /**
+     * Checks that batch targets are distinct and share one field statistics.
+     *
+     * @param targets containers of a batch selection
+     * @throws IllegalArgumentException if a target is repeated or bound to other statistics
+     */
+    private static void checkTargets(final TopTerms[] targets)
+    {
+        Objects.requireNonNull(targets, "targets");
+        for (int group = 0; group < targets.length; group++) {
+            final TopTerms target = Objects.requireNonNull(targets[group], "targets");
+            if (target.termStats != targets[0].termStats) {
+                throw new IllegalArgumentException(
+                        "targets[" + group + "] is bound to other term statistics than targets[0]");
+            }
+            for (int other = 0; other < group; other++) {
+                if (targets[other] == target) {
+                    throw new IllegalArgumentException(
+                            "targets[" + group + "] repeats targets[" + other + "]");
+                }
+            }
+        }
+    }
+
+    /**
+     * Selects a document subset as the current population by reading the
+     * forward rail of each selected document.
+     *
+     * <p>
+     * Occurrence counts are incremented for each non-{@link TermRail#NO_TERM}
+     * slot; a per-term stamp array counts each term once per document. The
+     * result is the same as the postings path for documents live at rail
+     * build time.
+     * </p>
+     *
+     * @param rail forward rail of this field, aligned with this lexicon
+     * @param bits global document-id bitset defining the local population
+     * @return this instance
+     */
+    private TopTerms selectRail(final TermRail rail, final FixedBitSet bits)
+    {
+        useLocal();
+        final int vocabSize = termStats.vocabSize();
+        if (railStamp == null || railStamp.length != vocabSize) {
+            railStamp = new int[vocabSize];
+        } else {
+            Arrays.fill(railStamp, 0);
+        }
+        final int[] stamp = railStamp;
+        final int maxDoc = rail.docCount();
+        int[] ids = new int[64];
+        long tokenCount = 0L;
+
+        for (int docId = bits.nextSetBit(0);
+                docId != DocIdSetIterator.NO_MORE_DOCS && docId < maxDoc;
+                docId = (docId + 1 < bits.length()) ? bits.nextSetBit(docId + 1) : DocIdSetIterator.NO_MORE_DOCS) {
+            final int docLen = rail.docLength(docId);
+            if (docLen == 0) {
+                continue;
+            }
+            if (ids.length < docLen) {
+                ids = new int[Math.max(docLen, ids.length * 2)];
+            }
+            rail.copyDocument(docId, ids);
+            final int mark = docId + 1;
+            for (int position = 0; position < docLen; position++) {
+                final int termId = ids[position];
+                if (termId == TermRail.NO_TERM) {
+                    continue;
+                }
+                termFreq[termId]++;
+                if (stamp[termId] != mark) {
+                    stamp[termId] = mark;
+                    termDocs[termId]++;
+                    termContexts[termId]++;
+                }
+                tokenCount++;
+            }
+        }
+
+        tokens = tokenCount;
+        this.docs = bits.cardinality();
+        this.contexts = this.docs;
+        return this;
+    }
+
+    /**
+     * Estimates whether the forward rail is cheaper than a full postings pass
+     * for this subset. Stops summing document widths as soon as the postings
+     * budget is exceeded, so the estimate costs at most the work it saves.
+     *
+     * @param bits global document-id bitset
+     * @return {@code true} to read the rail
+     */
+    private boolean preferRail(final FixedBitSet bits)
+    {
+        if (fieldPostings < 0L) {
+            long sum = 0L;
+            final int vocabSize = termStats.vocabSize();
+            for (int termId = 1; termId < vocabSize; termId++) {
+                sum += termStats.termDocs(termId);
+            }
+            fieldPostings = sum;
+        }
+        final long budget = (fieldPostings + termStats.vocabSize()) / RAIL_COST;
+        final int maxDoc = termStats.maxDoc();
+        long width = 0L;
+        for (int docId = bits.nextSetBit(0);
+                docId != DocIdSetIterator.NO_MORE_DOCS && docId < maxDoc;
+                docId = (docId + 1 < bits.length()) ? bits.nextSetBit(docId + 1) : DocIdSetIterator.NO_MORE_DOCS) {
+            width += termStats.docWidth(docId);
+            if (width > budget) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Sets a ranking produced by an external component.
      *
@@ -830,28 +1198,30 @@ public final class TopTerms implements Iterable<TopTerms.TermEntry>
      * Returns the current population context-count vector.
      *
      * <p>
-     * The returned array is aliased, not copied.
+     * The returned array is aliased, not copied, except over mapped
+     * {@link TermStats} after {@link #reset()}, where it is a fresh heap copy.
      * </p>
      *
      * @return context-count vector indexed by dense term id
      */
     public int[] termContextsRef()
     {
-        return termContexts;
+        return termContexts != null ? termContexts : termStats.termDocsRef();
     }
 
     /**
      * Returns the current population document-count vector.
      *
      * <p>
-     * The returned array is aliased, not copied.
+     * The returned array is aliased, not copied, except over mapped
+     * {@link TermStats} after {@link #reset()}, where it is a fresh heap copy.
      * </p>
      *
      * @return document-count vector indexed by dense term id
      */
     public int[] termDocsRef()
     {
-        return termDocs;
+        return termDocs != null ? termDocs : termStats.termDocsRef();
     }
 
     /**
@@ -862,7 +1232,7 @@ public final class TopTerms implements Iterable<TopTerms.TermEntry>
      */
     public long termFreq(final int termId)
     {
-        return termFreq[termId];
+        return termFreq != null ? termFreq[termId] : termStats.termFreq(termId);
     }
 
     /**
@@ -889,14 +1259,15 @@ public final class TopTerms implements Iterable<TopTerms.TermEntry>
      * Returns the current population occurrence-count vector.
      *
      * <p>
-     * The returned array is aliased, not copied.
+     * The returned array is aliased, not copied, except over mapped
+     * {@link TermStats} after {@link #reset()}, where it is a fresh heap copy.
      * </p>
      *
      * @return occurrence-count vector indexed by dense term id
      */
     public long[] termFreqRef()
     {
-        return termFreq;
+        return termFreq != null ? termFreq : termStats.termFreqRef();
     }
 
     /**
@@ -1157,9 +1528,10 @@ public final class TopTerms implements Iterable<TopTerms.TermEntry>
         if (mutable) {
             return;
         }
-        termFreq = termFreq.clone();
-        termDocs = termDocs.clone();
-        termContexts = termContexts.clone();
+        // mapped statistics return a fresh heap copy, owned from now on
+        termFreq = termFreq != null ? termFreq.clone() : termStats.termFreqRef();
+        termDocs = termDocs != null ? termDocs.clone() : termStats.termDocsRef();
+        termContexts = termContexts != null ? termContexts.clone() : termDocs.clone();
         mutable = true;
     }
 
@@ -1226,7 +1598,7 @@ public final class TopTerms implements Iterable<TopTerms.TermEntry>
      */
     private double score(final int termId, final double[] scoreVec)
     {
-        return scoreVec == null ? (double) termFreq[termId] : scoreVec[termId];
+        return scoreVec == null ? (double) termFreq(termId) : scoreVec[termId];
     }
 
     /**
@@ -1242,7 +1614,7 @@ public final class TopTerms implements Iterable<TopTerms.TermEntry>
         final int termId,
         final long otherTokens)
     {
-        final long localTermCount = termFreq[termId];
+        final long localTermCount = termFreq(termId);
         final long otherTermCount = termStats.termFreq(termId) - localTermCount;
         return scorer.score(localTermCount, tokens, otherTermCount, otherTokens);
     }
@@ -1524,7 +1896,7 @@ public final class TopTerms implements Iterable<TopTerms.TermEntry>
          */
         public long contexts()
         {
-            return termContexts[termId];
+            return TopTerms.this.contexts(termId);
         }
 
         /**
@@ -1534,7 +1906,7 @@ public final class TopTerms implements Iterable<TopTerms.TermEntry>
          */
         public long docs()
         {
-            return termDocs[termId];
+            return TopTerms.this.docs(termId);
         }
 
         /**
@@ -1574,7 +1946,7 @@ public final class TopTerms implements Iterable<TopTerms.TermEntry>
          */
         public long freq()
         {
-            return termFreq[termId];
+            return TopTerms.this.termFreq(termId);
         }
 
         /**
@@ -1599,7 +1971,7 @@ public final class TopTerms implements Iterable<TopTerms.TermEntry>
          */
         public double score()
         {
-            return scores != null ? scores[termId] : (double) termFreq[termId];
+            return scores != null ? scores[termId] : (double) TopTerms.this.termFreq(termId);
         }
 
         /**
@@ -0,0 +1,152 @@
+package com.github.oeuvres.alix.lucene.util;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.util.FixedBitSet;
+
+/**
+ * Byte-bounded LRU cache of filter results, as global-doc-id {@link FixedBitSet}s, for one frozen
+ * index snapshot.
+ *
+ * <p>
+ * Keys are queries rewritten by the searcher, so equal filters written differently share one
+ * entry as long as their rewritten forms are {@link Query#equals equal}. A miss materializes the
+ * filter with {@link BitsCollectorManager}. Concurrent requests for the same filter wait for the
+ * first one instead of searching again: the several operations of one user action pay for the
+ * filter once.
+ * </p>
+ *
+ * <p>
+ * Entries are evicted least-recently-used first when the sum of
+ * {@link FixedBitSet#ramBytesUsed()} exceeds the byte budget; a budget of 0 disables caching.
+ * There is no invalidation: the cache belongs to one reader snapshot and is dropped with it. The
+ * mechanics are those of {@link FutureCache}.
+ * </p>
+ *
+ * <p>
+ * Returned bitsets are shared between requests and must not be modified.
+ * </p>
+ *
+ * <p>
+ * Thread-safe.
+ * </p>
+ */
+public final class BitsCache
+{
+    /** Bitsets by rewritten query. */
+    private final FutureCache<Query, FixedBitSet> cache;
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param maxBytes byte budget for cached bitsets; 0 disables caching
+     * @throws IllegalArgumentException if {@code maxBytes} is negative
+     */
+    public BitsCache(final long maxBytes)
+    {
+        this.cache = new FutureCache<>(maxBytes, FixedBitSet::ramBytesUsed);
+    }
+
+    /**
+     * Returns the documents matching a filter query, from cache when possible.
+     *
+     * @param searcher searcher of the snapshot this cache belongs to
+     * @param query    non-scoring filter query
+     * @return matching global doc ids; shared, must not be modified
+     * @throws IOException if query rewrite or search fails
+     */
+    public FixedBitSet bits(final IndexSearcher searcher, final Query query) throws IOException
+    {
+        final Query key = searcher.rewrite(query);
+        return cache.get(key, () -> searcher.search(key, new BitsCollectorManager(searcher)));
+    }
+
+    /**
+     * Current bytes held by completed entries.
+     *
+     * @return sum of {@link FixedBitSet#ramBytesUsed()} of cached bitsets
+     */
+    public long bytes()
+    {
+        return cache.bytes();
+    }
+
+    /**
+     * Drops every entry. Counters are kept.
+     */
+    public void clear()
+    {
+        cache.clear();
+    }
+
+    /**
+     * Number of entries evicted to respect the byte budget.
+     *
+     * @return eviction count since creation
+     */
+    public long evictions()
+    {
+        return cache.evictions();
+    }
+
+    /**
+     * Number of requests served by an existing entry.
+     *
+     * @return hit count since creation
+     */
+    public long hits()
+    {
+        return cache.hits();
+    }
+
+    /**
+     * Byte budget of this cache.
+     *
+     * @return maximum bytes, 0 when caching is disabled
+     */
+    public long maxBytes()
+    {
+        return cache.maxBytes();
+    }
+
+    /**
+     * Number of requests that searched the index.
+     *
+     * @return miss count since creation
+     */
+    public long misses()
+    {
+        return cache.misses();
+    }
+
+    /**
+     * Filters of completed entries, most recently used first, for example to replay the filters
+     * of a snapshot against its successor.
+     *
+     * @param max maximum number of queries returned
+     * @return rewritten filter queries, at most {@code max}
+     */
+    public List<Query> queries(final int max)
+    {
+        return cache.keys(max);
+    }
+
+    /**
+     * Number of entries, completed or in flight.
+     *
+     * @return entry count
+     */
+    public int size()
+    {
+        return cache.size();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "BitsCache" + cache;
+    }
+}
@@ -0,0 +1,284 @@
+package com.github.oeuvres.alix.lucene.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+import org.apache.lucene.util.IOSupplier;
+
+/**
+ * Byte-bounded LRU cache of values computed once, shared by the caches of one frozen index
+ * snapshot ({@link BitsCache}, {@link com.github.oeuvres.alix.lucene.snippets.HiliteCache}).
+ *
+ * <p>
+ * A miss computes the value on the calling thread. Concurrent requests for the same key wait for
+ * the first one, through a {@link CompletableFuture}, instead of computing again; a failure,
+ * {@link Error} included, is rethrown to every waiting request and the entry is dropped, so that
+ * the next request tries again. {@code null} values are returned but not cached.
+ * </p>
+ *
+ * <p>
+ * Entries are evicted least-recently-used first when the sum of their sizes, given by the weigher
+ * of the cache, exceeds the byte budget; a budget of 0 disables caching. Entries in flight are
+ * accounted once completed. There is no invalidation: the cache belongs to one reader snapshot and
+ * is dropped with it.
+ * </p>
+ *
+ * <p>
+ * Thread-safe.
+ * </p>
+ *
+ * @param <K> key type, with value semantics
+ * @param <V> value type, shared between requests
+ */
+public final class FutureCache<K, V>
+{
+    /** Byte budget; 0 disables caching. */
+    private final long maxBytes;
+
+    /** Estimated bytes of a value. */
+    private final ToLongFunction<V> weigher;
+
+    /** Entries in access order, eldest first. Guarded by {@code this}. */
+    private final LinkedHashMap<K, Slot<V>> slots = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** Sum of the bytes of completed entries. Guarded by {@code this}. */
+    private long bytes;
+
+    /** Requests served from an entry, completed or in flight. */
+    private final LongAdder hits = new LongAdder();
+
+    /** Requests that computed the value. */
+    private final LongAdder misses = new LongAdder();
+
+    /** Entries evicted to respect the byte budget. */
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param maxBytes byte budget for cached values; 0 disables caching
+     * @param weigher  estimated bytes of a value
+     * @throws IllegalArgumentException if {@code maxBytes} is negative
+     * @throws NullPointerException     if {@code weigher} is {@code null}
+     */
+    public FutureCache(final long maxBytes, final ToLongFunction<V> weigher)
+    {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("maxBytes=" + maxBytes + " < 0");
+        }
+        this.maxBytes = maxBytes;
+        this.weigher = Objects.requireNonNull(weigher, "weigher");
+    }
+
+    /**
+     * Current bytes held by completed entries.
+     *
+     * @return sum of the weights of cached values
+     */
+    public synchronized long bytes()
+    {
+        return bytes;
+    }
+
+    /**
+     * Drops every entry. Counters are kept.
+     */
+    public synchronized void clear()
+    {
+        slots.clear();
+        bytes = 0;
+    }
+
+    /**
+     * Number of entries evicted to respect the byte budget.
+     *
+     * @return eviction count since creation
+     */
+    public long evictions()
+    {
+        return evictions.sum();
+    }
+
+    /**
+     * Returns the value of a key, from cache when possible.
+     *
+     * @param key  cache key
+     * @param load computes the value on a miss; a {@code null} result is not cached
+     * @return value, shared between requests; {@code null} if {@code load} returned {@code null}
+     * @throws IOException if {@code load} fails, here or in the request computing the value
+     */
+    public V get(final K key, final IOSupplier<V> load) throws IOException
+    {
+        if (maxBytes == 0) {
+            misses.increment();
+            return load.get();
+        }
+        Slot<V> found;
+        final Slot<V> slot = new Slot<>();
+        synchronized (this) {
+            found = slots.get(key);
+            if (found == null) {
+                slots.put(key, slot);
+            }
+        }
+        if (found != null) {
+            hits.increment();
+            return found.join();
+        }
+        misses.increment();
+        final V value;
+        try {
+            value = load.get();
+        }
+        catch (Throwable e) {
+            // errors too, or the waiting requests would never wake up and the slot never be evicted
+            synchronized (this) {
+                slots.remove(key, slot);
+            }
+            slot.future.completeExceptionally(e);
+            throw e;
+        }
+        slot.future.complete(value);
+        synchronized (this) {
+            if (value == null) {
+                slots.remove(key, slot);
+            }
+            else if (slots.get(key) == slot) {
+                slot.bytes = weigher.applyAsLong(value);
+                bytes += slot.bytes;
+                evict();
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Number of requests served by an existing entry.
+     *
+     * @return hit count since creation
+     */
+    public long hits()
+    {
+        return hits.sum();
+    }
+
+    /**
+     * Keys of completed entries, most recently used first.
+     *
+     * @param max maximum number of keys returned
+     * @return keys, at most {@code max}
+     */
+    public synchronized List<K> keys(final int max)
+    {
+        final List<K> keys = new ArrayList<>(Math.min(max, slots.size()));
+        for (Map.Entry<K, Slot<V>> e : slots.entrySet()) {
+            if (e.getValue().future.isDone() && !e.getValue().future.isCompletedExceptionally()) {
+                keys.add(e.getKey());
+            }
+        }
+        // access order is eldest first
+        Collections.reverse(keys);
+        return (keys.size() > max) ? keys.subList(0, max) : keys;
+    }
+
+    /**
+     * Byte budget of this cache.
+     *
+     * @return maximum bytes, 0 when caching is disabled
+     */
+    public long maxBytes()
+    {
+        return maxBytes;
+    }
+
+    /**
+     * Number of requests that computed the value.
+     *
+     * @return miss count since creation
+     */
+    public long misses()
+    {
+        return misses.sum();
+    }
+
+    /**
+     * Number of entries, completed or in flight.
+     *
+     * @return entry count
+     */
+    public synchronized int size()
+    {
+        return slots.size();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "{entries=" + size() + ", bytes=" + bytes() + "/" + maxBytes
+                + ", hits=" + hits() + ", misses=" + misses() + ", evictions=" + evictions() + "}";
+    }
+
+    /**
+     * Evicts completed entries, eldest first, until the byte budget is respected. Entries still in
+     * flight are skipped, they are accounted once completed.
+     */
+    private void evict()
+    {
+        final Iterator<Map.Entry<K, Slot<V>>> it = slots.entrySet().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            final Slot<V> slot = it.next().getValue();
+            if (!slot.future.isDone())
+                continue;
+            bytes -= slot.bytes;
+            it.remove();
+            evictions.increment();
+        }
+    }
+
+    /**
+     * One cache entry: the future value, and its bytes once accounted.
+     *
+     * @param <V> value type
+     */
+    private static final class Slot<V>
+    {
+        /** Completed by the request that computed the value. */
+        final CompletableFuture<V> future = new CompletableFuture<>();
+
+        /** Bytes accounted for this entry; 0 while in flight. */
+        long bytes;
+
+        /**
+         * Waits for the value, rethrowing the failure of the computing request.
+         *
+         * @return value
+         * @throws IOException if the computing request failed on I/O
+         */
+        V join() throws IOException
+        {
+            try {
+                return future.join();
+            }
+            catch (CompletionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof IOException io)
+                    throw new IOException(io.getMessage(), io);
+                if (cause instanceof RuntimeException re)
+                    throw re;
+                if (cause instanceof Error err)
+                    throw err;
+                throw e;
+            }
+        }
+    }
+}
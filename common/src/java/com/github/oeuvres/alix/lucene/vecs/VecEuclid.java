@@ -155,10 +155,8 @@ public final class VecEuclid
             }
 
             final float[] candidate = model.vectors()[row];
-            double dot = 0d;
-            for (int dim = 0; dim < model.dims(); dim++) {
-                dot += (double) query[dim] * candidate[dim];
-            }
+            final double dot =
+                VecKernels.dot(query, 0, candidate, 0, model.dims());
 
             double distance2 =
                 queryNorm2 + model.norm2()[row] - 2d * dot;
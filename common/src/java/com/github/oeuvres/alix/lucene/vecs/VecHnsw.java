@@ -0,0 +1,819 @@
+package com.github.oeuvres.alix.lucene.vecs;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.SplittableRandom;
+
+import org.apache.lucene.util.LongHeap;
+import org.apache.lucene.util.NumericUtils;
+
+import com.github.oeuvres.alix.util.IOUtil;
+import com.github.oeuvres.alix.util.TopArray;
+
+/**
+ * Approximate nearest-neighbour index over the vectors of a {@link VecModel}, as a hierarchical
+ * navigable small-world graph (HNSW, Malkov &amp; Yashunin 2016).
+ *
+ * <p>
+ * Similarity is the cosine, i.e. the dot product of the L2-normalised rows of the model. A
+ * lookup descends greedily through the sparse upper layers, then explores the dense bottom layer
+ * with a candidate list of size {@code ef}. A larger {@code ef} gives a better recall for a
+ * longer lookup; {@link #DEFAULT_EF} is a good start for {@code k} up to 50, recall is usually
+ * above 0.95 there. A lookup visits a few thousand vectors instead of the whole vocabulary.
+ * </p>
+ *
+ * <h2>File</h2>
+ * <p>
+ * The graph is persisted next to the word2vec model, {@code <model>.hnsw} for
+ * {@code <model>.bin} or a quantised {@code <model>.vq}, written by {@link DataOutputStream}
+ * (big-endian) and memory-mapped read only at {@link #open(Path, VecModel)}:
+ * </p>
+ * <pre>
+ * int MAGIC, int VERSION, int size, int dim, int m, int maxLevel, int entry
+ * int[size]                 level of each node
+ * int[size]                 first upper slot of each node, -1 for level 0 nodes
+ * int[size * (1 + 2m)]      level 0 slots: neighbour count, then neighbour ids
+ * int[uppers * (1 + m)]     upper slots, levels 1..level of a node are consecutive
+ * </pre>
+ * <p>
+ * Size and dimension are checked against the model at open; a graph older than its model is
+ * stale and should be rebuilt, see {@link #isCurrent(Path)}. Building takes a while for a large
+ * vocabulary: it is done offline, by {@link #main(String[])}, never on a request.
+ * </p>
+ *
+ * <p>
+ * Immutable once built or opened; lookups are thread-safe. An opened instance must be
+ * {@link #close() closed}.
+ * </p>
+ */
+public final class VecHnsw implements Closeable
+{
+    /** Default candidate list size of lookups. */
+    public static final int DEFAULT_EF = 64;
+
+    /** Default neighbours per node on upper levels, twice on level 0. */
+    public static final int DEFAULT_M = 16;
+
+    /** Default candidate list size while building. */
+    public static final int DEFAULT_EF_CONSTRUCTION = 100;
+
+    /** File extension of the graph. */
+    public static final String EXT = ".hnsw";
+
+    /** Magic number "HNSW". */
+    private static final int MAGIC = 0x484E5357;
+
+    /** File format version. */
+    private static final int VERSION = 1;
+
+    /** Header bytes. */
+    private static final long HEADER = 7L * Integer.BYTES;
+
+    /** Multi-byte layout of the file. */
+    private static final ValueLayout.OfInt BE_INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+
+    /** Model providing the vectors. */
+    private final VecModel model;
+
+    /** Vector dimension. */
+    private final int dim;
+
+    /** Node count, the model size. */
+    private final int size;
+
+    /** Max neighbours on upper levels. */
+    private final int m;
+
+    /** Ints per level 0 slot. */
+    private final int slot0;
+
+    /** Ints per upper slot. */
+    private final int slotUp;
+
+    /** Highest level. */
+    private int maxLevel;
+
+    /** Entry node, on {@link #maxLevel}. */
+    private int entry;
+
+    /** Level per node; heap mode. */
+    private final int[] levels;
+
+    /** First upper slot per node; heap mode. */
+    private final int[] upperBase;
+
+    /** Level 0 slots; heap mode. */
+    private final int[] links0;
+
+    /** Upper slots; heap mode. */
+    private final int[] linksUp;
+
+    /** Arena of the mapped file; {@code null} in heap mode. */
+    private final Arena arena;
+
+    /** Mapped file; {@code null} in heap mode. */
+    private final MemorySegment data;
+
+    /** Byte offsets of the mapped sections. */
+    private final long levelsOffset, upperBaseOffset, links0Offset, linksUpOffset;
+
+    /**
+     * Heap graph under construction.
+     */
+    private VecHnsw(final VecModel model, final int m, final int[] levels, final int[] upperBase, final int uppers)
+    {
+        this.model = model;
+        this.dim = model.dim();
+        this.size = model.size();
+        this.m = m;
+        this.slot0 = 1 + 2 * m;
+        this.slotUp = 1 + m;
+        this.levels = levels;
+        this.upperBase = upperBase;
+        this.links0 = new int[size * slot0];
+        this.linksUp = new int[uppers * slotUp];
+        this.arena = null;
+        this.data = null;
+        this.levelsOffset = this.upperBaseOffset = this.links0Offset = this.linksUpOffset = -1L;
+    }
+
+    /**
+     * Mapped graph.
+     */
+    private VecHnsw(
+        final VecModel model,
+        final int m,
+        final int maxLevel,
+        final int entry,
+        final Arena arena,
+        final MemorySegment data)
+    {
+        this.model = model;
+        this.dim = model.dim();
+        this.size = model.size();
+        this.m = m;
+        this.slot0 = 1 + 2 * m;
+        this.slotUp = 1 + m;
+        this.maxLevel = maxLevel;
+        this.entry = entry;
+        this.levels = null;
+        this.upperBase = null;
+        this.links0 = null;
+        this.linksUp = null;
+        this.arena = arena;
+        this.data = data;
+        this.levelsOffset = HEADER;
+        this.upperBaseOffset = levelsOffset + (long) size * Integer.BYTES;
+        this.links0Offset = upperBaseOffset + (long) size * Integer.BYTES;
+        this.linksUpOffset = links0Offset + (long) size * slot0 * Integer.BYTES;
+    }
+
+    /**
+     * Builds the graph of a model in memory, with default parameters.
+     *
+     * @param model vectors to index
+     * @return heap graph, usable and writable
+     */
+    public static VecHnsw build(final VecModel model)
+    {
+        return build(model, DEFAULT_M, DEFAULT_EF_CONSTRUCTION, 42L);
+    }
+
+    /**
+     * Builds the graph of a model in memory. Nodes are inserted in vector-id order, so the most
+     * frequent forms of a word2vec model make the backbone of the graph.
+     *
+     * @param model          vectors to index
+     * @param m              neighbours per node on upper levels, twice on level 0
+     * @param efConstruction candidate list size while inserting, higher is slower and better
+     * @param seed           seed of the level draw
+     * @return heap graph, usable and writable
+     * @throws IllegalArgumentException if {@code m < 2} or {@code efConstruction < m}
+     */
+    public static VecHnsw build(final VecModel model, final int m, final int efConstruction, final long seed)
+    {
+        Objects.requireNonNull(model, "model");
+        if (m < 2) {
+            throw new IllegalArgumentException("m=" + m + " < 2");
+        }
+        if (efConstruction < m) {
+            throw new IllegalArgumentException("efConstruction=" + efConstruction + " < m=" + m);
+        }
+        final int size = model.size();
+        final int[] levels = new int[size];
+        final int[] upperBase = new int[size];
+        final double mult = 1d / Math.log(m);
+        final SplittableRandom random = new SplittableRandom(seed);
+        int uppers = 0;
+        for (int node = 0; node < size; node++) {
+            final int level = Math.min(30, (int) (-Math.log(1d - random.nextDouble()) * mult));
+            levels[node] = level;
+            upperBase[node] = (level == 0) ? -1 : uppers;
+            uppers += level;
+        }
+        final VecHnsw graph = new VecHnsw(model, m, levels, upperBase, uppers);
+        final Visited visited = new Visited(size);
+        for (int node = 0; node < size; node++) {
+            graph.insert(node, efConstruction, visited);
+        }
+        return graph;
+    }
+
+    /**
+     * Releases the mapping of an opened graph; no-op for a built one.
+     */
+    @Override
+    public void close()
+    {
+        if (arena != null)
+            arena.close();
+    }
+
+    /**
+     * Path of the graph of a word2vec model.
+     *
+     * @param modelPath word2vec {@code .bin} or quantised {@code .vq} file
+     * @return sibling {@code .hnsw} path
+     */
+    public static Path hnswPath(final Path modelPath)
+    {
+        String name = modelPath.getFileName().toString();
+        if (name.endsWith(".bin"))
+            name = name.substring(0, name.length() - 4);
+        else if (name.endsWith(VecModel.EXT))
+            name = name.substring(0, name.length() - VecModel.EXT.length());
+        return modelPath.resolveSibling(name + EXT);
+    }
+
+    /**
+     * Tells whether the graph of a model exists and is not older than the model.
+     *
+     * @param modelPath word2vec {@code .bin} file
+     * @return {@code true} if {@link #open(Path, VecModel)} can use the graph file
+     * @throws IOException if file times cannot be read
+     */
+    public static boolean isCurrent(final Path modelPath) throws IOException
+    {
+        final Path path = hnswPath(modelPath);
+        return Files.isRegularFile(path)
+                && Files.getLastModifiedTime(path).compareTo(Files.getLastModifiedTime(modelPath)) >= 0;
+    }
+
+    /**
+     * Returns the model of this graph.
+     *
+     * @return vector model
+     */
+    public VecModel model()
+    {
+        return model;
+    }
+
+    /**
+     * Returns the approximate nearest neighbours of a vector id, itself excluded.
+     *
+     * @param id vector id
+     * @param k  number of neighbours
+     * @return neighbour ids scored by cosine, best first
+     */
+    public TopArray nearest(final int id, final int k)
+    {
+        return nearest(id, k, DEFAULT_EF);
+    }
+
+    /**
+     * Returns the approximate nearest neighbours of a vector id, itself excluded.
+     *
+     * @param id vector id
+     * @param k  number of neighbours
+     * @param ef candidate list size, raised to {@code k + 1}; higher for a better recall
+     * @return neighbour ids scored by cosine, best first
+     * @throws IndexOutOfBoundsException if {@code id} is outside the model
+     */
+    public TopArray nearest(final int id, final int k, final int ef)
+    {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("vector id " + id + " outside [0, " + size + ")");
+        }
+        final float[] query = new float[dim];
+        model.copy(id, query);
+        return search(query, k, ef, id);
+    }
+
+    /**
+     * Returns the approximate nearest neighbours of a free vector, for example a sum of word
+     * vectors. The query is normalised on a copy.
+     *
+     * @param query vector of {@link VecModel#dim()} coordinates
+     * @param k     number of neighbours
+     * @return neighbour ids scored by cosine, best first
+     */
+    public TopArray nearest(final float[] query, final int k)
+    {
+        return nearest(query, k, DEFAULT_EF);
+    }
+
+    /**
+     * Returns the approximate nearest neighbours of a free vector.
+     *
+     * @param query vector of {@link VecModel#dim()} coordinates
+     * @param k     number of neighbours
+     * @param ef    candidate list size, raised to {@code k}; higher for a better recall
+     * @return neighbour ids scored by cosine, best first
+     * @throws IllegalArgumentException if the query has a wrong dimension or a zero norm
+     */
+    public TopArray nearest(final float[] query, final int k, final int ef)
+    {
+        Objects.requireNonNull(query, "query");
+        if (query.length != dim) {
+            throw new IllegalArgumentException("query dimension " + query.length + " != " + dim);
+        }
+        double norm2 = 0d;
+        for (float v : query)
+            norm2 += (double) v * v;
+        if (!(norm2 > 0d) || !Double.isFinite(norm2)) {
+            throw new IllegalArgumentException("query has a zero or invalid norm");
+        }
+        final double inverse = 1d / Math.sqrt(norm2);
+        final float[] unit = new float[dim];
+        for (int axis = 0; axis < dim; axis++)
+            unit[axis] = (float) (query[axis] * inverse);
+        return search(unit, k, ef, -1);
+    }
+
+    /**
+     * Opens the graph file of a model, memory-mapped.
+     *
+     * @param modelPath word2vec {@code .bin} file the model was loaded from
+     * @param model     the loaded model
+     * @return mapped graph; close it when done
+     * @throws IOException if the file is missing, inconsistent, or built for another model
+     */
+    public static VecHnsw open(final Path modelPath, final VecModel model) throws IOException
+    {
+        final Path path = hnswPath(modelPath);
+        IOUtil.ensureRegularFile(path);
+        final Arena arena = Arena.ofShared();
+        try {
+            final MemorySegment data = IOUtil.mapReadOnly(path, arena);
+            if (data.byteSize() < HEADER) {
+                throw new IOException("Truncated hnsw file: " + path);
+            }
+            if (data.get(BE_INT, 0L) != MAGIC) {
+                throw new IOException("Invalid hnsw file magic: " + path);
+            }
+            final int version = data.get(BE_INT, 4L);
+            if (version != VERSION) {
+                throw new IOException("Unsupported hnsw file version " + version + ": " + path);
+            }
+            final int size = data.get(BE_INT, 8L);
+            final int dim = data.get(BE_INT, 12L);
+            if (size != model.size() || dim != model.dim()) {
+                throw new IOException("hnsw file built for size=" + size + ", dim=" + dim
+                        + ", model has size=" + model.size() + ", dim=" + model.dim() + ": " + path);
+            }
+            final int m = data.get(BE_INT, 16L);
+            final int maxLevel = data.get(BE_INT, 20L);
+            final int entry = data.get(BE_INT, 24L);
+            if (m < 2 || maxLevel < 0 || entry < 0 || entry >= size) {
+                throw new IOException("Invalid hnsw header: m=" + m + ", maxLevel=" + maxLevel
+                        + ", entry=" + entry + ": " + path);
+            }
+            // the levels are read before the size check, they must be in the file
+            if (data.byteSize() < HEADER + (long) size * Integer.BYTES) {
+                throw new IOException("Truncated hnsw file: " + path);
+            }
+            long uppers = 0;
+            for (int node = 0; node < size; node++) {
+                final int level = data.get(BE_INT, HEADER + (long) node * Integer.BYTES);
+                if (level < 0 || level > maxLevel) {
+                    throw new IOException("Invalid hnsw level " + level + " of node " + node + ": " + path);
+                }
+                uppers += level;
+            }
+            final long expected = HEADER
+                    + 2L * size * Integer.BYTES
+                    + (long) size * (1 + 2L * m) * Integer.BYTES
+                    + uppers * (1 + (long) m) * Integer.BYTES;
+            if (data.byteSize() != expected) {
+                throw new IOException("hnsw file size " + data.byteSize() + " != expected " + expected + ": " + path);
+            }
+            return new VecHnsw(model, m, maxLevel, entry, arena, data);
+        }
+        catch (IOException | RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the node count.
+     *
+     * @return number of vectors indexed
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Writes this graph next to a word2vec model, as {@link #hnswPath(Path)}, replacing a stale
+     * file.
+     *
+     * @param modelPath word2vec {@code .bin} file of the model
+     * @throws IOException if writing fails
+     */
+    public void write(final Path modelPath) throws IOException
+    {
+        final Path path = hnswPath(modelPath);
+        final Path tmp = IOUtil.tmpPath(path);
+        IOUtil.ensureAbsent(tmp);
+        try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(tmp, StandardOpenOption.CREATE_NEW));
+                DataOutputStream out = new DataOutputStream(os))
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(size);
+            out.writeInt(dim);
+            out.writeInt(m);
+            out.writeInt(maxLevel);
+            out.writeInt(entry);
+            for (int node = 0; node < size; node++)
+                out.writeInt(level(node));
+            for (int node = 0; node < size; node++)
+                out.writeInt(upperBase(node));
+            for (int node = 0; node < size; node++) {
+                for (int i = 0; i < slot0; i++)
+                    out.writeInt(link(node, 0, i));
+            }
+            for (int node = 0; node < size; node++) {
+                for (int level = 1, top = level(node); level <= top; level++) {
+                    for (int i = 0; i < slotUp; i++)
+                        out.writeInt(link(node, level, i));
+                }
+            }
+        }
+        catch (IOException | RuntimeException e) {
+            IOUtil.deleteIfExists(tmp);
+            throw e;
+        }
+        try {
+            Files.deleteIfExists(path);
+            IOUtil.moveTemp(tmp, path);
+        }
+        catch (IOException | RuntimeException e) {
+            IOUtil.deleteIfExists(tmp);
+            throw e;
+        }
+    }
+
+    /**
+     * Builds and writes the graph of a word2vec model, when missing or stale.
+     *
+     * @param args word2vec {@code .bin} or quantised {@code .vq} file, optional m, optional efConstruction
+     * @throws IOException if the model cannot be read or the graph written
+     */
+    public static void main(final String[] args) throws IOException
+    {
+        if (args.length < 1 || args.length > 3) {
+            System.err.println("usage: VecHnsw <vectors.bin> [m] [efConstruction]");
+            System.exit(2);
+            return;
+        }
+        final Path modelPath = Path.of(args[0]);
+        final int m = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_M;
+        final int efConstruction = (args.length > 2) ? Integer.parseInt(args[2]) : DEFAULT_EF_CONSTRUCTION;
+        final long started = System.currentTimeMillis();
+        try (VecModel model = modelPath.getFileName().toString().endsWith(VecModel.EXT)
+                ? VecModel.open(modelPath)
+                : VecModel.load(modelPath))
+        {
+            build(model, m, efConstruction, 42L).write(modelPath);
+            System.out.printf("%s: %,d vectors indexed in %,d ms%n",
+                    hnswPath(modelPath), model.size(), System.currentTimeMillis() - started);
+        }
+    }
+
+    /**
+     * Sets the neighbour list of a node on a level, heap mode.
+     */
+    private void setLinks(final int node, final int level, final int[] ids, final int count)
+    {
+        final int[] links;
+        final int base;
+        if (level == 0) {
+            links = links0;
+            base = node * slot0;
+        }
+        else {
+            links = linksUp;
+            base = (upperBase[node] + level - 1) * slotUp;
+        }
+        links[base] = count;
+        System.arraycopy(ids, 0, links, base + 1, count);
+    }
+
+    /**
+     * Dot product of a query with a node.
+     */
+    private float dot(final float[] query, final int node)
+    {
+        return model.dot(query, node);
+    }
+
+    /**
+     * Dot product of two nodes.
+     */
+    private float dot(final int a, final int b)
+    {
+        return model.dot(a, b);
+    }
+
+    /**
+     * Greedy walk to the best node of one level.
+     */
+    private int greedy(final float[] query, int node, final int level)
+    {
+        float best = dot(query, node);
+        boolean moved = true;
+        while (moved) {
+            moved = false;
+            final int count = link(node, level, 0);
+            for (int i = 1; i <= count; i++) {
+                final int next = link(node, level, i);
+                final float s = dot(query, next);
+                if (s > best) {
+                    best = s;
+                    node = next;
+                    moved = true;
+                }
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Inserts one node into the heap graph.
+     */
+    private void insert(final int node, final int efConstruction, final Visited visited)
+    {
+        final int level = levels[node];
+        if (node == 0) {
+            entry = 0;
+            maxLevel = level;
+            return;
+        }
+        final float[] query = new float[dim];
+        model.copy(node, query);
+        int ep = entry;
+        for (int lc = maxLevel; lc > level; lc--) {
+            ep = greedy(query, ep, lc);
+        }
+        final int[] selected = new int[2 * m];
+        for (int lc = Math.min(level, maxLevel); lc >= 0; lc--) {
+            final TopArray found = searchLayer(query, new int[] {ep}, efConstruction, lc, visited);
+            final int capacity = (lc == 0) ? 2 * m : m;
+            final int count = select(node, found.toArray(), found.size(), Math.min(m, capacity), selected);
+            setLinks(node, lc, selected, count);
+            for (int i = 0; i < count; i++) {
+                link(selected[i], node, lc, capacity);
+            }
+            ep = found.id(0);
+        }
+        if (level > maxLevel) {
+            maxLevel = level;
+            entry = node;
+        }
+    }
+
+    /**
+     * Adds a back link {@code from -> to}, shrinking with the selection heuristic when full.
+     */
+    private void link(final int from, final int to, final int level, final int capacity)
+    {
+        final int count = link(from, level, 0);
+        if (count < capacity) {
+            final int base = (level == 0) ? from * slot0 : (upperBase[from] + level - 1) * slotUp;
+            final int[] links = (level == 0) ? links0 : linksUp;
+            links[base + 1 + count] = to;
+            links[base] = count + 1;
+            return;
+        }
+        final TopArray candidates = new TopArray(count + 1);
+        candidates.push(to, dot(from, to));
+        for (int i = 1; i <= count; i++) {
+            final int id = link(from, level, i);
+            candidates.push(id, dot(from, id));
+        }
+        final int[] selected = new int[capacity];
+        final int kept = select(from, candidates.toArray(), candidates.size(), capacity, selected);
+        setLinks(from, level, selected, kept);
+    }
+
+    /**
+     * Reads one int of a node slot: index 0 is the neighbour count, then the neighbour ids.
+     */
+    private int link(final int node, final int level, final int i)
+    {
+        if (data == null) {
+            if (level == 0)
+                return links0[node * slot0 + i];
+            return linksUp[(upperBase[node] + level - 1) * slotUp + i];
+        }
+        if (level == 0)
+            return data.get(BE_INT, links0Offset + ((long) node * slot0 + i) * Integer.BYTES);
+        final long slot = upperBase(node) + level - 1L;
+        return data.get(BE_INT, linksUpOffset + (slot * slotUp + i) * Integer.BYTES);
+    }
+
+    /**
+     * Level of a node.
+     */
+    private int level(final int node)
+    {
+        if (data == null)
+            return levels[node];
+        return data.get(BE_INT, levelsOffset + (long) node * Integer.BYTES);
+    }
+
+    /**
+     * Full lookup: greedy descent, then level 0 exploration.
+     */
+    private TopArray search(final float[] query, final int k, int ef, final int exclude)
+    {
+        if (k < 1) {
+            throw new IllegalArgumentException("k=" + k + " < 1");
+        }
+        final int want = (exclude >= 0) ? k + 1 : k;
+        ef = Math.max(ef, want);
+        int ep = entry;
+        for (int lc = maxLevel; lc > 0; lc--) {
+            ep = greedy(query, ep, lc);
+        }
+        final TopArray found = searchLayer(query, new int[] {ep}, ef, 0, new Visited(size));
+        final TopArray top = new TopArray(k);
+        for (int rank = 0, n = found.size(); rank < n; rank++) {
+            final int id = found.id(rank);
+            if (id != exclude)
+                top.push(id, Math.max(-1d, Math.min(1d, found.score(rank))));
+        }
+        return top;
+    }
+
+    /**
+     * Explores one level from entry points, keeping the {@code ef} best nodes.
+     */
+    private TopArray searchLayer(
+        final float[] query,
+        final int[] entries,
+        final int ef,
+        final int level,
+        final Visited visited)
+    {
+        visited.clear();
+        final TopArray results = new TopArray(ef);
+        // max-heap of candidates: inverted sortable score in the high bits
+        final LongHeap candidates = new LongHeap(ef);
+        for (int ep : entries) {
+            if (!visited.add(ep))
+                continue;
+            final float s = dot(query, ep);
+            results.push(ep, s);
+            candidates.push(encode(s, ep));
+        }
+        while (candidates.size() > 0) {
+            final long top = candidates.pop();
+            final float s = decodeScore(top);
+            if (results.isFull() && s < results.min())
+                break;
+            final int node = (int) top;
+            final int count = link(node, level, 0);
+            for (int i = 1; i <= count; i++) {
+                final int next = link(node, level, i);
+                if (!visited.add(next))
+                    continue;
+                final float sn = dot(query, next);
+                if (!results.isFull() || sn > results.min()) {
+                    results.push(next, sn);
+                    candidates.push(encode(sn, next));
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Neighbour selection heuristic: a candidate is kept when it is closer to the base than to
+     * every neighbour already kept, so links spread in several directions; the list is then
+     * filled with the best discarded candidates.
+     *
+     * @param base       node receiving the links
+     * @param candidates candidate ids, best first
+     * @param n          candidate count
+     * @param max        max neighbours
+     * @param selected   output buffer
+     * @return count of selected neighbours
+     */
+    private int select(final int base, final int[] candidates, final int n, final int max, final int[] selected)
+    {
+        int count = 0;
+        final boolean[] kept = new boolean[n];
+        for (int i = 0; i < n && count < max; i++) {
+            final int c = candidates[i];
+            if (c == base)
+                continue;
+            final float toBase = dot(base, c);
+            boolean good = true;
+            for (int j = 0; j < count; j++) {
+                if (dot(c, selected[j]) > toBase) {
+                    good = false;
+                    break;
+                }
+            }
+            if (good) {
+                selected[count++] = c;
+                kept[i] = true;
+            }
+        }
+        for (int i = 0; i < n && count < max; i++) {
+            if (!kept[i] && candidates[i] != base)
+                selected[count++] = candidates[i];
+        }
+        return count;
+    }
+
+    /**
+     * First upper slot of a node, -1 on level 0 only.
+     */
+    private int upperBase(final int node)
+    {
+        if (data == null)
+            return upperBase[node];
+        return data.get(BE_INT, upperBaseOffset + (long) node * Integer.BYTES);
+    }
+
+    /**
+     * Encodes a candidate so that the min-heap pops the best score first.
+     */
+    private static long encode(final float score, final int id)
+    {
+        return ((long) ~NumericUtils.floatToSortableInt(score) << 32) | (id & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Score of an encoded candidate.
+     */
+    private static float decodeScore(final long encoded)
+    {
+        return NumericUtils.sortableIntToFloat(~(int) (encoded >> 32));
+    }
+
+    /**
+     * Visited set cleared in time proportional to the visited count.
+     */
+    private static final class Visited
+    {
+        private final long[] bits;
+        private int[] touched = new int[256];
+        private int count;
+
+        Visited(final int size)
+        {
+            bits = new long[(size + 63) >>> 6];
+        }
+
+        /**
+         * Marks a node, returns {@code false} if it was already visited.
+         */
+        boolean add(final int node)
+        {
+            final int word = node >>> 6;
+            final long mask = 1L << node;
+            if ((bits[word] & mask) != 0)
+                return false;
+            bits[word] |= mask;
+            if (count == touched.length)
+                touched = java.util.Arrays.copyOf(touched, count * 2);
+            touched[count++] = word;
+            return true;
+        }
+
+        void clear()
+        {
+            for (int i = 0; i < count; i++)
+                bits[touched[i]] = 0L;
+            count = 0;
+        }
+    }
+}
@@ -0,0 +1,438 @@
+package com.github.oeuvres.alix.lucene.vecs;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.util.Objects;
+import java.util.logging.Logger;
+
+import com.github.oeuvres.alix.util.TopArray;
+
+/**
+ * Dense vector kernels of the package: dot products, one-against-many
+ * similarity over flat row-major {@code float[]} storage, and exact top-k.
+ *
+ * <p>
+ * Two implementations are selected once, at class initialisation. The
+ * vectorised one uses {@code jdk.incubator.vector} and is chosen when the
+ * module is resolved in the boot layer, i.e. when the JVM is started with
+ * {@code --add-modules jdk.incubator.vector}. Otherwise, or with
+ * {@code -Dalix.vecs.scalar=true}, a scalar implementation with unrolled
+ * float accumulators is used. {@link #name()} tells which one is running.
+ * </p>
+ *
+ * <p>
+ * Float kernels accumulate in {@code float}: on the unit-length rows of a
+ * {@link VecModel}, the difference with a double accumulation stays in the
+ * order of {@code 1e-6}, below any ranking concern. The double kernel
+ * accumulates in {@code double}.
+ * </p>
+ *
+ * <p>
+ * Quantised rows are read in place from a {@link MemorySegment}, as mapped by
+ * {@link VecModel}: signed bytes, or big-endian IEEE-754 half floats.
+ * </p>
+ */
+public final class VecKernels
+{
+    /** System property forcing the scalar kernels. */
+    public static final String SCALAR_PROPERTY = "alix.vecs.scalar";
+
+    /** Rows scored per batch by {@link #top(float[], float[], int, int, int)}. */
+    private static final int BLOCK = 256;
+
+    /** Selected implementation. */
+    private static final Kernel KERNEL = select();
+
+    /** Big-endian half floats of quantised rows. */
+    static final ValueLayout.OfShort BE_SHORT =
+        ValueLayout.JAVA_SHORT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+
+    /**
+     * Implementation contract, package-private.
+     */
+    interface Kernel
+    {
+        /** Dot product of two float slices. */
+        float dot(float[] a, int aOffset, float[] b, int bOffset, int length);
+
+        /** Dot product of two double slices. */
+        double dot(double[] a, int aOffset, double[] b, int bOffset, int length);
+
+        /** Dot products of a query with rows {@code [from, to)}, into {@code out[0..to-from)}. */
+        void dots(float[] query, float[] rows, int dim, int from, int to, float[] out);
+
+        /** Dot product of a float slice with signed bytes of a segment. */
+        float dotInt8(float[] a, int aOffset, MemorySegment b, long bOffset, int length);
+
+        /** Dot product of two signed-byte slices of segments, in integers. */
+        int dotInt8(MemorySegment a, long aOffset, MemorySegment b, long bOffset, int length);
+
+        /** Dot product of a float slice with big-endian half floats of a segment. */
+        float dotFp16(float[] a, int aOffset, MemorySegment b, long bOffset, int length);
+
+        /** Implementation name. */
+        String name();
+    }
+
+    /** Static kernels only. */
+    private VecKernels()
+    {
+    }
+
+    /**
+     * Dot product of two vectors of same length.
+     *
+     * @param a first vector
+     * @param b second vector
+     * @return dot product
+     * @throws IllegalArgumentException if lengths differ
+     */
+    public static double dot(
+        final double[] a,
+        final double[] b
+    ) {
+        if (a.length != b.length) {
+            throw new IllegalArgumentException(
+                "length mismatch: " + a.length + " != " + b.length);
+        }
+        return KERNEL.dot(a, 0, b, 0, a.length);
+    }
+
+    /**
+     * Dot product of two float slices, for example two rows of a flat
+     * row-major matrix.
+     *
+     * @param a first array
+     * @param aOffset first coordinate in {@code a}
+     * @param b second array
+     * @param bOffset first coordinate in {@code b}
+     * @param length number of coordinates
+     * @return dot product
+     * @throws IndexOutOfBoundsException if a slice is outside its array
+     */
+    public static float dot(
+        final float[] a,
+        final int aOffset,
+        final float[] b,
+        final int bOffset,
+        final int length
+    ) {
+        Objects.checkFromIndexSize(aOffset, length, a.length);
+        Objects.checkFromIndexSize(bOffset, length, b.length);
+        return KERNEL.dot(a, aOffset, b, bOffset, length);
+    }
+
+    /**
+     * Dot product of a float slice with a row of signed bytes, for example an
+     * INT8 row of a mapped {@link VecModel}, before its scale.
+     *
+     * @param a float array
+     * @param aOffset first coordinate in {@code a}
+     * @param b segment of bytes
+     * @param bOffset byte offset of the first coordinate in {@code b}
+     * @param length number of coordinates
+     * @return dot product
+     * @throws IndexOutOfBoundsException if a slice is outside its array or segment
+     */
+    public static float dotInt8(
+        final float[] a,
+        final int aOffset,
+        final MemorySegment b,
+        final long bOffset,
+        final int length
+    ) {
+        Objects.checkFromIndexSize(aOffset, length, a.length);
+        Objects.checkFromIndexSize(bOffset, length, b.byteSize());
+        return KERNEL.dotInt8(a, aOffset, b, bOffset, length);
+    }
+
+    /**
+     * Dot product of two rows of signed bytes, exact in integers.
+     *
+     * @param a first segment
+     * @param aOffset byte offset of the first row
+     * @param b second segment
+     * @param bOffset byte offset of the second row
+     * @param length number of coordinates
+     * @return dot product
+     * @throws IndexOutOfBoundsException if a row is outside its segment
+     */
+    public static int dotInt8(
+        final MemorySegment a,
+        final long aOffset,
+        final MemorySegment b,
+        final long bOffset,
+        final int length
+    ) {
+        Objects.checkFromIndexSize(aOffset, length, a.byteSize());
+        Objects.checkFromIndexSize(bOffset, length, b.byteSize());
+        return KERNEL.dotInt8(a, aOffset, b, bOffset, length);
+    }
+
+    /**
+     * Dot product of a float slice with a row of big-endian half floats, for
+     * example an FP16 row of a mapped {@link VecModel}.
+     *
+     * @param a float array
+     * @param aOffset first coordinate in {@code a}
+     * @param b segment of half floats
+     * @param bOffset byte offset of the first coordinate in {@code b}
+     * @param length number of coordinates
+     * @return dot product
+     * @throws IndexOutOfBoundsException if a slice is outside its array or segment
+     */
+    public static float dotFp16(
+        final float[] a,
+        final int aOffset,
+        final MemorySegment b,
+        final long bOffset,
+        final int length
+    ) {
+        Objects.checkFromIndexSize(aOffset, length, a.length);
+        Objects.checkFromIndexSize(bOffset, (long) length * Short.BYTES, b.byteSize());
+        return KERNEL.dotFp16(a, aOffset, b, bOffset, length);
+    }
+
+    /**
+     * Dot products of one query with consecutive rows of a flat row-major
+     * matrix.
+     *
+     * @param query query of {@code dim} coordinates
+     * @param rows row-major matrix of {@code dim} columns
+     * @param dim number of coordinates per row
+     * @param from first row, inclusive
+     * @param to last row, exclusive
+     * @param out destination, {@code out[row - from]} for each row
+     * @throws IllegalArgumentException if {@code query} or {@code out} is too short
+     * @throws IndexOutOfBoundsException if the rows are outside the matrix
+     */
+    public static void dots(
+        final float[] query,
+        final float[] rows,
+        final int dim,
+        final int from,
+        final int to,
+        final float[] out
+    ) {
+        if (query.length < dim) {
+            throw new IllegalArgumentException(
+                "query length " + query.length + " < dim " + dim);
+        }
+        if (out.length < to - from) {
+            throw new IllegalArgumentException(
+                "out length " + out.length + " < " + (to - from) + " rows");
+        }
+        Objects.checkFromToIndex(from, to, (dim == 0) ? 0 : rows.length / dim);
+        KERNEL.dots(query, rows, dim, from, to, out);
+    }
+
+    /**
+     * Returns the name of the selected implementation.
+     *
+     * @return {@code "vector"} or {@code "scalar"}
+     */
+    public static String name()
+    {
+        return KERNEL.name();
+    }
+
+    /**
+     * Exact top-k of the rows of a flat row-major matrix by dot product with
+     * a query, a brute-force scan by batches of one-against-many products.
+     * For unit-length rows and query, scores are cosines.
+     *
+     * @param query query of {@code dim} coordinates
+     * @param rows row-major matrix of {@code dim} columns
+     * @param dim number of coordinates per row
+     * @param k number of rows to keep
+     * @param exclude row to skip, typically the query row, or {@code -1}
+     * @return best rows, higher dot first
+     */
+    public static TopArray top(
+        final float[] query,
+        final float[] rows,
+        final int dim,
+        final int k,
+        final int exclude
+    ) {
+        final int count = rows.length / dim;
+        final TopArray top = new TopArray(k);
+        final float[] scores = new float[BLOCK];
+        for (int from = 0; from < count; from += BLOCK) {
+            final int to = Math.min(count, from + BLOCK);
+            dots(query, rows, dim, from, to, scores);
+            for (int row = from; row < to; row++) {
+                final float score = scores[row - from];
+                if (row == exclude) {
+                    continue;
+                }
+                if (top.isFull() && score <= top.min()) {
+                    continue;
+                }
+                top.push(row, score);
+            }
+        }
+        return top;
+    }
+
+    /**
+     * Selects the implementation, the vectorised one when its module is
+     * readable and not disabled.
+     */
+    private static Kernel select()
+    {
+        final Logger logger = Logger.getLogger(VecKernels.class.getName());
+        if (Boolean.getBoolean(SCALAR_PROPERTY)) {
+            return new Scalar();
+        }
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            logger.fine("jdk.incubator.vector not resolved, scalar vector kernels"
+                + " (start with --add-modules jdk.incubator.vector)");
+            return new Scalar();
+        }
+        try {
+            // loaded by name, so that the class never links without the module
+            final Class<?> c = Class.forName(VecKernels.class.getPackageName() + ".VecKernelsVector");
+            return (Kernel) c.getDeclaredConstructor().newInstance();
+        }
+        catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            logger.warning("vector kernels unavailable, scalar fallback: " + e);
+            return new Scalar();
+        }
+    }
+
+    /**
+     * Portable kernels; four accumulators break the add dependency chain.
+     */
+    static final class Scalar implements Kernel
+    {
+        @Override
+        public float dot(
+            final float[] a,
+            final int aOffset,
+            final float[] b,
+            final int bOffset,
+            final int length
+        ) {
+            float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+            int i = 0;
+            final int bound = length & ~3;
+            for (; i < bound; i += 4) {
+                s0 += a[aOffset + i] * b[bOffset + i];
+                s1 += a[aOffset + i + 1] * b[bOffset + i + 1];
+                s2 += a[aOffset + i + 2] * b[bOffset + i + 2];
+                s3 += a[aOffset + i + 3] * b[bOffset + i + 3];
+            }
+            for (; i < length; i++) {
+                s0 += a[aOffset + i] * b[bOffset + i];
+            }
+            return (s0 + s1) + (s2 + s3);
+        }
+
+        @Override
+        public double dot(
+            final double[] a,
+            final int aOffset,
+            final double[] b,
+            final int bOffset,
+            final int length
+        ) {
+            double s0 = 0d, s1 = 0d, s2 = 0d, s3 = 0d;
+            int i = 0;
+            final int bound = length & ~3;
+            for (; i < bound; i += 4) {
+                s0 += a[aOffset + i] * b[bOffset + i];
+                s1 += a[aOffset + i + 1] * b[bOffset + i + 1];
+                s2 += a[aOffset + i + 2] * b[bOffset + i + 2];
+                s3 += a[aOffset + i + 3] * b[bOffset + i + 3];
+            }
+            for (; i < length; i++) {
+                s0 += a[aOffset + i] * b[bOffset + i];
+            }
+            return (s0 + s1) + (s2 + s3);
+        }
+
+        @Override
+        public void dots(
+            final float[] query,
+            final float[] rows,
+            final int dim,
+            final int from,
+            final int to,
+            final float[] out
+        ) {
+            for (int row = from; row < to; row++) {
+                out[row - from] = dot(query, 0, rows, row * dim, dim);
+            }
+        }
+
+        @Override
+        public float dotInt8(
+            final float[] a,
+            final int aOffset,
+            final MemorySegment b,
+            final long bOffset,
+            final int length
+        ) {
+            float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+            int i = 0;
+            final int bound = length & ~3;
+            for (; i < bound; i += 4) {
+                s0 += a[aOffset + i] * b.get(ValueLayout.JAVA_BYTE, bOffset + i);
+                s1 += a[aOffset + i + 1] * b.get(ValueLayout.JAVA_BYTE, bOffset + i + 1);
+                s2 += a[aOffset + i + 2] * b.get(ValueLayout.JAVA_BYTE, bOffset + i + 2);
+                s3 += a[aOffset + i + 3] * b.get(ValueLayout.JAVA_BYTE, bOffset + i + 3);
+            }
+            for (; i < length; i++) {
+                s0 += a[aOffset + i] * b.get(ValueLayout.JAVA_BYTE, bOffset + i);
+            }
+            return (s0 + s1) + (s2 + s3);
+        }
+
+        @Override
+        public int dotInt8(
+            final MemorySegment a,
+            final long aOffset,
+            final MemorySegment b,
+            final long bOffset,
+            final int length
+        ) {
+            int sum = 0;
+            for (int i = 0; i < length; i++) {
+                sum += a.get(ValueLayout.JAVA_BYTE, aOffset + i) * b.get(ValueLayout.JAVA_BYTE, bOffset + i);
+            }
+            return sum;
+        }
+
+        @Override
+        public float dotFp16(
+            final float[] a,
+            final int aOffset,
+            final MemorySegment b,
+            final long bOffset,
+            final int length
+        ) {
+            float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+            int i = 0;
+            final int bound = length & ~3;
+            for (; i < bound; i += 4) {
+                final long offset = bOffset + (long) i * Short.BYTES;
+                s0 += a[aOffset + i] * Float.float16ToFloat(b.get(BE_SHORT, offset));
+                s1 += a[aOffset + i + 1] * Float.float16ToFloat(b.get(BE_SHORT, offset + 2));
+                s2 += a[aOffset + i + 2] * Float.float16ToFloat(b.get(BE_SHORT, offset + 4));
+                s3 += a[aOffset + i + 3] * Float.float16ToFloat(b.get(BE_SHORT, offset + 6));
+            }
+            for (; i < length; i++) {
+                s0 += a[aOffset + i] * Float.float16ToFloat(b.get(BE_SHORT, bOffset + (long) i * Short.BYTES));
+            }
+            return (s0 + s1) + (s2 + s3);
+        }
+
+        @Override
+        public String name()
+        {
+            return "scalar";
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package com.github.oeuvres.alix.lucene.vecs;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteOrder;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link VecKernels} implementation on {@code jdk.incubator.vector}, with the
+ * preferred species of the platform (8 floats on AVX2, 16 on AVX-512).
+ *
+ * <p>
+ * Only instantiated by name from {@link VecKernels} once the module is known
+ * to be resolved; no other class may reference it.
+ * </p>
+ */
+final class VecKernelsVector implements VecKernels.Kernel
+{
+    /** Float lanes. */
+    private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+
+    /** Double lanes. */
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+
+    /** Int lanes, as many as float lanes. */
+    private static final VectorSpecies<Integer> INTS = VectorSpecies.of(int.class, FLOATS.vectorShape());
+
+    /** Byte lanes, as many as float lanes; {@code null} if narrower than 64 bits, scalar kernels then. */
+    private static final VectorSpecies<Byte> BYTES = (FLOATS.vectorBitSize() >= 256)
+        ? VectorSpecies.of(byte.class, VectorShape.forBitSize(FLOATS.vectorBitSize() / 4))
+        : null;
+
+    /** Short lanes, as many as float lanes; {@code null} if narrower than 64 bits, scalar kernels then. */
+    private static final VectorSpecies<Short> SHORTS = (FLOATS.vectorBitSize() >= 128)
+        ? VectorSpecies.of(short.class, VectorShape.forBitSize(FLOATS.vectorBitSize() / 2))
+        : null;
+
+    /** Scalar tails. */
+    private final VecKernels.Scalar scalar = new VecKernels.Scalar();
+
+    /** Reflective construction only. */
+    VecKernelsVector()
+    {
+    }
+
+    @Override
+    public float dot(
+        final float[] a,
+        final int aOffset,
+        final float[] b,
+        final int bOffset,
+        final int length
+    ) {
+        final int lanes = FLOATS.length();
+        int i = 0;
+        float sum = 0f;
+        if (length >= 2 * lanes) {
+            // two accumulators hide the fma latency
+            FloatVector acc0 = FloatVector.zero(FLOATS);
+            FloatVector acc1 = FloatVector.zero(FLOATS);
+            final int bound2 = length - length % (2 * lanes);
+            for (; i < bound2; i += 2 * lanes) {
+                final FloatVector a0 = FloatVector.fromArray(FLOATS, a, aOffset + i);
+                final FloatVector b0 = FloatVector.fromArray(FLOATS, b, bOffset + i);
+                acc0 = a0.fma(b0, acc0);
+                final FloatVector a1 = FloatVector.fromArray(FLOATS, a, aOffset + i + lanes);
+                final FloatVector b1 = FloatVector.fromArray(FLOATS, b, bOffset + i + lanes);
+                acc1 = a1.fma(b1, acc1);
+            }
+            sum = acc0.add(acc1).reduceLanes(VectorOperators.ADD);
+        }
+        final int bound = length - length % lanes;
+        if (i < bound) {
+            FloatVector acc = FloatVector.zero(FLOATS);
+            for (; i < bound; i += lanes) {
+                acc = FloatVector.fromArray(FLOATS, a, aOffset + i)
+                    .fma(FloatVector.fromArray(FLOATS, b, bOffset + i), acc);
+            }
+            sum += acc.reduceLanes(VectorOperators.ADD);
+        }
+        if (i < length) {
+            sum += scalar.dot(a, aOffset + i, b, bOffset + i, length - i);
+        }
+        return sum;
+    }
+
+    @Override
+    public double dot(
+        final double[] a,
+        final int aOffset,
+        final double[] b,
+        final int bOffset,
+        final int length
+    ) {
+        final int lanes = DOUBLES.length();
+        final int bound = length - length % lanes;
+        int i = 0;
+        double sum = 0d;
+        if (bound > 0) {
+            DoubleVector acc = DoubleVector.zero(DOUBLES);
+            for (; i < bound; i += lanes) {
+                acc = DoubleVector.fromArray(DOUBLES, a, aOffset + i)
+                    .fma(DoubleVector.fromArray(DOUBLES, b, bOffset + i), acc);
+            }
+            sum = acc.reduceLanes(VectorOperators.ADD);
+        }
+        if (i < length) {
+            sum += scalar.dot(a, aOffset + i, b, bOffset + i, length - i);
+        }
+        return sum;
+    }
+
+    @Override
+    public void dots(
+        final float[] query,
+        final float[] rows,
+        final int dim,
+        final int from,
+        final int to,
+        final float[] out
+    ) {
+        final int lanes = FLOATS.length();
+        final int bound = dim - dim % lanes;
+        int row = from;
+        // four rows per pass: each query vector is loaded once for four fma
+        for (; row + 4 <= to; row += 4) {
+            final int base0 = row * dim;
+            final int base1 = base0 + dim;
+            final int base2 = base1 + dim;
+            final int base3 = base2 + dim;
+            FloatVector acc0 = FloatVector.zero(FLOATS);
+            FloatVector acc1 = FloatVector.zero(FLOATS);
+            FloatVector acc2 = FloatVector.zero(FLOATS);
+            FloatVector acc3 = FloatVector.zero(FLOATS);
+            int i = 0;
+            for (; i < bound; i += lanes) {
+                final FloatVector q = FloatVector.fromArray(FLOATS, query, i);
+                acc0 = q.fma(FloatVector.fromArray(FLOATS, rows, base0 + i), acc0);
+                acc1 = q.fma(FloatVector.fromArray(FLOATS, rows, base1 + i), acc1);
+                acc2 = q.fma(FloatVector.fromArray(FLOATS, rows, base2 + i), acc2);
+                acc3 = q.fma(FloatVector.fromArray(FLOATS, rows, base3 + i), acc3);
+            }
+            float s0 = acc0.reduceLanes(VectorOperators.ADD);
+            float s1 = acc1.reduceLanes(VectorOperators.ADD);
+            float s2 = acc2.reduceLanes(VectorOperators.ADD);
+            float s3 = acc3.reduceLanes(VectorOperators.ADD);
+            if (i < dim) {
+                s0 += scalar.dot(query, i, rows, base0 + i, dim - i);
+                s1 += scalar.dot(query, i, rows, base1 + i, dim - i);
+                s2 += scalar.dot(query, i, rows, base2 + i, dim - i);
+                s3 += scalar.dot(query, i, rows, base3 + i, dim - i);
+            }
+            out[row - from] = s0;
+            out[row - from + 1] = s1;
+            out[row - from + 2] = s2;
+            out[row - from + 3] = s3;
+        }
+        for (; row < to; row++) {
+            out[row - from] = dot(query, 0, rows, row * dim, dim);
+        }
+    }
+
+    @Override
+    public float dotInt8(
+        final float[] a,
+        final int aOffset,
+        final MemorySegment b,
+        final long bOffset,
+        final int length
+    ) {
+        if (BYTES == null) {
+            return scalar.dotInt8(a, aOffset, b, bOffset, length);
+        }
+        final int lanes = FLOATS.length();
+        final int bound = length - length % lanes;
+        int i = 0;
+        float sum = 0f;
+        if (bound > 0) {
+            FloatVector acc = FloatVector.zero(FLOATS);
+            for (; i < bound; i += lanes) {
+                final FloatVector v = (FloatVector) ByteVector
+                    .fromMemorySegment(BYTES, b, bOffset + i, ByteOrder.nativeOrder())
+                    .convertShape(VectorOperators.B2F, FLOATS, 0);
+                acc = FloatVector.fromArray(FLOATS, a, aOffset + i).fma(v, acc);
+            }
+            sum = acc.reduceLanes(VectorOperators.ADD);
+        }
+        if (i < length) {
+            sum += scalar.dotInt8(a, aOffset + i, b, bOffset + i, length - i);
+        }
+        return sum;
+    }
+
+    @Override
+    public int dotInt8(
+        final MemorySegment a,
+        final long aOffset,
+        final MemorySegment b,
+        final long bOffset,
+        final int length
+    ) {
+        if (BYTES == null) {
+            return scalar.dotInt8(a, aOffset, b, bOffset, length);
+        }
+        final int lanes = INTS.length();
+        final int bound = length - length % lanes;
+        int i = 0;
+        int sum = 0;
+        if (bound > 0) {
+            IntVector acc = IntVector.zero(INTS);
+            for (; i < bound; i += lanes) {
+                final IntVector x = (IntVector) ByteVector
+                    .fromMemorySegment(BYTES, a, aOffset + i, ByteOrder.nativeOrder())
+                    .convertShape(VectorOperators.B2I, INTS, 0);
+                final IntVector y = (IntVector) ByteVector
+                    .fromMemorySegment(BYTES, b, bOffset + i, ByteOrder.nativeOrder())
+                    .convertShape(VectorOperators.B2I, INTS, 0);
+                acc = acc.add(x.mul(y));
+            }
+            sum = acc.reduceLanes(VectorOperators.ADD);
+        }
+        if (i < length) {
+            sum += scalar.dotInt8(a, aOffset + i, b, bOffset + i, length - i);
+        }
+        return sum;
+    }
+
+    /**
+     * Half floats are widened by bits: sign, exponent rebased from 15 to 127,
+     * mantissa shifted. Zeros keep their sign only; a chunk holding a
+     * subnormal goes to the scalar kernel. Quantised rows are finite, so
+     * infinities and NaN are not handled.
+     */
+    @Override
+    public float dotFp16(
+        final float[] a,
+        final int aOffset,
+        final MemorySegment b,
+        final long bOffset,
+        final int length
+    ) {
+        if (SHORTS == null) {
+            return scalar.dotFp16(a, aOffset, b, bOffset, length);
+        }
+        final int lanes = FLOATS.length();
+        final int bound = length - length % lanes;
+        int i = 0;
+        float sum = 0f;
+        if (bound > 0) {
+            FloatVector acc = FloatVector.zero(FLOATS);
+            for (; i < bound; i += lanes) {
+                final long offset = bOffset + (long) i * Short.BYTES;
+                final IntVector half = ((IntVector) ShortVector
+                    .fromMemorySegment(SHORTS, b, offset, ByteOrder.BIG_ENDIAN)
+                    .convertShape(VectorOperators.S2I, INTS, 0))
+                    .and(0xFFFF);
+                final IntVector exp = half.lanewise(VectorOperators.LSHR, 10).and(0x1F);
+                final IntVector mant = half.and(0x3FF);
+                final VectorMask<Integer> zeroExp = exp.eq(0);
+                if (zeroExp.andNot(mant.eq(0)).anyTrue()) {
+                    sum += scalar.dotFp16(a, aOffset + i, b, offset, lanes);
+                    continue;
+                }
+                final IntVector sign = half.and(0x8000).lanewise(VectorOperators.LSHL, 16);
+                final IntVector bits = sign
+                    .or(exp.add(127 - 15).lanewise(VectorOperators.LSHL, 23))
+                    .or(mant.lanewise(VectorOperators.LSHL, 13))
+                    .blend(sign, zeroExp);
+                acc = FloatVector.fromArray(FLOATS, a, aOffset + i).fma(bits.reinterpretAsFloats(), acc);
+            }
+            sum += acc.reduceLanes(VectorOperators.ADD);
+        }
+        if (i < length) {
+            sum += scalar.dotFp16(a, aOffset + i, b, bOffset + (long) i * Short.BYTES, length - i);
+        }
+        return sum;
+    }
+
+    @Override
+    public String name()
+    {
+        return "vector";
+    }
+}
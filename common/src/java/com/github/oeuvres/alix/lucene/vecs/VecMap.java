@@ -188,10 +188,21 @@ public final class VecMap
             ids[index] = id;
         }
 
+        // gather rows contiguously, then one-against-many per row
+        final int dim = model.dim();
+        final float[] gathered = new float[size * dim];
+        final float[] query = new float[dim];
+        for (int index = 0; index < size; index++) {
+            model.copy(ids[index], query);
+            System.arraycopy(query, 0, gathered, index * dim, dim);
+        }
+        final float[] cosines = new float[size];
         final double[][] matrix = new double[size][size];
         for (int a = 0; a < size; a++) {
+            System.arraycopy(gathered, a * dim, query, 0, dim);
+            VecKernels.dots(query, gathered, dim, a + 1, size, cosines);
             for (int b = a + 1; b < size; b++) {
-                final double cosine = model.cosine(ids[a], ids[b]);
+                final double cosine = Math.max(-1d, Math.min(1d, cosines[b - a - 1]));
                 final double squared = Math.max(0d, 2d - 2d * cosine);
                 final double distance = Math.sqrt(squared);
                 matrix[a][b] = distance;
@@ -1,10 +1,17 @@
 package com.github.oeuvres.alix.lucene.vecs;
 
 import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
 import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.charset.CharacterCodingException;
@@ -12,10 +19,16 @@ import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 
+import com.github.oeuvres.alix.util.IOUtil;
+import com.github.oeuvres.alix.util.TopArray;
+
 /**
  * Immutable in-memory word2vec binary model for cosine comparison.
  *
@@ -23,7 +36,8 @@ import java.util.Objects;
  * Coordinates are stored in one flat row-major {@code float[]} and every row
  * is L2-normalised while loading. Consequently, the dot product returned by
  * {@link #cosine(int, int)} is the cosine similarity between the original
- * vectors. Products are accumulated in {@code double} precision.
+ * vectors. Products are computed by {@link VecKernels}, vectorised when the
+ * JVM provides {@code jdk.incubator.vector}.
  * </p>
  *
  * <p>
@@ -34,28 +48,119 @@ import java.util.Objects;
  * </p>
  *
  * <p>
+ * A model may also be {@link #open(Path) opened} from a quantised
+ * {@code .vq} file, written by {@link #write(Path, Quant)} or by
+ * {@link #main(String[])} from a word2vec {@code .bin}. Rows are stored
+ * normalised, as {@link Quant#INT8} with one scale per row or as
+ * {@link Quant#FP16}, and the file is memory-mapped: opening parses nothing,
+ * the vocabulary is searched in place, and cosines are computed on the
+ * quantised coordinates, in place, by the quantised kernels of
+ * {@link VecKernels}. INT8 takes a quarter of the float heap, FP16 a half;
+ * cosine error is a few {@code 1e-3} for INT8, about {@code 1e-4} for
+ * FP16, enough for neighbour rankings and maps. A mapped model must be
+ * {@link #close() closed}.
+ * </p>
+ *
+ * <p>
+ * Quantised file layout, big-endian:
+ * </p>
+ * <pre>
+ * int MAGIC, int VERSION, int quant (1 = INT8, 2 = FP16), int size, int dim
+ * float[size]          row scales, coordinate = value * scale (1 for FP16)
+ * byte[size * dim]     INT8 rows, or short[size * dim] FP16 rows
+ * int[size]            vector ids sorted by unsigned UTF-8 bytes of their form
+ * int[size + 1]        byte offsets of forms
+ * byte[]               UTF-8 forms, in vector-id order
+ * </pre>
+ *
+ * <p>
  * Loading validates the word2vec header, UTF-8 vocabulary entries, row
  * separators, duplicate forms, finite coordinates, and non-zero vector norms.
  * A successfully loaded model therefore guarantees that every stored vector is
  * finite and has unit Euclidean length, up to floating-point rounding.
  * </p>
  */
-public final class VecModel
+public final class VecModel implements Closeable
 {
-    /** Flat row-major {@code size x dim} coordinates, each row L2-normalised. */
+    /** Quantisation of a mapped model. */
+    public enum Quant
+    {
+        /** One signed byte per coordinate, one float scale per row. */
+        INT8(1, Byte.BYTES),
+        /** IEEE-754 half-precision coordinates. */
+        FP16(2, Short.BYTES);
+
+        /** Code in the file header. */
+        private final int code;
+
+        /** Bytes per coordinate. */
+        private final int bytes;
+
+        Quant(final int code, final int bytes)
+        {
+            this.code = code;
+            this.bytes = bytes;
+        }
+
+        /**
+         * Parses a quantisation name, case-insensitive.
+         *
+         * @param value {@code "int8"} or {@code "fp16"}
+         * @return quantisation
+         * @throws IllegalArgumentException if the name is unknown
+         */
+        public static Quant of(final String value)
+        {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    /** File extension of quantised models. */
+    public static final String EXT = ".vq";
+
+    /** Magic number "ALVQ". */
+    private static final int MAGIC = 0x414C5651;
+
+    /** Quantised file version. */
+    private static final int VERSION = 1;
+
+    /** Header bytes of the quantised file. */
+    private static final long HEADER = 5L * Integer.BYTES;
+
+    /** Multi-byte layouts of the quantised file. */
+    private static final ValueLayout.OfInt BE_INT =
+        ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final ValueLayout.OfFloat BE_FLOAT =
+        ValueLayout.JAVA_FLOAT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final ValueLayout.OfShort BE_SHORT = VecKernels.BE_SHORT;
+
+    /** Flat row-major {@code size x dim} coordinates, each row L2-normalised; {@code null} when mapped. */
     private final float[] dat;
 
     /** Number of coordinates per vector. */
     private final int dim;
 
-    /** Dense vector id for each form. */
+    /** Dense vector id for each form; {@code null} when mapped. */
     private final Map<String, Integer> idByWord;
 
-    /** Term forms in vector-id order. */
+    /** Term forms in vector-id order; {@code null} when mapped. */
     private final String[] words;
 
-    /** Cache of models for {@link #get(Path)} */
-    private static final Map<Path, VecModel> MODELS = new HashMap<>();
+    /** Number of vectors. */
+    private final int size;
+
+    /** Quantisation; {@code null} for a heap model. */
+    private final Quant quant;
+
+    /** Arena of the mapped file; {@code null} for a heap model. */
+    private final Arena arena;
+
+    /** Mapped quantised file; {@code null} for a heap model. */
+    private final MemorySegment data;
+
+    /** Byte offsets of the mapped sections. */
+    private final long scalesOffset, rowsOffset, sortedOffset, wordOffsetsOffset, wordBytesOffset;
+
     /**
      * Constructs an already validated model.
      */
@@ -69,6 +174,48 @@ public final class VecModel
         this.dat = dat;
         this.dim = dim;
         this.idByWord = idByWord;
+        this.size = words.length;
+        this.quant = null;
+        this.arena = null;
+        this.data = null;
+        this.scalesOffset = this.rowsOffset = this.sortedOffset = -1L;
+        this.wordOffsetsOffset = this.wordBytesOffset = -1L;
+    }
+
+    /**
+     * Constructs a mapped model, header already validated.
+     */
+    private VecModel(
+        final Quant quant,
+        final int size,
+        final int dim,
+        final Arena arena,
+        final MemorySegment data
+    ) {
+        this.words = null;
+        this.dat = null;
+        this.idByWord = null;
+        this.dim = dim;
+        this.size = size;
+        this.quant = quant;
+        this.arena = arena;
+        this.data = data;
+        this.scalesOffset = HEADER;
+        this.rowsOffset = scalesOffset + (long) size * Float.BYTES;
+        this.sortedOffset = rowsOffset + (long) size * dim * quant.bytes;
+        this.wordOffsetsOffset = sortedOffset + (long) size * Integer.BYTES;
+        this.wordBytesOffset = wordOffsetsOffset + (size + 1L) * Integer.BYTES;
+    }
+
+    /**
+     * Releases the mapping of an opened model; no-op for a loaded one.
+     */
+    @Override
+    public void close()
+    {
+        if (arena != null) {
+            arena.close();
+        }
     }
 
     /**
@@ -93,12 +240,7 @@ public final class VecModel
         checkId(a);
         checkId(b);
 
-        final int ba = a * dim;
-        final int bb = b * dim;
-        double sum = 0d;
-        for (int axis = 0; axis < dim; axis++) {
-            sum += (double) dat[ba + axis] * dat[bb + axis];
-        }
+        final double sum = dot(a, b);
 
         if (sum > 1d) {
             return 1d;
@@ -119,28 +261,6 @@ public final class VecModel
         return dim;
     }
     
-    /**
-     * Get a model from cache or build it not availbale.
-     */
-    public static synchronized VecModel get(final Path path) throws IOException
-    {
-        final Path key = path.toAbsolutePath().normalize();
-
-        if (MODELS.containsKey(key)) {
-            return MODELS.get(key);
-        }
-
-        try {
-            final VecModel model = load(key);
-            MODELS.put(key, model);
-            return model;
-        }
-        catch (IOException e) {
-            MODELS.put(key, null);
-            throw e;
-        }
-    }
-
     /**
      * Copies one normalised vector into a caller-owned buffer.
      *
@@ -163,9 +283,17 @@ public final class VecModel
                     + " < vector dimension " + dim);
         }
 
-        final int base = id * dim;
+        if (dat != null) {
+            final int base = id * dim;
+            for (int axis = 0; axis < dim; axis++) {
+                destination[axis] = dat[base + axis];
+            }
+            return;
+        }
+        final float[] row = new float[dim];
+        copy(id, row);
         for (int axis = 0; axis < dim; axis++) {
-            destination[axis] = dat[base + axis];
+            destination[axis] = row[axis];
         }
     }
 
@@ -180,8 +308,29 @@ public final class VecModel
         final String word
     ) {
         Objects.requireNonNull(word, "word");
-        final Integer id = idByWord.get(word);
-        return id == null ? -1 : id;
+        if (idByWord != null) {
+            final Integer id = idByWord.get(word);
+            return id == null ? -1 : id;
+        }
+        // binary search of the sorted ids, comparing UTF-8 bytes in place
+        final byte[] key = word.getBytes(StandardCharsets.UTF_8);
+        int lo = 0;
+        int hi = size - 1;
+        while (lo <= hi) {
+            final int mid = (lo + hi) >>> 1;
+            final int id = data.get(BE_INT, sortedOffset + (long) mid * Integer.BYTES);
+            final int cmp = compareWord(id, key);
+            if (cmp < 0) {
+                lo = mid + 1;
+            }
+            else if (cmp > 0) {
+                hi = mid - 1;
+            }
+            else {
+                return id;
+            }
+        }
+        return -1;
     }
 
     /**
@@ -308,6 +457,173 @@ public final class VecModel
         }
     }
 
+    /**
+     * Converts a word2vec binary model into a quantised model file.
+     *
+     * <pre>{@code
+     * java com.github.oeuvres.alix.lucene.vecs.VecModel vectors.bin [int8|fp16]
+     * }</pre>
+     *
+     * @param args word2vec {@code .bin} file, optional quantisation, default INT8
+     * @throws IOException if the model cannot be read or the file written
+     */
+    public static void main(
+        final String[] args
+    ) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("usage: VecModel <vectors.bin> [int8|fp16]");
+            System.exit(2);
+            return;
+        }
+        final Path path = Path.of(args[0]);
+        final Quant quant = args.length == 2 ? Quant.of(args[1]) : Quant.INT8;
+        final long started = System.currentTimeMillis();
+        final VecModel model = load(path);
+        final Path out = quantPath(path);
+        model.write(out, quant);
+        System.out.printf(
+            "%s: %,d vectors, dim=%d, %s, %,d bytes, in %,d ms%n",
+            out,
+            model.size(),
+            model.dim(),
+            quant,
+            Files.size(out),
+            System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Returns the exact nearest vectors of a vector id by cosine, itself
+     * excluded, by a brute-force scan of the whole model. Prefer
+     * {@link VecHnsw} for repeated lookups; this scan is the reference of its
+     * recall.
+     *
+     * @param id vector id
+     * @param k number of neighbours
+     * @return neighbour ids scored by cosine, best first
+     * @throws IndexOutOfBoundsException if {@code id} is outside
+     *         {@code [0, size())}
+     */
+    public TopArray nearest(
+        final int id,
+        final int k
+    ) {
+        checkId(id);
+        final float[] query = new float[dim];
+        copy(id, query);
+        if (dat != null) {
+            return VecKernels.top(query, dat, dim, k, id);
+        }
+        final TopArray top = new TopArray(k);
+        for (int row = 0; row < size; row++) {
+            if (row == id) {
+                continue;
+            }
+            final float score = dot(query, row);
+            if (top.isFull() && score <= top.min()) {
+                continue;
+            }
+            top.push(row, score);
+        }
+        return top;
+    }
+
+    /**
+     * Opens a quantised model file, memory-mapped.
+     *
+     * @param path {@code .vq} file
+     * @return mapped model; close it when done
+     * @throws IOException if the file is missing or inconsistent
+     * @throws NullPointerException if {@code path} is {@code null}
+     */
+    public static VecModel open(
+        final Path path
+    ) throws IOException {
+        Objects.requireNonNull(path, "path");
+        IOUtil.ensureRegularFile(path);
+        final Arena arena = Arena.ofShared();
+        try {
+            final MemorySegment data = IOUtil.mapReadOnly(path, arena);
+            if (data.byteSize() < HEADER) {
+                throw new IOException("truncated vq file: " + path);
+            }
+            if (data.get(BE_INT, 0L) != MAGIC) {
+                throw new IOException("invalid vq file magic: " + path);
+            }
+            final int version = data.get(BE_INT, 4L);
+            if (version != VERSION) {
+                throw new IOException(
+                    "unsupported vq file version " + version + ": " + path);
+            }
+            final int code = data.get(BE_INT, 8L);
+            Quant quant = null;
+            for (final Quant q : Quant.values()) {
+                if (q.code == code) {
+                    quant = q;
+                }
+            }
+            final int size = data.get(BE_INT, 12L);
+            final int dim = data.get(BE_INT, 16L);
+            if (quant == null || size < 1 || dim < 1) {
+                throw new IOException(
+                    "bad vq header values in " + path + ": quant=" + code
+                        + ", size=" + size + ", dim=" + dim);
+            }
+            // the word offsets are read before the size check, they must be in the file
+            final long wordBytesOffset;
+            try {
+                wordBytesOffset = Math.addExact(
+                    HEADER + (long) size * (Float.BYTES + Integer.BYTES) + (size + 1L) * Integer.BYTES,
+                    Math.multiplyExact((long) size * dim, (long) quant.bytes));
+            }
+            catch (ArithmeticException e) {
+                throw new IOException(
+                    "bad vq header values in " + path + ": size=" + size + ", dim=" + dim, e);
+            }
+            if (data.byteSize() < wordBytesOffset) {
+                throw new IOException("truncated vq file: " + path);
+            }
+            final VecModel model = new VecModel(quant, size, dim, arena, data);
+            final long wordBytes = data.get(
+                BE_INT, model.wordOffsetsOffset + (long) size * Integer.BYTES);
+            if (data.byteSize() != model.wordBytesOffset + wordBytes) {
+                throw new IOException(
+                    "vq file size " + data.byteSize() + " != expected "
+                        + (model.wordBytesOffset + wordBytes) + ": " + path);
+            }
+            return model;
+        }
+        catch (IOException | RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Path of the quantised file of a word2vec model.
+     *
+     * @param path word2vec {@code .bin} file
+     * @return sibling {@code .vq} path
+     */
+    public static Path quantPath(
+        final Path path
+    ) {
+        String name = path.getFileName().toString();
+        if (name.endsWith(".bin")) {
+            name = name.substring(0, name.length() - 4);
+        }
+        return path.resolveSibling(name + EXT);
+    }
+
+    /**
+     * Returns the quantisation of a mapped model.
+     *
+     * @return quantisation, or {@code null} for a float model loaded in heap
+     */
+    public Quant quant()
+    {
+        return quant;
+    }
+
     /**
      * Returns the number of vectors.
      *
@@ -315,7 +631,7 @@ public final class VecModel
      */
     public int size()
     {
-        return words.length;
+        return size;
     }
 
     /**
@@ -330,7 +646,171 @@ public final class VecModel
         final int id
     ) {
         checkId(id);
-        return words[id];
+        if (words != null) {
+            return words[id];
+        }
+        final long start = wordStart(id);
+        final int length = (int) (wordStart(id + 1) - start);
+        final byte[] bytes = new byte[length];
+        MemorySegment.copy(data, ValueLayout.JAVA_BYTE, wordBytesOffset + start, bytes, 0, length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes this model as a quantised file, replacing nothing: the target
+     * must not exist.
+     *
+     * @param path {@code .vq} file to create
+     * @param quant quantisation
+     * @throws IOException if the file exists or cannot be written
+     * @throws NullPointerException if an argument is {@code null}
+     */
+    public void write(
+        final Path path,
+        final Quant quant
+    ) throws IOException {
+        Objects.requireNonNull(path, "path");
+        Objects.requireNonNull(quant, "quant");
+        IOUtil.ensureAbsent(path);
+        final byte[][] forms = new byte[size][];
+        for (int id = 0; id < size; id++) {
+            forms[id] = word(id).getBytes(StandardCharsets.UTF_8);
+        }
+        final Integer[] sorted = new Integer[size];
+        for (int id = 0; id < size; id++) {
+            sorted[id] = id;
+        }
+        Arrays.sort(sorted, (a, b) -> Arrays.compareUnsigned(forms[a], forms[b]));
+
+        final Path tmp = IOUtil.tmpPath(path);
+        IOUtil.ensureAbsent(tmp);
+        try (OutputStream os = new BufferedOutputStream(
+                Files.newOutputStream(tmp, StandardOpenOption.CREATE_NEW), 1 << 16);
+            DataOutputStream out = new DataOutputStream(os)
+        ) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(quant.code);
+            out.writeInt(size);
+            out.writeInt(dim);
+            final float[] row = new float[dim];
+            final float[] scales = new float[size];
+            for (int id = 0; id < size; id++) {
+                if (quant == Quant.INT8) {
+                    copy(id, row);
+                    float max = 0f;
+                    for (final float v : row) {
+                        max = Math.max(max, Math.abs(v));
+                    }
+                    scales[id] = (max == 0f) ? 1f : max / 127f;
+                }
+                else {
+                    scales[id] = 1f;
+                }
+                out.writeFloat(scales[id]);
+            }
+            for (int id = 0; id < size; id++) {
+                copy(id, row);
+                for (int axis = 0; axis < dim; axis++) {
+                    if (quant == Quant.INT8) {
+                        out.writeByte(Math.round(row[axis] / scales[id]));
+                    }
+                    else {
+                        out.writeShort(Float.floatToFloat16(row[axis]));
+                    }
+                }
+            }
+            for (final Integer id : sorted) {
+                out.writeInt(id);
+            }
+            long offset = 0;
+            for (int id = 0; id < size; id++) {
+                out.writeInt((int) offset);
+                offset += forms[id].length;
+            }
+            if (offset > Integer.MAX_VALUE) {
+                throw new IOException("vocabulary too large for vq file: " + offset + " bytes");
+            }
+            out.writeInt((int) offset);
+            for (int id = 0; id < size; id++) {
+                out.write(forms[id]);
+            }
+        }
+        catch (IOException | RuntimeException e) {
+            IOUtil.deleteIfExists(tmp);
+            throw e;
+        }
+        try {
+            IOUtil.moveTemp(tmp, path);
+        }
+        catch (IOException | RuntimeException e) {
+            IOUtil.deleteIfExists(tmp);
+            throw e;
+        }
+    }
+
+    /**
+     * Copies one normalised vector, dequantised when mapped.
+     */
+    void copy(
+        final int id,
+        final float[] destination
+    ) {
+        if (dat != null) {
+            System.arraycopy(dat, id * dim, destination, 0, dim);
+            return;
+        }
+        final long base = rowOffset(id);
+        if (quant == Quant.INT8) {
+            final byte[] row = new byte[dim];
+            MemorySegment.copy(data, ValueLayout.JAVA_BYTE, base, row, 0, dim);
+            final float scale = scale(id);
+            for (int axis = 0; axis < dim; axis++) {
+                destination[axis] = row[axis] * scale;
+            }
+        }
+        else {
+            final short[] row = new short[dim];
+            MemorySegment.copy(data, BE_SHORT, base, row, 0, dim);
+            for (int axis = 0; axis < dim; axis++) {
+                destination[axis] = Float.float16ToFloat(row[axis]);
+            }
+        }
+    }
+
+    /**
+     * Dot product of a free query with one vector, not clamped.
+     */
+    float dot(
+        final float[] query,
+        final int id
+    ) {
+        if (dat != null) {
+            return VecKernels.dot(query, 0, dat, id * dim, dim);
+        }
+        if (quant == Quant.INT8) {
+            return VecKernels.dotInt8(query, 0, data, rowOffset(id), dim) * scale(id);
+        }
+        return VecKernels.dotFp16(query, 0, data, rowOffset(id), dim);
+    }
+
+    /**
+     * Dot product of two vectors, not clamped. INT8 rows are multiplied in
+     * integers, then scaled once.
+     */
+    float dot(
+        final int a,
+        final int b
+    ) {
+        if (dat != null) {
+            return VecKernels.dot(dat, a * dim, dat, b * dim, dim);
+        }
+        if (quant == Quant.INT8) {
+            return VecKernels.dotInt8(data, rowOffset(a), data, rowOffset(b), dim) * scale(a) * scale(b);
+        }
+        final float[] row = new float[dim];
+        copy(a, row);
+        return VecKernels.dotFp16(row, 0, data, rowOffset(b), dim);
     }
 
     /**
@@ -339,10 +819,30 @@ public final class VecModel
     private void checkId(
         final int id
     ) {
-        if (id < 0 || id >= words.length) {
+        if (id < 0 || id >= size) {
             throw new IndexOutOfBoundsException(
-                "vector id " + id + " outside [0, " + words.length + ")");
+                "vector id " + id + " outside [0, " + size + ")");
+        }
+    }
+
+    /**
+     * Compares the mapped form of a vector id with UTF-8 key bytes, unsigned.
+     */
+    private int compareWord(
+        final int id,
+        final byte[] key
+    ) {
+        final long start = wordBytesOffset + wordStart(id);
+        final int length = (int) (wordStart(id + 1) - wordStart(id));
+        final int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            final int cmp = Byte.toUnsignedInt(data.get(ValueLayout.JAVA_BYTE, start + i))
+                - Byte.toUnsignedInt(key[i]);
+            if (cmp != 0) {
+                return cmp;
+            }
         }
+        return length - key.length;
     }
 
     /**
@@ -469,4 +969,32 @@ public final class VecModel
             bytes[length++] = (byte) c;
         }
     }
+
+    /**
+     * Byte offset of a mapped row.
+     */
+    private long rowOffset(
+        final int id
+    ) {
+        return rowsOffset + (long) id * dim * quant.bytes;
+    }
+
+    /**
+     * Scale of a mapped row, 1 for FP16.
+     */
+    private float scale(
+        final int id
+    ) {
+        return data.get(BE_FLOAT, scalesOffset + (long) id * Float.BYTES);
+    }
+
+    /**
+     * Byte offset of a mapped form in the form bytes; {@code size} gives the
+     * total length.
+     */
+    private long wordStart(
+        final int id
+    ) {
+        return data.get(BE_INT, wordOffsetsOffset + (long) id * Integer.BYTES);
+    }
 }
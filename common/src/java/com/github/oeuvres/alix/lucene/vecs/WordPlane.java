@@ -67,10 +67,7 @@ public final class WordPlane
         final double[][] b = new double[n][n];
         for (int i = 0; i < n; i++) {
             for (int j = i; j < n; j++) {
-                double dot = 0d;
-                for (int a = 0; a < dim; a++) {
-                    dot += y[i][a] * y[j][a];
-                }
+                final double dot = VecKernels.dot(y[i], y[j]);
                 final double v = sqrtM[i] * sqrtM[j] * dot;
                 b[i][j] = v;
                 b[j][i] = v;
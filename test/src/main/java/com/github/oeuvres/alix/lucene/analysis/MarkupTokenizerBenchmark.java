@@ -0,0 +1,137 @@
+package com.github.oeuvres.alix.lucene.analysis;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * JMH throughput harness for {@link MarkupTokenizer} on real TEI/XML samples, to track tokenizer
+ * speed from one release to another.
+ *
+ * <p>
+ * What is measured: one invocation tokenizes the whole sample, tags and text, through a
+ * tokenizer reused across invocations, as in indexing. The score is given in invocations per
+ * second; the {@link Counters} give tokens and chars per second, the figures to compare between
+ * releases.
+ * </p>
+ *
+ * <ul>
+ * <li>{@code teiPath}: an XML file, or a directory whose {@code *.xml} files are all read.
+ * Defaults to the small ingest sample of the repository; pass a real corpus with
+ * {@code -p teiPath=/abs/path/tei/}.</li>
+ * <li>The sample is repeated up to {@code minChars}, so that a small file still gives an
+ * invocation long enough to be timed, and a large one is not truncated.</li>
+ * <li>Allocation per token is expected to be zero: run with {@code -prof gc} and check that
+ * {@code gc.alloc.rate.norm} does not grow with the sample size.</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Fork(value = 2)
+@State(Scope.Thread)
+public class MarkupTokenizerBenchmark
+{
+    /** XML file or directory of XML files. */
+    @Param({ "src/test/test-data/ingest-alix-test.xml" })
+    public String teiPath;
+
+    /** Minimum chars tokenized by invocation, the sample being repeated to reach it. */
+    @Param({ "1000000" })
+    public int minChars;
+
+    private String text;
+    private MarkupTokenizer tokenizer;
+    private CharTermAttribute termAtt;
+    private OffsetAttribute offsetAtt;
+
+    /**
+     * Tokens and chars per second, reported by JMH next to the score.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters
+    {
+        public long tokens;
+        public long chars;
+
+        @Setup(Level.Iteration)
+        public void clean()
+        {
+            tokens = 0;
+            chars = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException
+    {
+        final Path path = Path.of(teiPath);
+        final StringBuilder sample = new StringBuilder();
+        if (Files.isDirectory(path)) {
+            final List<Path> files;
+            try (Stream<Path> stream = Files.list(path)) {
+                files = stream.filter(p -> p.toString().endsWith(".xml")).sorted().toList();
+            }
+            for (Path file : files) {
+                sample.append(Files.readString(file, StandardCharsets.UTF_8)).append('\n');
+            }
+        }
+        else {
+            sample.append(Files.readString(path, StandardCharsets.UTF_8));
+        }
+        if (sample.length() == 0) {
+            throw new IllegalArgumentException("No XML text in " + path.toAbsolutePath());
+        }
+        final StringBuilder sb = new StringBuilder(Math.max(minChars, sample.length()) + sample.length());
+        do {
+            sb.append(sample).append('\n');
+        } while (sb.length() < minChars);
+        text = sb.toString();
+
+        tokenizer = new MarkupTokenizer();
+        termAtt = tokenizer.getAttribute(CharTermAttribute.class);
+        offsetAtt = tokenizer.getAttribute(OffsetAttribute.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException
+    {
+        tokenizer.close();
+    }
+
+    /**
+     * Tokenize the whole sample.
+     *
+     * @param counters tokens and chars per second.
+     * @param bh sink for term lengths and offsets.
+     * @throws IOException never thrown for an in-memory reader.
+     */
+    @Benchmark
+    public void tokenize(final Counters counters, final Blackhole bh) throws IOException
+    {
+        tokenizer.setReader(new StringReader(text));
+        tokenizer.reset();
+        long tokens = 0;
+        while (tokenizer.incrementToken()) {
+            tokens++;
+            bh.consume(termAtt.length());
+            bh.consume(offsetAtt.endOffset());
+        }
+        tokenizer.end();
+        tokenizer.close();
+        counters.tokens += tokens;
+        counters.chars += text.length();
+    }
+}
@@ -0,0 +1,174 @@
+package com.github.oeuvres.alix.lucene.terms;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.FSDirectory;
+
+import static com.github.oeuvres.alix.common.Names.ALIX_ID;
+
+/**
+ * Generates a reproducible synthetic Lucene index for benchmarks of the terms package.
+ *
+ * <p>
+ * Documents have a text field {@value #TEXT} drawn from a Zipf vocabulary (exponent 1, like
+ * natural language), with positions and term vectors so that {@link TermStats} and
+ * {@link TermRail} can be built, and a numeric field {@value #YEAR} spread over
+ * [{@value #YEAR_MIN}, {@value #YEAR_MAX}] for {@link Partition}. Document lengths are uniform
+ * around a mean. The same arguments produce the same index; the index is force-merged to one
+ * segment, like a published corpus.
+ * </p>
+ */
+public final class SyntheticIndex
+{
+    /** Text field name. */
+    public static final String TEXT = "text";
+    /** Numeric field name. */
+    public static final String YEAR = "year";
+    /** First year. */
+    public static final int YEAR_MIN = 1800;
+    /** Last year. */
+    public static final int YEAR_MAX = 1999;
+
+    private SyntheticIndex()
+    {
+    }
+
+    /**
+     * Returns the directory of a synthetic index, generating it on first call. Indexes are cached
+     * under {@code parent} by size, so benchmark forks and later runs reuse them.
+     *
+     * @param parent    parent directory of cached indexes
+     * @param tokens    total token count, approximate
+     * @param vocabSize number of distinct terms
+     * @param docTokens mean document length in tokens
+     * @param seed      random seed
+     * @return index directory
+     * @throws IOException if indexing fails
+     */
+    public static Path get(
+        final Path parent,
+        final long tokens,
+        final int vocabSize,
+        final int docTokens,
+        final long seed) throws IOException
+    {
+        final Path dir = parent.resolve("alix-bench-" + tokens + "-" + vocabSize + "-" + docTokens + "-" + seed);
+        final Path done = dir.resolve("synthetic.done");
+        if (Files.exists(done)) {
+            return dir;
+        }
+        Files.createDirectories(dir);
+        write(dir, tokens, vocabSize, docTokens, seed);
+        Files.createFile(done);
+        return dir;
+    }
+
+    /**
+     * Writes a synthetic index into an empty directory.
+     *
+     * @param dir       index directory
+     * @param tokens    total token count, approximate
+     * @param vocabSize number of distinct terms
+     * @param docTokens mean document length in tokens
+     * @param seed      random seed
+     * @throws IOException if indexing fails
+     */
+    public static void write(
+        final Path dir,
+        final long tokens,
+        final int vocabSize,
+        final int docTokens,
+        final long seed) throws IOException
+    {
+        final String[] words = new String[vocabSize];
+        for (int i = 0; i < vocabSize; i++) {
+            words[i] = word(i);
+        }
+        // cumulative Zipf weights, 1/rank
+        final double[] cumul = new double[vocabSize];
+        double sum = 0;
+        for (int i = 0; i < vocabSize; i++) {
+            sum += 1.0 / (i + 1);
+            cumul[i] = sum;
+        }
+
+        final FieldType textType = new FieldType();
+        textType.setTokenized(true);
+        textType.setIndexOptions(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS);
+        textType.setStoreTermVectors(true);
+        textType.setStoreTermVectorPositions(true);
+        textType.freeze();
+
+        final SplittableRandom random = new SplittableRandom(seed);
+        final IndexWriterConfig config = new IndexWriterConfig(new WhitespaceAnalyzer())
+            .setOpenMode(IndexWriterConfig.OpenMode.CREATE)
+            .setRAMBufferSizeMB(256);
+        try (IndexWriter writer = new IndexWriter(FSDirectory.open(dir), config)) {
+            final StringBuilder text = new StringBuilder();
+            long written = 0;
+            int docId = 0;
+            while (written < tokens) {
+                final int length = (int) Math.min(tokens - written, docTokens / 2 + random.nextInt(docTokens + 1));
+                text.setLength(0);
+                for (int t = 0; t < length; t++) {
+                    if (t > 0)
+                        text.append(' ');
+                    text.append(words[draw(cumul, random.nextDouble() * sum)]);
+                }
+                final int year = YEAR_MIN + random.nextInt(YEAR_MAX - YEAR_MIN + 1);
+                final Document doc = new Document();
+                doc.add(new StringField(ALIX_ID, "doc" + docId, Field.Store.YES));
+                doc.add(new Field(TEXT, text.toString(), textType));
+                doc.add(new IntPoint(YEAR, year));
+                doc.add(new NumericDocValuesField(YEAR, year));
+                writer.addDocument(doc);
+                written += length;
+                docId++;
+            }
+            writer.forceMerge(1);
+        }
+    }
+
+    /**
+     * Binary search of a uniform draw in cumulative weights.
+     */
+    private static int draw(final double[] cumul, final double x)
+    {
+        int lo = 0;
+        int hi = cumul.length - 1;
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (cumul[mid] < x)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * Distinct lowercase word for a rank, short for frequent ranks.
+     */
+    private static String word(int rank)
+    {
+        final StringBuilder sb = new StringBuilder();
+        do {
+            sb.append((char) ('a' + rank % 26));
+            rank = rank / 26 - 1;
+        } while (rank >= 0);
+        return sb.toString();
+    }
+}
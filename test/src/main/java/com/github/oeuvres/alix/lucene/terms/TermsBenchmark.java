@@ -0,0 +1,266 @@
+package com.github.oeuvres.alix.lucene.terms;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.util.FixedBitSet;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.github.oeuvres.alix.lucene.LuceneIndex;
+import com.github.oeuvres.alix.lucene.fluc.FlucNum;
+import com.github.oeuvres.alix.lucene.fluc.FlucText;
+
+/**
+ * Hot paths of the terms package over a {@link SyntheticIndex}.
+ *
+ * What is measured:
+ *  - {@link TopTerms#select(IndexReader, FixedBitSet)}, postings path, and with the forward rail
+ *  - {@link TopTerms#rank(KeynessScorer, int)} for each {@link KeynessScorer}
+ *  - {@link PartitionScorer#score(IndexReader, TopTerms, int)} for each {@link PartScorer}
+ *  - {@link Partition#build(FlucNum, FlucText, int, int, FixedBitSet)}, and {@link Partition#build(Partition.Tally, int, int, int)}
+ *  - {@link TermRail#scanWindow(int, int, int, IntConsumer)}, a batch of concordance-like windows
+ *  - {@link TermStats#open(IndexReader, Path, String, TermStats.Backing, com.github.oeuvres.alix.util.Report)}
+ *
+ * Notes:
+ *  - Output is throughput; run with {@code -prof gc} for the allocation rate of each path:
+ *    java -jar target/benchmarks.jar TermsBenchmark -prof gc
+ *  - The corpus size is a parameter, from 1M to 100M tokens: -p tokens=100000000.
+ *    Indexes and sidecars are generated once into {@code dir} (default java.io.tmpdir) and reused
+ *    by later forks and runs; the first run of a large size takes minutes.
+ *  - Subsets are random document samples of share {@code subset}, fixed by the seed.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Fork(value = 1)
+public class TermsBenchmark {
+
+    /** Number of ranked terms kept. */
+    private static final int TOP_K = 100;
+
+    /** Concordance windows scanned per invocation of {@link #scanWindow}. */
+    private static final int WINDOWS = 1024;
+
+    /** Words on each side of a window pivot. */
+    private static final int CTX = 10;
+
+    // ---------------------------
+    // JMH State
+    // ---------------------------
+
+    /** Synthetic index, its sidecars, and a document subset. */
+    @State(Scope.Benchmark)
+    public static class Corpus {
+        /** Total tokens of the synthetic index. */
+        @Param({"1000000"})
+        public long tokens;
+
+        /** Distinct terms. */
+        @Param({"50000"})
+        public int vocab;
+
+        /** Mean document length. */
+        @Param({"5000"})
+        public int docTokens;
+
+        /** Share of documents in the selected subset. */
+        @Param({"0.01", "0.2"})
+        public double subset;
+
+        /** Parent directory of cached indexes, empty for java.io.tmpdir. */
+        @Param({""})
+        public String dir;
+
+        @Param({"1"})
+        public long seed;
+
+        LuceneIndex index;
+        IndexReader reader;
+        FlucText text;
+        FlucNum year;
+        TermStats stats;
+        TermLexicon lexicon;
+        TermRail rail;
+        FixedBitSet docs;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            final Path parent = Path.of(dir.isEmpty() ? System.getProperty("java.io.tmpdir") : dir);
+            index = LuceneIndex.open(SyntheticIndex.get(parent, tokens, vocab, docTokens, seed));
+            reader = index.reader();
+            text = index.flucText(SyntheticIndex.TEXT);
+            year = index.flucNum(SyntheticIndex.YEAR);
+            // builds missing sidecars outside measurement
+            stats = text.termStats();
+            lexicon = text.termLexicon();
+            rail = text.termRail();
+
+            final int maxDoc = reader.maxDoc();
+            docs = new FixedBitSet(maxDoc);
+            final SplittableRandom random = new SplittableRandom(seed);
+            for (int docId = 0; docId < maxDoc; docId++) {
+                if (random.nextDouble() < subset)
+                    docs.set(docId);
+            }
+            if (docs.cardinality() == 0)
+                docs.set(0);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            index.close();
+        }
+    }
+
+    /** A population selected on the subset, ranked by each keyness scorer. */
+    @State(Scope.Thread)
+    public static class Ranked {
+        @Param({"Chi2", "Count", "G2", "LogDice", "LogRatio", "SimpleMaths"})
+        public String keyness;
+
+        KeynessScorer scorer;
+        TopTerms topTerms;
+
+        @Setup(Level.Trial)
+        public void setup(final Corpus corpus) throws IOException {
+            scorer = switch (keyness) {
+                case "Chi2" -> new KeynessScorer.Chi2();
+                case "Count" -> new KeynessScorer.Count();
+                case "G2" -> new KeynessScorer.G2();
+                case "LogDice" -> new KeynessScorer.LogDice();
+                case "LogRatio" -> new KeynessScorer.LogRatio();
+                case "SimpleMaths" -> new KeynessScorer.SimpleMaths();
+                default -> throw new IllegalArgumentException("Unknown keyness scorer: " + keyness);
+            };
+            topTerms = new TopTerms(corpus.stats, corpus.lexicon).select(corpus.reader, corpus.docs);
+        }
+    }
+
+    /** A chronological partition of the corpus, scored by each part scorer. */
+    @State(Scope.Thread)
+    public static class Parted {
+        @Param({"LogLikelihood", "LogLikelihoodResidual", "LogLikelihoodTail", "Pearson", "RateRatio", "Specificity"})
+        public String part;
+
+        Partition partition;
+        Partition.Tally tally;
+        PartitionScorer partitionScorer;
+        TopTerms target;
+
+        @Setup(Level.Trial)
+        public void setup(final Corpus corpus) throws IOException {
+            final PartScorer scorer = switch (part) {
+                case "LogLikelihood" -> new PartScorer.LogLikelihood();
+                case "LogLikelihoodResidual" -> new PartScorer.LogLikelihoodResidual();
+                case "LogLikelihoodTail" -> new PartScorer.LogLikelihoodTail();
+                case "Pearson" -> new PartScorer.Pearson();
+                case "RateRatio" -> new PartScorer.RateRatio();
+                case "Specificity" -> new PartScorer.Specificity();
+                default -> throw new IllegalArgumentException("Unknown part scorer: " + part);
+            };
+            partition = buildPartition(corpus);
+            tally = Partition.tally(corpus.year, corpus.text, null);
+            partitionScorer = new PartitionScorer(partition, scorer);
+            target = new TopTerms(corpus.stats, corpus.lexicon);
+        }
+    }
+
+    /** Backing of {@link TermStats#open}. */
+    @State(Scope.Thread)
+    public static class Opened {
+        @Param({"HEAP", "MAPPED"})
+        public TermStats.Backing backing;
+    }
+
+    /** Pivots of the concordance windows. */
+    @State(Scope.Thread)
+    public static class Windows {
+        int[] docIds;
+        int[] positions;
+        long sum;
+        final IntConsumer sink = termId -> sum += termId;
+
+        @Setup(Level.Trial)
+        public void setup(final Corpus corpus) {
+            final SplittableRandom random = new SplittableRandom(corpus.seed);
+            final int docCount = corpus.rail.docCount();
+            docIds = new int[WINDOWS];
+            positions = new int[WINDOWS];
+            for (int i = 0; i < WINDOWS; i++) {
+                int docId;
+                do {
+                    docId = random.nextInt(docCount);
+                } while (corpus.rail.docLength(docId) == 0);
+                docIds[i] = docId;
+                positions[i] = random.nextInt(corpus.rail.docLength(docId));
+            }
+        }
+    }
+
+    // ---------------------------
+    // Benchmarks
+    // ---------------------------
+
+    @Benchmark
+    public TopTerms selectPostings(final Corpus corpus) throws IOException {
+        return new TopTerms(corpus.stats, corpus.lexicon).select(corpus.reader, corpus.docs);
+    }
+
+    @Benchmark
+    public TopTerms selectRail(final Corpus corpus) throws IOException {
+        return new TopTerms(corpus.stats, corpus.lexicon).select(corpus.reader, corpus.docs, corpus.rail);
+    }
+
+    @Benchmark
+    public TopTerms rank(final Ranked ranked) {
+        return ranked.topTerms.rank(ranked.scorer, TOP_K);
+    }
+
+    @Benchmark
+    public TopTerms partitionScore(final Corpus corpus, final Parted parted) throws IOException {
+        return parted.partitionScorer.score(corpus.reader, parted.target, TOP_K);
+    }
+
+    @Benchmark
+    public Partition partitionBuild(final Corpus corpus) throws IOException {
+        return buildPartition(corpus);
+    }
+
+    @Benchmark
+    public Partition partitionRefocus(final Parted parted) {
+        return Partition.build(
+            parted.tally, SyntheticIndex.YEAR_MIN, SyntheticIndex.YEAR_MIN + 9, Partition.DEFAULT_TARGET_NON_FOCUS_PARTS);
+    }
+
+    @Benchmark
+    public long scanWindow(final Corpus corpus, final Windows windows) {
+        windows.sum = 0;
+        for (int i = 0; i < WINDOWS; i++) {
+            final int pos = windows.positions[i];
+            corpus.rail.scanWindow(windows.docIds[i], pos - CTX, pos + CTX + 1, windows.sink);
+        }
+        return windows.sum;
+    }
+
+    @Benchmark
+    public void termStatsOpen(final Corpus corpus, final Opened opened, final Blackhole bh) throws IOException {
+        try (TermStats stats = TermStats.open(
+                corpus.reader, corpus.index.indexDir(), SyntheticIndex.TEXT, opened.backing, null)) {
+            bh.consume(stats.fieldTokens());
+        }
+    }
+
+    /**
+     * Partition with a focus on one decade in the middle of the year range.
+     */
+    private static Partition buildPartition(final Corpus corpus) throws IOException {
+        final int start = (SyntheticIndex.YEAR_MIN + SyntheticIndex.YEAR_MAX) / 2;
+        return Partition.build(corpus.year, corpus.text, start, start + 9, null);
+    }
+}
@@ -0,0 +1,99 @@
+package com.github.oeuvres.alix.lucene.vecs;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.github.oeuvres.alix.util.TopArray;
+
+/**
+ * Scalar against vectorised {@link VecKernels}, over a random model of unit rows.
+ *
+ * What is measured:
+ *  - {@code dots}: one query against every row, the brute-force neighbour scan
+ *  - {@code top}: the same scan with top-k extraction
+ *  - {@code pairs}: all pairwise products of a small set, the {@link VecMap#distances} shape
+ *
+ * Notes:
+ *  - The fork starts with {@code --add-modules jdk.incubator.vector}; param {@code kernel}
+ *    picks the implementation directly, whatever {@link VecKernels#name()} selected.
+ *    java -jar target/benchmarks.jar VecKernelsBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Thread)
+public class VecKernelsBenchmark {
+
+    @Param({"scalar", "vector"})
+    public String kernel;
+
+    /** Vocabulary size. */
+    @Param({"50000"})
+    public int rows;
+
+    /** Vector dimension. */
+    @Param({"100", "300"})
+    public int dim;
+
+    /** Points of the pairwise map. */
+    @Param({"200"})
+    public int points;
+
+    private VecKernels.Kernel impl;
+    private float[] matrix;
+    private float[] query;
+    private float[] out;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        impl = kernel.equals("vector") ? new VecKernelsVector() : new VecKernels.Scalar();
+        final SplittableRandom random = new SplittableRandom(1);
+        matrix = new float[rows * dim];
+        for (int row = 0; row < rows; row++) {
+            double norm2 = 0;
+            for (int axis = 0; axis < dim; axis++) {
+                final float v = (float) (random.nextDouble() - 0.5);
+                matrix[row * dim + axis] = v;
+                norm2 += v * v;
+            }
+            final float inverse = (float) (1 / Math.sqrt(norm2));
+            for (int axis = 0; axis < dim; axis++) {
+                matrix[row * dim + axis] *= inverse;
+            }
+        }
+        query = new float[dim];
+        System.arraycopy(matrix, 0, query, 0, dim);
+        out = new float[rows];
+    }
+
+    @Benchmark
+    public float[] dots() {
+        impl.dots(query, matrix, dim, 0, rows, out);
+        return out;
+    }
+
+    @Benchmark
+    public TopArray top() {
+        impl.dots(query, matrix, dim, 0, rows, out);
+        final TopArray top = new TopArray(50);
+        for (int row = 1; row < rows; row++) {
+            top.push(row, out[row]);
+        }
+        return top;
+    }
+
+    @Benchmark
+    public double pairs() {
+        double sum = 0;
+        for (int a = 0; a < points; a++) {
+            for (int b = a + 1; b < points; b++) {
+                sum += impl.dot(matrix, a * dim, matrix, b * dim, dim);
+            }
+        }
+        return sum;
+    }
+}
@@ -143,6 +143,29 @@ public class CharBenchmark {
         return found;
     }
 
+    /**
+     * Bulk form: {@link Char#span(char[], int, int, short)} counts letters run by run, ASCII
+     * runs through the kernel of {@link Char#kernel()} (start the fork with
+     * {@code --add-modules jdk.incubator.vector} for the vector one).
+     *
+     * @return number of chars classified as letters (consumed to defeat DCE).
+     */
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public long charsBulk_spanLetter()
+    {
+        final char[] in = input;
+        final int to = in.length;
+        long found = 0;
+        int i = 0;
+        while (i < to) {
+            final int end = Char.span(in, i, to, Char.LETTER);
+            found += end - i;
+            i = (end == i) ? i + 1 : end;
+        }
+        return found;
+    }
+
     /**
      * JDK reference predicate: {@link java.lang.Character#isLetter(char)}.
      *
@@ -183,6 +183,27 @@ public class LowerCaseBenchmark
         }
     }
 
+    /**
+     * Bulk lowercasing in place with {@link Char#toLower(char[], int, int)}, ASCII runs through
+     * the kernel of {@link Char#kernel()}.
+     */
+    public static final class AlixCharBulkLowerCaser implements Caser
+    {
+        @Override
+        public int maxOutputLen(final int inLen)
+        {
+            return inLen;
+        }
+
+        @Override
+        public int translate(final char[] src, final int off, final int len, final char[] dst)
+        {
+            System.arraycopy(src, off, dst, 0, len);
+            Char.toLower(dst, 0, len);
+            return len;
+        }
+    }
+
     // ---------------------------------------------------------------------
     // Benchmark state
     // ---------------------------------------------------------------------
@@ -205,6 +226,7 @@ public class LowerCaseBenchmark
         final Caser jdk = new JdkLowerCaser();
         final Caser luceneLike = new LuceneLikeLowerCaser();
         final Caser alixChar = new AlixCharLowerCaser();
+        final Caser alixCharBulk = new AlixCharBulkLowerCaser();
 
         @Setup(Level.Trial)
         public void setup()
@@ -294,6 +316,12 @@ public class LowerCaseBenchmark
         return run(s.tokens, s.dst, s.alixChar, bh);
     }
 
+    @Benchmark
+    public int alixCharBulk(final BenchState s, final Blackhole bh)
+    {
+        return run(s.tokens, s.dst, s.alixCharBulk, bh);
+    }
+
     private static int run(final char[][] tokens, final char[] dst, final Caser caser, final Blackhole bh)
     {
         int sum = 0;
@@ -0,0 +1,125 @@
+package com.github.oeuvres.alix.ingest;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.store.FSDirectory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.github.oeuvres.alix.common.Names;
+import com.github.oeuvres.alix.util.Report.ReportList;
+import com.github.oeuvres.alix.util.Report.ReportList.Level;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link TeiIngester}: parallel ingestion with {@code ordered=true} gives the docId order of a
+ * sequential ingestion, thanks to {@link Names#ALIX_SEQ}, and a shared report receives every message.
+ */
+class TeiIngesterTest {
+
+    private static final int FILES = 12;
+    private static final int CHAPTERS = 5;
+
+    @TempDir
+    Path dir;
+
+    /** A small TEI book, chapters of unequal length so that workers finish out of order. */
+    private static String tei(final int no)
+    {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+          .append("<TEI xmlns=\"http://www.tei-c.org/ns/1.0\" xml:id=\"book").append(no).append("\">\n")
+          .append("<teiHeader><fileDesc><titleStmt><title>Livre ").append(no).append("</title></titleStmt>")
+          .append("<publicationStmt><date when=\"").append(1800 + no).append("\"/></publicationStmt>")
+          .append("</fileDesc></teiHeader>\n<text><body>\n");
+        for (int c = 1; c <= CHAPTERS; c++) {
+            sb.append("<div type=\"chapter\" xml:id=\"book").append(no).append("_").append(c).append("\">")
+              .append("<head>Chapitre ").append(c).append("</head>\n");
+            for (int p = 0; p < 1 + ((no * 7 + c) % 20) * 10; p++) {
+                sb.append("<p>Le livre ").append(no).append(" dit au chapitre ").append(c)
+                  .append(" une phrase de plus, la ").append(p).append(".</p>\n");
+            }
+            sb.append("</div>\n");
+        }
+        sb.append("</body></text></TEI>\n");
+        return sb.toString();
+    }
+
+    private IngestConfig config(final String name, final int threads, final ReportList report) throws IOException
+    {
+        final Path cfg = dir.resolve(name + ".xml");
+        Files.writeString(cfg,
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<!DOCTYPE properties SYSTEM \"http://java.sun.com/dtd/properties.dtd\">\n"
+            + "<properties>\n"
+            + "  <entry key=\"name\">" + name + "</entry>\n"
+            + "  <entry key=\"luceneroot\">lucene</entry>\n"
+            + "  <entry key=\"tei\">tei/*.xml</entry>\n"
+            + "  <entry key=\"threads\">" + threads + "</entry>\n"
+            + "  <entry key=\"ordered\">true</entry>\n"
+            + "</properties>\n",
+            StandardCharsets.UTF_8);
+        return IngestConfig.load(cfg, report);
+    }
+
+    private static List<String> ids(final Path index) throws IOException
+    {
+        final List<String> ids = new ArrayList<>();
+        try (FSDirectory directory = FSDirectory.open(index);
+                DirectoryReader reader = DirectoryReader.open(directory)) {
+            final StoredFields stored = reader.storedFields();
+            for (int docId = 0; docId < reader.maxDoc(); docId++) {
+                ids.add(stored.document(docId).get(Names.ALIX_ID));
+            }
+        }
+        return ids;
+    }
+
+    private static long count(final ReportList report, final Level level)
+    {
+        return report.entries().stream().filter(e -> e.level() == level).count();
+    }
+
+    @Test
+    void parallelOrderedMatchesSequential() throws Exception
+    {
+        final Path teiDir = Files.createDirectories(dir.resolve("tei"));
+        for (int i = 1; i <= FILES; i++) {
+            Files.writeString(teiDir.resolve(String.format("book%02d.xml", i)), tei(i), StandardCharsets.UTF_8);
+        }
+
+        final ReportList seqReport = new ReportList();
+        final IngestConfig seq = config("seq", 1, seqReport);
+        new TeiIngester(seqReport).ingest(seq, new IndexWriterConfig(new WhitespaceAnalyzer()));
+
+        final ReportList parReport = new ReportList();
+        final IngestConfig par = config("par", 4, parReport);
+        new TeiIngester(parReport).ingest(par, new IndexWriterConfig(new WhitespaceAnalyzer()));
+
+        assertEquals(0, count(seqReport, Level.ERROR), seqReport.summary());
+        assertEquals(0, count(parReport, Level.ERROR), parReport.summary());
+        assertEquals(count(seqReport, Level.WARN), count(parReport, Level.WARN), parReport.summary());
+
+        final List<String> expected = ids(seq.luceneRoot.resolve("seq"));
+        final List<String> actual = ids(par.luceneRoot.resolve("par"));
+        assertTrue(expected.size() > FILES, "books and chapters indexed: " + expected.size());
+        assertEquals(expected, actual);
+
+        // one info line per file from the workers, none lost by the shared report
+        for (int i = 1; i <= FILES; i++) {
+            final String file = String.format("book%02d.xml", i);
+            final long lines = parReport.entries().stream().filter(e -> e.msg().endsWith(file)).count();
+            assertEquals(1, lines, file);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.github.oeuvres.alix.lucene.analysis;
+
+import java.io.BufferedReader;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.lucene.analysis.CharArraySet;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.junit.jupiter.api.Test;
+
+import com.github.oeuvres.alix.common.Upos;
+import com.github.oeuvres.alix.lucene.analysis.tokenattributes.PosAttribute;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the bulk paths of {@link MarkupTokenizer}: the tokens do not depend on how the reader
+ * splits the text, whether the IO buffer is refilled at each char, at random places, or at its full
+ * size, inside tags, entities, dotted abbreviations and over-long words.
+ */
+class MarkupTokenizerTest {
+
+    /** Cut length of words, as in the tokenizer. */
+    private static final int TOKEN_MAX_SIZE = 256;
+
+    /** Longer than the IO buffer of the tokenizer, so that the buffered reader refills it too. */
+    private static final int TEXT_MIN = 80_000;
+
+    private static final String SAMPLE = "<p>Le <hi rend=\"i\">chat</hi> de M. Dupont, etc. dort ; Dr. Martin aussi.</p>\n"
+        + "<p>Il &amp; elle &lt;rêvent&gt; d&apos;&quot;ailleurs&quot;, J.-J. Rousseau l’a lu p. 12. Est-ce fini&#160;?</p>\n"
+        + "<pb n=\"3\"/><note place=\"foot\" xml:id=\"" + "n".repeat(300) + "\">1</note>\n"
+        + "<p>" + "a".repeat(2 * TOKEN_MAX_SIZE + 17) + " " + "anti-".repeat(70) + " " + "l’é".repeat(100)
+        + " -42,5 et 3.14. Fin… Vraiment ?!</p>\n";
+
+    /** Reads one char at a time. */
+    private static final class OneCharReader extends FilterReader {
+        OneCharReader(final Reader in)
+        {
+            super(in);
+        }
+
+        @Override
+        public int read(final char[] cbuf, final int off, final int len) throws IOException
+        {
+            return super.read(cbuf, off, Math.min(1, len));
+        }
+    }
+
+    /** Reads chunks of random sizes. */
+    private static final class ChunkReader extends FilterReader {
+        private final Random random;
+
+        ChunkReader(final Reader in, final long seed)
+        {
+            super(in);
+            random = new Random(seed);
+        }
+
+        @Override
+        public int read(final char[] cbuf, final int off, final int len) throws IOException
+        {
+            return super.read(cbuf, off, Math.min(1 + random.nextInt(97), len));
+        }
+    }
+
+    /** Sample repeated after a growing padding, so that buffer ends fall at different places. */
+    private static String text()
+    {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; sb.length() < TEXT_MIN; i++) {
+            sb.append(" ".repeat(i % 11)).append(SAMPLE);
+        }
+        return sb.toString();
+    }
+
+    private static List<String> tokens(final Reader reader) throws IOException
+    {
+        final CharArraySet brevidots = new CharArraySet(List.of("etc.", "Dr."), false);
+        final Tokenizer tokenizer = new MarkupTokenizer(brevidots);
+        final CharTermAttribute term = tokenizer.addAttribute(CharTermAttribute.class);
+        final PosAttribute pos = tokenizer.addAttribute(PosAttribute.class);
+        final OffsetAttribute offset = tokenizer.addAttribute(OffsetAttribute.class);
+        final PositionIncrementAttribute posInc = tokenizer.addAttribute(PositionIncrementAttribute.class);
+        final List<String> tokens = new ArrayList<>();
+        tokenizer.setReader(reader);
+        try {
+            tokenizer.reset();
+            while (tokenizer.incrementToken()) {
+                tokens.add(term + "|" + pos.getPos() + "|" + offset.startOffset() + "-" + offset.endOffset()
+                    + "|+" + posInc.getPositionIncrement());
+            }
+            tokenizer.end();
+            tokens.add("end|" + offset.endOffset());
+        }
+        finally {
+            tokenizer.close();
+        }
+        return tokens;
+    }
+
+    @Test
+    void readerSplitDoesNotChangeTokens() throws IOException
+    {
+        final String text = text();
+        final List<String> expected = tokens(new BufferedReader(new StringReader(text), 1 << 16));
+        assertEquals(expected, tokens(new OneCharReader(new StringReader(text))), "one char reads");
+        for (long seed = 0; seed < 3; seed++) {
+            assertEquals(expected, tokens(new ChunkReader(new StringReader(text), seed)), "chunk reads, seed=" + seed);
+        }
+        assertEquals("end|" + text.length(), expected.get(expected.size() - 1));
+    }
+
+    @Test
+    void sampleCoverage() throws IOException
+    {
+        final Tokenizer tokenizer = new MarkupTokenizer(new CharArraySet(List.of("Dr."), false));
+        final CharTermAttribute term = tokenizer.addAttribute(CharTermAttribute.class);
+        final PosAttribute pos = tokenizer.addAttribute(PosAttribute.class);
+        tokenizer.setReader(new StringReader(SAMPLE));
+        int tags = 0;
+        int cut = 0;
+        boolean brevidot = false;
+        try {
+            tokenizer.reset();
+            while (tokenizer.incrementToken()) {
+                if (pos.getPos() == Upos.XML.code()) {
+                    tags++;
+                    continue;
+                }
+                assertTrue(term.length() <= TOKEN_MAX_SIZE, "word of " + term.length() + " chars");
+                if (term.length() == TOKEN_MAX_SIZE) cut++;
+                if ("Dr.".contentEquals(term)) brevidot = true;
+            }
+            tokenizer.end();
+        }
+        finally {
+            tokenizer.close();
+        }
+        assertTrue(tags >= 10, "tags=" + tags);
+        assertTrue(cut >= 2, "words cut at " + TOKEN_MAX_SIZE + ": " + cut);
+        assertTrue(brevidot, "configured brevidot kept with its dot");
+    }
+}
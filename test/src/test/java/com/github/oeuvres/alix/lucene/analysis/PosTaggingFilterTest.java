@@ -0,0 +1,105 @@
+package com.github.oeuvres.alix.lucene.analysis;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.junit.jupiter.api.Test;
+
+import com.github.oeuvres.alix.lucene.analysis.tokenattributes.PosAttribute;
+
+import opennlp.tools.postag.POSModel;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the engine of {@link PosTaggingFilter}: the tags of a text whose short sentences
+ * come from the sentence cache equal the tags of each sentence tagged alone, by an engine with an
+ * empty cache.
+ */
+class PosTaggingFilterTest {
+
+    private static final POSModel MODEL = LexiconHelper.loadPosModel(
+        PosTaggingFilterTest.class,
+        "/com/github/oeuvres/alix/fr/opennlp-fr-ud-gsd-pos-1.3-2.5.4.bin"
+    );
+
+    /** Short sentences, cached, and one longer than {@link PosTaggingFilter#CACHE_SENTLEN}, not cached. */
+    private static final String[] SENTENCES = {
+        "Oui, monsieur.",
+        "Elle ferme la porte.",
+        "Le petit chat de la voisine dort sur le lit de sa maîtresse depuis ce matin.",
+        "Non !",
+        "La porte ferme mal.",
+    };
+
+    private static List<String> tags(final String text) throws IOException
+    {
+        final Tokenizer tokenizer = new MarkupTokenizer();
+        tokenizer.setReader(new StringReader(text));
+        final TokenStream ts = new PosTaggingFilter(tokenizer, MODEL);
+        final CharTermAttribute term = ts.addAttribute(CharTermAttribute.class);
+        final PosAttribute pos = ts.addAttribute(PosAttribute.class);
+        final List<String> tokens = new ArrayList<>();
+        try {
+            ts.reset();
+            while (ts.incrementToken()) {
+                tokens.add(term + "|" + pos.getPos());
+            }
+            ts.end();
+        }
+        finally {
+            ts.close();
+        }
+        return tokens;
+    }
+
+    /** Tags a text on a new thread, whose engine starts with an empty cache. */
+    private static List<String> tagsUncached(final String text) throws InterruptedException
+    {
+        final AtomicReference<Object> result = new AtomicReference<>();
+        final Thread thread = new Thread(() -> {
+            try {
+                result.set(tags(text));
+                assertEquals(0, PosTaggingFilter.timing().cached(), "fresh engine");
+            }
+            catch (IOException | RuntimeException | Error e) {
+                result.set(e);
+            }
+        });
+        thread.start();
+        thread.join();
+        if (result.get() instanceof Throwable e) {
+            fail(e);
+        }
+        @SuppressWarnings("unchecked")
+        final List<String> tags = (List<String>) result.get();
+        return tags;
+    }
+
+    @Test
+    void cachedTagsEqualUncached() throws IOException, InterruptedException
+    {
+        final List<String> expected = new ArrayList<>();
+        final StringBuilder text = new StringBuilder();
+        for (int round = 0; round < 3; round++) {
+            for (String sentence : SENTENCES) {
+                expected.addAll(tagsUncached(sentence));
+                text.append(sentence).append(' ');
+            }
+        }
+        final PosTaggingFilter.Timing timing = PosTaggingFilter.timing();
+        final long cached = timing.cached();
+        // twice, the second text entirely from the cache for its short sentences
+        assertEquals(expected, tags(text.toString()));
+        assertEquals(expected, tags(text.toString()));
+        // 4 short sentences: at least the 2 repeats of the first text, the 3 occurrences of the second
+        final long hits = timing.cached() - cached;
+        assertTrue(hits >= 4 * (2 + 3), "cache hits=" + hits);
+    }
+}
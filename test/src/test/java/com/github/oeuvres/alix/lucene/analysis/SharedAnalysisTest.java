@@ -0,0 +1,122 @@
+package com.github.oeuvres.alix.lucene.analysis;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.lucene.analysis.FilteringTokenFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit 5 tests for {@link SharedAnalysis}.
+ *
+ * These tests validate:
+ * - replay + tail gives the tokens of the direct chain (terms, offsets, increments, final offset)
+ * - one run feeds several fields, consumed one after the other
+ * - runs are recycled after clear()
+ * - unknown fields are rejected
+ */
+public class SharedAnalysisTest {
+
+    private static final String TEXT = "<p>Le <i>chat</i> de la voisine dort, et le chien aussi.</p>";
+    private static final String TEXT2 = "<p>Un autre texte, plus court.</p>";
+
+    /** Drops tokens shorter than 3 chars, a tail that changes positions. */
+    private static final class ShortFilter extends FilteringTokenFilter {
+        private final CharTermAttribute termAtt = addAttribute(CharTermAttribute.class);
+
+        ShortFilter(final TokenStream in)
+        {
+            super(in);
+        }
+
+        @Override
+        protected boolean accept()
+        {
+            return termAtt.length() >= 3;
+        }
+    }
+
+    private static SharedAnalysis newShared()
+    {
+        final Tokenizer tokenizer = new MarkupTokenizer();
+        return new SharedAnalysis(tokenizer, tokenizer, field -> switch (field) {
+            case "plain" -> ts -> ts;
+            case "long" -> ShortFilter::new;
+            default -> null;
+        });
+    }
+
+    private static List<String> direct(final String field, final String text) throws IOException
+    {
+        final Tokenizer tokenizer = new MarkupTokenizer();
+        tokenizer.setReader(new StringReader(text));
+        final TokenStream ts = "long".equals(field) ? new ShortFilter(tokenizer) : tokenizer;
+        return dump(ts);
+    }
+
+    private static List<String> dump(final TokenStream ts) throws IOException
+    {
+        final CharTermAttribute term = ts.addAttribute(CharTermAttribute.class);
+        final OffsetAttribute offset = ts.addAttribute(OffsetAttribute.class);
+        final PositionIncrementAttribute posInc = ts.addAttribute(PositionIncrementAttribute.class);
+        final List<String> tokens = new ArrayList<>();
+        try {
+            ts.reset();
+            while (ts.incrementToken()) {
+                tokens.add(term + "|" + offset.startOffset() + "-" + offset.endOffset() + "|+" + posInc.getPositionIncrement());
+            }
+            ts.end();
+            tokens.add("end|" + offset.endOffset() + "|+" + posInc.getPositionIncrement());
+        }
+        finally {
+            ts.close();
+        }
+        return tokens;
+    }
+
+    @Test
+    void replayEqualsDirectChain() throws IOException
+    {
+        final SharedAnalysis shared = newShared();
+        final SharedAnalysis.Run run = shared.analyze(TEXT);
+        assertTrue(run.size() > 0);
+        assertEquals(direct("plain", TEXT), dump(shared.stream("plain", run)));
+        assertEquals(direct("long", TEXT), dump(shared.stream("long", run)));
+        // a run can be replayed again
+        assertEquals(direct("plain", TEXT), dump(shared.stream("plain", run)));
+    }
+
+    @Test
+    void severalRunsThenClear() throws IOException
+    {
+        final SharedAnalysis shared = newShared();
+        final SharedAnalysis.Run run1 = shared.analyze(TEXT);
+        final SharedAnalysis.Run run2 = shared.analyze(TEXT2);
+        assertNotSame(run1, run2);
+        assertEquals(direct("long", TEXT), dump(shared.stream("long", run1)));
+        assertEquals(direct("long", TEXT2), dump(shared.stream("long", run2)));
+        shared.clear();
+        final SharedAnalysis.Run run3 = shared.analyze(TEXT2);
+        assertSame(run1, run3, "first run recycled after clear()");
+        assertEquals(direct("plain", TEXT2), dump(shared.stream("plain", run3)));
+    }
+
+    @Test
+    void unknownFieldRejected() throws IOException
+    {
+        final SharedAnalysis shared = newShared();
+        final SharedAnalysis.Run run = shared.analyze(TEXT);
+        assertFalse(shared.shares("obs"));
+        assertTrue(shared.shares("long"));
+        assertThrows(IllegalArgumentException.class, () -> shared.stream("obs", run));
+    }
+}
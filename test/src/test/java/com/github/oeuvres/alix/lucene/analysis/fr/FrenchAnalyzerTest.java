@@ -0,0 +1,103 @@
+package com.github.oeuvres.alix.lucene.analysis.fr;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionLengthAttribute;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.github.oeuvres.alix.lucene.analysis.SharedAnalysis;
+import com.github.oeuvres.alix.lucene.analysis.tokenattributes.LemmaAttribute;
+import com.github.oeuvres.alix.lucene.analysis.tokenattributes.PosAttribute;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link FrenchAnalyzer#sharedAnalysis()}: for the canonical and word2vec fields, the
+ * replay of one shared analysis gives the tokens of {@link FrenchAnalyzer#tokenStream(String, String)},
+ * with their POS, lemma, offsets, position increments and lengths.
+ */
+class FrenchAnalyzerTest {
+
+    /** Markup, clitics, an abbreviation, stop words, a multi-word expression, two sentences. */
+    private static final String[] TEXTS = {
+        "<p>L’homme qu’on dit-il a vu, M. Dupont, n’est-ce pas <i>la</i> mise en forme du texte ?</p>",
+        "<p>Les jours suivants, mêmes réactions mais appliquées à des situations toujours nouvelles. "
+            + "Elle se cambre ainsi devant des objets nouveaux, etc., etc.</p>",
+        "<div><head>Chapitre I<note>1</note></head><p>Aujourd’hui, maman est morte. Ou peut-être hier, je ne sais pas.</p></div>",
+        "",
+    };
+
+    private static FrenchAnalyzer analyzer;
+
+    @BeforeAll
+    static void setUp() throws IOException
+    {
+        analyzer = new FrenchAnalyzer();
+        analyzer.addExpression("mise en forme");
+    }
+
+    private static List<String> dump(final TokenStream ts) throws IOException
+    {
+        final CharTermAttribute term = ts.addAttribute(CharTermAttribute.class);
+        final PosAttribute pos = ts.addAttribute(PosAttribute.class);
+        final LemmaAttribute lemma = ts.addAttribute(LemmaAttribute.class);
+        final OffsetAttribute offset = ts.addAttribute(OffsetAttribute.class);
+        final PositionIncrementAttribute posInc = ts.addAttribute(PositionIncrementAttribute.class);
+        final PositionLengthAttribute posLen = ts.addAttribute(PositionLengthAttribute.class);
+        final List<String> tokens = new ArrayList<>();
+        try {
+            ts.reset();
+            while (ts.incrementToken()) {
+                tokens.add(term + "|" + pos.getPos() + "|" + lemma + "|" + offset.startOffset() + "-" + offset.endOffset()
+                    + "|+" + posInc.getPositionIncrement() + "|" + posLen.getPositionLength());
+            }
+            ts.end();
+            tokens.add("end|" + offset.endOffset() + "|+" + posInc.getPositionIncrement());
+        }
+        finally {
+            ts.close();
+        }
+        return tokens;
+    }
+
+    private static void replayEqualsDirect(final String field) throws IOException
+    {
+        final SharedAnalysis shared = analyzer.sharedAnalysis();
+        assertTrue(shared.shares(field), field);
+        // several runs alive at once, as for the fields of one document
+        final List<SharedAnalysis.Run> runs = new ArrayList<>();
+        for (String text : TEXTS) runs.add(shared.analyze(text));
+        for (int i = 0; i < TEXTS.length; i++) {
+            final List<String> direct = dump(analyzer.tokenStream(field, TEXTS[i]));
+            assertEquals(direct, dump(shared.stream(field, runs.get(i))), field + " text " + i);
+        }
+        shared.clear();
+        assertEquals(dump(analyzer.tokenStream(field, TEXTS[0])), dump(shared.stream(field, shared.analyze(TEXTS[0]))),
+            field + " after clear()");
+    }
+
+    @Test
+    void canonicReplayEqualsDirect() throws IOException
+    {
+        replayEqualsDirect("text");
+    }
+
+    @Test
+    void word2vecReplayEqualsDirect() throws IOException
+    {
+        replayEqualsDirect("word2vec");
+    }
+
+    @Test
+    void observationNotShared()
+    {
+        assertFalse(analyzer.sharedAnalysis().shares("obs"));
+    }
+}
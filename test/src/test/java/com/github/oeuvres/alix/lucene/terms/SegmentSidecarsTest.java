@@ -0,0 +1,118 @@
+package com.github.oeuvres.alix.lucene.terms;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.github.oeuvres.alix.util.Report.ReportList;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static com.github.oeuvres.alix.lucene.terms.TermRailTest.FIELD;
+
+/**
+ * Tests for {@link SegmentSidecars}: after a segment is appended and a document deleted, the
+ * assembled rail equals a full rebuild, in the format of the first assembly.
+ */
+class SegmentSidecarsTest {
+
+    @TempDir
+    Path dir;
+
+    private static void add(final IndexWriter writer, final Random random, final int from, final int to)
+        throws IOException
+    {
+        final FieldType type = TermRailTest.vectorType();
+        for (int i = from; i < to; i++) {
+            final Document doc = new Document();
+            doc.add(new StringField("id", Integer.toString(i), Field.Store.NO));
+            if (i % 7 != 3) doc.add(new Field(FIELD, TermRailTest.text(random, 1 + (i * 37) % 300), type));
+            writer.addDocument(doc);
+        }
+        writer.commit();
+    }
+
+    private void appendMatchesRebuild(final TermRail.Format format) throws IOException
+    {
+        final Path sideDir = Files.createDirectories(dir.resolve("segs"));
+        final Path fullDir = Files.createDirectories(dir.resolve("full"));
+        final Random random = new Random(5);
+        final ReportList report = new ReportList();
+        try (Directory directory = new ByteBuffersDirectory();
+                IndexWriter writer = new IndexWriter(directory,
+                    new IndexWriterConfig(new WhitespaceAnalyzer()).setMergePolicy(NoMergePolicy.INSTANCE))) {
+            add(writer, random, 0, 40);
+            try (DirectoryReader reader = DirectoryReader.open(directory)) {
+                assertFalse(SegmentSidecars.isCurrent(reader, sideDir, FIELD));
+                SegmentSidecars.update(reader, sideDir, FIELD, new TermLexicon(reader, FIELD), format, report);
+                assertTrue(SegmentSidecars.isCurrent(reader, sideDir, FIELD));
+                assertTrue(SegmentSidecars.enabled(sideDir));
+            }
+            assertEquals(format, TermRail.format(sideDir, FIELD));
+
+            // a new segment with new terms, a deletion in the old one
+            add(writer, random, 40, 70);
+            writer.deleteDocuments(new Term("id", "5"));
+            writer.commit();
+            report.clear();
+            try (DirectoryReader reader = DirectoryReader.open(directory)) {
+                assertEquals(2, reader.leaves().size());
+                assertFalse(SegmentSidecars.isCurrent(reader, sideDir, FIELD));
+                final TermLexicon lexicon = new TermLexicon(reader, FIELD);
+                // the existing rail keeps its format, whatever is asked
+                SegmentSidecars.update(reader, sideDir, FIELD, lexicon, TermRail.Format.RAW, report);
+                assertTrue(SegmentSidecars.isCurrent(reader, sideDir, FIELD));
+                assertTrue(report.summary().contains("built=1"), report.summary());
+                TermRail.build(reader, fullDir, FIELD, lexicon, format, null);
+            }
+        }
+        assertEquals(format, TermRail.format(sideDir, FIELD));
+
+        try (TermRail merged = TermRail.open(sideDir, FIELD); TermRail full = TermRail.open(fullDir, FIELD)) {
+            assertEquals(full.docCount(), merged.docCount());
+            assertEquals(full.totalPositions(), merged.totalPositions());
+            for (int docId = 0; docId < full.docCount(); docId++) {
+                final int len = full.docLength(docId);
+                assertEquals(len, merged.docLength(docId), "docId=" + docId);
+                final int[] expected = new int[len];
+                final int[] actual = new int[len];
+                full.copyDocument(docId, expected);
+                merged.copyDocument(docId, actual);
+                assertArrayEquals(expected, actual, "docId=" + docId);
+            }
+        }
+        final String[] exts = (format == TermRail.Format.PACKED)
+            ? new String[] { ".rail.pak", ".rail.pix" }
+            : new String[] { ".rail.dat", ".rail.off" };
+        for (String ext : exts) {
+            assertEquals(-1L, Files.mismatch(sideDir.resolve(FIELD + ext), fullDir.resolve(FIELD + ext)), ext);
+        }
+    }
+
+    @Test
+    void appendMatchesRebuildPacked() throws IOException
+    {
+        appendMatchesRebuild(TermRail.Format.PACKED);
+    }
+
+    @Test
+    void appendMatchesRebuildRaw() throws IOException
+    {
+        appendMatchesRebuild(TermRail.Format.RAW);
+    }
+}
@@ -0,0 +1,142 @@
+package com.github.oeuvres.alix.lucene.terms;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link TermRail}: the packed format reads back the raw format, position by position, for
+ * documents shorter than, equal to, and longer than {@link TermRail#BLOCK_SIZE}, with rare terms stored
+ * as exceptions.
+ */
+class TermRailTest {
+
+    static final String FIELD = "text";
+
+    /** Document lengths around the block boundaries. */
+    private static final int[] LENGTHS = { 0, 1, 127, 128, 129, 255, 256, 257, 700, 3 };
+
+    @TempDir
+    Path dir;
+
+    /** Indexed field with positional term vectors, as required by the rail. */
+    static FieldType vectorType()
+    {
+        final FieldType type = new FieldType(TextField.TYPE_NOT_STORED);
+        type.setStoreTermVectors(true);
+        type.setStoreTermVectorPositions(true);
+        type.freeze();
+        return type;
+    }
+
+    /** Zipfian words from a vocabulary of some thousands, so that rare ranks overflow the block width. */
+    static String text(final Random random, final int length)
+    {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            final int rank = (int) Math.floor(Math.pow(4000, random.nextDouble()));
+            sb.append('w').append(rank).append(' ');
+        }
+        return sb.toString();
+    }
+
+    static Directory index(final int[] lengths, final long seed) throws IOException
+    {
+        final Directory directory = new ByteBuffersDirectory();
+        final Random random = new Random(seed);
+        final FieldType type = vectorType();
+        try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(new WhitespaceAnalyzer()))) {
+            for (int length : lengths) {
+                final Document doc = new Document();
+                if (length > 0) doc.add(new Field(FIELD, text(random, length), type));
+                writer.addDocument(doc);
+            }
+            writer.forceMerge(1);
+        }
+        return directory;
+    }
+
+    private static List<Integer> window(final TermRail rail, final int docId, final int lo, final int hi)
+    {
+        final List<Integer> ids = new ArrayList<>();
+        rail.scanWindow(docId, lo, hi, ids::add);
+        return ids;
+    }
+
+    private static List<Integer> positions(final TermRail rail, final int docId, final BitSet bits)
+    {
+        final List<Integer> ids = new ArrayList<>();
+        rail.scanPositions(docId, bits, ids::add);
+        return ids;
+    }
+
+    @Test
+    void packedMatchesRaw() throws IOException
+    {
+        final Path rawDir = Files.createDirectories(dir.resolve("raw"));
+        final Path pakDir = Files.createDirectories(dir.resolve("pak"));
+        try (Directory directory = index(LENGTHS, 7); DirectoryReader reader = DirectoryReader.open(directory)) {
+            final TermLexicon lexicon = new TermLexicon(reader, FIELD);
+            TermRail.build(reader, rawDir, FIELD, lexicon, TermRail.Format.RAW, null);
+            TermRail.build(reader, pakDir, FIELD, lexicon, TermRail.Format.PACKED, null);
+        }
+        assertEquals(TermRail.Format.RAW, TermRail.format(rawDir, FIELD));
+        assertEquals(TermRail.Format.PACKED, TermRail.format(pakDir, FIELD));
+
+        final Random random = new Random(11);
+        try (TermRail raw = TermRail.open(rawDir, FIELD); TermRail pak = TermRail.open(pakDir, FIELD)) {
+            assertEquals(raw.docCount(), pak.docCount());
+            assertEquals(raw.totalPositions(), pak.totalPositions());
+            for (int docId = 0; docId < raw.docCount(); docId++) {
+                final int len = raw.docLength(docId);
+                assertEquals(LENGTHS[docId], len, "docId=" + docId);
+                assertEquals(len, pak.docLength(docId));
+
+                final int[] expected = new int[len];
+                final int[] actual = new int[len];
+                raw.copyDocument(docId, expected);
+                pak.copyDocument(docId, actual);
+                assertArrayEquals(expected, actual, "docId=" + docId);
+                for (int p = 0; p < len; p++) {
+                    assertEquals(expected[p], pak.termId(docId, p), "docId=" + docId + " pos=" + p);
+                }
+
+                // windows starting and ending on both sides of block boundaries
+                for (int lo = -2; lo <= len; lo += 1 + Math.floorMod(lo, 5)) {
+                    for (int hi : new int[] { lo + 1, lo + 3, lo + TermRail.BLOCK_SIZE, lo + TermRail.BLOCK_SIZE + 2, len + 4 }) {
+                        assertEquals(window(raw, docId, lo, hi), window(pak, docId, lo, hi),
+                            "docId=" + docId + " [" + lo + ", " + hi + ")");
+                    }
+                }
+
+                for (int round = 0; round < 20; round++) {
+                    final BitSet bits = new BitSet();
+                    final int density = 1 + random.nextInt(20);
+                    for (int p = 0; p < len + 10; p++) {
+                        if (random.nextInt(density) == 0) bits.set(p);
+                    }
+                    assertEquals(positions(raw, docId, bits), positions(pak, docId, bits), "docId=" + docId);
+                }
+            }
+        }
+    }
+}
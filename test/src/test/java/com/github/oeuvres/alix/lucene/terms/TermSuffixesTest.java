@@ -0,0 +1,168 @@
+package com.github.oeuvres.alix.lucene.terms;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.github.oeuvres.alix.util.Char;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static com.github.oeuvres.alix.lucene.terms.TermRailTest.FIELD;
+
+/**
+ * Tests for {@link TermSuffixes}: prefix and infix lookups return the terms of a linear scan of the
+ * folded vocabulary, once each; the written {@code .suggest} file answers as the heap tables and
+ * records the lexicon it was built from.
+ */
+class TermSuffixesTest {
+
+    /** Syllables with diacritics and ligatures, so that folding changes lengths. */
+    private static final String[] SYLLABLES = { "a", "é", "œu", "ba", "Ré", "ton", "ana", "çi", "vre", "ÉR" };
+
+    @TempDir
+    Path dir;
+
+    /** Index of one document holding some words. */
+    private static Directory index(final List<String> words) throws IOException
+    {
+        final Directory directory = new ByteBuffersDirectory();
+        try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(new WhitespaceAnalyzer()))) {
+            final Document doc = new Document();
+            doc.add(new Field(FIELD, String.join(" ", words), TextField.TYPE_NOT_STORED));
+            writer.addDocument(doc);
+        }
+        return directory;
+    }
+
+    /** Words of 1 to 5 syllables, some repeating a syllable, so that a term may contain a query twice. */
+    private static List<String> words(final Random random, final int count)
+    {
+        final List<String> words = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final StringBuilder sb = new StringBuilder();
+            final int length = 1 + random.nextInt(5);
+            for (int j = 0; j < length; j++) sb.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            words.add(sb.toString());
+        }
+        return words;
+    }
+
+    private static TreeSet<Integer> scan(final TermLexicon lexicon, final String folded, final boolean prefix)
+    {
+        final TreeSet<Integer> ids = new TreeSet<>();
+        for (int termId = 0; termId < lexicon.vocabSize(); termId++) {
+            final String form = Char.toAscii(lexicon.form(termId));
+            if (prefix ? form.startsWith(folded) : form.contains(folded)) ids.add(termId);
+        }
+        return ids;
+    }
+
+    private static List<Integer> infix(final TermSuffixes suffixes, final String folded)
+    {
+        final List<Integer> ids = new ArrayList<>();
+        suffixes.infix(folded, ids::add);
+        return ids;
+    }
+
+    private static List<Integer> prefix(final TermSuffixes suffixes, final String folded)
+    {
+        final List<Integer> ids = new ArrayList<>();
+        suffixes.prefix(folded, ids::add);
+        return ids;
+    }
+
+    @Test
+    void lookupsMatchLinearScan() throws IOException
+    {
+        final Random random = new Random(17);
+        try (Directory directory = index(words(random, 6000)); DirectoryReader reader = DirectoryReader.open(directory)) {
+            final TermLexicon lexicon = new TermLexicon(reader, FIELD);
+            TermSuffixes.build(lexicon, dir, FIELD);
+            assertTrue(TermSuffixes.exists(dir, FIELD));
+            final TermSuffixes heap = TermSuffixes.build(lexicon);
+            try (TermSuffixes mapped = TermSuffixes.open(dir, FIELD)) {
+                assertEquals(lexicon.vocabSize(), mapped.vocabSize());
+                assertEquals(lexicon.checksum(), mapped.checksum());
+                assertTrue(mapped.isCurrent(lexicon));
+                final TreeSet<String> queries = new TreeSet<>(List.of("zzz", "q"));
+                for (int termId = 0; termId < lexicon.vocabSize(); termId++) {
+                    final String folded = Char.toAscii(lexicon.form(termId));
+                    assertEquals(folded, heap.folded(termId));
+                    assertEquals(folded, mapped.folded(termId));
+                    if (termId % 5 != 0) continue;
+                    for (int len = 1; len <= 6 && len <= folded.length(); len++) {
+                        queries.add(folded.substring(folded.length() - len));
+                        queries.add(folded.substring(0, len));
+                    }
+                }
+                for (String query : queries) {
+                    final List<Integer> hits = infix(mapped, query);
+                    // once per term, whatever the dedupe path taken by the hit count
+                    assertEquals(hits.size(), new TreeSet<>(hits).size(), query);
+                    assertEquals(scan(lexicon, query, false), new TreeSet<>(hits), query);
+                    assertEquals(new TreeSet<>(infix(heap, query)), new TreeSet<>(hits), query);
+
+                    final List<Integer> starts = prefix(mapped, query);
+                    assertEquals(prefix(heap, query), starts, query);
+                    assertEquals(scan(lexicon, query, true), new TreeSet<>(starts), query);
+                    for (int i = 1; i < starts.size(); i++) {
+                        assertTrue(mapped.folded(starts.get(i - 1)).compareTo(mapped.folded(starts.get(i))) <= 0,
+                            "folded order for " + query);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void otherLexiconOfSameSizeIsStale() throws IOException
+    {
+        try (Directory a = index(List.of("été", "œuvre", "Éric")); Directory b = index(List.of("été", "œuvre", "Érac"));
+                DirectoryReader readerA = DirectoryReader.open(a); DirectoryReader readerB = DirectoryReader.open(b)) {
+            final TermLexicon lexiconA = new TermLexicon(readerA, FIELD);
+            final TermLexicon lexiconB = new TermLexicon(readerB, FIELD);
+            assertEquals(lexiconA.vocabSize(), lexiconB.vocabSize());
+            assertNotEquals(lexiconA.checksum(), lexiconB.checksum(), "checksum");
+            TermSuffixes.build(lexiconA, dir, FIELD);
+            try (TermSuffixes suffixes = TermSuffixes.open(dir, FIELD)) {
+                assertTrue(suffixes.isCurrent(lexiconA));
+                assertFalse(suffixes.isCurrent(lexiconB));
+            }
+        }
+    }
+
+    @Test
+    void corruptFileRefused() throws IOException
+    {
+        try (Directory directory = index(words(new Random(3), 200)); DirectoryReader reader = DirectoryReader.open(directory)) {
+            TermSuffixes.build(new TermLexicon(reader, FIELD), dir, FIELD);
+        }
+        final Path path = dir.resolve(FIELD + ".suggest");
+        final byte[] bytes = Files.readAllBytes(path);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(bytes.length - 2);
+        }
+        assertThrows(IOException.class, () -> TermSuffixes.open(dir, FIELD));
+        bytes[0] ^= 0x20;
+        Files.write(path, bytes);
+        assertThrows(IOException.class, () -> TermSuffixes.open(dir, FIELD));
+    }
+}
@@ -0,0 +1,67 @@
+package com.github.oeuvres.alix.lucene.util;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link FutureCache}: one load per key, eviction by bytes, and a failed load, error
+ * included, rethrown to the waiting requests and retried by the next one.
+ */
+class FutureCacheTest {
+
+    @Test
+    void loadedOnceEvictedByBytes() throws IOException
+    {
+        final FutureCache<Integer, int[]> cache = new FutureCache<>(100, a -> 4L * a.length);
+        final AtomicInteger loads = new AtomicInteger();
+        for (int round = 0; round < 3; round++) {
+            assertEquals(10, cache.get(1, () -> { loads.incrementAndGet(); return new int[10]; }).length);
+        }
+        assertEquals(1, loads.get());
+        assertEquals(40, cache.bytes());
+        cache.get(2, () -> new int[20]);
+        assertEquals(1, cache.evictions());
+        assertEquals(80, cache.bytes());
+        assertNull(cache.get(3, () -> null));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void errorReleasesWaitersAndSlot() throws Exception
+    {
+        final FutureCache<String, String> cache = new FutureCache<>(1 << 20, v -> v.length());
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            final Future<?> first = pool.submit(() -> cache.get("k", () -> {
+                loading.countDown();
+                while (release.getCount() > 0) Thread.onSpinWait();
+                throw new StackOverflowError("load");
+            }));
+            loading.await();
+            final Future<?> waiter = pool.submit(() -> cache.get("k", () -> "other"));
+            // let the waiter join the slot in flight
+            while (cache.hits() == 0) Thread.onSpinWait();
+            release.countDown();
+            final Throwable firstCause = assertThrows(Exception.class, () -> first.get(10, TimeUnit.SECONDS)).getCause();
+            assertInstanceOf(StackOverflowError.class, firstCause);
+            final Throwable waiterCause = assertThrows(Exception.class, () -> waiter.get(10, TimeUnit.SECONDS)).getCause();
+            assertInstanceOf(StackOverflowError.class, waiterCause);
+        }
+        finally {
+            pool.shutdownNow();
+        }
+        assertEquals(0, cache.size(), "failed slot dropped");
+        assertEquals("retry", cache.get("k", () -> "retry"));
+    }
+}
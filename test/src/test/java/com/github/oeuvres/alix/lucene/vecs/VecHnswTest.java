@@ -0,0 +1,126 @@
+package com.github.oeuvres.alix.lucene.vecs;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.github.oeuvres.alix.util.TopArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link VecHnsw}: the graph finds most of the exact neighbours of
+ * {@link VecModel#nearest(int, int)}, and the written graph, once mapped, answers as the heap graph.
+ */
+class VecHnswTest {
+
+    private static final int SIZE = 3000;
+    private static final int DIM = 24;
+    private static final int CLUSTERS = 40;
+    private static final int K = 10;
+
+    @TempDir
+    Path dir;
+
+    /** Small word2vec model of clustered gaussian vectors, as words gather by topic. */
+    static Path model(final Path dir, final int size, final int dim, final long seed) throws IOException
+    {
+        final Random random = new Random(seed);
+        final double[][] centers = new double[CLUSTERS][dim];
+        for (double[] center : centers) {
+            for (int axis = 0; axis < dim; axis++) center[axis] = random.nextGaussian();
+        }
+        final String[] words = new String[size];
+        final double[][] coords = new double[size][dim];
+        for (int id = 0; id < size; id++) {
+            words[id] = "w" + id;
+            final double[] center = centers[random.nextInt(CLUSTERS)];
+            for (int axis = 0; axis < dim; axis++) coords[id][axis] = center[axis] + 0.6 * random.nextGaussian();
+        }
+        final Path path = dir.resolve("vectors.bin");
+        VecUtil.writeWord2vec(path, words, coords, dim);
+        return path;
+    }
+
+    @Test
+    void recallAgainstBruteForce() throws IOException
+    {
+        final Path path = model(dir, SIZE, DIM, 3);
+        try (VecModel model = VecModel.load(path)) {
+            final VecHnsw graph = VecHnsw.build(model);
+            int found = 0;
+            int expected = 0;
+            for (int id = 0; id < SIZE; id += 7) {
+                final TopArray exact = model.nearest(id, K);
+                final TopArray approx = graph.nearest(id, K);
+                assertEquals(K, approx.size());
+                for (int rank = 0; rank < approx.size(); rank++) {
+                    assertNotEquals(id, approx.id(rank), "query excluded");
+                }
+                for (int i = 0; i < exact.size(); i++) {
+                    expected++;
+                    for (int j = 0; j < approx.size(); j++) {
+                        if (exact.id(i) == approx.id(j)) {
+                            found++;
+                            break;
+                        }
+                    }
+                }
+            }
+            final double recall = (double) found / expected;
+            assertTrue(recall >= 0.95, "recall@" + K + "=" + recall);
+        }
+    }
+
+    @Test
+    void writtenGraphAnswersAsBuilt() throws IOException
+    {
+        final Path path = model(dir, 1000, DIM, 5);
+        assertFalse(VecHnsw.isCurrent(path));
+        try (VecModel model = VecModel.load(path)) {
+            final VecHnsw built = VecHnsw.build(model);
+            built.write(path);
+            assertTrue(Files.isRegularFile(dir.resolve("vectors" + VecHnsw.EXT)));
+            assertTrue(VecHnsw.isCurrent(path));
+            try (VecHnsw mapped = VecHnsw.open(path, model)) {
+                assertEquals(built.size(), mapped.size());
+                final float[] query = new float[DIM];
+                for (int id = 0; id < model.size(); id += 13) {
+                    final TopArray a = built.nearest(id, K);
+                    final TopArray b = mapped.nearest(id, K);
+                    assertArrayEquals(a.toArray(), b.toArray(), "id=" + id);
+                    model.copy(id, query);
+                    query[id % DIM] += 0.5f;
+                    assertArrayEquals(built.nearest(query, K).toArray(), mapped.nearest(query, K).toArray());
+                }
+            }
+        }
+        // a graph of another model is refused
+        final Path other = model(Files.createDirectories(dir.resolve("other")), 500, DIM, 6);
+        try (VecModel small = VecModel.load(other)) {
+            Files.copy(VecHnsw.hnswPath(path), VecHnsw.hnswPath(other));
+            assertThrows(IOException.class, () -> VecHnsw.open(other, small));
+        }
+    }
+
+    @Test
+    void truncatedGraphRefused() throws IOException
+    {
+        final Path path = model(dir, 300, DIM, 7);
+        try (VecModel model = VecModel.load(path)) {
+            VecHnsw.build(model).write(path);
+            final Path hnsw = VecHnsw.hnswPath(path);
+            // cut in the node levels, read before the size check
+            try (FileChannel channel = FileChannel.open(hnsw, StandardOpenOption.WRITE)) {
+                channel.truncate(7L * Integer.BYTES + 100L * Integer.BYTES);
+            }
+            assertThrows(IOException.class, () -> VecHnsw.open(path, model));
+        }
+    }
+}
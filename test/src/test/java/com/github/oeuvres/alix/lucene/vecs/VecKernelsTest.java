@@ -0,0 +1,122 @@
+package com.github.oeuvres.alix.lucene.vecs;
+
+import java.lang.foreign.MemorySegment;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Tests for the vector kernels of {@link VecKernels}, checked against {@link VecKernels.Scalar}
+ * over odd dimensions, so that every vector width ends in a scalar tail, and at unaligned offsets.
+ * Runs when {@code jdk.incubator.vector} is resolved.
+ */
+class VecKernelsTest {
+
+    /** Odd dimensions, short ones below one vector, long ones over several. */
+    private static final int[] DIMS = { 1, 3, 5, 7, 9, 15, 17, 31, 33, 37, 63, 65, 101, 127, 129, 255, 257, 301 };
+
+    /** Leading values skipped by the offsets. */
+    private static final int OFFSET = 3;
+
+    private static VecKernels.Kernel vector() throws ReflectiveOperationException
+    {
+        assumeTrue(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent(),
+            "run with --add-modules jdk.incubator.vector");
+        // by name, as VecKernels does, so that this class links without the module
+        return (VecKernels.Kernel) Class.forName(VecKernels.class.getPackageName() + ".VecKernelsVector")
+            .getDeclaredConstructor().newInstance();
+    }
+
+    private static float[] floats(final Random random, final int length)
+    {
+        final float[] a = new float[length];
+        for (int i = 0; i < length; i++) a[i] = (float) random.nextGaussian();
+        return a;
+    }
+
+    /** Sum of the absolute products, scale of the rounding error of a float dot product. */
+    private static double scale(final float[] a, final int aOffset, final float[] b, final int bOffset, final int length)
+    {
+        double sum = 0;
+        for (int i = 0; i < length; i++) sum += Math.abs((double) a[aOffset + i] * b[bOffset + i]);
+        return sum;
+    }
+
+    private static void assertClose(final double expected, final double actual, final double scale, final String message)
+    {
+        assertEquals(expected, actual, 1e-5 * scale + 1e-6, message);
+    }
+
+    @Test
+    void floatDots() throws ReflectiveOperationException
+    {
+        final VecKernels.Kernel vector = vector();
+        final VecKernels.Kernel scalar = new VecKernels.Scalar();
+        final Random random = new Random(7);
+        for (int dim : DIMS) {
+            final float[] a = floats(random, OFFSET + dim);
+            final float[] b = floats(random, OFFSET + dim + 1);
+            final double scale = scale(a, OFFSET, b, OFFSET + 1, dim);
+            assertClose(scalar.dot(a, OFFSET, b, OFFSET + 1, dim), vector.dot(a, OFFSET, b, OFFSET + 1, dim), scale,
+                "dot dim=" + dim);
+
+            final double[] da = new double[OFFSET + dim];
+            final double[] db = new double[OFFSET + dim];
+            for (int i = 0; i < dim; i++) {
+                da[OFFSET + i] = a[OFFSET + i];
+                db[OFFSET + i] = b[OFFSET + 1 + i];
+            }
+            assertEquals(scalar.dot(da, OFFSET, db, OFFSET, dim), vector.dot(da, OFFSET, db, OFFSET, dim),
+                1e-12 * scale + 1e-15, "double dot dim=" + dim);
+
+            final int rows = 11;
+            final float[] matrix = floats(random, rows * dim);
+            final float[] query = floats(random, dim);
+            final float[] expected = new float[rows];
+            final float[] actual = new float[rows];
+            scalar.dots(query, matrix, dim, 2, rows, expected);
+            vector.dots(query, matrix, dim, 2, rows, actual);
+            for (int row = 2; row < rows; row++) {
+                assertClose(expected[row - 2], actual[row - 2], scale(query, 0, matrix, row * dim, dim),
+                    "dots dim=" + dim + " row=" + row);
+            }
+        }
+    }
+
+    @Test
+    void quantisedDots() throws ReflectiveOperationException
+    {
+        final VecKernels.Kernel vector = vector();
+        final VecKernels.Kernel scalar = new VecKernels.Scalar();
+        final Random random = new Random(11);
+        for (int dim : DIMS) {
+            final float[] a = floats(random, OFFSET + dim);
+            final byte[] int8 = new byte[OFFSET + dim];
+            final byte[] other = new byte[OFFSET + 1 + dim];
+            random.nextBytes(int8);
+            random.nextBytes(other);
+            final MemorySegment b = MemorySegment.ofArray(int8);
+            final MemorySegment c = MemorySegment.ofArray(other);
+            double scale = 0;
+            for (int i = 0; i < dim; i++) scale += Math.abs(a[OFFSET + i] * int8[OFFSET + i]);
+            assertClose(scalar.dotInt8(a, OFFSET, b, OFFSET, dim), vector.dotInt8(a, OFFSET, b, OFFSET, dim), scale,
+                "dotInt8 float dim=" + dim);
+            assertEquals(scalar.dotInt8(b, OFFSET, c, OFFSET + 1, dim), vector.dotInt8(b, OFFSET, c, OFFSET + 1, dim),
+                "dotInt8 int dim=" + dim);
+
+            final MemorySegment fp16 = MemorySegment.ofArray(new byte[(OFFSET + dim) * Short.BYTES]);
+            scale = 0;
+            for (int i = 0; i < dim; i++) {
+                final short half = Float.floatToFloat16((float) random.nextGaussian());
+                fp16.set(VecKernels.BE_SHORT, (long) (OFFSET + i) * Short.BYTES, half);
+                scale += Math.abs(a[OFFSET + i] * Float.float16ToFloat(half));
+            }
+            final long offset = (long) OFFSET * Short.BYTES;
+            assertClose(scalar.dotFp16(a, OFFSET, fp16, offset, dim), vector.dotFp16(a, OFFSET, fp16, offset, dim), scale,
+                "dotFp16 dim=" + dim);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.github.oeuvres.alix.lucene.vecs;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.github.oeuvres.alix.util.TopArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the quantised {@code .vq} file of {@link VecModel}: written from a word2vec model, then
+ * mapped, it keeps the vocabulary and the cosines within the quantisation error, whatever the
+ * kernel running ({@link VecKernels#name()}).
+ */
+class VecModelTest {
+
+    /** Odd dimension, so that kernels end in a scalar tail. */
+    private static final int DIM = 37;
+    private static final int SIZE = 400;
+
+    @TempDir
+    Path dir;
+
+    private void roundTrip(final VecModel.Quant quant, final double tolerance) throws IOException
+    {
+        final Path bin = VecHnswTest.model(dir, SIZE, DIM, 9);
+        final Path vq = VecModel.quantPath(bin);
+        try (VecModel heap = VecModel.load(bin)) {
+            heap.write(vq, quant);
+            assertThrows(IOException.class, () -> heap.write(vq, quant), "existing file not replaced");
+            try (VecModel mapped = VecModel.open(vq)) {
+                assertEquals(quant, mapped.quant());
+                assertNull(heap.quant());
+                assertEquals(SIZE, mapped.size());
+                assertEquals(DIM, mapped.dim());
+                assertEquals(-1, mapped.id("absent"));
+                final float[] expected = new float[DIM];
+                final float[] actual = new float[DIM];
+                for (int id = 0; id < SIZE; id++) {
+                    final String word = heap.word(id);
+                    assertEquals(word, mapped.word(id));
+                    assertEquals(id, mapped.id(word), word);
+                    heap.copy(id, expected);
+                    mapped.copy(id, actual);
+                    for (int axis = 0; axis < DIM; axis++) {
+                        assertEquals(expected[axis], actual[axis], tolerance, "id=" + id + " axis=" + axis);
+                    }
+                    // kernels on the mapped rows agree with the dequantised copy
+                    assertEquals(VecKernels.dot(actual, 0, actual, 0, DIM), mapped.dot(id, id), 1e-4, "id=" + id);
+                    assertEquals(VecKernels.dot(expected, 0, actual, 0, DIM), mapped.dot(expected, id), 1e-4, "id=" + id);
+                }
+                for (int a = 0; a < SIZE; a += 11) {
+                    for (int b = 0; b < SIZE; b += 7) {
+                        assertEquals(heap.cosine(a, b), mapped.cosine(a, b), 10 * tolerance, a + "," + b);
+                    }
+                    final TopArray exact = heap.nearest(a, 5);
+                    final TopArray approx = mapped.nearest(a, 5);
+                    assertEquals(exact.size(), approx.size());
+                    assertEquals(exact.score(0), approx.score(0), 10 * tolerance);
+                }
+            }
+        }
+    }
+
+    @Test
+    void int8RoundTrip() throws IOException
+    {
+        roundTrip(VecModel.Quant.INT8, 5e-3);
+    }
+
+    @Test
+    void fp16RoundTrip() throws IOException
+    {
+        roundTrip(VecModel.Quant.FP16, 5e-4);
+    }
+
+    @Test
+    void truncatedFileRefused() throws IOException
+    {
+        final Path bin = VecHnswTest.model(dir, 50, DIM, 4);
+        final Path vq = VecModel.quantPath(bin);
+        try (VecModel heap = VecModel.load(bin)) {
+            heap.write(vq, VecModel.Quant.INT8);
+        }
+        try (FileChannel channel = FileChannel.open(vq, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(vq) - 3);
+        }
+        assertThrows(IOException.class, () -> VecModel.open(vq));
+        // cut in the rows, before the word offsets read to check the size
+        Files.delete(vq);
+        try (VecModel heap = VecModel.load(bin)) {
+            heap.write(vq, VecModel.Quant.INT8);
+        }
+        try (FileChannel channel = FileChannel.open(vq, StandardOpenOption.WRITE)) {
+            channel.truncate(5L * Integer.BYTES + 50L * Float.BYTES + 100);
+        }
+        assertThrows(IOException.class, () -> VecModel.open(vq));
+    }
+}
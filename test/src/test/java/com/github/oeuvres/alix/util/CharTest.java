@@ -0,0 +1,154 @@
+package com.github.oeuvres.alix.util;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Tests for the bulk methods of {@link Char}, checked against the per-char methods, whatever
+ * the kernel running ({@link Char#kernel()}), and for the vector kernel itself against the scalar
+ * one when {@code jdk.incubator.vector} is resolved. Runs are long enough to cross several
+ * vectors and to end in a scalar tail.
+ */
+class CharTest {
+
+    private static final String TEXT =
+        "Le vieux phare, dressé sur l'éperon rocheux, veillait encore.\n\t  "
+        + "À l'aube, les MOUETTES criaient ; la brume s'effilochait — grise &amp; froide.\r\n"
+        + "<p rend=\"i\">Élise notait tout : 1848, ΑΘΗΝΑ, İstanbul, œuvre, 𐐀𐐁.</p>"
+        + "                                        "
+        + "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnop";
+
+    private static final short[] FLAGS = {
+        Char.LETTER, Char.LATIN, Char.SPACE, Char.TOKEN, Char.PUNCTUATION,
+        Char.LETTER | Char.LATIN, Char.LETTER | Char.UPPERCASE, Char.SPACE | Char.MATH,
+        Char.UPPERCASE, Char.LOWERCASE
+    };
+
+    /** Text and random chars, ASCII mostly. */
+    private static char[] sample()
+    {
+        final Random random = new Random(42);
+        final StringBuilder sb = new StringBuilder(TEXT);
+        for (int i = 0; i < 2000; i++) {
+            final int r = random.nextInt(100);
+            if (r < 70) sb.append(TEXT.charAt(random.nextInt(TEXT.length())));
+            else if (r < 90) sb.append((char) random.nextInt(128));
+            else sb.append((char) random.nextInt(0xFFFF));
+        }
+        return sb.toString().toCharArray();
+    }
+
+    private static int spanRef(final char[] chars, final int from, final int to, final short flags)
+    {
+        int i = from;
+        while (i < to && (Char.props(chars[i]) & flags) == flags) i++;
+        return i;
+    }
+
+    private static int indexOfRef(final char[] chars, final int from, final int to, final short flags)
+    {
+        int i = from;
+        while (i < to && (Char.props(chars[i]) & flags) == 0) i++;
+        return i;
+    }
+
+    @Test
+    void spanAndIndexOfMatchPerChar() {
+        final char[] chars = sample();
+        final String text = new String(chars);
+        for (short flags : FLAGS) {
+            for (int from = 0; from < chars.length; from++) {
+                final int to = Math.min(chars.length, from + 1 + (from * 7) % 90);
+                final int span = spanRef(chars, from, to, flags);
+                assertEquals(span, Char.span(chars, from, to, flags), "span flags=" + flags + " from=" + from);
+                assertEquals(span, Char.span(text, from, to, flags), "span text flags=" + flags + " from=" + from);
+                final int index = indexOfRef(chars, from, to, flags);
+                assertEquals(index, Char.indexOf(chars, from, to, flags), "indexOf flags=" + flags + " from=" + from);
+                assertEquals(index, Char.indexOf(text, from, to, flags), "indexOf text flags=" + flags + " from=" + from);
+            }
+        }
+    }
+
+    @Test
+    void spanLongAsciiRuns() {
+        final char[] letters = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ".repeat(5).toCharArray();
+        assertEquals(letters.length, Char.span(letters, 0, letters.length, Char.LETTER));
+        assertEquals(letters.length, Char.span(letters, 3, letters.length, Char.LATIN));
+        assertEquals(3, Char.span(letters, 3, letters.length, Char.SPACE));
+        letters[200] = '&'; // a letter for Char, not for the ASCII kernel
+        assertEquals(letters.length, Char.span(letters, 0, letters.length, Char.LETTER));
+        assertEquals(200, Char.span(letters, 0, letters.length, Char.LATIN));
+        final char[] spaces = " \t\r\n".repeat(40).toCharArray();
+        spaces[150] = ' ';
+        assertEquals(spaces.length, Char.span(spaces, 0, spaces.length, Char.SPACE));
+        assertEquals(0, Char.span(spaces, 0, spaces.length, Char.LETTER));
+        assertEquals(7, Char.span(spaces, 7, 7, Char.SPACE));
+        // a flag of some ASCII letters only, the letters kernel must not skip them
+        final char[] word = "abcDef".toCharArray();
+        assertEquals(3, Char.indexOf(word, 0, word.length, Char.UPPERCASE));
+        assertEquals(4, Char.indexOf(word, 3, word.length, Char.LOWERCASE));
+    }
+
+    @Test
+    void vectorKernelMatchesScalar() throws ReflectiveOperationException {
+        assumeTrue(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent(),
+            "run with --add-modules jdk.incubator.vector");
+        // by name, as Char does, so that this class links without the module
+        final Char.Kernel vector = (Char.Kernel) Class.forName(Char.class.getPackageName() + ".CharVector")
+            .getDeclaredConstructor().newInstance();
+        final Char.Kernel scalar = new Char.Scalar();
+        final char[] chars = sample();
+        // runs of letters and of spaces long enough for several vectors, broken at every lane
+        final char[] runs = ("abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ".repeat(3)
+            + " \t\r\n".repeat(30) + "é" + "QRSTUVWxyz".repeat(10)).toCharArray();
+        for (char[] text : new char[][] { chars, runs }) {
+            for (int from = 0; from < text.length; from++) {
+                final int to = Math.min(text.length, from + 1 + (from * 7) % 130);
+                assertEquals(scalar.asciiLetters(text, from, to), vector.asciiLetters(text, from, to), "letters from=" + from);
+                assertEquals(scalar.asciiSpaces(text, from, to), vector.asciiSpaces(text, from, to), "spaces from=" + from);
+                final char[] a = text.clone();
+                final char[] b = text.clone();
+                assertEquals(scalar.asciiLower(a, from, to), vector.asciiLower(b, from, to), "lower from=" + from);
+                assertArrayEquals(a, b, "lower from=" + from);
+            }
+        }
+    }
+
+    @Test
+    void toLowerMatchesPerChar() {
+        final char[] chars = sample();
+        for (int from = 0; from < 200; from += 13) {
+            final int to = chars.length - from;
+            final char[] bulk = chars.clone();
+            Char.toLower(bulk, from, to);
+            for (int i = 0; i < chars.length; i++) {
+                final char expected = (i >= from && i < to) ? Char.toLower(chars[i]) : chars[i];
+                assertEquals(expected, bulk[i], "from=" + from + " i=" + i);
+            }
+        }
+    }
+
+    @Test
+    void propsCopiesFlags() {
+        final char[] chars = sample();
+        final short[] dst = new short[chars.length];
+        Char.props(chars, 10, chars.length, dst);
+        for (int i = 10; i < chars.length; i++) {
+            assertEquals(Char.props(chars[i]), dst[i - 10]);
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> Char.props(chars, 0, chars.length, new short[3]));
+    }
+
+    @Test
+    void rejectsBadRuns() {
+        final char[] chars = "abc".toCharArray();
+        assertThrows(IndexOutOfBoundsException.class, () -> Char.span(chars, 2, 1, Char.LETTER));
+        assertThrows(IndexOutOfBoundsException.class, () -> Char.indexOf(chars, 0, 4, Char.SPACE));
+        assertThrows(IndexOutOfBoundsException.class, () -> Char.toLower(chars, -1, 2));
+        assertTrue(Char.kernel().equals("vector") || Char.kernel().equals("scalar"));
+    }
+}
@@ -5,6 +5,11 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+
 import org.junit.jupiter.api.Test;
 
 /**
@@ -339,4 +344,36 @@ public class LemmaLexiconTest {
         assertEquals("see", lex.asString(sawVerbLemma));
         assertEquals("saw", lex.asString(sawNounLemma));
     }
-}
\ No newline at end of file
+
+    /**
+     * Verifies that a lexicon restored by {@link LemmaLexicon#read(SegmentReader)}
+     * keeps ids and lookups, and stays mutable.
+     */
+    @Test
+    public void writeReadPreservesLookups() throws IOException {
+        final LemmaLexicon lex = new LemmaLexicon(32);
+        for (int i = 0; i < 1000; i++) {
+            lex.put("form" + i, (i % 2 == 0) ? VERB : NOUN, "lemma" + (i / 3));
+        }
+        lex.put("teeth", "tooth");
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            lex.write(out);
+        }
+        final SegmentReader in = new SegmentReader(MemorySegment.ofArray(bytes.toByteArray()));
+        final LemmaLexicon copy = LemmaLexicon.read(in);
+        assertEquals(0, in.remaining());
+
+        assertEquals(lex.size(), copy.size());
+        for (int i = 0; i < 1000; i++) {
+            final int pos = (i % 2 == 0) ? VERB : NOUN;
+            assertEquals(lex.lemmaId("form" + i, pos), copy.lemmaId("form" + i, pos));
+        }
+        assertEquals("tooth", copy.asString(copy.lemmaId("teeth")));
+        assertEquals(LemmaLexicon.NO_LEMMA, copy.lemmaId("form0", ADJ));
+
+        final int lemmaId = copy.put("saw", VERB, "see");
+        assertEquals(lemmaId, copy.lemmaId("saw", VERB));
+    }
+}
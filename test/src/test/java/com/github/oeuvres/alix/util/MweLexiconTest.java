@@ -1,8 +1,13 @@
 package com.github.oeuvres.alix.util;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
 import java.util.List;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -329,6 +334,48 @@ public class MweLexiconTest
         return token.toCharArray();
     }
 
+    @Test
+    void writeReadKeepsState() throws IOException
+    {
+        final WordTokenizer tokenizer = new FrenchCliticTokenizer();
+        final MweLexicon mutable = new MweLexicon(8);
+        mutable.addExpression(tokenizer.tokenize("New York"), "New York");
+        mutable.addExpression(tokenizer.tokenize("machine learning"), "machine learning");
+
+        final MweLexicon copy = roundTrip(mutable);
+        assertFalse(copy.isFrozen());
+        copy.addExpression(tokenizer.tokenize("New York City"), "New York City");
+        copy.freeze();
+        lexicon = copy;
+        assertEquals(copy.formDic().ord("New York"), walkAndAccept("new", "york"));
+        assertEquals(copy.formDic().ord("New York City"), walkAndAccept("New", "York", "City"));
+        assertEquals(copy.formDic().ord("machine learning"), walkAndAccept("machine", "learning"));
+
+        lexicon = roundTrip(copy);
+        assertTrue(lexicon.isFrozen());
+        assertEquals(3, lexicon.maxLen());
+        assertEquals(lexicon.formDic().ord("New York City"), walkAndAccept("new", "york", "city"));
+        assertEquals(-1, walkAndAccept("york"));
+    }
+
+    /**
+     * Saves and restores a lexicon.
+     *
+     * @param lex the lexicon to copy
+     * @return the restored lexicon
+     */
+    private static MweLexicon roundTrip(final MweLexicon lex) throws IOException
+    {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            lex.write(out);
+        }
+        final SegmentReader in = new SegmentReader(MemorySegment.ofArray(bytes.toByteArray()));
+        final MweLexicon copy = MweLexicon.read(in);
+        assertEquals(0, in.remaining());
+        return copy;
+    }
+
     /**
      * Walks the automaton token by token and returns the accept ordinal at the
      * final state.
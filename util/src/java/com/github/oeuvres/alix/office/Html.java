@@ -3,6 +3,8 @@ package com.github.oeuvres.alix.office;
 import java.util.ArrayDeque;
 import java.util.Deque;
 
+import com.github.oeuvres.alix.util.Markup;
+
 /**
  * Converts an inline HTML fragment drawn from a closed, self-generated tag
  * vocabulary into a sequence of styled runs, with a linear scan and a small
@@ -59,7 +61,7 @@ public final class Html {
             } else {
                 final int lt = frag.indexOf('<', i);
                 final int end = (lt < 0) ? n : lt;
-                final String text = unescape(frag.substring(i, end));
+                final String text = Markup.unescape(frag.substring(i, end));
                 if (!text.isEmpty()) {
                     sink.run(text, open.contains("i") || open.contains("em"),
                                    open.contains("b") || open.contains("strong"));
@@ -68,43 +70,4 @@ public final class Html {
             }
         }
     }
-
-    /**
-     * Decodes the named and numeric entities that appear in the closed
-     * vocabulary. Unknown entities are left verbatim.
-     *
-     * @param s escaped text
-     * @return decoded text
-     */
-    private static String unescape(final String s) {
-        if (s.indexOf('&') < 0) return s;
-        final int n = s.length();
-        final StringBuilder sb = new StringBuilder(n);
-        int i = 0;
-        while (i < n) {
-            final char c = s.charAt(i);
-            if (c != '&') { sb.append(c); i++; continue; }
-            final int semi = s.indexOf(';', i);
-            if (semi < 0 || semi - i > 10) { sb.append(c); i++; continue; }
-            final String ent = s.substring(i + 1, semi);
-            final String rep = switch (ent) {
-                case "amp" -> "&";
-                case "lt" -> "<";
-                case "gt" -> ">";
-                case "quot" -> "\"";
-                case "apos", "#39" -> "'";
-                case "nbsp" -> "\u00a0";
-                default -> null;
-            };
-            if (rep != null) { sb.append(rep); i = semi + 1; }
-            else if (ent.startsWith("#x") || ent.startsWith("#X")) {
-                try { sb.appendCodePoint(Integer.parseInt(ent.substring(2), 16)); i = semi + 1; }
-                catch (NumberFormatException nfe) { sb.append(c); i++; }
-            } else if (ent.startsWith("#")) {
-                try { sb.appendCodePoint(Integer.parseInt(ent.substring(1))); i = semi + 1; }
-                catch (NumberFormatException nfe) { sb.append(c); i++; }
-            } else { sb.append(c); i++; }
-        }
-        return sb.toString();
-    }
 }
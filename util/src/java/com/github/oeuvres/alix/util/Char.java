@@ -35,6 +35,7 @@ package com.github.oeuvres.alix.util;
 
 import java.text.Normalizer;
 import java.util.Objects;
+import java.util.logging.Logger;
 
 /**
  * <p>
@@ -43,6 +44,16 @@ import java.util.Objects;
  * Idea is to populate a static array of properties for
  * the code points.
  * </p>
+ * <p>
+ * Bulk methods work on a run of a {@code char[]}: {@link #span(char[], int, int, short)}
+ * and {@link #indexOf(char[], int, int, short)} find the end of a run of letters, spaces…
+ * in one call, {@link #toLower(char[], int, int)} lower-cases in place,
+ * {@link #props(char[], int, int, short[])} copies the flags. ASCII runs, the most common
+ * in texts and markup, go through a kernel selected once: vectorised with
+ * {@code jdk.incubator.vector} when the JVM is started with
+ * {@code --add-modules jdk.incubator.vector} (and not {@code -Dalix.char.scalar=true}),
+ * scalar otherwise; {@link #kernel()} tells which one is running. Other chars use the table.
+ * </p>
  */
 public class Char
 {
@@ -148,6 +159,84 @@ public class Char
         }
 
     }
+    /** Flags shared by all ASCII letters [A-Za-z], a span on them may use the letters kernel. */
+    private static final short ASCII_LETTER_FLAGS = common("ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz");
+    /** Flags of any ASCII letter [A-Za-z], a search for none of them may skip letters with the kernel. */
+    private static final short ASCII_LETTER_ANY = any("ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz");
+    /** Flags shared by ' ', '\t', '\n', '\r', a span on them may use the spaces kernel. */
+    private static final short ASCII_SPACE_FLAGS = common(" \t\n\r");
+    /** System property forcing the scalar bulk kernel. */
+    public static final String SCALAR_PROPERTY = "alix.char.scalar";
+    /** Selected bulk kernel. */
+    private static final Kernel KERNEL = select();
+
+    /**
+     * ASCII primitives of the bulk methods, package-private. Each one stops at the first char
+     * out of its ASCII class; the caller goes on with the table.
+     */
+    interface Kernel
+    {
+        /** End of the run of [A-Za-z] in {@code [from, to)}. */
+        int asciiLetters(char[] chars, int from, int to);
+
+        /** End of the run of ' ', '\t', '\n', '\r' in {@code [from, to)}. */
+        int asciiSpaces(char[] chars, int from, int to);
+
+        /** Lower-cases [A-Z] in place up to the first non-ASCII char of {@code [from, to)}, returns its index or {@code to}. */
+        int asciiLower(char[] chars, int from, int to);
+
+        /** Implementation name. */
+        String name();
+    }
+
+    /**
+     * Portable kernel.
+     */
+    static final class Scalar implements Kernel
+    {
+        @Override
+        public int asciiLetters(final char[] chars, final int from, final int to)
+        {
+            int i = from;
+            while (i < to) {
+                final int c = chars[i] | 0x20;
+                if (c < 'a' || c > 'z') break;
+                i++;
+            }
+            return i;
+        }
+
+        @Override
+        public int asciiSpaces(final char[] chars, final int from, final int to)
+        {
+            int i = from;
+            while (i < to) {
+                final char c = chars[i];
+                if (c != ' ' && c != '\n' && c != '\t' && c != '\r') break;
+                i++;
+            }
+            return i;
+        }
+
+        @Override
+        public int asciiLower(final char[] chars, final int from, final int to)
+        {
+            int i = from;
+            while (i < to) {
+                final char c = chars[i];
+                if (c >= 0x80) break;
+                if (c >= 'A' && c <= 'Z') chars[i] = (char) (c | 0x20);
+                i++;
+            }
+            return i;
+        }
+
+        @Override
+        public String name()
+        {
+            return "scalar";
+        }
+    }
     /*
      * private static final String ASCII_C0 = "AAAAAAACEEEEIIII" +
      * "DNOOOOO\u00d7\u00d8UUUUYI\u00df" + "aaaaaaaceeeeiiii" +
@@ -341,6 +430,124 @@ public class Char
         return CHARS[c];
     }
 
+    /**
+     * Copy the flags of a run of chars, the bulk form of {@link #props(char)}.
+     *
+     * @param chars source chars.
+     * @param from first char, inclusive.
+     * @param to last char, exclusive.
+     * @param dst destination, {@code dst[i - from]} receives the flags of {@code chars[i]}.
+     * @throws IndexOutOfBoundsException if the run is outside {@code chars}, or {@code dst} is too short.
+     */
+    public static void props(final char[] chars, final int from, final int to, final short[] dst)
+    {
+        Objects.checkFromToIndex(from, to, chars.length);
+        Objects.checkFromIndexSize(0, to - from, dst.length);
+        for (int i = from; i < to; i++) {
+            dst[i - from] = CHARS[chars[i]];
+        }
+    }
+
+    /**
+     * End of the run of chars having all the {@code flags}, from {@code from}. For example
+     * {@code span(chars, i, to, Char.LETTER)} skips a word, {@code span(chars, i, to, Char.SPACE)}
+     * the spaces before the next one. ASCII letters and spaces are matched by the bulk kernel.
+     *
+     * @param chars source chars.
+     * @param from first char, inclusive.
+     * @param to last char, exclusive.
+     * @param flags binary flags, like {@link #LETTER}, {@link #SPACE}, or {@code LETTER | LATIN}.
+     * @return index of the first char in {@code [from, to)} lacking a flag, or {@code to}.
+     * @throws IndexOutOfBoundsException if the run is outside {@code chars}.
+     */
+    public static int span(final char[] chars, final int from, final int to, final short flags)
+    {
+        Objects.checkFromToIndex(from, to, chars.length);
+        final boolean letters = flags != 0 && (flags & ASCII_LETTER_FLAGS) == flags;
+        final boolean spaces = flags != 0 && (flags & ASCII_SPACE_FLAGS) == flags;
+        int i = from;
+        while (i < to) {
+            if (letters) i = KERNEL.asciiLetters(chars, i, to);
+            else if (spaces) i = KERNEL.asciiSpaces(chars, i, to);
+            if (i == to || (CHARS[chars[i]] & flags) != flags) break;
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * End of the run of chars having all the {@code flags}, for a {@link CharSequence}; see
+     * {@link #span(char[], int, int, short)}, without the ASCII kernel.
+     *
+     * @param text source chars.
+     * @param from first char, inclusive.
+     * @param to last char, exclusive.
+     * @param flags binary flags.
+     * @return index of the first char in {@code [from, to)} lacking a flag, or {@code to}.
+     * @throws IndexOutOfBoundsException if the run is outside {@code text}.
+     */
+    public static int span(final CharSequence text, final int from, final int to, final short flags)
+    {
+        Objects.checkFromToIndex(from, to, text.length());
+        int i = from;
+        while (i < to && (CHARS[text.charAt(i)] & flags) == flags) i++;
+        return i;
+    }
+
+    /**
+     * First char having one of the {@code flags}, for example {@code Char.SPACE | Char.PUNCTUATION}
+     * for the end of a word.
+     *
+     * @param chars source chars.
+     * @param from first char, inclusive.
+     * @param to last char, exclusive.
+     * @param flags binary flags.
+     * @return index of the first char in {@code [from, to)} with one of the flags, or {@code to}.
+     * @throws IndexOutOfBoundsException if the run is outside {@code chars}.
+     */
+    public static int indexOf(final char[] chars, final int from, final int to, final short flags)
+    {
+        Objects.checkFromToIndex(from, to, chars.length);
+        // no ASCII letter has one of the flags, skip them in bulk
+        final boolean letters = (flags & ASCII_LETTER_ANY) == 0;
+        int i = from;
+        while (i < to) {
+            if (letters) i = KERNEL.asciiLetters(chars, i, to);
+            if (i == to || (CHARS[chars[i]] & flags) != 0) break;
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * First char having one of the {@code flags}, for a {@link CharSequence}; see
+     * {@link #indexOf(char[], int, int, short)}, without the ASCII kernel.
+     *
+     * @param text source chars.
+     * @param from first char, inclusive.
+     * @param to last char, exclusive.
+     * @param flags binary flags.
+     * @return index of the first char in {@code [from, to)} with one of the flags, or {@code to}.
+     * @throws IndexOutOfBoundsException if the run is outside {@code text}.
+     */
+    public static int indexOf(final CharSequence text, final int from, final int to, final short flags)
+    {
+        Objects.checkFromToIndex(from, to, text.length());
+        int i = from;
+        while (i < to && (CHARS[text.charAt(i)] & flags) == 0) i++;
+        return i;
+    }
+
+    /**
+     * Name of the bulk kernel running.
+     *
+     * @return {@code "vector"} or {@code "scalar"}.
+     */
+    public static String kernel()
+    {
+        return KERNEL.name();
+    }
+
     /**
      * Trim characters from the right of a mutable string.
      *
@@ -429,6 +636,27 @@ public class Char
     }
 
 
+    /**
+     * Lower casing a run of chars in place, as {@link #toLower(char)} for each char, ASCII
+     * runs by the bulk kernel.
+     *
+     * @param chars chars to transform.
+     * @param from first char, inclusive.
+     * @param to last char, exclusive.
+     * @throws IndexOutOfBoundsException if the run is outside {@code chars}.
+     */
+    public static void toLower(final char[] chars, final int from, final int to)
+    {
+        Objects.checkFromToIndex(from, to, chars.length);
+        int i = from;
+        while (i < to) {
+            i = KERNEL.asciiLower(chars, i, to);
+            if (i == to) break;
+            chars[i] = toLower(chars[i]);
+            i++;
+        }
+    }
+
     /**
      * Efficient upper casing (test if {@link #isLowerCase(char)} before).
      * 
@@ -567,6 +795,55 @@ public class Char
         return -1;
     }
 
+    /**
+     * Flags of any char of a string.
+     */
+    private static short any(final String chars)
+    {
+        short flags = 0;
+        for (int i = 0; i < chars.length(); i++) {
+            flags |= CHARS[chars.charAt(i)];
+        }
+        return flags;
+    }
+
+    /**
+     * Flags shared by all chars of a string.
+     */
+    private static short common(final String chars)
+    {
+        short flags = (short) 0xFFFF;
+        for (int i = 0; i < chars.length(); i++) {
+            flags &= CHARS[chars.charAt(i)];
+        }
+        return flags;
+    }
+
+    /**
+     * Selects the bulk kernel, the vectorised one when its module is readable and not disabled.
+     */
+    private static Kernel select()
+    {
+        final Logger logger = Logger.getLogger(Char.class.getName());
+        if (Boolean.getBoolean(SCALAR_PROPERTY)) {
+            return new Scalar();
+        }
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            logger.fine("jdk.incubator.vector not resolved, scalar char kernel"
+                + " (start with --add-modules jdk.incubator.vector)");
+            return new Scalar();
+        }
+        try {
+            // loaded by name, so that the class never links without the module
+            final Class<?> c = Class.forName(Char.class.getPackageName() + ".CharVector");
+            return (Kernel) c.getDeclaredConstructor().newInstance();
+        }
+        catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            logger.warning("vector char kernel unavailable, scalar fallback: " + e);
+            return new Scalar();
+        }
+    }
+
     /**
      * Human readable information about a char.
      * 
@@ -0,0 +1,89 @@
+package com.github.oeuvres.alix.util;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link Char} bulk kernel on {@code jdk.incubator.vector}, with the preferred species of the
+ * platform (16 chars on AVX2, 32 on AVX-512), chars loaded as unsigned shorts.
+ *
+ * <p>
+ * Only instantiated by name from {@link Char} once the module is known to be resolved; no
+ * other class may reference it.
+ * </p>
+ */
+final class CharVector implements Char.Kernel
+{
+    /** Char lanes. */
+    private static final VectorSpecies<Short> SHORTS = ShortVector.SPECIES_PREFERRED;
+
+    /** Scalar tails. */
+    private final Char.Scalar scalar = new Char.Scalar();
+
+    /** Reflective construction only. */
+    CharVector()
+    {
+    }
+
+    @Override
+    public int asciiLetters(final char[] chars, final int from, final int to)
+    {
+        final int lanes = SHORTS.length();
+        int i = from;
+        for (; i + lanes <= to; i += lanes) {
+            // c | 0x20 folds case; chars >= 0x8000 are negative shorts, out of 'a'..'z'
+            final ShortVector v = ShortVector.fromCharArray(SHORTS, chars, i).or((short) 0x20);
+            final VectorMask<Short> out = v.compare(VectorOperators.LT, (short) 'a')
+                .or(v.compare(VectorOperators.GT, (short) 'z'));
+            if (out.anyTrue()) {
+                return i + out.firstTrue();
+            }
+        }
+        return scalar.asciiLetters(chars, i, to);
+    }
+
+    @Override
+    public int asciiSpaces(final char[] chars, final int from, final int to)
+    {
+        final int lanes = SHORTS.length();
+        int i = from;
+        for (; i + lanes <= to; i += lanes) {
+            final ShortVector v = ShortVector.fromCharArray(SHORTS, chars, i);
+            final VectorMask<Short> out = v.eq((short) ' ')
+                .or(v.eq((short) '\n'))
+                .or(v.eq((short) '\t'))
+                .or(v.eq((short) '\r'))
+                .not();
+            if (out.anyTrue()) {
+                return i + out.firstTrue();
+            }
+        }
+        return scalar.asciiSpaces(chars, i, to);
+    }
+
+    @Override
+    public int asciiLower(final char[] chars, final int from, final int to)
+    {
+        final int lanes = SHORTS.length();
+        int i = from;
+        for (; i + lanes <= to; i += lanes) {
+            final ShortVector v = ShortVector.fromCharArray(SHORTS, chars, i);
+            if (v.compare(VectorOperators.UNSIGNED_GE, (short) 0x80).anyTrue()) {
+                // lower the ASCII prefix, stop on the first non-ASCII char
+                return scalar.asciiLower(chars, i, to);
+            }
+            final VectorMask<Short> upper = v.compare(VectorOperators.GE, (short) 'A')
+                .and(v.compare(VectorOperators.LE, (short) 'Z'));
+            v.lanewise(VectorOperators.OR, (short) 0x20, upper).intoCharArray(chars, i);
+        }
+        return scalar.asciiLower(chars, i, to);
+    }
+
+    @Override
+    public String name()
+    {
+        return "vector";
+    }
+}
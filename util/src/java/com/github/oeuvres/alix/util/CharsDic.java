@@ -14,6 +14,7 @@
  */
 package com.github.oeuvres.alix.util;
 
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.util.Arrays;
@@ -48,6 +49,11 @@ import java.util.Objects;
  * in the open-addressing table at 0.75 load, plus the slab itself (sum of all
  * sequence lengths in chars).</p>
  *
+ * <p>A dictionary can be saved with {@link #write(DataOutputStream)} and
+ * restored with {@link #read(SegmentReader)}: the arrays are copied as they
+ * are, table included, so a restored dictionary is usable without rehashing
+ * and stays mutable.</p>
+ *
  * <p>Thread-safety: not thread-safe under mutation. Concurrent reads are safe
  * only if no thread mutates the instance.</p>
  */
@@ -126,6 +132,33 @@ public final class CharsDic
         // table, fp16, meta, termHash stay null; mask, sizeOrds, etc. default to 0
     }
 
+    /**
+     * Restores a dictionary from its arrays, see {@link #read(SegmentReader)}.
+     */
+    private CharsDic(
+        final boolean ignoreCase,
+        final int sizeOrds,
+        final int maxTermLen,
+        final int[] table,
+        final short[] fp16,
+        final long[] meta,
+        final int[] termHash,
+        final char[] slab
+    ) {
+        this.empty = false;
+        this.ignoreCase = ignoreCase;
+        this.sizeOrds = sizeOrds;
+        this.occupied = sizeOrds;
+        this.maxTermLen = maxTermLen;
+        this.table = table;
+        this.fp16 = fp16;
+        this.mask = table.length - 1;
+        this.meta = meta;
+        this.termHash = termHash;
+        this.slab = slab;
+        this.slabUsed = slab.length;
+    }
+
     /**
      * Constructs a case-sensitive dictionary with an expected number of unique
      * sequences.
@@ -549,6 +582,31 @@ public final class CharsDic
         return lookup(null, off, len, key);
     }
 
+    /**
+     * Restores a dictionary saved by {@link #write(DataOutputStream)}.
+     *
+     * @param in reader positioned at the start of the saved dictionary
+     * @return a mutable dictionary with the same ords
+     * @throws IOException if the data is truncated or inconsistent
+     */
+    public static CharsDic read(final SegmentReader in) throws IOException
+    {
+        final boolean ignoreCase = in.readBoolean();
+        final int size = in.readCount("ord count");
+        final int maxTermLen = in.readCount("max term length");
+        final int cap = in.readCount("table capacity");
+        final int slabUsed = in.readCount("slab length");
+        if (Integer.bitCount(cap) != 1 || size > cap) {
+            throw new IOException("Bad table capacity " + cap + " for " + size + " ords");
+        }
+        final int[] table = in.readInts(cap);
+        final short[] fp16 = in.readShorts(cap);
+        final long[] meta = in.readLongs(size);
+        final int[] termHash = in.readInts(size);
+        final char[] slab = in.readChars(slabUsed);
+        return new CharsDic(ignoreCase, size, maxTermLen, table, fp16, meta, termHash, slab);
+    }
+
     /**
      * Returns the number of unique sequences interned.
      *
@@ -602,6 +660,32 @@ public final class CharsDic
         }
     }
 
+    /**
+     * Saves the dictionary for {@link #read(SegmentReader)}: flags, then
+     * table, fingerprints, per-ord metadata and hashes, and slab, as
+     * big-endian arrays.
+     *
+     * @param out destination stream
+     * @throws IOException if writing fails
+     * @throws UnsupportedOperationException for {@link #EMPTY}
+     */
+    public void write(final DataOutputStream out) throws IOException
+    {
+        if (empty) {
+            throw new UnsupportedOperationException("EMPTY dictionary");
+        }
+        out.writeBoolean(ignoreCase);
+        out.writeInt(sizeOrds);
+        out.writeInt(maxTermLen);
+        out.writeInt(table.length);
+        out.writeInt(slabUsed);
+        IOUtil.writeInts(out, table, table.length);
+        IOUtil.writeShorts(out, fp16, fp16.length);
+        IOUtil.writeLongs(out, meta, sizeOrds);
+        IOUtil.writeInts(out, termHash, sizeOrds);
+        IOUtil.writeChars(out, slab, slabUsed);
+    }
+
     /**
      * Appends a {@link CharSequence} slice to the slab.
      *
@@ -11,6 +11,8 @@
  */
 package com.github.oeuvres.alix.util;
 
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.util.Arrays;
 import java.util.Objects;
@@ -86,6 +88,16 @@ public final class CharsMap
         this.values = new int[Math.max(8, expectedSize)];
         Arrays.fill(this.values, HAS_NO_VALUE);
     }
+
+    /**
+     * Restores a map from its parts, see {@link #read(SegmentReader)}.
+     */
+    private CharsMap(final CharsDic dic, final int keyCount, final int[] values)
+    {
+        this.dic = dic;
+        this.keyCount = keyCount;
+        this.values = values;
+    }
     
     /**
      * Appends the sequence stored at {@code ord} to an {@link Appendable}.
@@ -380,6 +392,21 @@ public final class CharsMap
     }
 
 
+    /**
+     * Restores a map saved by {@link #write(DataOutputStream)}.
+     *
+     * @param in reader positioned at the start of the saved map
+     * @return a mutable map with the same ords and associations
+     * @throws IOException if the data is truncated or inconsistent
+     */
+    public static CharsMap read(final SegmentReader in) throws IOException
+    {
+        final CharsDic dic = CharsDic.read(in);
+        final int keyCount = in.readCount("key count");
+        final int[] values = in.readInts(dic.size());
+        return new CharsMap(dic, keyCount, values);
+    }
+
     /**
      * Returns the number of mapped keys.
      *
@@ -424,6 +451,23 @@ public final class CharsMap
         }
     }
 
+    /**
+     * Saves the map for {@link #read(SegmentReader)}: the shared dictionary,
+     * then the value ord of each dictionary ord.
+     *
+     * @param out destination stream
+     * @throws IOException if writing fails
+     */
+    public void write(final DataOutputStream out) throws IOException
+    {
+        dic.write(out);
+        out.writeInt(keyCount);
+        final int n = dic.size();
+        for (int ord = 0; ord < n; ord++) {
+            out.writeInt(ord < values.length ? values[ord] : HAS_NO_VALUE);
+        }
+    }
+
     /**
      * Returns the value ord associated with a key sequence.
      *
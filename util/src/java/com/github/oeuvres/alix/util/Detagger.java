@@ -48,6 +48,9 @@ import java.util.Set;
  */
 public class Detagger {
 
+    /** Flags ending a run of text copied as is: spaces are collapsed, {@code '<'} is a math symbol. */
+    private static final short TEXT_STOP = Char.SPACE | Char.MATH;
+
     /** Tag names whose markup is preserved; {@code null} means strip everything. */
     private final Set<String> include;
 
@@ -162,9 +165,13 @@ public class Detagger {
                         nameBuf.setLength(0);
                         tagBuf.append(c);
                         break;
-                    default:
-                        dest.append(c);
-                        lastWritten = c;
+                    default: {
+                        // the run of chars up to the next space or '<' (a MATH char) in one append
+                        final int run = Char.indexOf(xml, i + 1, end, TEXT_STOP);
+                        dest.append(xml, i, run);
+                        lastWritten = xml.charAt(run - 1);
+                        i = run - 1;
+                    }
                 }
             } else {
                 tagBuf.append(c);
@@ -173,6 +173,42 @@ public final class IOUtil
         }
     }
 
+    /**
+     * Loads the first bytes of a file into physical memory, so that later reads or mappings of
+     * these bytes do not fault on disk.
+     * <p>
+     * The file is mapped read-only in a confined arena, {@link MemorySegment#load() loaded}, then
+     * unmapped. The pages stay in the page cache of the operating system, shared with any other
+     * mapping of the file, until memory pressure evicts them.
+     * </p>
+     *
+     * @param path file to load
+     * @param maxBytes maximum bytes loaded from the start of the file
+     * @return bytes loaded and found resident, 0 if the operating system did not keep them all
+     * @throws IOException if the file cannot be opened or mapped
+     * @throws IllegalArgumentException if {@code maxBytes} is negative
+     * @throws NullPointerException if {@code path} is {@code null}
+     */
+    public static long preload(
+        final Path path,
+        final long maxBytes
+    ) throws IOException {
+        Objects.requireNonNull(path, "path");
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("maxBytes=" + maxBytes + " < 0");
+        }
+        try (Arena arena = Arena.ofConfined()) {
+            final MemorySegment file = mapReadOnly(path, arena);
+            final long size = Math.min(file.byteSize(), maxBytes);
+            if (size == 0) {
+                return 0L;
+            }
+            final MemorySegment head = file.asSlice(0L, size);
+            head.load();
+            return head.isLoaded() ? size : 0L;
+        }
+    }
+
     /**
      * Atomically moves a temporary file to its final location when supported by the file system.
      * <p>
@@ -256,6 +292,90 @@ public final class IOUtil
         return path.resolveSibling(path.getFileName().toString() + ".tmp");
     }
 
+    /**
+     * Writes the first {@code len} chars of an array, big-endian, as read back by
+     * {@link SegmentReader#readChars(int)}.
+     *
+     * @param out destination stream
+     * @param a source array
+     * @param len count of values to write
+     * @throws IOException if writing fails
+     * @throws IndexOutOfBoundsException if {@code len} exceeds the array length
+     */
+    public static void writeChars(
+        final DataOutputStream out,
+        final char[] a,
+        final int len
+    ) throws IOException {
+        Objects.checkFromIndexSize(0, len, a.length);
+        for (int i = 0; i < len; i++) {
+            out.writeChar(a[i]);
+        }
+    }
+
+    /**
+     * Writes the first {@code len} ints of an array, big-endian, as read back by
+     * {@link SegmentReader#readInts(int)}.
+     *
+     * @param out destination stream
+     * @param a source array
+     * @param len count of values to write
+     * @throws IOException if writing fails
+     * @throws IndexOutOfBoundsException if {@code len} exceeds the array length
+     */
+    public static void writeInts(
+        final DataOutputStream out,
+        final int[] a,
+        final int len
+    ) throws IOException {
+        Objects.checkFromIndexSize(0, len, a.length);
+        for (int i = 0; i < len; i++) {
+            out.writeInt(a[i]);
+        }
+    }
+
+    /**
+     * Writes the first {@code len} longs of an array, big-endian, as read back by
+     * {@link SegmentReader#readLongs(int)}.
+     *
+     * @param out destination stream
+     * @param a source array
+     * @param len count of values to write
+     * @throws IOException if writing fails
+     * @throws IndexOutOfBoundsException if {@code len} exceeds the array length
+     */
+    public static void writeLongs(
+        final DataOutputStream out,
+        final long[] a,
+        final int len
+    ) throws IOException {
+        Objects.checkFromIndexSize(0, len, a.length);
+        for (int i = 0; i < len; i++) {
+            out.writeLong(a[i]);
+        }
+    }
+
+    /**
+     * Writes the first {@code len} shorts of an array, big-endian, as read back by
+     * {@link SegmentReader#readShorts(int)}.
+     *
+     * @param out destination stream
+     * @param a source array
+     * @param len count of values to write
+     * @throws IOException if writing fails
+     * @throws IndexOutOfBoundsException if {@code len} exceeds the array length
+     */
+    public static void writeShorts(
+        final DataOutputStream out,
+        final short[] a,
+        final int len
+    ) throws IOException {
+        Objects.checkFromIndexSize(0, len, a.length);
+        for (int i = 0; i < len; i++) {
+            out.writeShort(a[i]);
+        }
+    }
+
     /**
      * Writes one UTF-8 string preceded by its 4-byte big-endian byte length.
      *
@@ -33,6 +33,8 @@
  */
 package com.github.oeuvres.alix.util;
 
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -98,6 +100,28 @@ public final class IntAutomaton
         maxPatternLen = 0;
     }
 
+    /**
+     * Restores a frozen automaton from its packed arrays, see {@link #read(SegmentReader)}.
+     */
+    private IntAutomaton(final int maxPatternLen, final int[] offset, final int[] label, final int[] target, final int[] acceptId)
+    {
+        this.trieRoot      = null;
+        this.maxPatternLen = maxPatternLen;
+        this.offset        = offset;
+        this.label         = label;
+        this.target        = target;
+        this.acceptId      = acceptId;
+    }
+
+    /**
+     * Restores a mutable automaton around a rebuilt trie, see {@link #read(SegmentReader)}.
+     */
+    private IntAutomaton(final Node trieRoot, final int maxPatternLen)
+    {
+        this.trieRoot      = trieRoot;
+        this.maxPatternLen = maxPatternLen;
+    }
+
     /**
      * Returns the accept id for {@code state}, or -1 if the state is non-accepting.
      * For {@link MweLexicon}, the accept id is the {@link CharsDic} ordinal of the canonical form.
@@ -161,6 +185,56 @@ public final class IntAutomaton
         return maxPatternLen;
     }
 
+    /**
+     * Restores an automaton saved by {@link #write(DataOutputStream)}, in the same state. A frozen
+     * automaton gets its packed arrays back as they are; a mutable one gets its trie rebuilt from
+     * them, one node per state, without replaying the patterns.
+     *
+     * @param in reader positioned at the start of the saved automaton
+     * @return the restored automaton
+     * @throws IOException if the data is truncated or inconsistent
+     */
+    public static IntAutomaton read(final SegmentReader in) throws IOException
+    {
+        final boolean frozen   = in.readBoolean();
+        final int maxLen       = in.readCount("max pattern length");
+        final int nStates      = in.readCount("state count");
+        final int arcs         = in.readCount("arc count");
+        final int[] offset     = in.readInts(nStates + 1);
+        final int[] label      = in.readInts(arcs);
+        final int[] target     = in.readInts(arcs);
+        final int[] acceptId   = in.readInts(nStates);
+        if (nStates < 1 || offset[0] != 0 || offset[nStates] != arcs) {
+            throw new IOException("Bad automaton: states=" + nStates + " arcs=" + arcs);
+        }
+        for (int s = 0; s < nStates; s++) {
+            if (offset[s] > offset[s + 1]) throw new IOException("Bad automaton offsets at state " + s);
+        }
+        for (int t : target) {
+            if (t < 0 || t >= nStates) throw new IOException("Bad automaton target: " + t);
+        }
+        if (frozen) return new IntAutomaton(maxLen, offset, label, target, acceptId);
+
+        final Node[] nodes = new Node[nStates];
+        for (int s = 0; s < nStates; s++) nodes[s] = new Node();
+        for (int s = 0; s < nStates; s++) {
+            final Node n   = nodes[s];
+            final int base = offset[s];
+            final int deg  = offset[s + 1] - base;
+            n.acceptId = acceptId[s];
+            if (deg > n.labels.length) {
+                n.labels  = new int[deg];
+                n.targets = new Node[deg];
+            }
+            for (int i = 0; i < deg; i++) {
+                n.labels[i]  = label[base + i];
+                n.targets[i] = nodes[target[base + i]];
+            }
+            n.deg = deg;
+        }
+        return new IntAutomaton(nodes[0], maxLen);
+    }
+
     /**
      * Root state; pass as the initial state to the first {@link #step} call.
      *
@@ -207,6 +281,32 @@ public final class IntAutomaton
         return -1;
     }
 
+    /**
+     * Saves the automaton for {@link #read(SegmentReader)}, frozen or not: state flag, then CSR
+     * arrays. A mutable trie is packed breadth-first as {@link #freeze} would, arcs kept in
+     * insertion order, into a copy; the trie itself is left untouched.
+     *
+     * @param out destination stream
+     * @throws IOException if writing fails
+     */
+    public void write(final DataOutputStream out) throws IOException
+    {
+        IntAutomaton packed = this;
+        if (trieRoot != null) {
+            // pack into another instance, the trie stays mutable
+            packed = new IntAutomaton(null, maxPatternLen);
+            packed.pack(trieRoot);
+        }
+        out.writeBoolean(trieRoot == null);
+        out.writeInt(maxPatternLen);
+        out.writeInt(packed.acceptId.length);
+        out.writeInt(packed.label.length);
+        IOUtil.writeInts(out, packed.offset, packed.offset.length);
+        IOUtil.writeInts(out, packed.label, packed.label.length);
+        IOUtil.writeInts(out, packed.target, packed.target.length);
+        IOUtil.writeInts(out, packed.acceptId, packed.acceptId.length);
+    }
+
     /**
      * Mutable trie node. During the build phase a node owns a small growable arc list
      * ({@link #labels}/{@link #targets}); during preparation the arcs are sorted and, for
@@ -1,5 +1,7 @@
 package com.github.oeuvres.alix.util;
 
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.Objects;
 
 /**
@@ -87,6 +89,16 @@ public final class LemmaLexicon
         this.lemmas = new LongIntMap(entries);
     }
 
+    /**
+     * Restores a lexicon from its parts, see {@link #read(SegmentReader)}.
+     */
+    private LemmaLexicon(final CharsDic forms, final LongIntMap lemmas, final OnDuplicate onDuplicate)
+    {
+        this.forms = forms;
+        this.lemmas = lemmas;
+        this.onDuplicate = onDuplicate;
+    }
+
     /**
      * Returns an interned form as a new {@link String}.
      *
@@ -415,6 +427,24 @@ public final class LemmaLexicon
         }
     }
 
+    /**
+     * Restores a lexicon saved by {@link #write(DataOutputStream)}.
+     *
+     * @param in reader positioned at the start of the saved lexicon
+     * @return a mutable lexicon with the same ids
+     * @throws IOException if the data is truncated or inconsistent
+     */
+    public static LemmaLexicon read(final SegmentReader in) throws IOException
+    {
+        final int policy = in.readInt();
+        if (policy < 0 || policy >= OnDuplicate.values().length) {
+            throw new IOException("Bad duplicate policy: " + policy);
+        }
+        final CharsDic forms = CharsDic.read(in);
+        final LongIntMap lemmas = LongIntMap.read(in);
+        return new LemmaLexicon(forms, lemmas, OnDuplicate.values()[policy]);
+    }
+
     /**
      * Returns the number of interned forms.
      *
@@ -434,6 +464,20 @@ public final class LemmaLexicon
         lemmas.trimToSize();
     }
 
+    /**
+     * Saves the lexicon for {@link #read(SegmentReader)}: duplicate policy,
+     * form dictionary, then mapping table.
+     *
+     * @param out destination stream
+     * @throws IOException if writing fails
+     */
+    public void write(final DataOutputStream out) throws IOException
+    {
+        out.writeInt(onDuplicate.ordinal());
+        forms.write(out);
+        lemmas.write(out);
+    }
+
     /**
      * Duplicate handling policy for lemma mappings.
      */
@@ -1,5 +1,7 @@
 package com.github.oeuvres.alix.util;
 
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.Arrays;
 
 /**
@@ -124,6 +126,22 @@ public final class LongIntMap
         allocate(cap);
     }
     
+    /**
+     * Restores a map from its table, see {@link #read(SegmentReader)}.
+     */
+    private LongIntMap(float loadFactor, int missingValue, long[] keys, int[] values, int size, boolean hasZeroKey, int zeroValue)
+    {
+        this.loadFactor = loadFactor;
+        this.missingValue = missingValue;
+        this.keys = keys;
+        this.values = values;
+        this.mask = keys.length - 1;
+        this.resizeAt = (int) (keys.length * loadFactor);
+        this.size = size;
+        this.hasZeroKey = hasZeroKey;
+        this.zeroValue = zeroValue;
+    }
+    
     /**
      * Returns the sentinel returned by {@link #get(long)} when a key is absent.
      * <p>
@@ -365,6 +383,49 @@ public final class LongIntMap
         return true;
     }
     
+    /**
+     * Restores a map saved by {@link #write(DataOutputStream)}, without
+     * rehashing.
+     *
+     * @param in reader positioned at the start of the saved map
+     * @return a mutable map with the same entries
+     * @throws IOException if the data is truncated or inconsistent
+     */
+    public static LongIntMap read(final SegmentReader in) throws IOException
+    {
+        final float loadFactor = in.readFloat();
+        final int missingValue = in.readInt();
+        final int size = in.readCount("size");
+        final boolean hasZeroKey = in.readBoolean();
+        final int zeroValue = in.readInt();
+        final int capacity = in.readCount("capacity");
+        if (!(loadFactor > 0.0f && loadFactor < 1.0f) || Integer.bitCount(capacity) != 1 || size > capacity) {
+            throw new IOException("Bad map header: loadFactor=" + loadFactor + " capacity=" + capacity + " size=" + size);
+        }
+        final long[] keys = in.readLongs(capacity);
+        final int[] values = in.readInts(capacity);
+        return new LongIntMap(loadFactor, missingValue, keys, values, size, hasZeroKey, zeroValue);
+    }
+    
+    /**
+     * Saves the map for {@link #read(SegmentReader)}: settings, then the
+     * key and value tables as they are.
+     *
+     * @param out destination stream
+     * @throws IOException if writing fails
+     */
+    public void write(final DataOutputStream out) throws IOException
+    {
+        out.writeFloat(loadFactor);
+        out.writeInt(missingValue);
+        out.writeInt(size);
+        out.writeBoolean(hasZeroKey);
+        out.writeInt(zeroValue);
+        out.writeInt(keys.length);
+        IOUtil.writeLongs(out, keys, keys.length);
+        IOUtil.writeInts(out, values, values.length);
+    }
+    
 
     private void allocate(int capacity)
     {
@@ -182,6 +182,76 @@ public class Markup
         return escape(cs, true);
     }
 
+    /**
+     * Plain text of an HTML fragment, for text exports: tags are stripped,
+     * entities decoded (see {@link #unescape(CharSequence)}), spaces kept.
+     *
+     * @param html inline HTML fragment, {@code null} accepted.
+     * @return text without markup, empty for {@code null}.
+     */
+    public static String text(final CharSequence html)
+    {
+        if (html == null) {
+            return "";
+        }
+        final int n = html.length();
+        final StringBuilder out = new StringBuilder(n);
+        boolean inTag = false;
+        for (int i = 0; i < n; i++) {
+            final char c = html.charAt(i);
+            if (inTag) {
+                if (c == '>') inTag = false;
+            } else if (c == '<') {
+                inTag = true;
+            } else {
+                out.append(c);
+            }
+        }
+        return unescape(out);
+    }
+
+    /**
+     * Decodes the entities of the HTML escapes: {@code &amp;}, {@code &lt;},
+     * {@code &gt;}, {@code &quot;}, {@code &apos;}, {@code &nbsp;}, and the
+     * numeric ones. Unknown entities are left verbatim.
+     *
+     * @param cs escaped text.
+     * @return decoded text.
+     */
+    public static String unescape(final CharSequence cs)
+    {
+        final String s = cs.toString();
+        if (s.indexOf('&') < 0) return s;
+        final int n = s.length();
+        final StringBuilder sb = new StringBuilder(n);
+        int i = 0;
+        while (i < n) {
+            final char c = s.charAt(i);
+            if (c != '&') { sb.append(c); i++; continue; }
+            final int semi = s.indexOf(';', i);
+            if (semi < 0 || semi - i > 10) { sb.append(c); i++; continue; }
+            final String ent = s.substring(i + 1, semi);
+            final String rep = switch (ent) {
+                case "amp" -> "&";
+                case "lt" -> "<";
+                case "gt" -> ">";
+                case "quot" -> "\"";
+                case "apos", "#39" -> "'";
+                case "nbsp" -> "\u00a0";
+                default -> null;
+            };
+            if (rep != null) { sb.append(rep); i = semi + 1; }
+            else if (ent.startsWith("#x") || ent.startsWith("#X")) {
+                try { sb.appendCodePoint(Integer.parseInt(ent.substring(2), 16)); i = semi + 1; }
+                catch (IllegalArgumentException e) { sb.append(c); i++; }
+            } else if (ent.startsWith("#")) {
+                try { sb.appendCodePoint(Integer.parseInt(ent.substring(1))); i = semi + 1; }
+                catch (IllegalArgumentException e) { sb.append(c); i++; }
+            } else { sb.append(c); i++; }
+        }
+        return sb.toString();
+    }
+
     /**
      * Ensure that a String could be included as html text.
      *
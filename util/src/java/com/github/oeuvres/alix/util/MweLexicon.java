@@ -14,6 +14,8 @@
  */
 package com.github.oeuvres.alix.util;
 
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
@@ -52,6 +54,12 @@ import java.util.Objects;
  * Thread-safety: not thread-safe while building; immutable and safe for
  * concurrent read after {@link #freeze()}.
  * </p>
+ *
+ * <p>
+ * A lexicon saved by {@link #write(DataOutputStream)} is restored by
+ * {@link #read(SegmentReader)} in the same state, mutable or frozen, without
+ * tokenizing its expressions again.
+ * </p>
  */
 public final class MweLexicon
 {
@@ -83,6 +91,17 @@ public final class MweLexicon
         this.tokenDic = new CharsDic(Math.max(8, expectedSize * 3), true);
     }
 
+    /**
+     * Restores a lexicon from its parts, see {@link #read(SegmentReader)}.
+     */
+    private MweLexicon(final IntAutomaton auto, final CharsDic formDic, final CharsDic tokenDic, final boolean frozen)
+    {
+        this.auto = auto;
+        this.formDic = formDic;
+        this.idsBuf = frozen ? null : new int[8];
+        this.tokenDic = tokenDic;
+    }
+
     /**
      * Returns the canonical-form ordinal accepted by an automaton state.
      *
@@ -236,6 +255,22 @@ public final class MweLexicon
         return auto.maxLen();
     }
 
+    /**
+     * Restores a lexicon saved by {@link #write(DataOutputStream)}.
+     *
+     * @param in reader positioned at the start of the saved lexicon
+     * @return the restored lexicon, frozen if it was frozen when saved
+     * @throws IOException if the data is truncated or inconsistent
+     */
+    public static MweLexicon read(final SegmentReader in) throws IOException
+    {
+        final boolean frozen = in.readBoolean();
+        final CharsDic formDic = CharsDic.read(in);
+        final CharsDic tokenDic = CharsDic.read(in);
+        final IntAutomaton auto = IntAutomaton.read(in);
+        return new MweLexicon(auto, formDic, tokenDic, frozen);
+    }
+
     /**
      * Returns the root state of the automaton.
      *
@@ -287,6 +322,21 @@ public final class MweLexicon
         return tokenDic;
     }
 
+    /**
+     * Saves the lexicon for {@link #read(SegmentReader)}: state flag, form and
+     * token dictionaries, then automaton.
+     *
+     * @param out destination stream
+     * @throws IOException if writing fails
+     */
+    public void write(final DataOutputStream out) throws IOException
+    {
+        out.writeBoolean(isFrozen());
+        formDic.write(out);
+        tokenDic.write(out);
+        auto.write(out);
+    }
+
     /**
      * Checks that the lexicon is still mutable.
      *
@@ -5,6 +5,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 /**
  * Minimal diagnostic callback, usable at any layer without
@@ -71,13 +72,13 @@ public interface Report
         }
     }
     
-    /** Prints to stdout/stderr. */
+    /** Prints to stdout/stderr. Thread-safe. */
     public final class ReportConsole implements Report
     {
         Map<String, String> context;
         
         @Override
-        public String getAttribute(final String key, final String ifabsent)
+        public synchronized String getAttribute(final String key, final String ifabsent)
         {
             if (context == null || !context.containsKey(key))
                 return ifabsent;
@@ -85,7 +86,7 @@ public interface Report
         }
         
         @Override
-        public void setAttribute(final String key, final String value)
+        public synchronized void setAttribute(final String key, final String value)
         {
             if (context == null) context = new HashMap<String, String>();
             context.put(key, value);
@@ -128,7 +129,7 @@ public interface Report
      * </p>
      *
      * <p>
-     * Not thread-safe — one instance per request thread.
+     * Thread-safe: messages of parallel workers are kept in arrival order.
      * </p>
      */
     public final class ReportList implements Report
@@ -145,10 +146,10 @@ public interface Report
         
         private final List<Entry> entries = new ArrayList<>();
         
-        Map<String, String> context;
+        private final Map<String, String> context = new HashMap<>();
         
         @Override
-        public String getAttribute(final String key, final String ifabsent)
+        public synchronized String getAttribute(final String key, final String ifabsent)
         {
             if (!context.containsKey(key))
                 return ifabsent;
@@ -156,43 +157,43 @@ public interface Report
         }
         
         @Override
-        public void setAttribute(final String key, final String value)
+        public synchronized void setAttribute(final String key, final String value)
         {
             context.put(key, value);
         }
         
         @Override
-        public void debug(String msg)
+        public synchronized void debug(String msg)
         {
             entries.add(new Entry(Level.DEBUG, msg));
         }
         
         @Override
-        public void info(String msg)
+        public synchronized void info(String msg)
         {
             entries.add(new Entry(Level.INFO, msg));
         }
         
         @Override
-        public void warn(String msg)
+        public synchronized void warn(String msg)
         {
             entries.add(new Entry(Level.WARN, msg));
         }
         
         @Override
-        public void error(String msg)
+        public synchronized void error(String msg)
         {
             entries.add(new Entry(Level.ERROR, msg));
         }
         
-        /** All accumulated entries, in order. */
-        public List<Entry> entries()
+        /** A copy of all accumulated entries, in order. */
+        public synchronized List<Entry> entries()
         {
-            return Collections.unmodifiableList(entries);
+            return Collections.unmodifiableList(new ArrayList<>(entries));
         }
         
         /** True if any message at WARN or ERROR level was recorded. */
-        public boolean hasProblems()
+        public synchronized boolean hasProblems()
         {
             for (Entry e : entries) {
                 if (e.level == Level.WARN || e.level == Level.ERROR)
@@ -202,7 +203,7 @@ public interface Report
         }
         
         /** True if no messages were recorded. */
-        public boolean isEmpty()
+        public synchronized boolean isEmpty()
         {
             return entries.isEmpty();
         }
@@ -211,7 +212,7 @@ public interface Report
          * Concatenates all messages into one string, separated by {@code "; "}.
          * Useful for a compact error response.
          */
-        public String summary()
+        public synchronized String summary()
         {
             if (entries.isEmpty())
                 return "";
@@ -227,9 +228,59 @@ public interface Report
         }
         
         /** Discards all accumulated messages. */
-        public void clear()
+        public synchronized void clear()
         {
             entries.clear();
         }
     }
+    
+    /**
+     * Serializes the calls to another report, for a report of unknown thread-safety shared by
+     * parallel workers.
+     */
+    public final class ReportSynchronized implements Report
+    {
+        private final Report report;
+        
+        public ReportSynchronized(final Report report)
+        {
+            this.report = Objects.requireNonNull(report, "report");
+        }
+        
+        @Override
+        public synchronized String getAttribute(final String key, final String ifabsent)
+        {
+            return report.getAttribute(key, ifabsent);
+        }
+        
+        @Override
+        public synchronized void setAttribute(final String key, final String value)
+        {
+            report.setAttribute(key, value);
+        }
+        
+        @Override
+        public synchronized void debug(final String msg)
+        {
+            report.debug(msg);
+        }
+        
+        @Override
+        public synchronized void info(final String msg)
+        {
+            report.info(msg);
+        }
+        
+        @Override
+        public synchronized void warn(final String msg)
+        {
+            report.warn(msg);
+        }
+        
+        @Override
+        public synchronized void error(final String msg)
+        {
+            report.error(msg);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,222 @@
+package com.github.oeuvres.alix.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.util.Objects;
+
+/**
+ * Sequential big-endian reader over a {@link MemorySegment}, the read side of the binary
+ * snapshots written with {@link java.io.DataOutputStream} and the array writers of
+ * {@link IOUtil}.
+ * <p>
+ * Arrays are copied with one bulk {@link MemorySegment#copy(MemorySegment, ValueLayout, long, Object, int, int)}
+ * each, so loading a snapshot costs about a memory copy, with no parsing and no rehashing. The
+ * segment may be a file mapped with {@link IOUtil#mapReadOnly(java.nio.file.Path, java.lang.foreign.Arena)}
+ * or a heap segment over the bytes of a classpath resource; the arrays returned are on heap and
+ * do not depend on the segment after the read.
+ * </p>
+ * <p>
+ * Not thread-safe.
+ * </p>
+ */
+public final class SegmentReader
+{
+    /** Big-endian layouts, as written by {@link java.io.DataOutputStream}. */
+    private static final ValueLayout.OfShort BE_SHORT = ValueLayout.JAVA_SHORT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final ValueLayout.OfChar BE_CHAR = ValueLayout.JAVA_CHAR_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final ValueLayout.OfInt BE_INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final ValueLayout.OfLong BE_LONG = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final ValueLayout.OfFloat BE_FLOAT = ValueLayout.JAVA_FLOAT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+
+    /** Source bytes. */
+    private final MemorySegment data;
+
+    /** Byte offset of the next read. */
+    private long pos;
+
+    /**
+     * Creates a reader positioned at the start of a segment.
+     *
+     * @param data source bytes
+     * @throws NullPointerException if {@code data} is {@code null}
+     */
+    public SegmentReader(
+        final MemorySegment data
+    ) {
+        this.data = Objects.requireNonNull(data, "data");
+    }
+
+    /**
+     * Returns the byte offset of the next read.
+     *
+     * @return current position
+     */
+    public long position()
+    {
+        return pos;
+    }
+
+    /**
+     * Returns the count of bytes not yet read.
+     *
+     * @return remaining bytes
+     */
+    public long remaining()
+    {
+        return data.byteSize() - pos;
+    }
+
+    /**
+     * Reads a boolean written by {@link java.io.DataOutputStream#writeBoolean(boolean)}.
+     *
+     * @return value read
+     * @throws IOException if the segment is exhausted
+     */
+    public boolean readBoolean() throws IOException
+    {
+        require(1);
+        return data.get(ValueLayout.JAVA_BYTE, pos++) != 0;
+    }
+
+    /**
+     * Reads a 4-byte float.
+     *
+     * @return value read
+     * @throws IOException if the segment is exhausted
+     */
+    public float readFloat() throws IOException
+    {
+        require(Float.BYTES);
+        final float v = data.get(BE_FLOAT, pos);
+        pos += Float.BYTES;
+        return v;
+    }
+
+    /**
+     * Reads a 4-byte int.
+     *
+     * @return value read
+     * @throws IOException if the segment is exhausted
+     */
+    public int readInt() throws IOException
+    {
+        require(Integer.BYTES);
+        final int v = data.get(BE_INT, pos);
+        pos += Integer.BYTES;
+        return v;
+    }
+
+    /**
+     * Reads a 4-byte length or count, checked non-negative.
+     *
+     * @param name what is read, for the error message
+     * @return value read
+     * @throws IOException if the segment is exhausted or the value is negative
+     */
+    public int readCount(final String name) throws IOException
+    {
+        final int v = readInt();
+        if (v < 0) {
+            throw new IOException("Negative " + name + ": " + v + " at byte " + (pos - Integer.BYTES));
+        }
+        return v;
+    }
+
+    /**
+     * Reads an 8-byte long.
+     *
+     * @return value read
+     * @throws IOException if the segment is exhausted
+     */
+    public long readLong() throws IOException
+    {
+        require(Long.BYTES);
+        final long v = data.get(BE_LONG, pos);
+        pos += Long.BYTES;
+        return v;
+    }
+
+    /**
+     * Reads an array of chars.
+     *
+     * @param len count of values
+     * @return new array
+     * @throws IOException if the segment is exhausted or {@code len} is negative
+     */
+    public char[] readChars(final int len) throws IOException
+    {
+        require((long) len * Character.BYTES);
+        final char[] a = new char[len];
+        MemorySegment.copy(data, BE_CHAR, pos, a, 0, len);
+        pos += (long) len * Character.BYTES;
+        return a;
+    }
+
+    /**
+     * Reads an array of ints.
+     *
+     * @param len count of values
+     * @return new array
+     * @throws IOException if the segment is exhausted or {@code len} is negative
+     */
+    public int[] readInts(final int len) throws IOException
+    {
+        require((long) len * Integer.BYTES);
+        final int[] a = new int[len];
+        MemorySegment.copy(data, BE_INT, pos, a, 0, len);
+        pos += (long) len * Integer.BYTES;
+        return a;
+    }
+
+    /**
+     * Reads an array of longs.
+     *
+     * @param len count of values
+     * @return new array
+     * @throws IOException if the segment is exhausted or {@code len} is negative
+     */
+    public long[] readLongs(final int len) throws IOException
+    {
+        require((long) len * Long.BYTES);
+        final long[] a = new long[len];
+        MemorySegment.copy(data, BE_LONG, pos, a, 0, len);
+        pos += (long) len * Long.BYTES;
+        return a;
+    }
+
+    /**
+     * Reads an array of shorts.
+     *
+     * @param len count of values
+     * @return new array
+     * @throws IOException if the segment is exhausted or {@code len} is negative
+     */
+    public short[] readShorts(final int len) throws IOException
+    {
+        require((long) len * Short.BYTES);
+        final short[] a = new short[len];
+        MemorySegment.copy(data, BE_SHORT, pos, a, 0, len);
+        pos += (long) len * Short.BYTES;
+        return a;
+    }
+
+    /**
+     * Checks that a read is possible: a length read from corrupted data may be negative.
+     *
+     * @param bytes bytes about to be read
+     * @throws EOFException if fewer bytes remain
+     * @throws IOException  if {@code bytes} is negative
+     */
+    private void require(final long bytes) throws IOException
+    {
+        if (bytes < 0) {
+            throw new IOException("Negative length: " + bytes + " bytes at byte " + pos);
+        }
+        if (bytes > data.byteSize() - pos) {
+            throw new EOFException("Truncated data: " + bytes + " bytes needed at byte " + pos + ", size=" + data.byteSize());
+        }
+    }
+}
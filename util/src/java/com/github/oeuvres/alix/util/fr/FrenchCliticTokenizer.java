@@ -351,6 +351,13 @@ public final class FrenchCliticTokenizer implements WordTokenizer {
         final int len = text.length();
 
         while (offset < len) {
+            // Latin letters are token chars unchanged by normalization, copied by run
+            final int run = Char.span(text, offset, len, Char.LATIN);
+            if (run > offset) {
+                raw.append(text, offset, run);
+                offset = run;
+                continue;
+            }
             final char c = normalizeChar(text.charAt(offset++));
             if (isTokenChar(c)) {
                 raw.append(c);
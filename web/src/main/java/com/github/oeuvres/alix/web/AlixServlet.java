@@ -544,11 +544,13 @@ public class AlixServlet extends HttpServlet
         ops.put("chrono", new OpChrono());
         ops.put("cooc-profile", new OpCoocProfile());
         ops.put("doc", new OpDoc());
+        ops.put("facet", new OpFacet());
         ops.put("freqlist", new OpFreqlist());
         ops.put("results", new OpResults());
         ops.put("snippets", new OpSnippets());
         ops.put("suggest", new OpSuggest());
         ops.put("terms", new OpTerms());
+        ops.put("terms-compare", new OpTermsCompare());
         ops.put("vec-map", new OpVecMap());
     }
 
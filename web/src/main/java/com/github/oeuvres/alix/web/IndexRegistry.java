@@ -7,20 +7,26 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.apache.lucene.search.Query;
+
 import com.github.oeuvres.alix.lucene.LuceneIndex;
 
 /**
@@ -65,6 +71,21 @@ import com.github.oeuvres.alix.lucene.LuceneIndex;
  * it has been retired for at least {@code graceMillis}.
  * </p>
  *
+ * <h2>Warm-up</h2>
+ * <p>
+ * An index whose configuration sets a {@code prewarm} budget is prewarmed
+ * on the poll thread before it is published, while the previous handle
+ * keeps serving: {@link LuceneIndex#prewarm} loads its files in memory and
+ * replays the {@value #REPLAY_FILTERS} most recent filters of the handle it
+ * replaces. The time and resident bytes are logged.
+ * </p>
+ * <p>
+ * An index whose configuration sets {@code warmup} is published at once,
+ * then its field resources are loaded by {@link LuceneIndex#warm} on a small
+ * pool of daemon threads, instead of by the first requests. Requests arriving
+ * during the warm-up wait only for the resources they need, already loading.
+ * </p>
+ *
  * <h2>Thread safety</h2>
  * <p>
  * Only the poll thread mutates the internal bookkeeping and reassigns the
@@ -81,6 +102,12 @@ public final class IndexRegistry implements Closeable
     /** Directory-name suffixes that mark a non-servable directory. */
     public static final Set<String> RESERVED_SUFFIXES = Set.of(".new", ".tmp", ".old", ".bad");
 
+    /** Recent filters of a replaced handle searched again on its successor. */
+    private static final int REPLAY_FILTERS = 32;
+
+    /** Threads loading the resources of published indexes. */
+    private static final int WARM_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+
     private final Path root;
     private final long pollMillis;
     private final long graceMillis;
@@ -99,6 +126,9 @@ public final class IndexRegistry implements Closeable
 
     private ScheduledExecutorService poller;
 
+    /** Background loads of published indexes, see {@link LuceneIndex#warmup()}. */
+    private ExecutorService warmer;
+
     /**
      * Creates a registry over a root directory.
      *
@@ -163,6 +193,12 @@ public final class IndexRegistry implements Closeable
         if (poller != null) {
             throw new IllegalStateException("IndexRegistry already started");
         }
+        final AtomicInteger warmers = new AtomicInteger();
+        warmer = Executors.newFixedThreadPool(WARM_THREADS, runnable -> {
+            final Thread t = new Thread(runnable, "alix-index-warmer-" + warmers.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
         scan();
         final ThreadFactory factory = runnable -> {
             final Thread t = new Thread(runnable, "alix-index-scanner");
@@ -189,6 +225,10 @@ public final class IndexRegistry implements Closeable
             }
             poller = null;
         }
+        if (warmer != null) {
+            warmer.shutdownNow();
+            warmer = null;
+        }
         for (LuceneIndex index : live.values()) {
             closeQuietly(index);
         }
@@ -236,6 +276,7 @@ public final class IndexRegistry implements Closeable
         final Map<String, Path> servable = listServable();
         final long now = System.currentTimeMillis();
         final Map<String, LuceneIndex> next = new LinkedHashMap<>(live);
+        final List<LuceneIndex> opened = new ArrayList<>();
 
         for (Map.Entry<String, Path> e : servable.entrySet()) {
             final String name = e.getKey();
@@ -251,8 +292,10 @@ public final class IndexRegistry implements Closeable
             }
 
             try {
-                final LuceneIndex opened = LuceneIndex.open(dir);
-                final LuceneIndex previous = next.put(name, opened);
+                final LuceneIndex index = LuceneIndex.open(dir);
+                prewarm(index, next.get(name));
+                final LuceneIndex previous = next.put(name, index);
+                opened.add(index);
                 tokens.put(name, token);
                 failedTokens.remove(name);
                 if (previous != null) {
@@ -289,9 +332,56 @@ public final class IndexRegistry implements Closeable
         }
 
         live = next;
+        for (LuceneIndex index : opened) {
+            if (index.warmup()) {
+                warm(index);
+            }
+        }
         sweepRetiring(now);
     }
 
+    /**
+     * Prewarms an index before publication, when configured. A failure is
+     * logged and does not prevent publication: the index is only colder.
+     */
+    private static void prewarm(
+        final LuceneIndex index,
+        final LuceneIndex previous
+    ) {
+        if (index.prewarmBytes() == 0) {
+            return;
+        }
+        final List<Query> replay = (previous == null)
+            ? List.of()
+            : previous.filterCache().queries(REPLAY_FILTERS);
+        try {
+            LOG.info("Prewarmed index '" + index.name() + "': " + index.prewarm(replay));
+        }
+        catch (IOException | RuntimeException e) {
+            LOG.log(Level.WARNING, "Prewarm of index '" + index.name() + "' failed", e);
+        }
+    }
+
+    /**
+     * Loads the field resources of a published index in the background and
+     * logs the outcome. A failure is only logged: the request needing the
+     * resource will report it.
+     */
+    private void warm(
+        final LuceneIndex index
+    ) {
+        final long start = System.nanoTime();
+        index.warm(warmer).whenComplete((v, e) -> {
+            final long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            if (e == null) {
+                LOG.info("Warmed index '" + index.name() + "' in " + millis + " ms");
+            }
+            else {
+                LOG.log(Level.WARNING, "Warm-up of index '" + index.name() + "' failed after " + millis + " ms", e);
+            }
+        });
+    }
+
     /**
      * Wraps {@link #scan()} so a thrown error cannot silently cancel the
      * scheduled task.
@@ -2,6 +2,9 @@ package com.github.oeuvres.alix.web;
 
 import java.io.IOException;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
 import org.apache.lucene.document.IntPoint;
@@ -12,6 +15,7 @@ import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.BooleanQuery.Builder;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.util.FixedBitSet;
 
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -21,8 +25,10 @@ import com.github.oeuvres.alix.lucene.fluc.Fluc;
 import com.github.oeuvres.alix.lucene.fluc.FlucFacet;
 import com.github.oeuvres.alix.lucene.fluc.FlucNum;
 import com.github.oeuvres.alix.lucene.fluc.FlucText;
+import com.github.oeuvres.alix.lucene.snippets.DocSnippets;
 import com.github.oeuvres.alix.lucene.snippets.SpanQueryParser;
 import com.github.oeuvres.alix.lucene.snippets.SpanQueryParser.ParseResult;
+import com.github.oeuvres.alix.lucene.snippets.SpanWalker;
 import com.github.oeuvres.alix.lucene.terms.KeynessScorer;
 import com.github.oeuvres.alix.util.fr.FrenchCliticTokenizer;
 import com.github.oeuvres.alix.web.AlixServlet;
@@ -76,11 +82,53 @@ import static com.github.oeuvres.alix.common.Names.*;
  * filters common to every operation from a shared set of parameters
  * ({@code fyear}, {@code start}, {@code end}, {@code type}, {@code t}).
  * </p>
+ *
+ * <h2>Parallel walks</h2>
+ * <p>
+ * Aggregations over span matches (chrono, terms, suggest, cooccurrence
+ * profile) walk in docId slices on the shared daemon pool
+ * {@link #WALK_POOL}, through
+ * {@link SpanWalker#walk(SpanWalker.MergeableConsumer, ExecutorService, int)}.
+ * Each slice forks accumulators as large as the vocabulary, so the count of
+ * slices is given by {@link #walkSlices(SpanWalker)} from the cost of the
+ * query: one slice for a rare pivot, at most {@link #WALK_SLICES}.
+ * </p>
  */
 public abstract class Op
 {
     protected static final Logger LOG = Logger.getLogger(Op.class.getName());
 
+    /** Most slices of a parallel span walk, one per core up to 4. */
+    static final int WALK_SLICES = Math.min(Runtime.getRuntime().availableProcessors(), 4);
+
+    /** Estimated documents of a span walk per slice, below which a walk runs in one slice. */
+    static final int WALK_SLICE_DOCS = 4096;
+
+    /** Daemon threads shared by the parallel span walks of all operations, one per core. */
+    static final ExecutorService WALK_POOL;
+    static {
+        final AtomicInteger threadNo = new AtomicInteger();
+        WALK_POOL = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+            Thread t = new Thread(r, "alix-walk-" + threadNo.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Count of slices for a parallel walk, one per {@link #WALK_SLICE_DOCS}
+     * documents estimated by {@link SpanWalker#cost()}, from 1 to
+     * {@link #WALK_SLICES}.
+     *
+     * @param walker span walker about to walk
+     * @return count of slices
+     * @throws IOException if the cost cannot be estimated
+     */
+    static int walkSlices(final SpanWalker walker) throws IOException
+    {
+        return (int) Math.max(1L, Math.min(WALK_SLICES, walker.cost() / WALK_SLICE_DOCS));
+    }
+
     /**
      * Dispatches a request to the format method matching the requested
      * output. {@code format == null} routes to {@link #page} (the default
@@ -344,6 +392,24 @@ public abstract class Op
             return filterQuery;
     }
 
+    /**
+     * Builds a {@link SpanWalker} whose filter is materialized through the
+     * filter cache of the index, shared with the other operations of the
+     * same user action.
+     *
+     * @param index       target Lucene index
+     * @param spanQuery   span query to enumerate
+     * @param snippets    reusable per-document snippet collector
+     * @param filterQuery optional filter query, or {@code null}
+     * @return a walker over the filtered span matches
+     * @throws IOException if query rewrite or filter search fails
+     */
+    static SpanWalker spanWalker(LuceneIndex index, SpanQuery spanQuery, DocSnippets snippets, Query filterQuery) throws IOException
+    {
+        final FixedBitSet acceptedDocs = (filterQuery == null) ? null : index.filter(filterQuery);
+        return new SpanWalker(index.searcher(), spanQuery, snippets, filterQuery, acceptedDocs);
+    }
+
     /**
      * Parses the {@code q} parameter into a {@link SpanQuery} on the
      * text field given by {@code ftext} (defaulting to
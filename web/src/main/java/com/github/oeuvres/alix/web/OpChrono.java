@@ -54,14 +54,14 @@ public class OpChrono extends Op
         }
         // same as for the span query parser
         final int slop = pars.getInt(SLOP, SLOP_RANGE, SLOP_DEFAULT, SLOP);
-        final SpanWalker walker = new SpanWalker(
-            index.searcher(),
+        final SpanWalker walker = spanWalker(
+            index,
             spanQuery,
             new DocSnippets(DocSnippets.Usage.FREQS, slop),
             filterQuery
         );
         final HistoSnippets consumer = new HistoSnippets(histo);
-        walker.walk(consumer);
+        walker.walk(consumer, WALK_POOL, walkSlices(walker));
         return histo;
     }
     
@@ -135,8 +135,8 @@ public final class OpCoocProfile extends Op
         // one walk at the widest radius fills every tick
         final int slop = pars.getInt(SLOP, SLOP_RANGE, SLOP_DEFAULT, SLOP);
         final Query filterQuery = filterQuery(index, pars, meta);
-        final SpanWalker walker = new SpanWalker(
-            index.searcher(),
+        final SpanWalker walker = spanWalker(
+            index,
             spanQuery,
             new DocSnippets(DocSnippets.Usage.POSITIONS, slop),
             filterQuery);
@@ -144,7 +144,8 @@ public final class OpCoocProfile extends Op
         final CoocProfile profile = new CoocProfile(textStats, textLexicon, ticks);
         final CoocProfileSnippets consumer = new CoocProfileSnippets(
             profile, textStats, textFluc.termRail(), left, right);
-        walker.walk(consumer);
+        // each slice fills its own wide profile, ticks × vocabulary counts
+        walker.walk(consumer, WALK_POOL, Math.min(walkSlices(walker), 2));
         profile.cumulate();
 
         final KeynessScorer scorer = tsort(pars);
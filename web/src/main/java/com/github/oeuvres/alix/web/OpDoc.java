@@ -2,9 +2,9 @@ package com.github.oeuvres.alix.web;
 
 import java.io.IOException;
 import java.io.Writer;
+import java.util.Set;
 import java.util.logging.Logger;
 
-import org.apache.lucene.document.Document;
 import org.apache.lucene.index.StoredFields;
 import org.apache.lucene.queries.spans.SpanQuery;
 
@@ -41,10 +41,23 @@ public class OpDoc extends Op
             ;
             return;
         }
-        final StoredFields storedFields = index.reader().storedFields();
-        Document doc = storedFields.document(docId);
-        String content = doc.get(index.content());
-        if (content == null || content.isBlank()) {
+        final String field = index.content();
+        final SpanQuery spanQuery = spanQuery(index, pars, meta);
+        // same as for the span query parser
+        final int slop = (spanQuery == null) ? 0 : pars.getInt(SLOP, SLOP_RANGE, SLOP_DEFAULT, SLOP);
+        // repeated page views of a document are served from the cache
+        final String content = index.docCache().html(index.searcher(), docId, field, spanQuery, slop, () -> {
+            final StoredFields storedFields = index.reader().storedFields();
+            final String text = storedFields.document(docId, Set.of(field)).get(field);
+            if (text == null || text.isBlank()) {
+                return null;
+            }
+            if (spanQuery == null) {
+                return text;
+            }
+            return new HiliteSnippets(index.searcher(), spanQuery, slop).highlight(docId, text);
+        });
+        if (content == null) {
             response.setStatus(404);
             writer
                 .append("<p class=\"error\">")
@@ -55,13 +68,6 @@ public class OpDoc extends Op
             ;
             return;
         }
-        SpanQuery spanQuery = spanQuery(index, pars, meta);
-        // highlight
-        if (spanQuery != null) {
-            // same as for the span query parser
-            final int slop = pars.getInt(SLOP, SLOP_RANGE, SLOP_DEFAULT, SLOP);
-            content = new HiliteSnippets(index.searcher(), spanQuery, slop).highlight(docId, content);
-        }
         writer.write(content);
     }
 
@@ -0,0 +1,167 @@
+package com.github.oeuvres.alix.web;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.apache.lucene.search.Query;
+import org.apache.lucene.util.FixedBitSet;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import com.github.oeuvres.alix.lucene.LuceneIndex;
+import com.github.oeuvres.alix.lucene.fluc.FlucString;
+import com.github.oeuvres.alix.util.Markup;
+import com.github.oeuvres.alix.util.TopArray;
+import com.github.oeuvres.alix.web.util.HttpPars;
+import com.google.gson.stream.JsonWriter;
+
+import static com.github.oeuvres.alix.web.Pars.*;
+
+/**
+ * {@code /{index}/facet} — document counts by value of a keyword field, for the sidebar.
+ *
+ * <p>
+ * Without corpus filters, the counts are the live totals of the field, counted once per snapshot.
+ * With filters, the filter query is rewritten as by the filter cache, its documents come from that
+ * cache, and the counts are memoised by the field under the same key
+ * ({@link FlucString#countByLabel(Object, org.apache.lucene.util.BitSet)}): repeated renders of
+ * the sidebar for the same filters are a map lookup.
+ * </p>
+ *
+ * <h2>Parameters</h2>
+ * <table>
+ *   <tr><td>{@code facet}</td><td>keyword field, category or facet; <em>required</em></td></tr>
+ *   <tr><td>{@code terms}</td><td>values returned, most frequent first; default 50</td></tr>
+ *   <tr><td>{@code year}, {@code type}, {@code t}</td><td>corpus filters, as elsewhere</td></tr>
+ * </table>
+ *
+ * <h2>Response</h2>
+ * <pre>
+ * {
+ *   "meta": { … },
+ *   "data": [
+ *     { "label": "Balzac", "docs": 91 },
+ *     …
+ *   ]
+ * }
+ * </pre>
+ */
+public final class OpFacet extends Op
+{
+    @Override
+    protected void html(
+        final LuceneIndex index,
+        final HttpServletRequest request,
+        final HttpServletResponse response
+    ) throws IOException {
+        final HttpPars pars = (HttpPars) request.getAttribute(ALIX_PARS);
+        final MetaUtil meta = (MetaUtil) request.getAttribute(ALIX_META);
+        final FlucString fluc = flucString(index, pars, meta);
+        final Writer writer = response.getWriter();
+        if (fluc == null) {
+            meta.toHtml(writer, pars);
+            return;
+        }
+        final TopArray top = top(index, pars, meta, fluc);
+        writer.append("<table class=\"facet\">\n");
+        for (TopArray.TopEntry entry : top) {
+            writer.append("  <tr>\n")
+              .append("    <td class=\"label\">%s</td>\n".formatted(Markup.escapeText(fluc.label(entry.id()))))
+              .append("    <td class=\"docs\" align=\"right\">%d</td>\n".formatted((int) entry.score()))
+              .append("  </tr>\n");
+        }
+        writer.append("</table>\n");
+    }
+
+    @Override
+    protected void json(
+        final LuceneIndex index,
+        final HttpServletRequest request,
+        final HttpServletResponse response
+    ) throws IOException {
+        final HttpPars pars = (HttpPars) request.getAttribute(ALIX_PARS);
+        final MetaUtil meta = (MetaUtil) request.getAttribute(ALIX_META);
+        final FlucString fluc = flucString(index, pars, meta);
+        final TopArray top = (fluc == null) ? null : top(index, pars, meta, fluc);
+        final JsonWriter jw = new JsonWriter(response.getWriter());
+        jw.beginObject();
+        jw.name("meta");
+        jw.beginObject();
+        meta.toJson(jw, pars);
+        jw.endObject(); // meta
+        if (top != null) {
+            jw.name("data");
+            jw.beginArray();
+            for (TopArray.TopEntry entry : top) {
+                jw.beginObject();
+                jw.name("label").value(fluc.label(entry.id()));
+                jw.name("docs").value((int) entry.score());
+                jw.endObject();
+            }
+            jw.endArray();
+        }
+        jw.endObject();
+    }
+
+    /**
+     * Keyword field of the {@code facet} parameter.
+     *
+     * @param index target Lucene index
+     * @param pars  resolved parameters
+     * @param meta  request-level meta accumulator; an error is recorded here when {@code null} is
+     *              returned
+     * @return category or facet field, or {@code null} on a parameter error
+     */
+    private static FlucString flucString(
+        final LuceneIndex index,
+        final HttpPars pars,
+        final MetaUtil meta
+    ) {
+        final String facet = pars.getString(FACET, null);
+        if (facet == null) {
+            pars.response().setStatus(400);
+            meta.put("error", "parameter 'facet' (keyword field) is required");
+            return null;
+        }
+        if (!(index.fluc(facet) instanceof FlucString fluc)) {
+            pars.response().setStatus(404);
+            meta.put("error", "field '" + facet + "' not found or not a keyword field");
+            return null;
+        }
+        meta.put("facet", facet);
+        return fluc;
+    }
+
+    /**
+     * Most frequent values of the field among the filtered documents.
+     *
+     * @param index target Lucene index
+     * @param pars  resolved parameters
+     * @param meta  request-level meta accumulator
+     * @param fluc  keyword field
+     * @return labelIds ranked by document count, values absent from the filter excluded
+     * @throws IOException if the filter search fails
+     */
+    private static TopArray top(
+        final LuceneIndex index,
+        final HttpPars pars,
+        final MetaUtil meta,
+        final FlucString fluc
+    ) throws IOException {
+        final int limit = pars.getInt(TERMS, TERMS_RANGE, TERMS_DEFAULT, TERMS);
+        final Query filterQuery = filterQuery(index, pars, meta);
+        final int[] counts;
+        if (filterQuery == null) {
+            counts = fluc.countByLabel();
+        }
+        else {
+            // same key as the filter cache, so that the memo follows its entries
+            final Query key = index.searcher().rewrite(filterQuery);
+            final FixedBitSet docs = index.filter(key);
+            meta.put("docs", docs.cardinality());
+            counts = fluc.countByLabel(key, docs);
+        }
+        return new TopArray(limit, TopArray.NO_ZERO).push(counts);
+    }
+}
@@ -18,6 +18,7 @@ import org.apache.lucene.util.FixedBitSet;
 import com.github.oeuvres.alix.office.Docx;
 import com.github.oeuvres.alix.lucene.LuceneIndex;
 import com.github.oeuvres.alix.lucene.snippets.DocxResults;
+import com.github.oeuvres.alix.lucene.snippets.LinesResults;
 import com.github.oeuvres.alix.lucene.fluc.FlucNum;
 import com.github.oeuvres.alix.lucene.fluc.FlucText;
 import com.github.oeuvres.alix.lucene.snippets.ResultsSnippets;
@@ -29,7 +30,6 @@ import com.github.oeuvres.alix.lucene.snippets.TopSnippetCollector;
 import com.github.oeuvres.alix.lucene.terms.IdfTermScorer;
 import com.github.oeuvres.alix.lucene.terms.TermRail;
 import com.github.oeuvres.alix.lucene.terms.TermStats;
-import com.github.oeuvres.alix.lucene.util.BitsCollectorManager;
 import com.github.oeuvres.alix.util.Detagger;
 import com.github.oeuvres.alix.util.TopSlot;
 import com.github.oeuvres.alix.web.util.HttpPars;
@@ -79,7 +79,7 @@ public class OpResults extends Op {
 
         FixedBitSet bits = null;
         if (filterQuery != null) {
-            bits = index.searcher().search(filterQuery, new BitsCollectorManager(index.searcher()));
+            bits = index.filter(filterQuery);
         }
         final SpanQuery spanQuery = spanQuery(index, pars, meta);
 
@@ -152,8 +152,8 @@ public class OpResults extends Op {
         }
 
         DocSnippets snippets = new DocSnippets(DocSnippets.Usage.OFFSETS, slop);
-        final SpanWalker walker = new SpanWalker(
-            index.searcher(),
+        final SpanWalker walker = spanWalker(
+            index,
             spanQuery,
             snippets,
             filterQuery
@@ -179,8 +179,8 @@ public class OpResults extends Op {
             // to have the counts of snippets, we need to loop all docs
             // we need a TopSlot<Snippet> to display to snippets
             final DocSnippets posSnips = new DocSnippets(DocSnippets.Usage.OFFSETS, slop);
-            final SpanWalker posWalker = new SpanWalker(
-                index.searcher(),
+            final SpanWalker posWalker = spanWalker(
+                index,
                 spanQuery,
                 posSnips,
                 filterQuery
@@ -495,7 +495,7 @@ public class OpResults extends Op {
 
         final byte[] template = Docx.classpath("/templates/template.docx");
         final DocSnippets snippets = new DocSnippets(DocSnippets.Usage.OFFSETS, slop);
-        final SpanWalker walker = new SpanWalker(index.searcher(), spanQuery, snippets, filterQuery);
+        final SpanWalker walker = spanWalker(index, spanQuery, snippets, filterQuery);
 
         try (OutputStream os = response.getOutputStream()) {
             final DocxResults renderer = new DocxResults(
@@ -520,6 +520,12 @@ public class OpResults extends Op {
         final HttpPars pars = (HttpPars) request.getAttribute(ALIX_PARS);
         final MetaUtil meta = (MetaUtil) request.getAttribute(ALIX_META);
         final SpanQuery spanQuery = spanQuery(index, pars, meta);
+        final String sort = pars.getString(SORT, DOCS, Set.of(DOCS, SNIPPETS, DATE), SORT);
+        // snippet-centric export, one line per concordance snippet
+        if (spanQuery != null && SNIPPETS.equals(sort)) {
+            lines(index, request, response, LinesResults.Format.CSV);
+            return;
+        }
         FlucText contentFluc = contentFluc(index, pars, meta);
         TermStats contentStats = contentFluc.termStats();
         StoredFields contentStored = index.reader().storedFields();
@@ -579,4 +585,65 @@ public class OpResults extends Op {
             ;
         }
     }
+
+    @Override
+    protected void jsonl(
+        final LuceneIndex index,
+        final HttpServletRequest request,
+        final HttpServletResponse response
+    ) throws IOException {
+        lines(index, request, response, LinesResults.Format.JSONL);
+    }
+
+    /**
+     * Streams the whole concordance, one line per snippet, in docId order.
+     * Lines are written as the walker produces them, nothing is ranked or
+     * collected, so memory stays constant whatever the number of hits. A
+     * client that goes away stops the walk.
+     *
+     * @param index    corpus
+     * @param request  request
+     * @param response response, content type already set
+     * @param format   line format
+     * @throws IOException on search or write failure
+     */
+    private void lines(
+        final LuceneIndex index,
+        final HttpServletRequest request,
+        final HttpServletResponse response,
+        final LinesResults.Format format
+    ) throws IOException {
+        final HttpPars pars = (HttpPars) request.getAttribute(ALIX_PARS);
+        final MetaUtil meta = (MetaUtil) request.getAttribute(ALIX_META);
+
+        final FlucText contentFluc = contentFluc(index, pars, meta);
+        if (contentFluc == null) {
+            response.sendError(404, "unknown text field: " + pars.getString(FTEXT, index.content()));
+            return;
+        }
+        final SpanQuery spanQuery = spanQuery(index, pars, meta);
+        if (spanQuery == null) {
+            response.sendError(400, "a query is required for a concordance export");
+            return;
+        }
+        final String contentFname = pars.getString(FTEXT, index.content());
+        final int ctx = pars.getInt(CTX, CTX_RANGE, CTX_DEFAULT, CTX);
+        final int slop = pars.getInt(SLOP, SLOP_RANGE, SLOP_DEFAULT, SLOP);
+        final String docline = pars.getString(DOCLINE, index.docline());
+        final Query filterQuery = filterQuery(index, pars, meta);
+
+        final DocSnippets snippets = new DocSnippets(DocSnippets.Usage.OFFSETS, slop);
+        final SpanWalker walker = spanWalker(index, spanQuery, snippets, filterQuery);
+        final LinesResults renderer = new LinesResults(
+                response.getWriter(), format, index.reader().storedFields(), new Detagger(), ctx)
+            .contentField(contentFname)
+            .fieldDocline(docline);
+        try {
+            walker.walk(renderer);
+            renderer.close();
+        }
+        catch (LinesResults.Disconnected e) {
+            meta.log(getClass().getSimpleName() + ": export interrupted by client after " + renderer.lines() + " lines");
+        }
+    }
 }
@@ -15,7 +15,6 @@ import com.github.oeuvres.alix.lucene.snippets.DocSnippets;
 import com.github.oeuvres.alix.lucene.snippets.SpanWalker;
 import com.github.oeuvres.alix.lucene.snippets.TopCoocSnippets;
 import com.github.oeuvres.alix.lucene.terms.TopTerms;
-import com.github.oeuvres.alix.lucene.util.BitsCollectorManager;
 import com.github.oeuvres.alix.web.util.HttpPars;
 
 import jakarta.servlet.http.HttpServletRequest;
@@ -119,16 +118,13 @@ public final class OpSuggest extends Op
             return topTerms;
         }
         if (spanQuery == null) {
-            final FixedBitSet focusDocs = index.searcher().search(
-                filterQuery,
-                new BitsCollectorManager(index.searcher())
-            );
-            return topTerms.select(index.reader(), focusDocs);
+            final FixedBitSet focusDocs = index.filter(filterQuery);
+            return topTerms.select(index.reader(), focusDocs, contentFluc.termRail());
         }
         final int[] pivotIds = contentFluc.termLexicon().termIds(spanQuery);
         final int slop = pars.getInt(SLOP, SLOP_RANGE, SLOP_DEFAULT, SLOP);
-        final SpanWalker walker = new SpanWalker(
-            index.searcher(),
+        final SpanWalker walker = spanWalker(
+            index,
             spanQuery,
             new DocSnippets(DocSnippets.Usage.POSITIONS, slop),
             filterQuery
@@ -140,7 +136,7 @@ public final class OpSuggest extends Op
             slop,
             slop
         ).bindTo(population);
-        walker.walk(consumer);
+        walker.walk(consumer, WALK_POOL, walkSlices(walker));
         consumer.complete();
         topTerms.populationExclude(pivotIds);
         return topTerms;
@@ -19,6 +19,7 @@ import com.github.oeuvres.alix.lucene.snippets.SpanWalker;
 import com.github.oeuvres.alix.lucene.snippets.TopCoocSnippets;
 import com.github.oeuvres.alix.lucene.terms.KeynessScorer;
 import com.github.oeuvres.alix.lucene.terms.PartScorer;
+import com.github.oeuvres.alix.lucene.terms.PartMatrix;
 import com.github.oeuvres.alix.lucene.terms.Partition;
 import com.github.oeuvres.alix.lucene.terms.PartitionScorer;
 import com.github.oeuvres.alix.lucene.terms.TermLexicon;
@@ -26,7 +27,6 @@ import com.github.oeuvres.alix.lucene.terms.TermLexicon.TermFlag;
 import com.github.oeuvres.alix.lucene.terms.IdfTermScorer;
 import com.github.oeuvres.alix.lucene.terms.TopTerms;
 import com.github.oeuvres.alix.lucene.terms.TopTerms.TermEntry;
-import com.github.oeuvres.alix.lucene.util.BitsCollectorManager;
 import com.github.oeuvres.alix.web.util.HttpPars;
 
 import static com.github.oeuvres.alix.web.Pars.*;
@@ -47,6 +47,9 @@ import static com.github.oeuvres.alix.web.Pars.*;
  *   <tr><td>{@code top}</td><td>number of results; default 50, max 500</td></tr>
  *   <tr><td>{@code idfExp}</td><td>BM25 IDF exponent; default 1.3 (theme terms only)</td></tr>
  *   <tr><td>{@code q}</td><td>query terms for co-occurrence mode (future)</td></tr>
+ *   <tr><td>{@code period}</td><td>width of fixed periods, for example 10; a
+ *   {@code start}–{@code end} focus on exactly one period is ranked from the
+ *   persisted term by period matrix; default 0, off</td></tr>
  * </table>
  *
  * <h2>Response</h2>
@@ -118,25 +121,41 @@ public final class OpTerms extends Op
             Query typeQuery = typeQuery(index, pars);
             FixedBitSet bits = null;
             if (typeQuery != null) {
-                bits = index.searcher().search(typeQuery, new BitsCollectorManager(index.searcher()));
+                bits = index.filter(typeQuery);
             }
             
             if (yearQuery != null) {
                 FlucNum fyears = index.flucNum(YEAR);
                 final int start = pars.getInt(START, (int)fyears.min());
                 int end = pars.getInt(END, (int)fyears.max());
+                final PartScorer partScorer = new PartScorer.LogLikelihoodTail();
+                // a focus on one fixed period, ranked from the persisted matrix when built offline
+                final int period = pars.getInt(PERIOD, PERIOD_RANGE, PERIOD_DEFAULT, PERIOD);
+                if (period > 0 && bits == null && end - start + 1 == period) {
+                    final PartMatrix matrix = contentFluc.partMatrix(fyears, period);
+                    if (matrix == null) {
+                        meta.log("no matrix by " + period + ", partition built");
+                    }
+                    final int focusPart = (matrix == null) ? Partition.NO_FOCUS : matrix.part(start);
+                    if (focusPart != Partition.NO_FOCUS && matrix.partFirst(focusPart) == start) {
+                        meta.put("partMatrix", matrix.toString());
+                        return new PartitionScorer(matrix, focusPart, partScorer)
+                            .score(index.reader(), topTerms, terms);
+                    }
+                }
                 
                 // TODO filter by tags
-                final Partition partition = Partition.build(fyears, contentFluc, start, end, bits);
+                // tally of the filter shared with the other foci over it
+                final Partition partition = index.partitionCache().partition(
+                    index.searcher(), fyears, contentFluc, typeQuery, bits, start, end);
                 
-                final PartScorer partScorer = new PartScorer.LogLikelihoodTail();
                 return new PartitionScorer(partition, partScorer)
                     .score(index.reader(), topTerms, terms);
             }
             
             // focus % all rest
-            final FixedBitSet focusDocs = index.searcher().search(filterQuery, new BitsCollectorManager(index.searcher()));
-            return topTerms.select(index.reader(), focusDocs).rank(scorer, terms, tflags);
+            final FixedBitSet focusDocs = index.filter(filterQuery);
+            return topTerms.select(index.reader(), focusDocs, contentFluc.termRail()).rank(scorer, terms, tflags);
         }
         else {
             meta.put("spanQuery", spanQuery.toString());
@@ -146,8 +165,8 @@ public final class OpTerms extends Op
             final int slop = pars.getInt(SLOP, SLOP_RANGE, SLOP_DEFAULT, SLOP);
             final int left = pars.getInt(LEFT, LEFT_RANGE, slop);
             final int right = pars.getInt(RIGHT, RIGHT_RANGE, slop);
-            final SpanWalker walker = new SpanWalker(
-                index.searcher(),
+            final SpanWalker walker = spanWalker(
+                index,
                 spanQuery,
                 new DocSnippets(DocSnippets.Usage.POSITIONS, slop),
                 filterQuery
@@ -160,7 +179,7 @@ public final class OpTerms extends Op
                 left,
                 right
             ).bindTo(population);
-            walker.walk(consumer);
+            walker.walk(consumer, WALK_POOL, walkSlices(walker));
             consumer.complete(); // update TopTerms population
             topTerms.populationExclude(pivotIds);
             topTerms.include(incIds);
@@ -0,0 +1,233 @@
+package com.github.oeuvres.alix.web;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.util.FixedBitSet;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import com.github.oeuvres.alix.lucene.LuceneIndex;
+import com.github.oeuvres.alix.lucene.fluc.FlucText;
+import com.github.oeuvres.alix.lucene.terms.KeynessScorer;
+import com.github.oeuvres.alix.lucene.terms.TermLexicon.TermFlag;
+import com.github.oeuvres.alix.lucene.terms.TopTerms;
+import com.github.oeuvres.alix.lucene.terms.TopTerms.TermEntry;
+import com.github.oeuvres.alix.util.Markup;
+import com.github.oeuvres.alix.web.util.HttpPars;
+import com.google.gson.stream.JsonWriter;
+
+import static com.github.oeuvres.alix.web.Pars.*;
+
+/**
+ * {@code /{index}/terms-compare} — one ranked term list per value of a keyword field.
+ *
+ * <p>
+ * Each {@code focus} value of the {@code facet} field, intersected with the corpus filters, selects
+ * a subset of documents ranked against the rest of the corpus, as {@code /terms} does for one
+ * filter. The postings of the text field are decoded once for all the subsets by
+ * {@link TopTerms#select(org.apache.lucene.index.IndexReader, TopTerms[], byte[])} when the field
+ * is a single-valued category, whose subsets are disjoint, and by
+ * {@link TopTerms#select(org.apache.lucene.index.IndexReader, TopTerms[], FixedBitSet[])}
+ * otherwise, instead of one pass per list. The {@link TopTerms} of each list, from
+ * {@link FlucText#topTerms()}, share the field statistics arrays of their
+ * {@link com.github.oeuvres.alix.lucene.terms.TermStats}, copied once even when the statistics are
+ * mapped, so that N lists cost N populations, not N copies of the statistics.
+ * </p>
+ *
+ * <h2>Parameters</h2>
+ * <table>
+ *   <tr><td>{@code facet}</td><td>keyword field, category or facet; <em>required</em></td></tr>
+ *   <tr><td>{@code focus}</td><td>values of {@code facet}, repeated or comma-separated, one list
+ *       each; <em>required</em>, at most {@value Pars#FOCUS_MAX}</td></tr>
+ *   <tr><td>{@code ftext}</td><td>indexed text field; defaults to the index content field</td></tr>
+ *   <tr><td>{@code terms}</td><td>terms per list; default 50</td></tr>
+ *   <tr><td>{@code tsort}</td><td>keyness scorer: {@code g2} (default), {@code logratio},
+ *       {@code logdice}, {@code chi2}, {@code simple}, {@code count}</td></tr>
+ *   <tr><td>{@code tflag}</td><td>term flags kept in rankings</td></tr>
+ *   <tr><td>{@code year}, {@code type}, {@code t}</td><td>corpus filters, as elsewhere</td></tr>
+ * </table>
+ *
+ * <h2>Response</h2>
+ * <pre>
+ * {
+ *   "meta": { … },
+ *   "data": [
+ *     { "focus": "Balzac", "docs": 91, "tokens": 4120336, "terms": [ … ] },
+ *     …
+ *   ]
+ * }
+ * </pre>
+ */
+public final class OpTermsCompare extends Op
+{
+    @Override
+    protected void html(
+        final LuceneIndex index,
+        final HttpServletRequest request,
+        final HttpServletResponse response
+    ) throws IOException {
+        final HttpPars pars = (HttpPars) request.getAttribute(ALIX_PARS);
+        final MetaUtil meta = (MetaUtil) request.getAttribute(ALIX_META);
+        final String[] foci = foci(pars);
+        final TopTerms[] lists = topTerms(index, pars, meta, foci);
+        final Writer writer = response.getWriter();
+        if (lists == null) {
+            meta.toHtml(writer, pars);
+            return;
+        }
+        for (int i = 0; i < lists.length; i++) {
+            writer.append("<table class=\"terms\">\n");
+            writer.append("  <caption>%s</caption>\n".formatted(Markup.escapeText(foci[i])));
+            int rank = 1;
+            for (TermEntry term : lists[i]) {
+                writer.append("  <tr>\n")
+                  .append("    <th class=\"no\">%d</th>\n".formatted(rank++))
+                  .append("    <td class=\"term\">%s</td>\n".formatted(Markup.escapeText(term.form())))
+                  .append("    <td class=\"count\" align=\"right\">%d</td>\n".formatted(term.freq()))
+                  .append("    <td class=\"docs\" align=\"right\">%d</td>\n".formatted(term.docs()))
+                  .append("    <td class=\"score\" align=\"right\">%f</td>\n".formatted(term.score()))
+                  .append("  </tr>\n");
+            }
+            writer.append("</table>\n");
+        }
+    }
+
+    @Override
+    protected void json(
+        final LuceneIndex index,
+        final HttpServletRequest request,
+        final HttpServletResponse response
+    ) throws IOException {
+        final HttpPars pars = (HttpPars) request.getAttribute(ALIX_PARS);
+        final MetaUtil meta = (MetaUtil) request.getAttribute(ALIX_META);
+        final String[] foci = foci(pars);
+        final TopTerms[] lists = topTerms(index, pars, meta, foci);
+        final JsonWriter jw = new JsonWriter(response.getWriter());
+        jw.beginObject();
+        jw.name("meta");
+        jw.beginObject();
+        meta.toJson(jw, pars);
+        jw.endObject(); // meta
+        if (lists != null) {
+            jw.name("data");
+            jw.beginArray();
+            for (int i = 0; i < lists.length; i++) {
+                jw.beginObject();
+                jw.name("focus").value(foci[i]);
+                jw.name("docs").value(lists[i].docs());
+                jw.name("tokens").value(lists[i].tokens());
+                jw.name("terms");
+                jw.beginArray();
+                TermsUtil.entries(jw, lists[i], false);
+                jw.endArray();
+                jw.endObject();
+            }
+            jw.endArray();
+        }
+        jw.endObject();
+    }
+
+    /**
+     * Requested focus values, deduplicated in request order, at most {@link Pars#FOCUS_MAX}.
+     *
+     * @param pars resolved parameters
+     * @return focus values, possibly empty
+     */
+    private static String[] foci(
+        final HttpPars pars
+    ) {
+        final String[] foci = pars.getStringSet(FOCUS);
+        return (foci.length > FOCUS_MAX) ? Arrays.copyOf(foci, FOCUS_MAX) : foci;
+    }
+
+    /**
+     * Selects and ranks one term list per focus value, in a single postings pass.
+     *
+     * @param index target Lucene index
+     * @param pars  resolved parameters
+     * @param meta  request-level meta accumulator; an error is recorded here when {@code null} is
+     *              returned
+     * @param foci  focus values of the {@code facet} field
+     * @return ranked lists in the order of {@code foci}, or {@code null} on a parameter error
+     * @throws IOException if filter search or postings traversal fails
+     */
+    protected static TopTerms[] topTerms(
+        final LuceneIndex index,
+        final HttpPars pars,
+        final MetaUtil meta,
+        final String[] foci
+    ) throws IOException {
+        final String facet = pars.getString(FACET, null);
+        if (facet == null) {
+            pars.response().setStatus(400);
+            meta.put("error", "parameter 'facet' (keyword field) is required");
+            return null;
+        }
+        final boolean disjoint = index.flucCategory(facet) != null;
+        if (!disjoint && index.flucFacet(facet) == null) {
+            pars.response().setStatus(404);
+            meta.put("error", "field '" + facet + "' not found or not a keyword field");
+            return null;
+        }
+        if (foci.length == 0) {
+            pars.response().setStatus(400);
+            meta.put("error", "parameter 'focus' (values of '" + facet + "') is required");
+            return null;
+        }
+        final FlucText contentFluc = contentFluc(index, pars, meta);
+        if (contentFluc == null) return null;
+
+        final int terms = pars.getInt(TERMS, TERMS_RANGE, TERMS_DEFAULT, TERMS);
+        final TermFlag[] tflags = pars.getEnums(TFLAG, TermFlag.NULL);
+        final KeynessScorer scorer = tsort(pars);
+        final Query filterQuery = filterQuery(index, pars, meta);
+
+        // one subset per focus, through the filter cache shared with the other views
+        final int n = foci.length;
+        final FixedBitSet[] docs = new FixedBitSet[n];
+        final TopTerms[] lists = new TopTerms[n];
+        for (int i = 0; i < n; i++) {
+            Query focusQuery = new TermQuery(new Term(facet, foci[i]));
+            if (filterQuery != null) {
+                focusQuery = new BooleanQuery.Builder()
+                    .add(filterQuery, BooleanClause.Occur.MUST)
+                    .add(focusQuery, BooleanClause.Occur.MUST)
+                    .build();
+            }
+            docs[i] = index.filter(focusQuery);
+            lists[i] = contentFluc.topTerms();
+        }
+
+        if (disjoint) {
+            // a single-valued category puts a document in one subset at most
+            final byte[] docGroup = new byte[index.reader().maxDoc()];
+            Arrays.fill(docGroup, (byte) -1);
+            for (int i = 0; i < n; i++) {
+                final FixedBitSet bits = docs[i];
+                for (int docId = bits.nextSetBit(0); docId != DocIdSetIterator.NO_MORE_DOCS;
+                        docId = (docId + 1 < bits.length()) ? bits.nextSetBit(docId + 1) : DocIdSetIterator.NO_MORE_DOCS) {
+                    docGroup[docId] = (byte) i;
+                }
+            }
+            TopTerms.select(index.reader(), lists, docGroup);
+        }
+        else {
+            TopTerms.select(index.reader(), lists, docs);
+        }
+        for (final TopTerms list : lists) {
+            list.rank(scorer, terms, tflags);
+        }
+        meta.put("facet", facet);
+        meta.put("disjoint", disjoint);
+        return lists;
+    }
+}
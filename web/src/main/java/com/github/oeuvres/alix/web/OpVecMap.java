@@ -1,15 +1,18 @@
 package com.github.oeuvres.alix.web;
 
 import java.io.IOException;
-import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 import com.github.oeuvres.alix.lucene.LuceneIndex;
 import com.github.oeuvres.alix.lucene.fluc.FlucText;
 import com.github.oeuvres.alix.lucene.terms.TermLexicon;
 import com.github.oeuvres.alix.lucene.terms.TopTerms;
 import com.github.oeuvres.alix.lucene.terms.TopTerms.TermEntry;
+import com.github.oeuvres.alix.lucene.vecs.VecHnsw;
 import com.github.oeuvres.alix.lucene.vecs.VecModel;
 import com.github.oeuvres.alix.lucene.vecs.VecMap;
+import com.github.oeuvres.alix.util.TopArray;
 import com.github.oeuvres.alix.web.util.HttpPars;
 import com.google.gson.stream.JsonWriter;
 
@@ -18,10 +21,16 @@ import jakarta.servlet.http.HttpServletResponse;
 
 import static com.github.oeuvres.alix.web.Pars.ALIX_META;
 import static com.github.oeuvres.alix.web.Pars.ALIX_PARS;
+import static com.github.oeuvres.alix.web.Pars.NEAR;
+import static com.github.oeuvres.alix.web.Pars.NEAR_DEFAULT;
+import static com.github.oeuvres.alix.web.Pars.NEAR_RANGE;
 
 /**
  * Produces the two-dimensional factor map from TopTerms for a query,
- * from a pregenerated word2vec like model.
+ * from a pregenerated word2vec like model, the {@code <field>.bin} or
+ * {@code <field>.vq} sidecar of the content field. With {@code near=k}, the k
+ * nearest neighbours of each pivot in the model, found by its
+ * {@link VecHnsw} graph, are added to the map as nodes of type "near".
  */
 public class OpVecMap extends Op
 {
@@ -48,10 +57,19 @@ public class OpVecMap extends Op
             AlixServlet.jsonError(request, response);
             return;
         }
-        FlucText contentFluc = contentFluc(lucene, pars, meta);
-        // Path path = Path.of("models/piaget,dims300,window30,iter20,negative10,alpha0.025.bin");
-        Path path = Path.of("models/piaget-word2vec-coocs50-power0.5-stop2-dims300.bin");
-        VecModel vecModel = VecModel.get(path);
+        final FlucText contentFluc = contentFluc(lucene, pars, meta);
+        if (contentFluc == null) {
+            AlixServlet.jsonError(request, response);
+            return;
+        }
+        // model sidecar of the field, opened and released with the index
+        final VecModel vecModel = contentFluc.vecModel();
+        VecHnsw vecHnsw = null;
+        final int near = pars.getInt(NEAR, NEAR_RANGE, NEAR_DEFAULT);
+        if (vecModel != null && near > 0) {
+            vecHnsw = contentFluc.vecHnsw();
+            if (vecHnsw == null) meta.log("[no current vector graph, neighbours skipped]");
+        }
         if (vecModel == null) {
             response.setStatus(400);
             meta.log("[no model for this field]");
@@ -68,11 +86,30 @@ public class OpVecMap extends Op
         }
 
         for (final TermEntry term : topTerms) {
-            if (vecModel.id(term.form()) < 0) {
+            if (vecModel.id(term.form()) < 0 || map.index(term.form()) >= 0) {
                 continue;
             }
             map.add(term.form());
         }
+        // approximate nearest neighbours of pivots, not in the term list
+        final List<String> neighbours = new ArrayList<>();
+        if (vecHnsw != null) {
+            for (final TopTerms.ExcludedTerm pivot : topTerms.excludedTerms()) {
+                final int id = vecModel.id(pivot.form());
+                if (id < 0) {
+                    continue;
+                }
+                final TopArray top = vecHnsw.nearest(id, near);
+                for (int rank = 0, n = top.size(); rank < n; rank++) {
+                    final String form = vecModel.word(top.id(rank));
+                    if (map.index(form) >= 0) {
+                        continue;
+                    }
+                    map.add(form);
+                    neighbours.add(form);
+                }
+            }
+        }
         // what could be done if term not in model? Out of sync model, or not in 10000.
         map.distances(vecModel);
         map.layout();
@@ -122,7 +159,16 @@ public class OpVecMap extends Op
                 json.name("score").value(round(term.score(), 4));
                 json.endObject();
             }
-            
+            for (final String form : neighbours) {
+                final VecMap.Point point = map.point(map.index(form));
+                json.beginObject();
+                json.name("form").value(point.key());
+                json.name("x").value(round(point.x(), 4));
+                json.name("y").value(round(point.y(), 4));
+                json.name("quality").value(round(point.quality(), 4));
+                json.name("type").value("near");
+                json.endObject();
+            }
 
             json.endArray();
             json.endObject();
@@ -19,6 +19,9 @@ public class Pars
     public static final int    DOCS_DEFAULT     = 100;
     public static final int[]  DOCS_RANGE       = {1, 10000};
     public static final String END              = "end";
+    public static final String FACET            = "facet";
+    public static final String FOCUS            = "focus";
+    public static final int    FOCUS_MAX        = 32;
     public static final String FTEXT            = "ftext";
     public static final String FYEAR            = "fyear";
     public static final String FROM             = "from";
@@ -30,6 +33,12 @@ public class Pars
     public static final int[]  LEFT_RANGE       = {0, 200};
     public static final String LOG_LIKELIHOOD   = "loglikelihood";
     public static final String LOG_RATIO        = "logratio";
+    public static final String NEAR             = "near";
+    public static final int    NEAR_DEFAULT     = 0;
+    public static final int[]  NEAR_RANGE       = {0, 50};
+    public static final String PERIOD           = "period";
+    public static final int    PERIOD_DEFAULT   = 0;
+    public static final int[]  PERIOD_RANGE     = {0, 1000};
     public static final String Q                = "q";
     public static final String RIGHT             = "right";
     public static final int    RIGHT_DEFAULT     = 5;
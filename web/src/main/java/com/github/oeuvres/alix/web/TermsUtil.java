@@ -57,39 +57,54 @@ public class TermsUtil
         if (terms != null) {
             jw.name("data");
             jw.beginArray();
-            
-            // loop on pivots
-            for (final TopTerms.ExcludedTerm pivot : terms.excludedTerms()) {
-                jw.beginObject();
-                jw.name("form").value(pivot.form());
-                jw.name("type").value("pivot");
-                jw.name("docs").value(pivot.docs());
-                if (hasContexts) jw.name("snippets").value(pivot.contexts());
-                jw.name("freq").value(pivot.freq());
-                jw.name("fieldDocs").value(pivot.fieldDocs());
-                jw.name("fieldFreq").value(pivot.fieldFreq());
-                jw.name("id").value(pivot.termId());
-                jw.endObject();
-            }
-            
-            int rank = 1;
-            for (TermEntry term : terms) {
-                jw.beginObject();
-                jw.name("rank").value(rank++);
-                jw.name("form").value(term.form());
-                jw.name("id").value(term.termId());
-                jw.name("html").value(term.hilite()); // for suggest
-                jw.name("docs").value(term.docs());
-                if (hasContexts) jw.name("snippets").value(term.contexts());
-                jw.name("fieldDocs").value(term.fieldDocs());
-                jw.name("freq").value(term.freq());
-                jw.name("fieldFreq").value(term.fieldFreq());
-                jw.name("score").value(term.score()); // for terms
-                jw.endObject();
-            }
+            entries(jw, terms, hasContexts);
             jw.endArray();
         }
 
         jw.endObject();
     }
+
+    /**
+     * Writes the pivots then the ranked terms of a list, as array elements.
+     *
+     * @param jw          writer positioned inside an array
+     * @param terms       ranked terms
+     * @param hasContexts whether snippet counts are meaningful
+     * @throws IOException if writing fails
+     */
+    static void entries(
+        final JsonWriter jw,
+        final TopTerms terms,
+        final boolean hasContexts
+    ) throws IOException {
+        // loop on pivots
+        for (final TopTerms.ExcludedTerm pivot : terms.excludedTerms()) {
+            jw.beginObject();
+            jw.name("form").value(pivot.form());
+            jw.name("type").value("pivot");
+            jw.name("docs").value(pivot.docs());
+            if (hasContexts) jw.name("snippets").value(pivot.contexts());
+            jw.name("freq").value(pivot.freq());
+            jw.name("fieldDocs").value(pivot.fieldDocs());
+            jw.name("fieldFreq").value(pivot.fieldFreq());
+            jw.name("id").value(pivot.termId());
+            jw.endObject();
+        }
+
+        int rank = 1;
+        for (TermEntry term : terms) {
+            jw.beginObject();
+            jw.name("rank").value(rank++);
+            jw.name("form").value(term.form());
+            jw.name("id").value(term.termId());
+            jw.name("html").value(term.hilite()); // for suggest
+            jw.name("docs").value(term.docs());
+            if (hasContexts) jw.name("snippets").value(term.contexts());
+            jw.name("fieldDocs").value(term.fieldDocs());
+            jw.name("freq").value(term.freq());
+            jw.name("fieldFreq").value(term.fieldFreq());
+            jw.name("score").value(term.score()); // for terms
+            jw.endObject();
+        }
+    }
 }